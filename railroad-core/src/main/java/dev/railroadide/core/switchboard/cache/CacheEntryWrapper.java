@@ -2,9 +2,18 @@ package dev.railroadide.core.switchboard.cache;
 
 import com.google.gson.reflect.TypeToken;
 
+/**
+ * An entry read from a cache, with its key and type.
+ *
+ * @param size the stored size of the entry in bytes, or 0 if unknown
+ */
 public record CacheEntryWrapper(
     String key,
     MetadataCacheEntry<?> entry,
-    TypeToken<?> typeToken
+    TypeToken<?> typeToken,
+    long size
 ) {
+    public CacheEntryWrapper(String key, MetadataCacheEntry<?> entry, TypeToken<?> typeToken) {
+        this(key, entry, typeToken, 0);
+    }
 }
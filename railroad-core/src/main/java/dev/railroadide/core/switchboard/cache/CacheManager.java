@@ -1,16 +1,34 @@
 package dev.railroadide.core.switchboard.cache;
 
 import com.google.gson.reflect.TypeToken;
+import dev.railroadide.core.utility.ServiceLocator;
+import dev.railroadide.logger.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.function.Supplier;
+import java.util.function.Function;
 
 public interface CacheManager {
-    <T> CompletableFuture<Optional<MetadataCacheEntry<T>>> get(String key, TypeToken<@NotNull T> typeToken);
+    /**
+     * Gets an entry from the cache, including one that has expired, so that it can be served while it is revalidated.
+     *
+     * @param key       the cache key
+     * @param typeToken the type of the value
+     * @param <T>       the type of the value
+     * @return a future of the entry, or of an empty optional if there is none
+     */
+    <T> CompletableFuture<Optional<MetadataCacheEntry<T>>> getIncludingExpired(String key, TypeToken<@NotNull T> typeToken);
+
+    /**
+     * Gets an entry from the cache, treating an expired entry as missing.
+     */
+    default <T> CompletableFuture<Optional<MetadataCacheEntry<T>>> get(String key, TypeToken<@NotNull T> typeToken) {
+        return getIncludingExpired(key, typeToken).thenApply(opt -> opt.filter(entry -> !entry.isExpired()));
+    }
 
     default <T> CompletableFuture<Optional<MetadataCacheEntry<T>>> get(String key, Class<T> type) {
         return get(key, TypeToken.get(type));
@@ -24,51 +42,83 @@ public interface CacheManager {
 
     void invalidate(String key);
 
-    default <T> CompletableFuture<T> getOrFetch(
+    /**
+     * Blocks until the puts and invalidations made so far are stored, for backends that write in the background.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Gets a value from the cache, serving it even if it has expired. An expired value is revalidated in the
+     * background by fetching it again conditionally on its ETag, so that the next call gets the fresh value; if the
+     * server reports it as not modified, only when it was last fetched is updated. Only a missing value is waited on.
+     * Concurrent calls for the same key share one lookup, and concurrent revalidations one fetch.
+     *
+     * @param key       the cache key
+     * @param typeToken the type of the value
+     * @param ttl       how long a fetched value stays fresh
+     * @param fetcher   fetches the value given the ETag of the cached value, or {@code null} if nothing is cached
+     * @param <T>       the type of the value
+     * @return a future of the cached or fetched value
+     */
+    default <T> CompletableFuture<T> getOrRevalidate(
         String key,
         TypeToken<T> typeToken,
         Duration ttl,
-        Supplier<CompletableFuture<T>> fetcher
+        Function<@Nullable String, CompletableFuture<FetchResult<T>>> fetcher
     ) {
-        return get(key, typeToken).thenCompose(opt ->
-            opt.map(entry -> CompletableFuture.completedFuture(entry.data()))
-                .orElseGet(() -> fetcher.get().thenApply(fresh -> {
-                    put(key, fresh, ttl, typeToken);
-                    return fresh;
-                }))
-        );
+        return SingleFlight.forCache(this).run(key, () -> getIncludingExpired(key, typeToken).thenCompose(opt -> {
+            if (opt.isEmpty())
+                return fetcher.apply(null).thenApply(result -> storeFetched(key, typeToken, ttl, null, result));
+
+            MetadataCacheEntry<T> entry = opt.get();
+            if (entry.isExpired()) {
+                revalidate(key, typeToken, ttl, entry, fetcher);
+            }
+
+            return CompletableFuture.completedFuture(entry.data());
+        }));
     }
 
-    default <T> CompletableFuture<T> getOrFetch(
+    default <T> CompletableFuture<T> getOrRevalidate(
         String key,
         Class<T> typeToken,
         Duration ttl,
-        Supplier<CompletableFuture<T>> fetcher
+        Function<@Nullable String, CompletableFuture<FetchResult<T>>> fetcher
     ) {
-        return getOrFetch(key, TypeToken.get(typeToken), ttl, fetcher);
+        return getOrRevalidate(key, TypeToken.get(typeToken), ttl, fetcher);
     }
 
-    default <T> CompletableFuture<Optional<T>> getOrFetchOptional(
+    private <T> void revalidate(
         String key,
         TypeToken<T> typeToken,
         Duration ttl,
-        Supplier<CompletableFuture<Optional<T>>> fetcher
+        MetadataCacheEntry<T> stale,
+        Function<@Nullable String, CompletableFuture<FetchResult<T>>> fetcher
     ) {
-        return get(key, typeToken).thenCompose(opt ->
-            opt.map(entry -> CompletableFuture.completedFuture(Optional.of(entry.data())))
-                .orElseGet(() -> fetcher.get().thenApply(freshOpt -> {
-                    freshOpt.ifPresent(fresh -> put(key, fresh, ttl, typeToken));
-                    return freshOpt;
-                }))
-        );
+        SingleFlight.forCache(this).run("revalidate " + key, () -> fetcher.apply(stale.etag())
+                .thenApply(result -> storeFetched(key, typeToken, ttl, stale, result)))
+            .exceptionally(throwable -> {
+                // The stale value keeps being served, and the next call tries again
+                ServiceLocator.getService(Logger.class).warn("Failed to revalidate cache entry: {}", key, throwable);
+                return null;
+            });
     }
 
-    default <T> CompletableFuture<Optional<T>> getOrFetchOptional(
+    private <T> T storeFetched(
         String key,
-        Class<T> typeToken,
+        TypeToken<T> typeToken,
         Duration ttl,
-        Supplier<CompletableFuture<Optional<T>>> fetcher
+        @Nullable MetadataCacheEntry<T> previous,
+        FetchResult<T> result
     ) {
-        return getOrFetchOptional(key, TypeToken.get(typeToken), ttl, fetcher);
+        if (result.modified())
+            return put(key, new MetadataCacheEntry<>(result.data(), Instant.now(), typeToken, ttl, result.etag()));
+
+        if (previous == null)
+            throw new IllegalStateException("Fetch of " + key + " reported not modified, but nothing is cached");
+
+        String etag = result.etag() != null ? result.etag() : previous.etag();
+        return put(key, new MetadataCacheEntry<>(previous.data(), Instant.now(), typeToken, ttl, etag));
     }
 }
@@ -0,0 +1,35 @@
+package dev.railroadide.core.switchboard.cache;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Function;
+
+/**
+ * The result of a conditional fetch: either new data, or confirmation that the data the caller already has, as
+ * identified by its ETag, is still current.
+ *
+ * @param data     the fetched data, or {@code null} if it was not modified
+ * @param etag     the ETag the server sent, or {@code null} if it sent none
+ * @param modified whether new data was fetched
+ * @param <T>      the type of the data
+ */
+public record FetchResult<T>(@Nullable T data, @Nullable String etag, boolean modified) {
+    public static <T> FetchResult<T> modified(T data, @Nullable String etag) {
+        return new FetchResult<>(data, etag, true);
+    }
+
+    public static <T> FetchResult<T> notModified(@Nullable String etag) {
+        return new FetchResult<>(null, etag, false);
+    }
+
+    /**
+     * Maps the data of a modified result, keeping its ETag.
+     *
+     * @param mapper maps the data
+     * @param <R>    the type of the mapped data
+     * @return the mapped result
+     */
+    public <R> FetchResult<R> map(Function<? super T, ? extends R> mapper) {
+        return this.modified ? new FetchResult<>(mapper.apply(this.data), this.etag, true) : notModified(this.etag);
+    }
+}
@@ -0,0 +1,73 @@
+package dev.railroadide.core.switchboard.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent loads of the same key: callers asking for a key that is already being loaded share that
+ * load instead of starting their own. This is what keeps several comboboxes opening at once from each sending the
+ * same request to the switchboard and each writing its result to the cache.
+ * <p>
+ * A key is only in flight until its load completes, so the next caller after that starts a new load, which for a
+ * cache will normally be a hit.
+ */
+public final class SingleFlight {
+    private static final Map<CacheManager, SingleFlight> CACHES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the in-flight loads of a cache, so that the default methods of {@link CacheManager} can share them.
+     *
+     * @param cache the cache
+     * @return the single flight of the cache
+     */
+    public static SingleFlight forCache(CacheManager cache) {
+        return CACHES.computeIfAbsent(cache, ignored -> new SingleFlight());
+    }
+
+    /**
+     * Loads a key, or joins the load of it that is already running. Loads of the same key must produce the same type.
+     *
+     * @param key    the key
+     * @param loader starts the load, only called if the key is not already being loaded
+     * @param <T>    the type of the value
+     * @return a future of the value; cancelling it does not cancel the shared load
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> run(String key, Supplier<CompletableFuture<T>> loader) {
+        var created = new CompletableFuture<T>();
+        CompletableFuture<?> existing = this.inFlight.putIfAbsent(key, created);
+        if (existing != null)
+            return ((CompletableFuture<T>) existing).copy();
+
+        try {
+            Objects.requireNonNull(loader.get(), "loader returned null future").whenComplete((value, throwable) -> {
+                // Removed before completing, so that callers woken by the result never join a finished load
+                this.inFlight.remove(key, created);
+                if (throwable != null) {
+                    created.completeExceptionally(throwable);
+                } else {
+                    created.complete(value);
+                }
+            });
+        } catch (RuntimeException exception) {
+            this.inFlight.remove(key, created);
+            created.completeExceptionally(exception);
+        }
+
+        return created.copy();
+    }
+
+    /**
+     * @return the number of keys currently being loaded
+     */
+    public int size() {
+        return this.inFlight.size();
+    }
+}
@@ -0,0 +1,121 @@
+package dev.railroadide.core.switchboard.cache.impl;
+
+import dev.railroadide.core.switchboard.cache.CacheEntryWrapper;
+import dev.railroadide.core.switchboard.cache.CacheManager;
+import dev.railroadide.core.switchboard.cache.MetadataCacheEntry;
+import dev.railroadide.core.utility.ServiceLocator;
+import dev.railroadide.logger.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies the entries of one cache into another.
+ * <p>
+ * Entries are streamed from the source in chunks. The target is asked for every key of a chunk at once, so that a
+ * backend with several read connections looks them up in parallel, and an entry is only copied if the target has no
+ * entry for its key, or an older one. The chunk is then written and {@link CacheManager#flush() flushed}, which for
+ * {@link SqlCacheManager} means one transaction per chunk, and keeps the target from falling behind.
+ * <p>
+ * Rather than sleeping a fixed time per entry, a migration is throttled to a number of bytes per second, so that it
+ * only slows down when it would otherwise hog the disk.
+ */
+public final class CacheMigrator {
+    public static final int CHUNK_SIZE = 256;
+    /**
+     * The default I/O budget of a migration.
+     */
+    public static final long DEFAULT_BYTES_PER_SECOND = 32L * 1024 * 1024;
+    // Charged against the budget for entries whose source does not know their size
+    private static final long UNKNOWN_ENTRY_SIZE = 4 * 1024;
+
+    private CacheMigrator() {
+    }
+
+    /**
+     * Migrates every entry of a cache. Blocks until done, so should be called from a background thread.
+     *
+     * @param source         the cache to copy from
+     * @param target         the cache to copy to
+     * @param bytesPerSecond the I/O budget, or 0 or less for no limit
+     * @return what was migrated
+     * @throws InterruptedException if interrupted, after which the entries migrated so far stay migrated
+     */
+    public static MigrationReport migrate(IterableCacheManager source, CacheManager target, long bytesPerSecond)
+        throws InterruptedException {
+        long start = System.nanoTime();
+        var counts = new Counts();
+        List<CacheEntryWrapper> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (CacheEntryWrapper wrapper : source.entries()) {
+            chunk.add(wrapper);
+            if (chunk.size() == CHUNK_SIZE) {
+                migrateChunk(chunk, target, counts);
+                chunk.clear();
+                throttle(start, counts.bytes, bytesPerSecond);
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            migrateChunk(chunk, target, counts);
+        }
+
+        return new MigrationReport(counts.migrated, counts.skipped, counts.failed, counts.bytes,
+            Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static void migrateChunk(List<CacheEntryWrapper> chunk, CacheManager target, Counts counts)
+        throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException("Cache migration was cancelled");
+
+        List<CompletableFuture<Optional<Instant>>> existing = new ArrayList<>(chunk.size());
+        for (CacheEntryWrapper wrapper : chunk) {
+            existing.add(target.getIncludingExpired(wrapper.key(), wrapper.typeToken())
+                .thenApply(entry -> entry.map(MetadataCacheEntry::lastFetched)));
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+            CacheEntryWrapper wrapper = chunk.get(i);
+            try {
+                Optional<Instant> targetLastFetched = existing.get(i).join();
+                // Don't overwrite entries that were fetched into the target since the source was written
+                if (targetLastFetched.isPresent() && !targetLastFetched.get().isBefore(wrapper.entry().lastFetched())) {
+                    counts.skipped++;
+                    continue;
+                }
+
+                target.put(wrapper.key(), wrapper.entry());
+                counts.migrated++;
+                counts.bytes += wrapper.size() > 0 ? wrapper.size() : UNKNOWN_ENTRY_SIZE;
+            } catch (Exception exception) {
+                counts.failed++;
+                ServiceLocator.getService(Logger.class).error("Failed to migrate cache entry: {}", wrapper.key(), exception);
+            }
+        }
+
+        target.flush();
+    }
+
+    private static void throttle(long start, long bytes, long bytesPerSecond) throws InterruptedException {
+        if (bytesPerSecond <= 0)
+            return;
+
+        long budgetNanos = (long) (bytes / (double) bytesPerSecond * TimeUnit.SECONDS.toNanos(1));
+        long ahead = budgetNanos - (System.nanoTime() - start);
+        if (ahead > 0) {
+            TimeUnit.NANOSECONDS.sleep(ahead);
+        }
+    }
+
+    private static final class Counts {
+        private int migrated;
+        private int skipped;
+        private int failed;
+        private long bytes;
+    }
+}
@@ -0,0 +1,32 @@
+package dev.railroadide.core.switchboard.cache.impl;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+
+/**
+ * Converts the types of cached data from the canonical names the caches store them under, such as
+ * {@code java.util.List<java.lang.String>}, which is what {@link Type#getTypeName()} gives.
+ */
+final class CacheTypes {
+    private CacheTypes() {
+    }
+
+    static Type fromCanonicalName(String name) {
+        return toReflectType(TypeFactory.defaultInstance().constructFromCanonical(name));
+    }
+
+    static Type toReflectType(JavaType type) {
+        if (type.containedTypeCount() == 0)
+            return type.getRawClass();
+
+        Type[] arguments = new Type[type.containedTypeCount()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = toReflectType(type.containedType(i));
+        }
+
+        return TypeToken.getParameterized(type.getRawClass(), arguments).getType();
+    }
+}
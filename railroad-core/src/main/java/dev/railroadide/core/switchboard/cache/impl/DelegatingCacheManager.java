@@ -5,27 +5,55 @@ import dev.railroadide.core.switchboard.cache.CacheManager;
 import dev.railroadide.core.switchboard.cache.MetadataCacheEntry;
 import org.jetbrains.annotations.NotNull;
 
+import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
-public class DelegatingCacheManager implements CacheManager {
+public class DelegatingCacheManager implements MaintainableCacheManager {
     private volatile CacheManager delegate;
 
     public DelegatingCacheManager(CacheManager initial) {
         this.delegate = initial;
     }
 
-    public void switchBackend(CacheManager newBackend, boolean migrate) {
-        if (migrate) {
-            migrate(delegate, newBackend);
+    /**
+     * Switches to another backend. When migrating, the switch is immediate, but until the entries of the current
+     * backend have been copied to the new one in the background, reads the new backend misses fall back to the current
+     * one, see {@link MigratingCacheManager}.
+     *
+     * @param newBackend the backend to switch to
+     * @param migrate    whether to migrate the entries of the current backend
+     * @return a future of what was migrated, completing once the sweep is done; the new backend is only used on its own
+     * if every entry was migrated
+     */
+    public synchronized CompletableFuture<MigrationReport> switchBackend(CacheManager newBackend, boolean migrate) {
+        CacheManager oldBackend = this.delegate;
+        if (!migrate || !(oldBackend instanceof IterableCacheManager)) {
+            this.delegate = newBackend;
+            return CompletableFuture.completedFuture(new MigrationReport(0, 0, 0, 0, Duration.ZERO));
         }
 
-        this.delegate = newBackend;
+        var migrating = new MigratingCacheManager(oldBackend, newBackend);
+        this.delegate = migrating;
+        return migrating.startBackgroundSweep().whenComplete((report, throwable) -> {
+            // Even after a failed sweep, or one that failed to copy some entries, reads keep falling back to the old
+            // backend until switched again
+            if (throwable == null && report.failed() == 0) {
+                finishMigration(migrating, newBackend);
+            }
+        });
+    }
+
+    private synchronized void finishMigration(CacheManager migrating, CacheManager newBackend) {
+        // Unless switched again meanwhile
+        if (this.delegate == migrating) {
+            this.delegate = newBackend;
+        }
     }
 
     @Override
-    public <T> CompletableFuture<Optional<MetadataCacheEntry<T>>> get(String key, TypeToken<@NotNull T> typeToken) {
-        return delegate.get(key, typeToken);
+    public <T> CompletableFuture<Optional<MetadataCacheEntry<T>>> getIncludingExpired(String key, TypeToken<@NotNull T> typeToken) {
+        return delegate.getIncludingExpired(key, typeToken);
     }
 
     @Override
@@ -39,7 +67,18 @@ public class DelegatingCacheManager implements CacheManager {
         delegate.invalidate(key);
     }
 
-    private void migrate(CacheManager oldBackend, CacheManager newBackend) {
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
 
+    /**
+     * Maintains the current backend, if it supports maintenance.
+     */
+    @Override
+    public MaintenanceReport maintain(Duration staleRetention, long diskBudget) {
+        return delegate instanceof MaintainableCacheManager maintainable ?
+            maintainable.maintain(staleRetention, diskBudget) :
+            MaintenanceReport.NONE;
     }
 }
@@ -2,38 +2,64 @@ package dev.railroadide.core.switchboard.cache.impl;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import dev.railroadide.core.switchboard.cache.CacheEntryWrapper;
 import dev.railroadide.core.switchboard.cache.MetadataCacheEntry;
 import dev.railroadide.core.utility.ServiceLocator;
 import dev.railroadide.logger.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.io.Reader;
 import java.io.UncheckedIOException;
-import java.io.Writer;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
-public class JsonCacheManager implements IterableCacheManager {
+/**
+ * A cache that keeps each entry in a JSON file of its own. The data is serialized with the given {@link Gson}, and the
+ * timestamps, time to live and type of each entry as ISO-8601 strings and a canonical type name.
+ */
+public class JsonCacheManager implements IterableCacheManager, MaintainableCacheManager {
     private final Path baseDir;
     private final Gson gson;
-    private final Map<String, MetadataCacheEntry<?>> memoryCache = new ConcurrentHashMap<>();
+    private final MemoryTier memoryCache;
 
     public JsonCacheManager(Path baseDir, Gson gson) throws UncheckedIOException {
+        this(baseDir, gson, MemoryTier.DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * @param baseDir      the directory of the cache files
+     * @param gson         serializes the data of the entries
+     * @param memoryBudget the budget of the in-memory tier, in bytes of serialized data
+     */
+    public JsonCacheManager(Path baseDir, Gson gson, long memoryBudget) throws UncheckedIOException {
         this.baseDir = baseDir;
-        this.gson = gson;
+        this.gson = gson.newBuilder()
+            .registerTypeAdapter(Instant.class, new InstantTypeAdapter())
+            .registerTypeAdapter(Duration.class, new DurationTypeAdapter())
+            .registerTypeHierarchyAdapter(TypeToken.class, new TypeTokenTypeAdapter())
+            .create();
+        this.memoryCache = new MemoryTier(memoryBudget);
 
         try {
             Files.createDirectories(baseDir);
@@ -43,12 +69,12 @@ public class JsonCacheManager implements IterableCacheManager {
     }
 
     @Override
-    public <T> CompletableFuture<Optional<MetadataCacheEntry<T>>> get(String key, TypeToken<@NotNull T> typeToken) {
+    public <T> CompletableFuture<Optional<MetadataCacheEntry<T>>> getIncludingExpired(String key, TypeToken<@NotNull T> typeToken) {
         return CompletableFuture.supplyAsync(() -> {
             // First check in-memory cache
             @SuppressWarnings("unchecked")
             MetadataCacheEntry<T> memEntry = (MetadataCacheEntry<T>) memoryCache.get(key);
-            if (memEntry != null && !memEntry.isExpired())
+            if (memEntry != null)
                 return Optional.of(memEntry);
 
             // Fallback to disk
@@ -56,18 +82,16 @@ public class JsonCacheManager implements IterableCacheManager {
             if (Files.notExists(file))
                 return Optional.empty();
 
-            try (Reader reader = Files.newBufferedReader(file)) {
-                Type wrapperType = TypeToken.getParameterized(MetadataCacheEntry.class, typeToken.getType()).getType();
-                MetadataCacheEntry<T> entry = gson.fromJson(reader, wrapperType);
+            try {
+                String json = Files.readString(file);
+                MetadataCacheEntry<T> entry = gson.fromJson(json, wrapperType(typeToken.getType()));
 
                 if (entry == null)
                     return Optional.empty();
 
-                if (!entry.isExpired()) {
-                    memoryCache.put(key, entry);
-                    return Optional.of(entry);
-                }
-            } catch (IOException exception) {
+                memoryCache.put(key, entry, json.length());
+                return Optional.of(entry);
+            } catch (IOException | JsonParseException exception) {
                 ServiceLocator.getService(Logger.class).warn("Failed to read cache file: {}", file, exception);
                 invalidate(key);
             }
@@ -77,12 +101,28 @@ public class JsonCacheManager implements IterableCacheManager {
 
     @Override
     public <T> T put(String key, MetadataCacheEntry<T> entry) {
-        memoryCache.put(key, entry);
+        String json;
+        try {
+            json = gson.toJson(entry, wrapperType(entry.dataClass().getType()));
+        } catch (RuntimeException exception) {
+            // The old entry is outdated by this one, so it must not be served from memory either
+            memoryCache.remove(key);
+            ServiceLocator.getService(Logger.class).error("Failed to serialize cache entry for key: {}", key, exception);
+            return entry.data();
+        }
+
+        memoryCache.put(key, entry, json.length());
 
         Path file = toPath(key);
-        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
-            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-            gson.toJson(entry, writer);
+        try {
+            // Written aside and moved into place, so that maintenance and readers never see a half-written file
+            Path tempFile = Files.createTempFile(baseDir, "entry-", ".tmp");
+            try {
+                Files.writeString(tempFile, json, StandardCharsets.UTF_8);
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
         } catch (IOException exception) {
             ServiceLocator.getService(Logger.class).warn("Failed to write cache file: {}", file, exception);
         }
@@ -101,51 +141,217 @@ public class JsonCacheManager implements IterableCacheManager {
         }
     }
 
+    /**
+     * @return the counters of the in-memory tier
+     */
+    public MemoryTier.Stats memoryStats() {
+        return memoryCache.stats();
+    }
+
+    private static Type wrapperType(Type dataType) {
+        return TypeToken.getParameterized(MetadataCacheEntry.class, dataType).getType();
+    }
+
     private Path toPath(String key) {
         String safeName = key.replaceAll("[^a-zA-Z0-9._-]", "_");
         return baseDir.resolve(safeName + ".json");
     }
 
+    /**
+     * Deletes the files of entries that have been expired for longer than the retention, or that cannot be read, then
+     * the files of the least recently fetched entries until the directory fits the budget.
+     */
+    @Override
+    public MaintenanceReport maintain(Duration staleRetention, long diskBudget) {
+        Instant expiredBefore = Instant.now().minus(staleRetention);
+        List<CacheFile> files = new ArrayList<>();
+        Set<Path> deleted = new HashSet<>();
+        long bytesBefore = 0;
+        int expired = 0;
+        try (Stream<Path> stream = Files.list(baseDir)) {
+            for (Path path : (Iterable<Path>) stream::iterator) {
+                if (!path.getFileName().toString().endsWith(".json"))
+                    continue;
+
+                long size = Files.size(path);
+                bytesBefore += size;
+                Instant lastFetched = null;
+                try {
+                    JsonObject root = gson.fromJson(Files.readString(path), JsonObject.class);
+                    lastFetched = gson.fromJson(root.get("lastFetched"), Instant.class);
+                    Duration ttl = gson.fromJson(root.get("ttl"), Duration.class);
+                    if (lastFetched.plus(ttl).isBefore(expiredBefore)) {
+                        lastFetched = null;
+                    }
+                } catch (Exception exception) {
+                    ServiceLocator.getService(Logger.class).warn("Removing unreadable cache file: {}", path, exception);
+                }
+
+                if (lastFetched == null) {
+                    if (Files.deleteIfExists(path)) {
+                        deleted.add(path);
+                        expired++;
+                    }
+
+                    continue;
+                }
+
+                files.add(new CacheFile(path, size, lastFetched));
+            }
+        } catch (IOException exception) {
+            ServiceLocator.getService(Logger.class).error("Failed to maintain cache directory: {}", baseDir, exception);
+            memoryCache.removeIf(key -> deleted.contains(toPath(key)));
+            return MaintenanceReport.NONE;
+        }
+
+        long total = files.stream().mapToLong(CacheFile::size).sum();
+        int evicted = 0;
+        files.sort(Comparator.comparing(CacheFile::lastFetched));
+        for (CacheFile file : files) {
+            if (total <= diskBudget)
+                break;
+
+            try {
+                if (Files.deleteIfExists(file.path())) {
+                    deleted.add(file.path());
+                    evicted++;
+                }
+
+                total -= file.size();
+            } catch (IOException exception) {
+                ServiceLocator.getService(Logger.class).warn("Failed to delete cache file: {}", file.path(), exception);
+            }
+        }
+
+        // File names are not unique to a key, so every key that maps to a deleted file goes
+        memoryCache.removeIf(key -> deleted.contains(toPath(key)));
+        return new MaintenanceReport(expired, evicted, bytesBefore, total);
+    }
+
+    private record CacheFile(Path path, long size, Instant lastFetched) {
+    }
+
     private String fromPath(Path path) {
         String fileName = path.getFileName().toString();
         return fileName.substring(0, fileName.length() - ".json".length()).replace('_', ':');
     }
 
+    /**
+     * Lists the cache files up front, but reads each one only when it is reached, and only once.
+     */
     @Override
     public Iterable<CacheEntryWrapper> entries() {
+        List<Path> files;
         try (Stream<Path> stream = Files.list(baseDir)) {
-            return stream.filter(path -> path.getFileName().toString().endsWith(".json"))
-                .map(path -> {
-                    String key = fromPath(path);
-                    try (Reader reader = Files.newBufferedReader(path)) {
-                        JsonObject root = gson.fromJson(reader, JsonObject.class);
-                        if (root == null)
-                            return null;
-
-                        // Read the entry without knowing the data type
-                        MetadataCacheEntry<?> entry = gson.fromJson(root, MetadataCacheEntry.class);
-
-                        // Try to determine the actual data type
-                        TypeToken<?> typeToken = TypeToken.get(Object.class); // fallback
-                        if (root.has("dataClass")) {
-                            try {
-                                String className = root.get("dataClass").getAsString();
-                                typeToken = TypeToken.get(Class.forName(className));
-                            } catch (Exception ignored) {
-                            }
-                        }
-
-                        return new CacheEntryWrapper(key, entry, typeToken);
-                    } catch (Exception exception) {
-                        ServiceLocator.getService(Logger.class).error("Failed to read cache entry: {}", path, exception);
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .toList();
+            files = stream.filter(path -> path.getFileName().toString().endsWith(".json")).toList();
         } catch (IOException exception) {
             ServiceLocator.getService(Logger.class).error("Failed to list cache directory: {}", baseDir, exception);
             return List.of();
         }
+
+        return () -> files.stream()
+            .map(this::readEntry)
+            .filter(Objects::nonNull)
+            .iterator();
+    }
+
+    private @Nullable CacheEntryWrapper readEntry(Path path) {
+        String key = fromPath(path);
+        try {
+            String json = Files.readString(path);
+            JsonObject root = gson.fromJson(json, JsonObject.class);
+            if (root == null)
+                return null;
+
+            // Try to determine the actual data type, so that the data is read as that rather than as maps and lists
+            Type dataType = Object.class; // fallback
+            if (root.has("dataClass")) {
+                try {
+                    dataType = CacheTypes.fromCanonicalName(root.get("dataClass").getAsString());
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+
+            Type wrapperType = TypeToken.getParameterized(MetadataCacheEntry.class, dataType).getType();
+            MetadataCacheEntry<?> entry = gson.fromJson(root, wrapperType);
+            return new CacheEntryWrapper(key, entry, TypeToken.get(dataType), json.length());
+        } catch (Exception exception) {
+            ServiceLocator.getService(Logger.class).error("Failed to read cache entry: {}", path, exception);
+            return null;
+        }
+    }
+
+    private static final class InstantTypeAdapter extends TypeAdapter<Instant> {
+        @Override
+        public void write(JsonWriter out, Instant value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.value(value.toString());
+        }
+
+        @Override
+        public Instant read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            return Instant.parse(in.nextString());
+        }
+    }
+
+    private static final class DurationTypeAdapter extends TypeAdapter<Duration> {
+        @Override
+        public void write(JsonWriter out, Duration value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.value(value.toString());
+        }
+
+        @Override
+        public Duration read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            return Duration.parse(in.nextString());
+        }
+    }
+
+    /**
+     * Writes a type token as the canonical name of its type, the same name {@link SqlCacheManager} stores.
+     */
+    private static final class TypeTokenTypeAdapter extends TypeAdapter<TypeToken<?>> {
+        @Override
+        public void write(JsonWriter out, TypeToken<?> value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.value(value.getType().getTypeName());
+        }
+
+        @Override
+        public TypeToken<?> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            String name = in.nextString();
+            try {
+                return TypeToken.get(CacheTypes.fromCanonicalName(name));
+            } catch (IllegalArgumentException exception) {
+                throw new IOException("Unknown cached data type: " + name, exception);
+            }
+        }
     }
 }
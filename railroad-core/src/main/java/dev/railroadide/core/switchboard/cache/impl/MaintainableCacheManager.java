@@ -0,0 +1,26 @@
+package dev.railroadide.core.switchboard.cache.impl;
+
+import dev.railroadide.core.switchboard.cache.CacheManager;
+
+import java.time.Duration;
+
+/**
+ * A cache whose storage can be cleaned up by a maintenance job, which removes entries that have been expired for too
+ * long to be worth revalidating, keeps the storage within a budget and compacts it.
+ */
+public interface MaintainableCacheManager extends CacheManager {
+    /**
+     * How long past its expiry an entry is kept by default, both on disk and in memory.
+     */
+    Duration DEFAULT_STALE_RETENTION = Duration.ofDays(7);
+
+    /**
+     * Cleans up the storage of the cache. Blocks until done, so should be called from a background thread.
+     *
+     * @param staleRetention how long past its expiry an entry is kept, to be served while it is revalidated
+     * @param diskBudget     the number of bytes of cached data to keep at most; the least recently fetched entries
+     *                       are removed beyond it
+     * @return what was reclaimed
+     */
+    MaintenanceReport maintain(Duration staleRetention, long diskBudget);
+}
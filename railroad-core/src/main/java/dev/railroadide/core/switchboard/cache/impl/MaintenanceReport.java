@@ -0,0 +1,17 @@
+package dev.railroadide.core.switchboard.cache.impl;
+
+/**
+ * What a run of {@link MaintainableCacheManager#maintain} reclaimed.
+ *
+ * @param expiredRemoved the number of entries removed for having been expired too long
+ * @param evicted        the number of entries removed to stay within the disk budget
+ * @param bytesBefore    the size of the storage before, in bytes
+ * @param bytesAfter     the size of the storage after, in bytes
+ */
+public record MaintenanceReport(int expiredRemoved, int evicted, long bytesBefore, long bytesAfter) {
+    public static final MaintenanceReport NONE = new MaintenanceReport(0, 0, 0, 0);
+
+    public long bytesReclaimed() {
+        return Math.max(0, this.bytesBefore - this.bytesAfter);
+    }
+}
@@ -0,0 +1,239 @@
+package dev.railroadide.core.switchboard.cache.impl;
+
+import dev.railroadide.core.switchboard.cache.MetadataCacheEntry;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * The in-memory tier in front of a disk-backed cache, bounded by the total weight of its entries rather than their
+ * count, so that a few large payloads such as full version lists cannot pin an unbounded amount of memory. An entry
+ * weighs roughly its serialized size in bytes.
+ * <p>
+ * When over its budget, the least recently used entries are evicted. Expired entries are kept and served, so that
+ * the caller can see they are expired and revalidate them without going to disk, which matters most when offline.
+ * Only once they have been expired for longer than the stale retention are they dropped, when they are read and by a
+ * sweep that runs at most once a minute on writes.
+ */
+public final class MemoryTier {
+    /**
+     * The default budget, in bytes of serialized data.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 16L * 1024 * 1024;
+    private static final long SWEEP_INTERVAL_MILLIS = 60_000;
+
+    private final long maxWeight;
+    private final Duration staleRetention;
+    private final LinkedHashMap<String, Node> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long lastSweep = System.currentTimeMillis();
+    private long hits;
+    private long staleHits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * @param maxWeight the budget of the tier, in bytes of serialized data
+     */
+    public MemoryTier(long maxWeight) {
+        this(maxWeight, MaintainableCacheManager.DEFAULT_STALE_RETENTION);
+    }
+
+    /**
+     * @param maxWeight      the budget of the tier, in bytes of serialized data
+     * @param staleRetention how long past its expiry an entry is kept, to be served while it is revalidated
+     */
+    public MemoryTier(long maxWeight, Duration staleRetention) {
+        if (maxWeight <= 0)
+            throw new IllegalArgumentException("maxWeight must be positive: " + maxWeight);
+
+        this.maxWeight = maxWeight;
+        this.staleRetention = staleRetention;
+    }
+
+    /**
+     * Gets an entry, counting a hit or a miss. An entry that has expired is still returned, and the caller can tell
+     * from {@link MetadataCacheEntry#isExpired()} that it needs revalidating. An entry expired for longer than the
+     * stale retention is removed and counts as a miss.
+     *
+     * @param key the cache key
+     * @return the entry, or {@code null} if there is none or it has been expired for too long
+     */
+    public synchronized @Nullable MetadataCacheEntry<?> get(String key) {
+        Node node = this.entries.get(key);
+        if (node != null && isPastRetention(node.entry())) {
+            removeNode(key);
+            this.expirations++;
+            node = null;
+        }
+
+        if (node == null) {
+            this.misses++;
+            return null;
+        }
+
+        this.hits++;
+        if (node.entry().isExpired()) {
+            this.staleHits++;
+        }
+
+        return node.entry();
+    }
+
+    /**
+     * Puts an entry, evicting the least recently used entries until the tier is within its budget. Entries expired for
+     * longer than the stale retention, and entries heavier than the whole budget, are not kept, and replace nothing.
+     *
+     * @param key    the cache key
+     * @param entry  the entry
+     * @param weight the weight of the entry, normally its serialized size in bytes
+     */
+    public synchronized void put(String key, MetadataCacheEntry<?> entry, long weight) {
+        putNode(key, entry, weight);
+    }
+
+    /**
+     * Puts an entry unless there already is one for the key.
+     *
+     * @return whether the entry was put
+     */
+    public synchronized boolean putIfAbsent(String key, MetadataCacheEntry<?> entry, long weight) {
+        if (this.entries.containsKey(key))
+            return false;
+
+        return putNode(key, entry, weight);
+    }
+
+    public synchronized void remove(String key) {
+        removeNode(key);
+    }
+
+    /**
+     * Removes the entry of a key only if it is the given entry.
+     */
+    public synchronized void remove(String key, MetadataCacheEntry<?> entry) {
+        Node node = this.entries.get(key);
+        if (node != null && node.entry() == entry) {
+            removeNode(key);
+        }
+    }
+
+    /**
+     * Removes the entries of every key that matches.
+     */
+    public synchronized void removeIf(Predicate<String> key) {
+        Iterator<Map.Entry<String, Node>> iterator = this.entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Node> entry = iterator.next();
+            if (key.test(entry.getKey())) {
+                iterator.remove();
+                this.weight -= entry.getValue().weight();
+            }
+        }
+    }
+
+    /**
+     * Removes every entry that has been expired for longer than the stale retention.
+     *
+     * @return the number of entries removed
+     */
+    public synchronized int removeExpired() {
+        this.lastSweep = System.currentTimeMillis();
+        int removed = 0;
+        Iterator<Node> iterator = this.entries.values().iterator();
+        while (iterator.hasNext()) {
+            Node node = iterator.next();
+            if (isPastRetention(node.entry())) {
+                iterator.remove();
+                this.weight -= node.weight();
+                removed++;
+            }
+        }
+
+        this.expirations += removed;
+        return removed;
+    }
+
+    /**
+     * @return a snapshot of the counters of the tier
+     */
+    public synchronized Stats stats() {
+        return new Stats(this.hits, this.staleHits, this.misses, this.evictions, this.expirations, this.entries.size(), this.weight,
+            this.maxWeight);
+    }
+
+    private boolean putNode(String key, MetadataCacheEntry<?> entry, long weight) {
+        if (System.currentTimeMillis() - this.lastSweep >= SWEEP_INTERVAL_MILLIS) {
+            removeExpired();
+        }
+
+        if (isPastRetention(entry) || weight > this.maxWeight) {
+            // The old entry is outdated by this one, so it must not be served from memory either
+            removeNode(key);
+            return false;
+        }
+
+        Node previous = this.entries.put(key, new Node(entry, weight));
+        if (previous != null) {
+            this.weight -= previous.weight();
+        }
+
+        this.weight += weight;
+        Iterator<Map.Entry<String, Node>> iterator = this.entries.entrySet().iterator();
+        while (this.weight > this.maxWeight && iterator.hasNext()) {
+            Map.Entry<String, Node> eldest = iterator.next();
+            // The entry just put is the most recently used, so it is only reached once everything else is evicted
+            if (eldest.getKey().equals(key))
+                break;
+
+            iterator.remove();
+            this.weight -= eldest.getValue().weight();
+            this.evictions++;
+        }
+
+        return true;
+    }
+
+    private boolean isPastRetention(MetadataCacheEntry<?> entry) {
+        return Instant.now().isAfter(entry.lastFetched().plus(entry.ttl()).plus(this.staleRetention));
+    }
+
+    private void removeNode(String key) {
+        Node node = this.entries.remove(key);
+        if (node != null) {
+            this.weight -= node.weight();
+        }
+    }
+
+    private record Node(MetadataCacheEntry<?> entry, long weight) {
+    }
+
+    /**
+     * The counters of a {@link MemoryTier}.
+     *
+     * @param hits        the number of reads that found an entry
+     * @param staleHits   the number of those hits that found an expired entry, to be revalidated
+     * @param misses      the number of reads that found no entry, or one expired for too long
+     * @param evictions   the number of entries evicted to stay within the budget
+     * @param expirations the number of entries removed for having been expired for too long
+     * @param size        the number of entries
+     * @param weight      the total weight of the entries
+     * @param maxWeight   the budget
+     */
+    public record Stats(long hits, long staleHits, long misses, long evictions, long expirations, int size,
+                        long weight, long maxWeight) {
+        /**
+         * @return the fraction of reads that were hits, or 0 if there were none
+         */
+        public double hitRate() {
+            long requests = this.hits + this.misses;
+            return requests == 0 ? 0 : (double) this.hits / requests;
+        }
+    }
+}
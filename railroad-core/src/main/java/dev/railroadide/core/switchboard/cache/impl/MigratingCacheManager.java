@@ -1,7 +1,6 @@
 package dev.railroadide.core.switchboard.cache.impl;
 
 import com.google.gson.reflect.TypeToken;
-import dev.railroadide.core.switchboard.cache.CacheEntryWrapper;
 import dev.railroadide.core.switchboard.cache.CacheManager;
 import dev.railroadide.core.switchboard.cache.MetadataCacheEntry;
 import dev.railroadide.core.utility.ServiceLocator;
@@ -10,6 +9,7 @@ import lombok.Getter;
 import lombok.Setter;
 import org.jetbrains.annotations.NotNull;
 
+import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
@@ -18,11 +18,16 @@ import java.util.concurrent.Executors;
 public class MigratingCacheManager implements CacheManager {
     private final CacheManager oldBackend;
     private final CacheManager newBackend;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
-    private volatile boolean sweepStarted = false;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "MigratingCacheManager-Sweep");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final CompletableFuture<MigrationReport> sweep = new CompletableFuture<>();
+    private boolean sweepStarted = false;
     @Setter
     @Getter
-    private long sweepThrottleMs = 10;
+    private long sweepBytesPerSecond = CacheMigrator.DEFAULT_BYTES_PER_SECOND;
 
     public MigratingCacheManager(CacheManager oldBackend, CacheManager newBackend) {
         this.oldBackend = oldBackend;
@@ -30,14 +35,14 @@ public class MigratingCacheManager implements CacheManager {
     }
 
     @Override
-    public <T> CompletableFuture<Optional<MetadataCacheEntry<T>>> get(String key, TypeToken<@NotNull T> typeToken) {
+    public <T> CompletableFuture<Optional<MetadataCacheEntry<T>>> getIncludingExpired(String key, TypeToken<@NotNull T> typeToken) {
         // we will try see if the new backend has it first
-        return newBackend.get(key, typeToken).thenCompose(opt -> {
+        return newBackend.getIncludingExpired(key, typeToken).thenCompose(opt -> {
             if (opt.isPresent())
                 return CompletableFuture.completedFuture(opt);
 
             // if not, fetch from old backend and copy to new backend
-            return oldBackend.get(key, typeToken).thenApply(oldOpt -> {
+            return oldBackend.getIncludingExpired(key, typeToken).thenApply(oldOpt -> {
                 oldOpt.ifPresent(entry -> newBackend.put(key, entry));
                 return oldOpt;
             });
@@ -53,13 +58,25 @@ public class MigratingCacheManager implements CacheManager {
 
     @Override
     public void invalidate(String key) {
-        // we only want to invalidate in the new backend, otherwise we might re-migrate it
+        // invalidated in the old backend too, otherwise a read or the sweep would migrate it back
         newBackend.invalidate(key);
+        oldBackend.invalidate(key);
     }
 
-    public void startBackgroundSweep() {
+    @Override
+    public void flush() {
+        newBackend.flush();
+    }
+
+    /**
+     * Starts copying every entry of the old backend to the new one in the background, see {@link CacheMigrator}.
+     * Only the first call starts the sweep.
+     *
+     * @return a future of what was migrated, completing when the sweep is done
+     */
+    public synchronized CompletableFuture<MigrationReport> startBackgroundSweep() {
         if (sweepStarted)
-            return;
+            return sweep.copy();
 
         sweepStarted = true;
 
@@ -67,29 +84,21 @@ public class MigratingCacheManager implements CacheManager {
             try {
                 if (!(oldBackend instanceof IterableCacheManager iterableOld)) {
                     ServiceLocator.getService(Logger.class).warn("Old cache backend does not support iteration, skipping sweep.");
+                    sweep.complete(new MigrationReport(0, 0, 0, 0, Duration.ZERO));
                     return;
                 }
 
-                for (CacheEntryWrapper entry : iterableOld.entries()) {
-                    try {
-                        // Don’t overwrite if already migrated
-                        if (newBackend.get(entry.key(), entry.typeToken()).join().isEmpty()) {
-                            newBackend.put(entry.key(), entry.entry());
-                        }
-                    } catch (Exception exception) {
-                        ServiceLocator.getService(Logger.class).error("Failed to migrate cache entry: {}", entry.key(), exception);
-                    }
-
-                    // we throttle a bit to avoid hogging hammering the disk
-                    Thread.sleep(this.sweepThrottleMs);
-                }
-
-                ServiceLocator.getService(Logger.class).info("Cache migration sweep complete.");
+                MigrationReport report = CacheMigrator.migrate(iterableOld, newBackend, this.sweepBytesPerSecond);
+                ServiceLocator.getService(Logger.class).info("Cache migration sweep complete: {}", report);
+                sweep.complete(report);
             } catch (Exception exception) {
                 ServiceLocator.getService(Logger.class).error("Cache migration sweep failed", exception);
+                sweep.completeExceptionally(exception);
             } finally {
                 executor.shutdown();
             }
         });
+
+        return sweep.copy();
     }
 }
@@ -0,0 +1,15 @@
+package dev.railroadide.core.switchboard.cache.impl;
+
+import java.time.Duration;
+
+/**
+ * What a run of {@link CacheMigrator#migrate} migrated.
+ *
+ * @param migrated the number of entries copied
+ * @param skipped  the number of entries the target already had a newer or equally new copy of
+ * @param failed   the number of entries that could not be read or written
+ * @param bytes    the number of bytes copied, estimated for entries of unknown size
+ * @param elapsed  how long the migration took
+ */
+public record MigrationReport(int migrated, int skipped, int failed, long bytes, Duration elapsed) {
+}
@@ -1,5 +1,6 @@
 package dev.railroadide.core.switchboard.cache.impl;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -9,36 +10,119 @@ import dev.railroadide.core.switchboard.cache.MetadataCacheEntry;
 import dev.railroadide.core.utility.ServiceLocator;
 import dev.railroadide.logger.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.nio.file.Path;
 import java.sql.*;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-
-public class SqlCacheManager implements IterableCacheManager {
-    private final Connection connection;
-    private final Map<String, MetadataCacheEntry<?>> memoryCache = new ConcurrentHashMap<>();
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A cache backed by an SQLite database in WAL mode.
+ * <p>
+ * All writes go through one writer thread, which owns the only connection that writes. Puts and invalidations are
+ * queued and written in batches, each batch in a single transaction, so warming or migrating the cache does not pay
+ * for a commit per entry. Reads use a small pool of their own connections, which WAL lets run alongside the writer.
+ * Every connection prepares its statements once.
+ * <p>
+ * Writes that are still queued are visible to reads straight away. {@link #close()} writes whatever is still queued.
+ */
+public class SqlCacheManager implements IterableCacheManager, MaintainableCacheManager, AutoCloseable {
+    private static final int READ_CONNECTIONS = 4;
+    private static final int MAX_BATCH_SIZE = 512;
+    private static final int PAGE_SIZE = 256;
+    private static final int BUSY_TIMEOUT_MILLIS = 5_000;
+    private static final String UPSERT = """
+            INSERT INTO cache_entries (key, value, type, last_fetched, ttl_seconds, etag)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT(key) DO UPDATE SET
+                value = excluded.value,
+                type = excluded.type,
+                last_fetched = excluded.last_fetched,
+                ttl_seconds = excluded.ttl_seconds,
+                etag = excluded.etag
+        """;
+
+    private final Connection writeConnection;
+    private final PreparedStatement upsertStatement;
+    private final PreparedStatement deleteStatement;
+    private final BlockingQueue<Operation> writeQueue = new LinkedBlockingQueue<>();
+    // Held while queueing and while closing, so that nothing is queued after the writer's last drain
+    private final Object queueLock = new Object();
+    private final Map<String, Write> pendingWrites = new ConcurrentHashMap<>();
+    private final Thread writer;
+    private final List<ReadConnection> readConnections = new ArrayList<>();
+    private final BlockingQueue<ReadConnection> idleReadConnections = new ArrayBlockingQueue<>(READ_CONNECTIONS);
+    private final ExecutorService readExecutor;
+    private final MemoryTier memoryCache;
     private final ObjectMapper objectMapper = new ObjectMapper()
         .registerModule(new JavaTimeModule())
         .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private volatile boolean closed;
 
     public SqlCacheManager(String uri) throws SQLException {
-        this.connection = DriverManager.getConnection(uri);
+        this(uri, MemoryTier.DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * @param uri          the JDBC URI of an SQLite database file; several connections are opened to it, so it must
+     *                     not be an in-memory database
+     * @param memoryBudget the budget of the in-memory tier, in bytes of serialized data
+     */
+    public SqlCacheManager(String uri, long memoryBudget) throws SQLException {
+        this.memoryCache = new MemoryTier(memoryBudget);
+        this.writeConnection = DriverManager.getConnection(uri);
+        try (Statement stmt = this.writeConnection.createStatement()) {
+            stmt.execute("PRAGMA journal_mode=WAL");
+            // In WAL mode, NORMAL only risks losing the last commits on power loss, never corrupting the database
+            stmt.execute("PRAGMA synchronous=NORMAL");
+            stmt.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MILLIS);
+        }
+
         initSchema();
+        this.writeConnection.setAutoCommit(false);
+        this.upsertStatement = this.writeConnection.prepareStatement(UPSERT);
+        this.deleteStatement = this.writeConnection.prepareStatement("DELETE FROM cache_entries WHERE key = ?");
+
+        for (int i = 0; i < READ_CONNECTIONS; i++) {
+            Connection connection = DriverManager.getConnection(uri);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MILLIS);
+            }
+
+            var readConnection = new ReadConnection(connection,
+                connection.prepareStatement("SELECT value, last_fetched, ttl_seconds, etag FROM cache_entries WHERE key = ?"),
+                connection.prepareStatement("""
+                    SELECT key, value, type, last_fetched, ttl_seconds, etag FROM cache_entries
+                    WHERE key > ? ORDER BY key LIMIT ?
+                    """));
+            this.readConnections.add(readConnection);
+            this.idleReadConnections.add(readConnection);
+        }
+
+        // One thread per read connection, so reads only wait for a connection while entries() holds one
+        this.readExecutor = Executors.newFixedThreadPool(READ_CONNECTIONS, runnable -> {
+            var thread = new Thread(runnable, "SqlCacheManager-Reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer = new Thread(this::runWriter, "SqlCacheManager-Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
     }
 
     public SqlCacheManager(Path dbFile) throws SQLException {
         this("jdbc:sqlite:" + dbFile.toAbsolutePath());
     }
 
+    public SqlCacheManager(Path dbFile, long memoryBudget) throws SQLException {
+        this("jdbc:sqlite:" + dbFile.toAbsolutePath(), memoryBudget);
+    }
+
     private void initSchema() throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
+        try (Statement stmt = writeConnection.createStatement()) {
             stmt.executeUpdate("""
                     CREATE TABLE IF NOT EXISTS cache_entries (
                         key TEXT PRIMARY KEY,
@@ -53,24 +137,46 @@ public class SqlCacheManager implements IterableCacheManager {
     }
 
     @Override
-    public <T> CompletableFuture<Optional<MetadataCacheEntry<T>>> get(String key, TypeToken<@NotNull T> typeToken) {
+    public <T> CompletableFuture<Optional<MetadataCacheEntry<T>>> getIncludingExpired(String key, TypeToken<@NotNull T> typeToken) {
         // first check in-memory cache
         @SuppressWarnings("unchecked")
         MetadataCacheEntry<T> memEntry = (MetadataCacheEntry<T>) memoryCache.get(key);
-        if (memEntry != null && !memEntry.isExpired())
+        if (memEntry != null)
             return CompletableFuture.completedFuture(Optional.of(memEntry));
 
-        CompletableFuture<Optional<MetadataCacheEntry<T>>> future = new CompletableFuture<>();
+        // then writes that have not reached the database yet
+        Write pending = pendingWrites.get(key);
+        if (pending != null)
+            return CompletableFuture.completedFuture(Optional.ofNullable(pending.entry()).map(entry -> {
+                @SuppressWarnings("unchecked")
+                MetadataCacheEntry<T> typed = (MetadataCacheEntry<T>) entry;
+                return typed;
+            }));
 
         // then check SQLite cache
-        CompletableFuture.runAsync(() -> {
-            try (PreparedStatement stmt = connection.prepareStatement(
-                "SELECT value, type, last_fetched, ttl_seconds, etag FROM cache_entries WHERE key = ?")) {
-                stmt.setString(1, key);
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    byte[] jsonBytes = rs.getBytes("value");
+        try {
+            return readFromDatabase(key, typeToken);
+        } catch (RejectedExecutionException exception) {
+            return CompletableFuture.failedFuture(new IllegalStateException("The cache is closed", exception));
+        }
+    }
+
+    private <T> CompletableFuture<Optional<MetadataCacheEntry<T>>> readFromDatabase(String key, TypeToken<@NotNull T> typeToken) {
+        return CompletableFuture.supplyAsync(() -> {
+            ReadConnection connection;
+            try {
+                connection = idleReadConnections.take();
+            } catch (InterruptedException exception) {
+                throw new CompletionException(exception);
+            }
 
+            try {
+                connection.select().setString(1, key);
+                try (ResultSet rs = connection.select().executeQuery()) {
+                    if (!rs.next())
+                        return Optional.<MetadataCacheEntry<T>>empty();
+
+                    byte[] jsonBytes = rs.getBytes("value");
                     T data = objectMapper.readValue(jsonBytes, objectMapper.getTypeFactory().constructType(typeToken.getType()));
 
                     Instant lastFetched = Instant.ofEpochMilli(rs.getLong("last_fetched"));
@@ -78,95 +184,471 @@ public class SqlCacheManager implements IterableCacheManager {
                     String etag = rs.getString("etag");
 
                     var entry = new MetadataCacheEntry<T>(data, lastFetched, typeToken, ttl, etag);
-                    if (!entry.isExpired()) {
-                        memoryCache.put(key, entry);
-                        future.complete(Optional.of(entry));
-                        return;
+                    // A write queued while reading is newer than what was read
+                    if (memoryCache.putIfAbsent(key, entry, jsonBytes.length) && pendingWrites.containsKey(key)) {
+                        memoryCache.remove(key, entry);
                     }
-                }
 
-                future.complete(Optional.empty());
+                    return Optional.of(entry);
+                }
             } catch (Exception exception) {
-                future.completeExceptionally(exception);
+                throw new CompletionException(exception);
+            } finally {
+                idleReadConnections.add(connection);
             }
-        });
-
-        return future;
+        }, readExecutor);
     }
 
     @Override
     public <T> T put(String key, MetadataCacheEntry<T> entry) {
-        CompletableFuture.runAsync(() -> {
+        try {
+            byte[] jsonBytes = objectMapper.writeValueAsBytes(entry.data());
+            // Updated before the write, so that readers see a revalidated entry straight away
+            memoryCache.put(key, entry, jsonBytes.length);
+            enqueue(new Write(key, entry, jsonBytes));
+        } catch (Exception exception) {
+            memoryCache.remove(key);
+            ServiceLocator.getService(Logger.class).error("Failed to put cache entry for key: {}", key, exception);
+        }
+
+        return entry.data();
+    }
+
+    @Override
+    public void invalidate(String key) {
+        // Queued first, so that a read racing this cannot put the old entry back into memory
+        enqueue(new Write(key, null, null));
+        memoryCache.remove(key);
+    }
+
+    private void enqueue(Write write) {
+        synchronized (queueLock) {
+            if (!closed) {
+                pendingWrites.put(write.key(), write);
+                writeQueue.add(write);
+                return;
+            }
+        }
+
+        ServiceLocator.getService(Logger.class).warn("Dropped cache write for key {} after close", write.key());
+    }
+
+    /**
+     * Queues work for the writer unless the cache is closed.
+     *
+     * @return whether the operation was queued
+     */
+    private boolean offer(Operation operation) {
+        synchronized (queueLock) {
+            return !closed && writeQueue.add(operation);
+        }
+    }
+
+    private void runWriter() {
+        List<Operation> operations = new ArrayList<>();
+        while (true) {
             try {
-                byte[] jsonBytes = objectMapper.writeValueAsBytes(entry.data());
-
-                try (PreparedStatement stmt = connection.prepareStatement("""
-                        INSERT INTO cache_entries (key, value, type, last_fetched, ttl_seconds, etag)
-                        VALUES (?, ?, ?, ?, ?, ?)
-                        ON CONFLICT(key) DO UPDATE SET
-                            value = excluded.value,
-                            type = excluded.type,
-                            last_fetched = excluded.last_fetched,
-                            ttl_seconds = excluded.ttl_seconds,
-                            etag = excluded.etag
-                    """)) {
-                    stmt.setString(1, key);
-                    stmt.setBytes(2, jsonBytes);
-                    stmt.setString(3, entry.dataClass().getType().getTypeName());
-                    stmt.setLong(4, entry.lastFetched().toEpochMilli());
-                    stmt.setLong(5, entry.ttl().toSeconds());
-                    stmt.setString(6, entry.etag());
-                    stmt.executeUpdate();
+                operations.add(writeQueue.take());
+            } catch (InterruptedException exception) {
+                // Interrupted by close, after which nothing more is queued
+                writeQueue.drainTo(operations);
+                runOperations(operations, true);
+                return;
+            }
+
+            // Whatever queued up while the last batch was written goes into the next one
+            writeQueue.drainTo(operations, MAX_BATCH_SIZE - 1);
+            runOperations(operations, false);
+            operations.clear();
+        }
+    }
+
+    private void runOperations(List<Operation> operations, boolean closing) {
+        List<Write> batch = new ArrayList<>();
+        for (Operation operation : operations) {
+            switch (operation) {
+                case Write write -> batch.add(write);
+                case Barrier barrier -> {
+                    writeBatch(batch);
+                    batch.clear();
+                    barrier.done().complete(null);
                 }
+                case Maintenance maintenance -> {
+                    // Writes queued before the maintenance are written first, so that it sees them
+                    writeBatch(batch);
+                    batch.clear();
+                    if (closing) {
+                        maintenance.result().cancel(false);
+                    } else {
+                        runMaintenance(maintenance);
+                    }
+                }
+            }
+        }
 
-                memoryCache.put(key, entry);
-            } catch (Exception exception) {
-                ServiceLocator.getService(Logger.class).error("Failed to put cache entry for key: {}", key, exception);
+        writeBatch(batch);
+    }
+
+    private void writeBatch(List<Write> batch) {
+        if (batch.isEmpty())
+            return;
+
+        // Each write replaces or deletes the whole entry, so only the last write of a key matters
+        Map<String, Write> latest = new LinkedHashMap<>();
+        for (Write write : batch) {
+            latest.put(write.key(), write);
+        }
+
+        try {
+            for (Write write : latest.values()) {
+                MetadataCacheEntry<?> entry = write.entry();
+                if (entry == null) {
+                    deleteStatement.setString(1, write.key());
+                    deleteStatement.addBatch();
+                    continue;
+                }
+
+                upsertStatement.setString(1, write.key());
+                upsertStatement.setBytes(2, write.value());
+                upsertStatement.setString(3, entry.dataClass().getType().getTypeName());
+                upsertStatement.setLong(4, entry.lastFetched().toEpochMilli());
+                upsertStatement.setLong(5, entry.ttl().toSeconds());
+                upsertStatement.setString(6, entry.etag());
+                upsertStatement.addBatch();
             }
-        });
 
-        return entry.data();
+            upsertStatement.executeBatch();
+            deleteStatement.executeBatch();
+            writeConnection.commit();
+        } catch (SQLException exception) {
+            ServiceLocator.getService(Logger.class).error("Failed to write {} cache entries", latest.size(), exception);
+            try {
+                upsertStatement.clearBatch();
+                deleteStatement.clearBatch();
+                writeConnection.rollback();
+            } catch (SQLException rollbackException) {
+                ServiceLocator.getService(Logger.class).error("Failed to roll back cache writes", rollbackException);
+            }
+        } finally {
+            for (Write write : batch) {
+                pendingWrites.remove(write.key(), write);
+            }
+        }
     }
 
+    /**
+     * @return the counters of the in-memory tier
+     */
+    public MemoryTier.Stats memoryStats() {
+        return memoryCache.stats();
+    }
+
+    /**
+     * Runs on the writer thread, like every other write. Removes entries that have been expired for longer than the
+     * retention, then the least recently fetched entries until the stored data fits the budget, then vacuums the
+     * database if that freed anything, and truncates the write-ahead log.
+     */
     @Override
-    public void invalidate(String key) {
-        memoryCache.remove(key);
-        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM cache_entries WHERE key = ?")) {
-            stmt.setString(1, key);
-            stmt.executeUpdate();
+    public MaintenanceReport maintain(Duration staleRetention, long diskBudget) {
+        var maintenance = new Maintenance(staleRetention, diskBudget, new CompletableFuture<>());
+        if (!offer(maintenance))
+            return MaintenanceReport.NONE;
+
+        try {
+            return maintenance.result().get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return MaintenanceReport.NONE;
+        } catch (CancellationException exception) {
+            return MaintenanceReport.NONE;
+        } catch (ExecutionException exception) {
+            ServiceLocator.getService(Logger.class).error("Cache maintenance failed", exception.getCause());
+            return MaintenanceReport.NONE;
+        }
+    }
+
+    private void runMaintenance(Maintenance maintenance) {
+        try {
+            // Only the deletes need a transaction. With auto-commit off, sqlite-jdbc keeps one open after every commit,
+            // and the reads of the size would hold it, so VACUUM and the checkpoint would find the database locked.
+            writeConnection.setAutoCommit(true);
+            long bytesBefore = databaseSize();
+            List<String> expired = new ArrayList<>();
+            List<String> evicted;
+            writeConnection.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = writeConnection.prepareStatement(
+                    "SELECT key FROM cache_entries WHERE last_fetched + ttl_seconds * 1000 < ?")) {
+                    stmt.setLong(1, Instant.now().minus(maintenance.staleRetention()).toEpochMilli());
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            expired.add(rs.getString("key"));
+                        }
+                    }
+                }
+
+                deleteKeys(expired);
+                evicted = evictOverBudget(maintenance.diskBudget());
+                writeConnection.commit();
+            } catch (SQLException exception) {
+                try {
+                    writeConnection.rollback();
+                } catch (SQLException rollbackException) {
+                    exception.addSuppressed(rollbackException);
+                }
+
+                throw exception;
+            } finally {
+                writeConnection.setAutoCommit(true);
+            }
+
+            // Otherwise they would still be served from memory
+            expired.forEach(memoryCache::remove);
+            evicted.forEach(memoryCache::remove);
+
+            if (!expired.isEmpty() || !evicted.isEmpty() || freePages() > 0) {
+                try (Statement stmt = writeConnection.createStatement()) {
+                    stmt.execute("VACUUM");
+                }
+            }
+
+            try (Statement stmt = writeConnection.createStatement()) {
+                stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+            }
+
+            maintenance.result().complete(new MaintenanceReport(expired.size(), evicted.size(), bytesBefore, databaseSize()));
         } catch (SQLException exception) {
-            ServiceLocator.getService(Logger.class).error("Failed to invalidate cache entry for key: {}", key, exception);
+            maintenance.result().completeExceptionally(exception);
+        } finally {
+            try {
+                // Batches of writes commit themselves
+                writeConnection.setAutoCommit(false);
+            } catch (SQLException exception) {
+                ServiceLocator.getService(Logger.class).error("Failed to restore cache write transactions", exception);
+            }
+        }
+    }
+
+    /**
+     * Removes the least recently fetched entries until the stored data fits the budget.
+     *
+     * @return the keys of the removed entries
+     */
+    private List<String> evictOverBudget(long diskBudget) throws SQLException {
+        long total;
+        try (Statement stmt = writeConnection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(SUM(length(key) + length(value)), 0) FROM cache_entries")) {
+            total = rs.next() ? rs.getLong(1) : 0;
+        }
+
+        if (total <= diskBudget)
+            return List.of();
+
+        List<String> keys = new ArrayList<>();
+        try (Statement stmt = writeConnection.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT key, length(key) + length(value) AS size FROM cache_entries ORDER BY last_fetched")) {
+            while (total > diskBudget && rs.next()) {
+                keys.add(rs.getString("key"));
+                total -= rs.getLong("size");
+            }
+        }
+
+        deleteKeys(keys);
+        return keys;
+    }
+
+    private void deleteKeys(List<String> keys) throws SQLException {
+        for (String key : keys) {
+            deleteStatement.setString(1, key);
+            deleteStatement.addBatch();
+        }
+
+        deleteStatement.executeBatch();
+    }
+
+    private long databaseSize() throws SQLException {
+        return pragma("page_count") * pragma("page_size");
+    }
+
+    private long freePages() throws SQLException {
+        return pragma("freelist_count");
+    }
+
+    private long pragma(String name) throws SQLException {
+        try (Statement stmt = writeConnection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA " + name)) {
+            return rs.next() ? rs.getLong(1) : 0;
         }
     }
 
+    /**
+     * Reads the entries lazily, a page at a time in key order, so that iterating a large cache neither holds a read
+     * connection for long nor loads the whole cache into memory. Entries put while iterating may or may not be seen.
+     */
     @Override
     public Iterable<CacheEntryWrapper> entries() {
-        List<CacheEntryWrapper> results = new ArrayList<>();
-        try (Statement stmt = connection.createStatement()) {
-            ResultSet rs = stmt.executeQuery("SELECT key, value, type, last_fetched, ttl_seconds, etag FROM cache_entries");
-            while (rs.next()) {
-                String key = rs.getString("key");
-                String typeName = rs.getString("type");
-                byte[] jsonBytes = rs.getBytes("value");
+        return () -> new Iterator<>() {
+            private final List<CacheEntryWrapper> page = new ArrayList<>();
+            private int index;
+            private @Nullable String lastKey = "";
 
-                try {
-                    Class<?> clazz = Class.forName(typeName);
-                    TypeToken<?> typeToken = TypeToken.get(clazz);
+            @Override
+            public boolean hasNext() {
+                while (index == page.size() && lastKey != null) {
+                    page.clear();
+                    index = 0;
+                    lastKey = readPage(lastKey, page);
+                }
+
+                return index < page.size();
+            }
 
-                    MetadataCacheEntry<?> entry = objectMapper.readValue(
-                        jsonBytes,
-                        objectMapper.getTypeFactory().constructParametricType(MetadataCacheEntry.class, clazz)
-                    );
+            @Override
+            public CacheEntryWrapper next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
 
-                    results.add(new CacheEntryWrapper(key, entry, typeToken));
-                } catch (Exception exception) {
-                    ServiceLocator.getService(Logger.class).error("Failed to deserialize cache entry: {}", key, exception);
+                return page.get(index++);
+            }
+        };
+    }
+
+    /**
+     * Reads the page of entries after a key.
+     *
+     * @return the last key of the page, or {@code null} if there are no more entries
+     */
+    private @Nullable String readPage(String afterKey, List<CacheEntryWrapper> into) {
+        ReadConnection connection;
+        try {
+            connection = idleReadConnections.take();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        String lastKey = null;
+        try {
+            connection.page().setString(1, afterKey);
+            connection.page().setInt(2, PAGE_SIZE);
+            try (ResultSet rs = connection.page().executeQuery()) {
+                while (rs.next()) {
+                    lastKey = rs.getString("key");
+                    try {
+                        into.add(readEntry(lastKey, rs));
+                    } catch (Exception exception) {
+                        ServiceLocator.getService(Logger.class).error("Failed to deserialize cache entry: {}", lastKey, exception);
+                    }
                 }
             }
         } catch (SQLException exception) {
             ServiceLocator.getService(Logger.class).error("Failed to iterate cache entries", exception);
+            return null;
+        } finally {
+            idleReadConnections.add(connection);
+        }
+
+        return lastKey;
+    }
+
+    private CacheEntryWrapper readEntry(String key, ResultSet rs) throws Exception {
+        // The stored type name is a canonical generic name such as java.util.List<java.lang.String>
+        JavaType type = objectMapper.getTypeFactory().constructFromCanonical(rs.getString("type"));
+        byte[] jsonBytes = rs.getBytes("value");
+        Object data = objectMapper.readValue(jsonBytes, type);
+        @SuppressWarnings("unchecked")
+        TypeToken<Object> typeToken = (TypeToken<Object>) TypeToken.get(CacheTypes.toReflectType(type));
+
+        var entry = new MetadataCacheEntry<>(data, Instant.ofEpochMilli(rs.getLong("last_fetched")), typeToken,
+            Duration.ofSeconds(rs.getLong("ttl_seconds")), rs.getString("etag"));
+        return new CacheEntryWrapper(key, entry, typeToken, jsonBytes.length);
+    }
+
+    /**
+     * Blocks until the writes queued so far are committed.
+     */
+    @Override
+    public void flush() {
+        var barrier = new Barrier(new CompletableFuture<>());
+        if (!offer(barrier))
+            return;
+
+        try {
+            barrier.done().get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException ignored) {
+            // Only cancelled by close, which writes everything queued anyway
+        }
+    }
+
+    /**
+     * Writes the queued writes and closes the database. Puts and invalidations after this are dropped.
+     */
+    @Override
+    public void close() {
+        synchronized (queueLock) {
+            if (closed)
+                return;
+
+            closed = true;
         }
 
-        return results;
+        writer.interrupt();
+        readExecutor.shutdown();
+        try {
+            writer.join();
+            readExecutor.awaitTermination(BUSY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Only left over if the writer failed, in which case readers must not keep being served unwritten entries
+        pendingWrites.clear();
+        // Maintenance queued while closing would otherwise be waited on forever
+        for (Operation operation : writeQueue) {
+            if (operation instanceof Maintenance maintenance) {
+                maintenance.result().cancel(false);
+            } else if (operation instanceof Barrier barrier) {
+                barrier.done().cancel(false);
+            }
+        }
+
+        ServiceLocator.getService(Logger.class).debug("Switchboard cache memory tier: {}", memoryCache.stats());
+        closeQuietly(writeConnection);
+        for (ReadConnection connection : readConnections) {
+            closeQuietly(connection.connection());
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException exception) {
+            ServiceLocator.getService(Logger.class).warn("Failed to close cache database connection", exception);
+        }
+    }
+
+    /**
+     * Work for the writer thread.
+     */
+    private sealed interface Operation permits Write, Barrier, Maintenance {
+    }
+
+    /**
+     * A queued write: a put, or an invalidation when the entry is {@code null}.
+     */
+    private record Write(String key, @Nullable MetadataCacheEntry<?> entry, @Nullable byte[] value) implements Operation {
+    }
+
+    private record Barrier(CompletableFuture<Void> done) implements Operation {
+    }
+
+    private record Maintenance(Duration staleRetention, long diskBudget,
+                               CompletableFuture<MaintenanceReport> result) implements Operation {
+    }
+
+    private record ReadConnection(Connection connection, PreparedStatement select, PreparedStatement page) {
     }
 }
@@ -0,0 +1,117 @@
+package dev.railroadide.core.switchboard.cache.impl;
+
+import com.google.gson.reflect.TypeToken;
+import dev.railroadide.core.switchboard.cache.CacheEntryWrapper;
+import dev.railroadide.core.switchboard.cache.MetadataCacheEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheMigratorTest {
+    private static final Instant FETCHED = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Test
+    void migratesEveryEntryOneChunkAtATime() throws InterruptedException {
+        InMemoryCacheManager source = sourceWith(CacheMigrator.CHUNK_SIZE * 2 + 10, 100);
+        var target = new InMemoryCacheManager(0);
+
+        MigrationReport report = CacheMigrator.migrate(source, target, 0);
+
+        assertEquals(source.entries, target.entries);
+        assertEquals(3, target.flushes);
+        assertEquals(CacheMigrator.CHUNK_SIZE * 2 + 10, report.migrated());
+        assertEquals(0, report.skipped());
+        assertEquals(0, report.failed());
+        assertEquals((CacheMigrator.CHUNK_SIZE * 2 + 10) * 100L, report.bytes());
+    }
+
+    @Test
+    void keepsEntriesTheTargetFetchedMoreRecently() throws InterruptedException {
+        InMemoryCacheManager source = sourceWith(3, 100);
+        var target = new InMemoryCacheManager(0);
+        MetadataCacheEntry<String> newer = entry("newer", FETCHED.plusSeconds(60));
+        target.put("key-0", newer);
+        target.put("key-1", entry("older", FETCHED.minusSeconds(60)));
+
+        MigrationReport report = CacheMigrator.migrate(source, target, 0);
+
+        assertSame(newer, target.entries.get("key-0"));
+        assertEquals(source.entries.get("key-1"), target.entries.get("key-1"));
+        assertEquals(2, report.migrated());
+        assertEquals(1, report.skipped());
+    }
+
+    @Test
+    void resumesAfterInterruptionWithoutCopyingAgain() throws InterruptedException {
+        int count = CacheMigrator.CHUNK_SIZE * 3;
+        InMemoryCacheManager source = sourceWith(count, 100);
+        var target = new InMemoryCacheManager(0);
+
+        // Cancelled while the second chunk is being read, so only the first one gets written
+        IterableCacheManager interrupting = new InMemoryCacheManager(100) {
+            @Override
+            public Iterable<CacheEntryWrapper> entries() {
+                return () -> new Iterator<>() {
+                    private final Iterator<CacheEntryWrapper> entries = source.entries().iterator();
+                    private int read;
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.entries.hasNext();
+                    }
+
+                    @Override
+                    public CacheEntryWrapper next() {
+                        if (++this.read == CacheMigrator.CHUNK_SIZE + 5) {
+                            Thread.currentThread().interrupt();
+                        }
+
+                        return this.entries.next();
+                    }
+                };
+            }
+        };
+
+        assertThrows(InterruptedException.class, () -> CacheMigrator.migrate(interrupting, target, 0));
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertEquals(CacheMigrator.CHUNK_SIZE, target.entries.size());
+
+        MigrationReport report = CacheMigrator.migrate(source, target, 0);
+
+        assertEquals(source.entries, target.entries);
+        assertEquals(count - CacheMigrator.CHUNK_SIZE, report.migrated());
+        assertEquals(CacheMigrator.CHUNK_SIZE, report.skipped());
+    }
+
+    @Test
+    void throttlesToTheByteBudget() throws InterruptedException {
+        // Two full chunks of 1000 bytes an entry at ten chunks a second take at least 200ms
+        InMemoryCacheManager source = sourceWith(CacheMigrator.CHUNK_SIZE * 2, 1000);
+        long bytesPerSecond = CacheMigrator.CHUNK_SIZE * 1000L * 10;
+
+        MigrationReport report = CacheMigrator.migrate(source, new InMemoryCacheManager(0), bytesPerSecond);
+
+        assertTrue(report.elapsed().compareTo(Duration.ofMillis(200)) >= 0, "Took only " + report.elapsed());
+    }
+
+    private static InMemoryCacheManager sourceWith(int count, long entrySize) {
+        var source = new InMemoryCacheManager(entrySize);
+        for (int index = 0; index < count; index++) {
+            source.put("key-" + index, entry("value " + index, FETCHED));
+        }
+
+        return source;
+    }
+
+    private static MetadataCacheEntry<String> entry(String data, Instant lastFetched) {
+        return new MetadataCacheEntry<>(data, lastFetched, TypeToken.get(String.class), Duration.ofHours(1), null);
+    }
+}
@@ -0,0 +1,57 @@
+package dev.railroadide.core.switchboard.cache.impl;
+
+import com.google.gson.reflect.TypeToken;
+import dev.railroadide.core.switchboard.cache.CacheEntryWrapper;
+import dev.railroadide.core.switchboard.cache.MetadataCacheEntry;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A cache kept in a map, which counts its flushes and reports a fixed size for each entry.
+ */
+class InMemoryCacheManager implements IterableCacheManager {
+    final Map<String, MetadataCacheEntry<?>> entries = new TreeMap<>();
+    private final long entrySize;
+    int flushes;
+
+    InMemoryCacheManager(long entrySize) {
+        this.entrySize = entrySize;
+    }
+
+    @Override
+    public synchronized <T> CompletableFuture<Optional<MetadataCacheEntry<T>>> getIncludingExpired(String key, TypeToken<@NotNull T> typeToken) {
+        @SuppressWarnings("unchecked")
+        MetadataCacheEntry<T> entry = (MetadataCacheEntry<T>) this.entries.get(key);
+        return CompletableFuture.completedFuture(Optional.ofNullable(entry));
+    }
+
+    @Override
+    public synchronized <T> T put(String key, MetadataCacheEntry<T> entry) {
+        this.entries.put(key, entry);
+        return entry.data();
+    }
+
+    @Override
+    public synchronized void invalidate(String key) {
+        this.entries.remove(key);
+    }
+
+    @Override
+    public synchronized void flush() {
+        this.flushes++;
+    }
+
+    @Override
+    public synchronized Iterable<CacheEntryWrapper> entries() {
+        List<CacheEntryWrapper> wrappers = new ArrayList<>();
+        this.entries.forEach((key, entry) ->
+            wrappers.add(new CacheEntryWrapper(key, entry, entry.dataClass(), this.entrySize)));
+        return wrappers;
+    }
+}
@@ -0,0 +1,90 @@
+package dev.railroadide.core.switchboard.cache.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import dev.railroadide.core.switchboard.cache.CacheEntryWrapper;
+import dev.railroadide.core.switchboard.cache.MetadataCacheEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonCacheManagerTest {
+    private static final TypeToken<List<String>> VERSIONS = new TypeToken<>() {
+    };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsAnEntryThroughMaintenance() throws Exception {
+        var cache = new JsonCacheManager(directory, new Gson());
+        MetadataCacheEntry<List<String>> entry = entry(List.of("1.21", "1.20.6"), Instant.now(), Duration.ofHours(1));
+        cache.put("minecraft:versions", entry);
+
+        MaintenanceReport report = cache.maintain(MaintainableCacheManager.DEFAULT_STALE_RETENTION, Long.MAX_VALUE);
+
+        assertEquals(0, report.expiredRemoved());
+        assertEquals(0, report.evicted());
+        // A fresh cache has nothing in memory, so this reads the file back
+        var reopened = new JsonCacheManager(directory, new Gson());
+        assertEquals(Optional.of(entry), reopened.getIncludingExpired("minecraft:versions", VERSIONS).get());
+    }
+
+    @Test
+    void removesLongExpiredEntriesFromMemoryToo() throws Exception {
+        var cache = new JsonCacheManager(directory, new Gson());
+        cache.put("expired", entry(List.of("1.20"), Instant.now().minus(Duration.ofHours(1)), Duration.ofMinutes(1)));
+        cache.put("fresh", entry(List.of("1.21"), Instant.now(), Duration.ofHours(1)));
+
+        MaintenanceReport report = cache.maintain(Duration.ZERO, Long.MAX_VALUE);
+
+        assertEquals(1, report.expiredRemoved());
+        assertEquals(Optional.empty(), cache.getIncludingExpired("expired", VERSIONS).get());
+        assertTrue(cache.getIncludingExpired("fresh", VERSIONS).get().isPresent());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyFetchedEntriesFromMemoryToo() throws Exception {
+        var cache = new JsonCacheManager(directory, new Gson());
+        Instant now = Instant.now();
+        cache.put("older", entry(List.of("1.20"), now.minusSeconds(60), Duration.ofHours(1)));
+        cache.put("newer", entry(List.of("1.21"), now, Duration.ofHours(1)));
+
+        long newerSize = Files.size(directory.resolve("newer.json"));
+
+        MaintenanceReport report = cache.maintain(MaintainableCacheManager.DEFAULT_STALE_RETENTION, newerSize);
+
+        assertEquals(1, report.evicted());
+        assertEquals(newerSize, report.bytesAfter());
+        assertEquals(Optional.empty(), cache.getIncludingExpired("older", VERSIONS).get());
+        assertTrue(cache.getIncludingExpired("newer", VERSIONS).get().isPresent());
+    }
+
+    @Test
+    void iteratesEntriesAsTheirGenericDataType() {
+        var cache = new JsonCacheManager(directory, new Gson());
+        MetadataCacheEntry<List<String>> entry = entry(List.of("1.21"), Instant.now(), Duration.ofHours(1));
+        cache.put("versions", entry);
+
+        List<CacheEntryWrapper> entries = new ArrayList<>();
+        cache.entries().forEach(entries::add);
+
+        assertEquals(1, entries.size());
+        assertEquals(VERSIONS, entries.getFirst().typeToken());
+        assertEquals(entry, entries.getFirst().entry());
+    }
+
+    private static MetadataCacheEntry<List<String>> entry(List<String> data, Instant lastFetched, Duration ttl) {
+        return new MetadataCacheEntry<>(data, lastFetched, VERSIONS, ttl, "\"etag\"");
+    }
+}
@@ -3,6 +3,7 @@ package dev.railroadide.railroad.ide;
 import dev.railroadide.railroad.ide.ui.JavaCodeEditorPane;
 import dev.railroadide.railroad.ide.ui.JsonCodeEditorPane;
 import dev.railroadide.railroad.ide.ui.TextEditorPane;
+import dev.railroadide.railroad.utility.Rope;
 import dev.railroadide.railroadpluginapi.services.DocumentEditorStateService;
 import dev.railroadide.railroadpluginapi.state.Cursor;
 import dev.railroadide.railroadpluginapi.state.Selection;
@@ -12,31 +13,23 @@ import java.util.List;
 public class DefaultDocumentEditorStateService implements DocumentEditorStateService {
     private TextEditorPane activeEditorPane;
 
+    public TextEditorPane getActiveEditorPane() {
+        return activeEditorPane;
+    }
+
     public void setActiveEditorPane(TextEditorPane activeEditorPane) {
         this.activeEditorPane = activeEditorPane;
     }
 
-    private Cursor getCursorFromPosition(String text, int position) {
-        int line = 0;
-        int column = 0;
-
-        for (int i = 0; i < position && i < text.length(); i++) {
-            if (text.charAt(i) == '\n') {
-                line++;
-                column = 0;
-            } else {
-                column++;
-            }
-        }
-
-        return new Cursor(line, column);
+    private Cursor getCursorFromPosition(Rope text, int position) {
+        return new Cursor(text.lineOf(position), text.columnOf(position));
     }
 
     @Override
     public List<Cursor> getCursors() {
         if (activeEditorPane != null) {
             int caretPosition = activeEditorPane.getCaretPosition();
-            return List.of(getCursorFromPosition(activeEditorPane.getText(), caretPosition));
+            return List.of(getCursorFromPosition(activeEditorPane.getSnapshot().text(), caretPosition));
         }
 
         return List.of();
@@ -49,8 +42,8 @@ public class DefaultDocumentEditorStateService implements DocumentEditorStateSer
             int end = activeEditorPane.getSelection().getEnd();
 
             if (start != end) {
-                Cursor startCursor = getCursorFromPosition(activeEditorPane.getText(), start);
-                Cursor endCursor = getCursorFromPosition(activeEditorPane.getText(), end);
+                Cursor startCursor = getCursorFromPosition(activeEditorPane.getSnapshot().text(), start);
+                Cursor endCursor = getCursorFromPosition(activeEditorPane.getSnapshot().text(), end);
                 return List.of(new Selection(startCursor, endCursor));
             }
         }
@@ -13,8 +13,11 @@ import dev.railroadide.core.ui.localized.LocalizedMenu;
 import dev.railroadide.core.ui.localized.LocalizedMenuItem;
 import dev.railroadide.railroad.Railroad;
 import dev.railroadide.railroad.Services;
+import dev.railroadide.railroad.ide.indexing.ProjectSymbolIndex;
+import dev.railroadide.railroad.ide.indexing.TrigramIndex;
 import dev.railroadide.railroad.ide.projectexplorer.ProjectExplorerPane;
 import dev.railroadide.railroad.ide.ui.ConsolePane;
+import dev.railroadide.railroad.ide.ui.FindInFilesPane;
 import dev.railroadide.railroad.ide.ui.IDEWelcomePane;
 import dev.railroadide.railroad.ide.ui.ImageViewerPane;
 import dev.railroadide.railroad.ide.ui.StatusBarPane;
@@ -38,6 +41,7 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.TextAlignment;
 import javafx.stage.Stage;
 import org.fxmisc.richtext.CodeArea;
+import org.jetbrains.annotations.Nullable;
 import org.kordamp.ikonli.fontawesome6.FontAwesomeSolid;
 import org.kordamp.ikonli.javafx.FontIcon;
 
@@ -51,6 +55,8 @@ import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 public class IDESetup {
+    // The scene property holding what releases the resources of an IDE scene's project
+    private static final String CLOSE_ACTION = "railroad:ide_close_action";
     private static boolean isSwitchingToIDE = false;
 
     /**
@@ -63,8 +69,9 @@ public class IDESetup {
         var root = new RRBorderPane();
         //root.setTop(createMenuBar()); // TODO: This doesn't work in production
 
+        var projectExplorer = new ProjectExplorerPane(project, root);
         var leftPane = new DetachableTabPane();
-        leftPane.addTab("Project", new ProjectExplorerPane(project, root));
+        leftPane.addTab("Project", projectExplorer);
 
         var rightPane = new DetachableTabPane();
         rightPane.addTab("Properties", createNotImplementedPane());
@@ -73,8 +80,10 @@ public class IDESetup {
         editorPane.addTab("Welcome", new IDEWelcomePane());
 
         var consolePane = new DetachableTabPane();
-        consolePane.addTab("Console", new ConsolePane());
+        consolePane.addTab("Console", new ConsolePane(project));
         consolePane.addTab("Terminal", createTerminal(project.getPath()));
+        var findInFiles = new FindInFilesPane(project, root);
+        consolePane.addTab("Find", findInFiles);
 
         var centerBottomSplit = new SplitPane(editorPane, consolePane);
         centerBottomSplit.setOrientation(Orientation.VERTICAL);
@@ -109,7 +118,8 @@ public class IDESetup {
             1,
             Map.of(
                 "Console", FontAwesomeSolid.PLAY_CIRCLE.getDescription(),
-                "Terminal", FontAwesomeSolid.TERMINAL.getDescription()
+                "Terminal", FontAwesomeSolid.TERMINAL.getDescription(),
+                "Find", FontAwesomeSolid.SEARCH.getDescription()
             )
         );
         bottomBar.getChildren().addAll(
@@ -119,7 +129,26 @@ public class IDESetup {
         root.setBottom(bottomBar);
 
         KeybindHandler.registerCapture(KeybindContexts.of("railroad:ide"), root);
-        return new Scene(root);
+        var scene = new Scene(root);
+        scene.getProperties().put(CLOSE_ACTION, (Runnable) () -> {
+            projectExplorer.dispose();
+            findInFiles.dispose();
+            ProjectSymbolIndex.release(project);
+            TrigramIndex.release(project);
+        });
+        return scene;
+    }
+
+    /**
+     * Stops the background work of an IDE scene and releases the indexes of its project, for when the window stops
+     * showing it. Does nothing for any other scene, or if the scene was already closed.
+     *
+     * @param scene the scene
+     */
+    public static void closeIDEScene(@Nullable Scene scene) {
+        if (scene != null && scene.getProperties().remove(CLOSE_ACTION) instanceof Runnable closeAction) {
+            closeAction.run();
+        }
     }
 
     /**
@@ -139,8 +168,10 @@ public class IDESetup {
 
         Platform.runLater(() -> {
             try {
-                Scene ideScene = IDESetup.createIDEScene(project);
                 Stage ideStage = Railroad.WINDOW_MANAGER.getPrimaryStage();
+                // Closed first, so that reopening the same project starts from indexes that are not being released
+                closeIDEScene(ideStage.getScene());
+                Scene ideScene = IDESetup.createIDEScene(project);
                 ideStage.setTitle(Services.APPLICATION_INFO.getName() + " " + Services.APPLICATION_INFO.getVersion() + " - " + project.getAlias());
                 ideStage.setScene(ideScene);
                 ideStage.setResizable(true);
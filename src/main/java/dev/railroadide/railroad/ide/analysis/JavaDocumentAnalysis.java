@@ -0,0 +1,179 @@
+package dev.railroadide.railroad.ide.analysis;
+
+import dev.railroadide.railroad.Railroad;
+import dev.railroadide.railroad.ide.classpath.CompilationUnitResolver;
+import dev.railroadide.railroad.ide.classpath.ProjectClasspathManager;
+import dev.railroadide.railroad.ide.diagnostics.DiagnosticIndex;
+import dev.railroadide.railroad.ide.diagnostics.JavaDiagnosticsEngine;
+import dev.railroadide.railroad.project.Project;
+import dev.railroadide.railroad.utility.DocumentSnapshot;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Shares one JDT parse per document version between everything in an editor that needs it.
+ * <p>
+ * Consumers such as diagnostics and completion call {@link #await(DocumentSnapshot)} from their worker threads with
+ * the editor's current snapshot. The first caller for a version analyses it and every other caller waits for that
+ * result. Asking for a newer version cancels the analysis of the previous one, so bursts of typing never pile up
+ * parses that nobody will use.
+ * <p>
+ * Until the project classpath has resolved, a version is only parsed for syntax errors: resolving it against an
+ * incomplete classpath would be slow and report every type of the project's dependencies as missing. Completion,
+ * which needs bindings right away, resolves just the body around the caret through {@link #awaitUnit}.
+ */
+public final class JavaDocumentAnalysis {
+    private final Project project;
+    private final Path file;
+
+    private int latestVersion = -1;
+    private Pending pending;
+
+    public JavaDocumentAnalysis(Project project, Path file) {
+        this.project = project;
+        this.file = file;
+    }
+
+    /**
+     * Gets the analysis of a snapshot, computing it on the calling thread unless another thread already is.
+     *
+     * @param snapshot the snapshot
+     * @return the analysis
+     * @throws CancellationException if a newer version was asked for before the analysis finished
+     */
+    public Analysis await(DocumentSnapshot snapshot) {
+        Pending current;
+        boolean compute = false;
+        synchronized (this) {
+            if (snapshot.version() < this.latestVersion)
+                throw new CancellationException("Version " + snapshot.version() + " is outdated");
+
+            boolean classpathResolved = isClasspathResolved();
+            if (this.pending == null || this.pending.snapshot.version() != snapshot.version() ||
+                classpathResolved && !this.pending.resolve) {
+                // Nobody can use the older version's analysis, or the syntax-only one, from now on
+                if (this.pending != null) {
+                    this.pending.monitor.setCanceled(true);
+                    this.pending.result.cancel(false);
+                }
+
+                this.latestVersion = snapshot.version();
+                this.pending = new Pending(snapshot, classpathResolved);
+                compute = true;
+            }
+
+            current = this.pending;
+        }
+
+        if (compute) {
+            compute(current);
+        }
+
+        return join(current.result);
+    }
+
+    /**
+     * Gets a compilation unit of a snapshot with bindings resolved at least around the given position. This reuses
+     * the analysis of the snapshot if it is fully resolved, and otherwise only resolves the body enclosing the
+     * position.
+     *
+     * @param snapshot the snapshot
+     * @param position the offset that bindings are needed around
+     * @return the resolved unit
+     * @throws CancellationException if a newer version was asked for before
+     */
+    public CompilationUnit awaitUnit(DocumentSnapshot snapshot, int position) {
+        Pending current;
+        synchronized (this) {
+            if (snapshot.version() < this.latestVersion)
+                throw new CancellationException("Version " + snapshot.version() + " is outdated");
+
+            current = this.pending;
+        }
+
+        if (current != null && current.resolve && current.snapshot.version() == snapshot.version())
+            return join(current.result).unit();
+
+        return CompilationUnitResolver.forProject(this.project)
+            .resolve(this.file, snapshot.text().toString(), position, null);
+    }
+
+    private boolean isClasspathResolved() {
+        return ProjectClasspathManager.getClasspath(this.project).isDone();
+    }
+
+    private void compute(Pending pending) {
+        long startTime = System.currentTimeMillis();
+        DocumentSnapshot snapshot = pending.snapshot;
+        try {
+            String source = snapshot.text().toString();
+            CompilationUnit unit = pending.resolve ?
+                CompilationUnitResolver.forProject(this.project).resolve(this.file, source, -1, pending.monitor) :
+                JavaDiagnosticsEngine.parse(source.toCharArray(), pending.monitor);
+            DiagnosticIndex diagnostics = JavaDiagnosticsEngine.collect(unit);
+            pending.result.complete(new Analysis(snapshot, unit, diagnostics, pending.resolve));
+
+            Railroad.LOGGER.debug("Analysed version {} of {} ({}) in {}ms", snapshot.version(),
+                this.file.getFileName(), pending.resolve ? "resolved" : "syntax only",
+                System.currentTimeMillis() - startTime);
+        } catch (OperationCanceledException exception) {
+            pending.result.completeExceptionally(new CancellationException("Analysis of version " +
+                snapshot.version() + " was superseded"));
+        } catch (RuntimeException exception) {
+            pending.result.completeExceptionally(exception);
+        }
+    }
+
+    private static Analysis join(CompletableFuture<Analysis> result) {
+        try {
+            return result.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause)
+                throw cause;
+
+            throw exception;
+        }
+    }
+
+    /**
+     * Whether the given failure only means that the work was superseded by a newer version.
+     *
+     * @param throwable the failure
+     * @return {@code true} if the failure is a cancellation
+     */
+    public static boolean isCancellation(Throwable throwable) {
+        return throwable instanceof CancellationException || throwable instanceof OperationCanceledException
+            || throwable instanceof CompletionException && isCancellation(throwable.getCause());
+    }
+
+    /**
+     * The results of analysing a snapshot.
+     *
+     * @param snapshot    the snapshot that was analysed, whose version tells whether the results are still current
+     * @param unit        the compilation unit
+     * @param diagnostics the errors and warnings of the unit
+     * @param resolved    whether the unit has bindings resolved against the project classpath, rather than only
+     *                    being parsed for syntax errors
+     */
+    public record Analysis(DocumentSnapshot snapshot, CompilationUnit unit, DiagnosticIndex diagnostics,
+                           boolean resolved) {
+    }
+
+    private static final class Pending {
+        private final DocumentSnapshot snapshot;
+        private final boolean resolve;
+        private final NullProgressMonitor monitor = new NullProgressMonitor();
+        private final CompletableFuture<Analysis> result = new CompletableFuture<>();
+
+        private Pending(DocumentSnapshot snapshot, boolean resolve) {
+            this.snapshot = snapshot;
+            this.resolve = resolve;
+        }
+    }
+}
@@ -3,13 +3,14 @@ package dev.railroadide.railroad.ide.classparser;
 import dev.railroadide.railroad.ide.classparser.stub.ClassStub;
 import org.objectweb.asm.ClassReader;
 
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
 public class ClassStubParser {
     public static ClassStub parse(Path pathToClassFile) throws ClassScanException {
-        try {
-            return parse(new ClassReader(Files.newInputStream(pathToClassFile)));
+        try (InputStream input = Files.newInputStream(pathToClassFile)) {
+            return parse(new ClassReader(input));
         } catch (ClassScanException exception) {
             throw new ClassScanException("Failed to parse class file: %s".formatted(pathToClassFile), exception.getCause());
         } catch (Exception exception) {
@@ -19,7 +20,9 @@ public class ClassStubParser {
 
     public static ClassStub parse(ClassReader reader) {
         var visitor = new ClassStubVisitor();
-        reader.accept(visitor, ClassReader.EXPAND_FRAMES);
+        // Stubs only describe declarations, so method bodies, stack map frames and debug info are never read.
+        // Parameter names come from the MethodParameters attribute, which SKIP_DEBUG keeps.
+        reader.accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG);
 
         ClassStub stub = visitor.createClassStub();
         if (stub == null)
@@ -0,0 +1,258 @@
+package dev.railroadide.railroad.ide.classparser;
+
+import dev.railroadide.railroad.ide.classparser.stub.*;
+import dev.railroadide.railroad.ide.diagnostics.JavaDiagnosticsEngine;
+import org.eclipse.jdt.core.dom.*;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Builds {@link ClassStub}s from Java source files, mirroring what {@link ClassStubParser} produces for the compiled
+ * classes.
+ * <p>
+ * Only declarations are looked at; method bodies are skipped by the parser and types are kept as written, since no
+ * bindings are resolved. Member types are named {@code Outer$Inner} like their class files.
+ */
+public class SourceStubParser {
+    // Modifier bits that JDT shares with the class file access flags
+    private static final int ACCESS_FLAGS_MASK = 0x0FFF;
+
+    public static List<ClassStub> parse(Path pathToSourceFile) throws ClassScanException {
+        try {
+            return parse(Files.readString(pathToSourceFile).toCharArray());
+        } catch (IOException | RuntimeException exception) {
+            throw new ClassScanException("Failed to parse source file: %s".formatted(pathToSourceFile), exception);
+        }
+    }
+
+    public static List<ClassStub> parse(char[] source) {
+        ASTParser parser = ASTParser.newParser(AST.JLS21);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setCompilerOptions(JavaDiagnosticsEngine.getCompilerOptions());
+        parser.setIgnoreMethodBodies(true);
+        parser.setSource(source);
+        var unit = (CompilationUnit) parser.createAST(null);
+
+        PackageDeclaration packageDeclaration = unit.getPackage();
+        String packageName = packageDeclaration == null ? "" : packageDeclaration.getName().getFullyQualifiedName();
+
+        List<ClassStub> stubs = new ArrayList<>();
+        for (Object type : unit.types()) {
+            collect((AbstractTypeDeclaration) type, packageName, null, Set.of(), stubs);
+        }
+
+        return stubs;
+    }
+
+    private static void collect(AbstractTypeDeclaration declaration, String packageName, String outerName,
+                                Set<String> outerTypeVariables, List<ClassStub> stubs) {
+        String name = outerName == null ? declaration.getName().getIdentifier()
+            : outerName + "$" + declaration.getName().getIdentifier();
+
+        int modifiers = declaration.getModifiers() & ACCESS_FLAGS_MASK;
+        List<TypeParameter> typeParameters = List.of();
+        Type superClass = new Type.ClassType("java.lang.Object", List.of());
+        List<Type> interfaces = new ArrayList<>();
+        List<FieldStub> fields = new ArrayList<>();
+        List<MethodStub> methods = new ArrayList<>();
+        List<ConstructorStub> constructors = new ArrayList<>();
+        Set<String> typeVariables = new HashSet<>(outerTypeVariables);
+
+        switch (declaration) {
+            case TypeDeclaration type -> {
+                typeParameters = typeParameters(type.typeParameters(), typeVariables);
+                if (type.isInterface()) {
+                    modifiers |= Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT;
+                    superClass = null;
+                    for (Object superInterface : type.superInterfaceTypes()) {
+                        interfaces.add(convert((org.eclipse.jdt.core.dom.Type) superInterface, typeVariables));
+                    }
+                } else {
+                    if (type.getSuperclassType() != null) {
+                        superClass = convert(type.getSuperclassType(), typeVariables);
+                    }
+
+                    for (Object superInterface : type.superInterfaceTypes()) {
+                        interfaces.add(convert((org.eclipse.jdt.core.dom.Type) superInterface, typeVariables));
+                    }
+                }
+            }
+            case EnumDeclaration enumDeclaration -> {
+                modifiers |= Opcodes.ACC_ENUM;
+                superClass = new Type.ClassType("java.lang.Enum", List.of(new Type.ClassType(name, List.of())));
+                for (Object superInterface : enumDeclaration.superInterfaceTypes()) {
+                    interfaces.add(convert((org.eclipse.jdt.core.dom.Type) superInterface, typeVariables));
+                }
+
+                for (Object constant : enumDeclaration.enumConstants()) {
+                    var enumConstant = (EnumConstantDeclaration) constant;
+                    fields.add(new FieldStub(enumConstant.getName().getIdentifier(), new Type.ClassType(name, List.of()),
+                        Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL | Opcodes.ACC_ENUM,
+                        annotations(enumConstant.modifiers())));
+                }
+            }
+            case RecordDeclaration record -> {
+                modifiers |= Opcodes.ACC_RECORD | Opcodes.ACC_FINAL;
+                typeParameters = typeParameters(record.typeParameters(), typeVariables);
+                superClass = new Type.ClassType("java.lang.Record", List.of());
+                for (Object superInterface : record.superInterfaceTypes()) {
+                    interfaces.add(convert((org.eclipse.jdt.core.dom.Type) superInterface, typeVariables));
+                }
+
+                for (Object component : record.recordComponents()) {
+                    var variable = (SingleVariableDeclaration) component;
+                    Type type = convert(variable.getType(), typeVariables);
+                    String componentName = variable.getName().getIdentifier();
+                    fields.add(new FieldStub(componentName, type, Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, List.of()));
+                    methods.add(new MethodStub(componentName, type, List.of(), Opcodes.ACC_PUBLIC,
+                        annotations(variable.modifiers()), List.of()));
+                }
+            }
+            case AnnotationTypeDeclaration ignored -> {
+                modifiers |= Opcodes.ACC_ANNOTATION | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT;
+                superClass = null;
+                interfaces.add(new Type.ClassType("java.lang.annotation.Annotation", List.of()));
+            }
+            default -> {
+            }
+        }
+
+        for (Object bodyDeclaration : declaration.bodyDeclarations()) {
+            switch (bodyDeclaration) {
+                case FieldDeclaration field -> {
+                    int fieldModifiers = field.getModifiers() & ACCESS_FLAGS_MASK;
+                    for (Object fragment : field.fragments()) {
+                        var variable = (VariableDeclarationFragment) fragment;
+                        fields.add(new FieldStub(variable.getName().getIdentifier(),
+                            withDimensions(convert(field.getType(), typeVariables), variable.getExtraDimensions()),
+                            fieldModifiers, annotations(field.modifiers())));
+                    }
+                }
+                case MethodDeclaration method -> {
+                    Set<String> methodTypeVariables = new HashSet<>(typeVariables);
+                    List<TypeParameter> methodTypeParameters = typeParameters(method.typeParameters(), methodTypeVariables);
+                    List<Parameter> parameters = parameters(method.parameters(), methodTypeVariables);
+                    int methodModifiers = method.getModifiers() & ACCESS_FLAGS_MASK;
+                    if (method.isConstructor()) {
+                        constructors.add(new ConstructorStub(parameters, methodModifiers,
+                            annotations(method.modifiers()), methodTypeParameters));
+                    } else {
+                        Type returnType = method.getReturnType2() == null ? new Type.PrimitiveType("void")
+                            : withDimensions(convert(method.getReturnType2(), methodTypeVariables), method.getExtraDimensions());
+                        methods.add(new MethodStub(method.getName().getIdentifier(), returnType, parameters,
+                            methodModifiers, annotations(method.modifiers()), methodTypeParameters));
+                    }
+                }
+                case AnnotationTypeMemberDeclaration member -> methods.add(new MethodStub(
+                    member.getName().getIdentifier(), convert(member.getType(), typeVariables), List.of(),
+                    Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, annotations(member.modifiers()), List.of()));
+                case AbstractTypeDeclaration memberType -> collect(memberType, packageName, name,
+                    Modifier.isStatic(memberType.getModifiers()) ? Set.of() : typeVariables, stubs);
+                default -> {
+                }
+            }
+        }
+
+        stubs.add(new ClassStub(packageName, name, typeParameters, superClass, interfaces, fields, methods,
+            constructors, modifiers, annotations(declaration.modifiers())));
+    }
+
+    private static List<TypeParameter> typeParameters(List<?> typeParameters, Set<String> typeVariables) {
+        if (typeParameters.isEmpty())
+            return List.of();
+
+        // Declare all names first so bounds may refer to each other, as in <T extends Comparable<T>>
+        for (Object typeParameter : typeParameters) {
+            typeVariables.add(((org.eclipse.jdt.core.dom.TypeParameter) typeParameter).getName().getIdentifier());
+        }
+
+        List<TypeParameter> result = new ArrayList<>(typeParameters.size());
+        for (Object typeParameter : typeParameters) {
+            var parameter = (org.eclipse.jdt.core.dom.TypeParameter) typeParameter;
+            List<Type> bounds = new ArrayList<>();
+            for (Object bound : parameter.typeBounds()) {
+                bounds.add(convert((org.eclipse.jdt.core.dom.Type) bound, typeVariables));
+            }
+
+            result.add(new TypeParameter(parameter.getName().getIdentifier(), bounds));
+        }
+
+        return result;
+    }
+
+    private static List<Parameter> parameters(List<?> parameters, Set<String> typeVariables) {
+        List<Parameter> result = new ArrayList<>(parameters.size());
+        for (Object parameter : parameters) {
+            var variable = (SingleVariableDeclaration) parameter;
+            Type type = withDimensions(convert(variable.getType(), typeVariables), variable.getExtraDimensions());
+            if (variable.isVarargs()) {
+                type = new Type.ArrayType(type);
+            }
+
+            result.add(new Parameter(variable.getName().getIdentifier(), type, annotations(variable.modifiers())));
+        }
+
+        return result;
+    }
+
+    private static List<AnnotationStub> annotations(List<?> modifiers) {
+        List<AnnotationStub> result = null;
+        for (Object modifier : modifiers) {
+            if (modifier instanceof Annotation annotation) {
+                if (result == null) {
+                    result = new ArrayList<>();
+                }
+
+                result.add(new AnnotationStub(annotation.getTypeName().getFullyQualifiedName(), Map.of()));
+            }
+        }
+
+        return result == null ? List.of() : result;
+    }
+
+    private static Type withDimensions(Type type, int dimensions) {
+        for (int index = 0; index < dimensions; index++) {
+            type = new Type.ArrayType(type);
+        }
+
+        return type;
+    }
+
+    private static Type convert(org.eclipse.jdt.core.dom.Type type, Set<String> typeVariables) {
+        return switch (type) {
+            case org.eclipse.jdt.core.dom.PrimitiveType primitive ->
+                new Type.PrimitiveType(primitive.getPrimitiveTypeCode().toString());
+            case org.eclipse.jdt.core.dom.ArrayType array ->
+                withDimensions(convert(array.getElementType(), typeVariables), array.getDimensions());
+            case ParameterizedType parameterized -> {
+                List<Type> arguments = new ArrayList<>();
+                for (Object argument : parameterized.typeArguments()) {
+                    arguments.add(convert((org.eclipse.jdt.core.dom.Type) argument, typeVariables));
+                }
+
+                yield new Type.ClassType(nameOf(parameterized.getType()), arguments);
+            }
+            case org.eclipse.jdt.core.dom.WildcardType wildcard -> new Type.WildcardType(
+                wildcard.getBound() == null ? null : convert(wildcard.getBound(), typeVariables),
+                wildcard.getBound() == null || wildcard.isUpperBound());
+            default -> {
+                String name = nameOf(type);
+                yield typeVariables.contains(name) ? new Type.TypeVariable(name) : new Type.ClassType(name, List.of());
+            }
+        };
+    }
+
+    private static String nameOf(org.eclipse.jdt.core.dom.Type type) {
+        return switch (type) {
+            case SimpleType simple -> simple.getName().getFullyQualifiedName();
+            case QualifiedType qualified -> nameOf(qualified.getQualifier()) + "." + qualified.getName().getIdentifier();
+            case NameQualifiedType qualified ->
+                qualified.getQualifier().getFullyQualifiedName() + "." + qualified.getName().getIdentifier();
+            default -> type.toString();
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package dev.railroadide.railroad.ide.classpath;
+
+import dev.railroadide.railroad.Railroad;
+import dev.railroadide.railroad.ide.diagnostics.JavaDiagnosticsEngine;
+import dev.railroadide.railroad.project.Project;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.dom.*;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds binding-resolved JDT compilation units against a project's classpath.
+ * <p>
+ * One resolver is shared by all editors of a project. The most recently resolved units are kept in a small LRU, so
+ * asking again for the same file contents and position does not go back through the compiler.
+ */
+public final class CompilationUnitResolver {
+    private static final int MAX_CACHED_UNITS = 16;
+    private static final Map<Path, CompilationUnitResolver> RESOLVERS = new ConcurrentHashMap<>();
+
+    private final Project project;
+    private final Map<UnitKey, CompilationUnit> units = new LinkedHashMap<>(MAX_CACHED_UNITS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UnitKey, CompilationUnit> eldest) {
+            return size() > MAX_CACHED_UNITS;
+        }
+    };
+
+    private CompilationUnitResolver(Project project) {
+        this.project = project;
+    }
+
+    /**
+     * Gets the resolver shared by every editor of the given project.
+     *
+     * @param project the project
+     * @return the project's resolver
+     */
+    public static CompilationUnitResolver forProject(Project project) {
+        return RESOLVERS.computeIfAbsent(project.getPath().toAbsolutePath().normalize(),
+            path -> new CompilationUnitResolver(project));
+    }
+
+    /**
+     * Parses the given source with bindings resolved against the project classpath.
+     *
+     * @param file          the file the source belongs to
+     * @param source        the contents of the file
+     * @param focalPosition the offset that bindings are needed around, or {@code -1} to resolve every body
+     * @param monitor       a monitor to cancel the parse through, may be {@code null}
+     * @return the resolved compilation unit
+     * @throws org.eclipse.core.runtime.OperationCanceledException if the monitor was cancelled
+     */
+    public CompilationUnit resolve(Path file, String source, int focalPosition, @Nullable IProgressMonitor monitor) {
+        ProjectClasspath classpath = ProjectClasspathManager.getClasspathNow(this.project);
+        var key = new UnitKey(file, source.length(), source.hashCode(), focalPosition, classpath);
+        synchronized (this.units) {
+            CompilationUnit cached = this.units.get(key);
+            if (cached != null)
+                return cached;
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        ASTParser parser = ASTParser.newParser(AST.JLS21);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setCompilerOptions(JavaDiagnosticsEngine.getCompilerOptions());
+        parser.setResolveBindings(true);
+        parser.setBindingsRecovery(true);
+        parser.setStatementsRecovery(true);
+        parser.setUnitName(unitName(file, classpath));
+        parser.setEnvironment(classpath.classpathEntries(), classpath.sourcepathEntries(), null, true);
+        if (focalPosition >= 0) {
+            parser.setFocalPosition(focalPosition);
+        }
+
+        parser.setSource(source.toCharArray());
+        var unit = (CompilationUnit) parser.createAST(monitor);
+
+        synchronized (this.units) {
+            this.units.put(key, unit);
+        }
+
+        Railroad.LOGGER.debug("Resolved {} in {}ms", file.getFileName(), System.currentTimeMillis() - startTime);
+        return unit;
+    }
+
+    /**
+     * Collects the names of the fields and methods accessible on a type, including inherited ones.
+     *
+     * @param type the type binding
+     * @return the member names, in declaration order with duplicates removed
+     */
+    public static List<String> collectMemberNames(ITypeBinding type) {
+        Set<String> names = new LinkedHashSet<>();
+        Set<String> visited = new HashSet<>();
+        Deque<ITypeBinding> queue = new ArrayDeque<>();
+        queue.add(type.getErasure());
+        while (!queue.isEmpty()) {
+            ITypeBinding current = queue.poll();
+            if (current == null || !visited.add(current.getKey()))
+                continue;
+
+            for (IVariableBinding field : current.getDeclaredFields()) {
+                if (!field.isSynthetic()) {
+                    names.add(field.getName());
+                }
+            }
+
+            for (IMethodBinding method : current.getDeclaredMethods()) {
+                if (!method.isConstructor() && !method.isSynthetic()) {
+                    names.add(method.getName());
+                }
+            }
+
+            queue.add(current.getSuperclass());
+            queue.addAll(Arrays.asList(current.getInterfaces()));
+        }
+
+        return List.copyOf(names);
+    }
+
+    // JDT needs the unit name to be the path of the file relative to its source folder to resolve it in place
+    private static String unitName(Path file, ProjectClasspath classpath) {
+        Path absolute = file.toAbsolutePath().normalize();
+        for (Path sourceFolder : classpath.sourcepath()) {
+            if (absolute.startsWith(sourceFolder))
+                return "/" + sourceFolder.relativize(absolute).toString().replace('\\', '/');
+        }
+
+        return file.getFileName().toString();
+    }
+
+    private record UnitKey(Path file, int length, int hash, int focalPosition, ProjectClasspath classpath) {
+    }
+}
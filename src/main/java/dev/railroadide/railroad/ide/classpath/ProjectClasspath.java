@@ -0,0 +1,27 @@
+package dev.railroadide.railroad.ide.classpath;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The compile classpath and source folders of a project, as used to resolve bindings.
+ *
+ * @param classpath  jars and class directories the project compiles against
+ * @param sourcepath source folders of the project and its subprojects
+ */
+public record ProjectClasspath(List<Path> classpath, List<Path> sourcepath) {
+    public static final ProjectClasspath EMPTY = new ProjectClasspath(List.of(), List.of());
+
+    public ProjectClasspath {
+        classpath = List.copyOf(classpath);
+        sourcepath = List.copyOf(sourcepath);
+    }
+
+    public String[] classpathEntries() {
+        return classpath.stream().map(Path::toString).toArray(String[]::new);
+    }
+
+    public String[] sourcepathEntries() {
+        return sourcepath.stream().map(Path::toString).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,203 @@
+package dev.railroadide.railroad.ide.classpath;
+
+import dev.railroadide.railroad.Railroad;
+import dev.railroadide.railroad.project.Project;
+import dev.railroadide.railroad.utility.ShutdownHooks;
+import dev.railroadide.railroad.utility.TaskScheduler;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.model.eclipse.EclipseExternalDependency;
+import org.gradle.tooling.model.eclipse.EclipseOutputLocation;
+import org.gradle.tooling.model.eclipse.EclipseProject;
+import org.gradle.tooling.model.eclipse.EclipseSourceDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Resolves and caches the classpath of each open project.
+ * <p>
+ * The classpath is queried from the Gradle tooling API once per project and kept until one of the project's build
+ * files changes, which is checked cheaply through their modification times on every access.
+ */
+public final class ProjectClasspathManager {
+    public static final List<String> BUILD_FILES = List.of(
+        "build.gradle", "build.gradle.kts",
+        "settings.gradle", "settings.gradle.kts",
+        "gradle.properties", "gradle/libs.versions.toml"
+    );
+
+    private static final Map<Path, CachedClasspath> CACHE = new ConcurrentHashMap<>();
+    private static final Map<Path, OutputStream> BUILD_OUTPUTS = new ConcurrentHashMap<>();
+    private static final TaskScheduler.TaskOwner TASKS = TaskScheduler.newOwner("classpath resolution");
+    // Resolving can block on a Gradle build for minutes, so it stays off the common pool that parallel streams use
+    private static final Executor RESOLVER = TASKS.executor(TaskScheduler.Lane.IO);
+
+    static {
+        ShutdownHooks.addHook(TASKS::close);
+    }
+
+    private ProjectClasspathManager() {
+    }
+
+    /**
+     * Gets the classpath of the given project, resolving it if it is not cached or a build file changed.
+     *
+     * @param project the project
+     * @return a future completing with the classpath
+     */
+    public static CompletableFuture<ProjectClasspath> getClasspath(Project project) {
+        Path projectDir = project.getPath().toAbsolutePath().normalize();
+        Map<Path, Long> stamp = stampBuildFiles(projectDir);
+        return CACHE.compute(projectDir, (path, cached) -> {
+            if (cached != null && cached.stamp.equals(stamp))
+                return cached;
+
+            return new CachedClasspath(stamp, CompletableFuture.supplyAsync(() -> resolve(projectDir), RESOLVER),
+                cached == null ? ProjectClasspath.EMPTY : cached.lastKnown);
+        }).future;
+    }
+
+    /**
+     * Gets the classpath of the given project without waiting for it to resolve.
+     * <p>
+     * While a classpath is being resolved this returns the previously resolved one, or
+     * {@link ProjectClasspath#EMPTY} if there is none yet.
+     *
+     * @param project the project
+     * @return the best classpath currently available
+     */
+    public static ProjectClasspath getClasspathNow(Project project) {
+        CompletableFuture<ProjectClasspath> future = getClasspath(project);
+        if (future.isDone())
+            return future.join();
+
+        CachedClasspath cached = CACHE.get(project.getPath().toAbsolutePath().normalize());
+        return cached == null ? ProjectClasspath.EMPTY : cached.lastKnown;
+    }
+
+    /**
+     * Drops the cached classpath of the given project so that it is resolved again on next access.
+     *
+     * @param project the project
+     */
+    public static void invalidate(Project project) {
+        CACHE.remove(project.getPath().toAbsolutePath().normalize());
+    }
+
+    /**
+     * Sends the output of the Gradle builds run to resolve the classpath of the given project to a stream, such as the
+     * console of its window, instead of discarding it. Replaces the stream set before, if any.
+     *
+     * @param project the project
+     * @param output  the stream, which is never closed
+     */
+    public static void setBuildOutput(Project project, OutputStream output) {
+        BUILD_OUTPUTS.put(project.getPath().toAbsolutePath().normalize(), output);
+    }
+
+    private static ProjectClasspath resolve(Path projectDir) {
+        long startTime = System.currentTimeMillis();
+        if (!isGradleProject(projectDir))
+            return fallbackClasspath(projectDir);
+
+        try (ProjectConnection connection = GradleConnector.newConnector()
+            .forProjectDirectory(projectDir.toFile())
+            .connect()) {
+            OutputStream output = BUILD_OUTPUTS.getOrDefault(projectDir, OutputStream.nullOutputStream());
+            EclipseProject model = connection.model(EclipseProject.class)
+                .setStandardOutput(output)
+                .setStandardError(output)
+                .get();
+
+            Set<Path> classpath = new LinkedHashSet<>();
+            Set<Path> sourcepath = new LinkedHashSet<>();
+            collect(model, classpath, sourcepath);
+
+            var result = new ProjectClasspath(List.copyOf(classpath), List.copyOf(sourcepath));
+            Railroad.LOGGER.debug("Resolved classpath of {} ({} entries) in {}ms",
+                projectDir, classpath.size(), System.currentTimeMillis() - startTime);
+            return result;
+        } catch (Exception exception) {
+            Railroad.LOGGER.error("Failed to resolve classpath of {}", projectDir, exception);
+            return fallbackClasspath(projectDir);
+        }
+    }
+
+    private static void collect(EclipseProject project, Set<Path> classpath, Set<Path> sourcepath) {
+        Path projectDir = project.getProjectDirectory().toPath();
+        for (EclipseSourceDirectory sourceDirectory : project.getSourceDirectories()) {
+            File directory = sourceDirectory.getDirectory();
+            if (directory != null && directory.isDirectory()) {
+                sourcepath.add(directory.toPath());
+            }
+        }
+
+        for (EclipseExternalDependency dependency : project.getClasspath()) {
+            File file = dependency.getFile();
+            if (file != null && file.exists()) {
+                classpath.add(file.toPath());
+            }
+        }
+
+        EclipseOutputLocation outputLocation = project.getOutputLocation();
+        if (outputLocation != null) {
+            Path output = projectDir.resolve(outputLocation.getPath());
+            if (Files.isDirectory(output)) {
+                classpath.add(output);
+            }
+        }
+
+        for (EclipseProject child : project.getChildren()) {
+            collect(child, classpath, sourcepath);
+        }
+    }
+
+    private static ProjectClasspath fallbackClasspath(Path projectDir) {
+        Path sources = projectDir.resolve("src").resolve("main").resolve("java");
+        return new ProjectClasspath(List.of(), Files.isDirectory(sources) ? List.of(sources) : List.of());
+    }
+
+    private static boolean isGradleProject(Path projectDir) {
+        return BUILD_FILES.stream()
+            .filter(file -> file.startsWith("build.") || file.startsWith("settings."))
+            .map(projectDir::resolve)
+            .anyMatch(Files::isRegularFile);
+    }
+
+    private static Map<Path, Long> stampBuildFiles(Path projectDir) {
+        Map<Path, Long> stamp = new HashMap<>();
+        for (String buildFile : BUILD_FILES) {
+            Path path = projectDir.resolve(buildFile);
+            try {
+                stamp.put(path, Files.getLastModifiedTime(path).toMillis());
+            } catch (IOException ignored) {
+                stamp.put(path, -1L);
+            }
+        }
+
+        return stamp;
+    }
+
+    private static final class CachedClasspath {
+        private final Map<Path, Long> stamp;
+        private final CompletableFuture<ProjectClasspath> future;
+        // The newest classpath resolved for the project, served while a re-resolve is in flight
+        private volatile ProjectClasspath lastKnown;
+
+        private CachedClasspath(Map<Path, Long> stamp, CompletableFuture<ProjectClasspath> future,
+                                ProjectClasspath lastKnown) {
+            this.stamp = stamp;
+            this.future = future;
+            this.lastKnown = lastKnown;
+            future.thenAccept(classpath -> this.lastKnown = classpath);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package dev.railroadide.railroad.ide.diagnostics;
+
+import javax.tools.Diagnostic.Kind;
+import java.util.*;
+
+/**
+ * An immutable interval index over the diagnostics of a document.
+ * <p>
+ * Diagnostics are sorted by start offset alongside a running maximum of their end offsets, which lets
+ * {@link #at(int)} and {@link #overlapping(int, int)} binary search to the last candidate and walk backwards only
+ * as far as an interval could still reach.
+ */
+public final class DiagnosticIndex {
+    public static final DiagnosticIndex EMPTY = new DiagnosticIndex(List.of());
+
+    private final ProblemDiagnostic[] diagnostics;
+    private final int[] maxEnds;
+
+    public DiagnosticIndex(Collection<ProblemDiagnostic> diagnostics) {
+        this.diagnostics = diagnostics.toArray(ProblemDiagnostic[]::new);
+        Arrays.sort(this.diagnostics, Comparator.comparingInt(ProblemDiagnostic::start)
+            .thenComparingInt(ProblemDiagnostic::end));
+
+        this.maxEnds = new int[this.diagnostics.length];
+        int maxEnd = Integer.MIN_VALUE;
+        for (int index = 0; index < this.diagnostics.length; index++) {
+            maxEnd = Math.max(maxEnd, effectiveEnd(this.diagnostics[index]));
+            this.maxEnds[index] = maxEnd;
+        }
+    }
+
+    /**
+     * @return all diagnostics in the index, ordered by start offset
+     */
+    public List<ProblemDiagnostic> all() {
+        return List.of(this.diagnostics);
+    }
+
+    public boolean isEmpty() {
+        return this.diagnostics.length == 0;
+    }
+
+    /**
+     * Finds the diagnostics covering the given offset.
+     *
+     * @param position the offset in the document
+     * @return the diagnostics whose range contains the offset, ordered by start offset
+     */
+    public List<ProblemDiagnostic> at(int position) {
+        return overlapping(position, position + 1);
+    }
+
+    /**
+     * Finds the diagnostics that overlap the given range.
+     *
+     * @param start the start of the range, inclusive
+     * @param end   the end of the range, exclusive
+     * @return the overlapping diagnostics, ordered by start offset
+     */
+    public List<ProblemDiagnostic> overlapping(int start, int end) {
+        int index = lastStartingBefore(end);
+        if (index < 0)
+            return List.of();
+
+        List<ProblemDiagnostic> result = new ArrayList<>();
+        for (; index >= 0 && this.maxEnds[index] > start; index--) {
+            ProblemDiagnostic diagnostic = this.diagnostics[index];
+            if (effectiveEnd(diagnostic) > start) {
+                result.add(diagnostic);
+            }
+        }
+
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Works out which diagnostics have to be added and removed to go from this index to the given one.
+     *
+     * @param newer the index to compare against
+     * @return the difference between the two indexes
+     */
+    public Delta diff(DiagnosticIndex newer) {
+        // Compared by what they mark rather than by line and column, which every edit above them changes
+        Set<Marker> oldSet = markers(this.diagnostics);
+        Set<Marker> newSet = markers(newer.diagnostics);
+
+        List<ProblemDiagnostic> added = new ArrayList<>();
+        for (ProblemDiagnostic diagnostic : newer.diagnostics) {
+            if (!oldSet.contains(Marker.of(diagnostic))) {
+                added.add(diagnostic);
+            }
+        }
+
+        List<ProblemDiagnostic> removed = new ArrayList<>();
+        for (ProblemDiagnostic diagnostic : this.diagnostics) {
+            if (!newSet.contains(Marker.of(diagnostic))) {
+                removed.add(diagnostic);
+            }
+        }
+
+        return new Delta(added, removed);
+    }
+
+    /**
+     * Moves the diagnostics along with an edit of the document, so that they keep marking the same text until the
+     * document is analysed again. Diagnostics inside the replaced text collapse onto its start.
+     *
+     * @param position   the offset the edit starts at
+     * @param removedEnd the end of the replaced text
+     * @param netLength  the length of the inserted text minus the length of the replaced text
+     * @param lineDelta  the number of line breaks inserted minus the number removed
+     * @return an index of the moved diagnostics, or this index if none of them moved
+     */
+    public DiagnosticIndex shift(int position, int removedEnd, int netLength, int lineDelta) {
+        if (this.diagnostics.length == 0 || this.maxEnds[this.maxEnds.length - 1] < position)
+            return this;
+
+        List<ProblemDiagnostic> shifted = new ArrayList<>(this.diagnostics.length);
+        for (ProblemDiagnostic diagnostic : this.diagnostics) {
+            shifted.add(diagnostic.shift(position, removedEnd, netLength, lineDelta));
+        }
+
+        return new DiagnosticIndex(shifted);
+    }
+
+    private static Set<Marker> markers(ProblemDiagnostic[] diagnostics) {
+        Set<Marker> markers = new HashSet<>();
+        for (ProblemDiagnostic diagnostic : diagnostics) {
+            markers.add(Marker.of(diagnostic));
+        }
+
+        return markers;
+    }
+
+    // Zero-length diagnostics still mark the character they sit on
+    private static int effectiveEnd(ProblemDiagnostic diagnostic) {
+        return Math.max(diagnostic.end(), diagnostic.start() + 1);
+    }
+
+    private int lastStartingBefore(int offset) {
+        int low = 0;
+        int high = this.diagnostics.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (this.diagnostics[middle].start() < offset) {
+                result = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return result;
+    }
+
+    private record Marker(Kind kind, int start, int end, String message) {
+        private static Marker of(ProblemDiagnostic diagnostic) {
+            return new Marker(diagnostic.kind(), diagnostic.start(), diagnostic.end(), diagnostic.message());
+        }
+    }
+
+    /**
+     * The diagnostics that changed between two indexes.
+     *
+     * @param added   diagnostics only present in the newer index
+     * @param removed diagnostics only present in the older index
+     */
+    public record Delta(List<ProblemDiagnostic> added, List<ProblemDiagnostic> removed) {
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+    }
+}
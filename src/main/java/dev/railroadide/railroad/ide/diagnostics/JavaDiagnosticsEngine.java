@@ -0,0 +1,82 @@
+package dev.railroadide.railroad.ide.diagnostics;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.compiler.IProblem;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.jetbrains.annotations.Nullable;
+
+import javax.tools.Diagnostic;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Produces compiler diagnostics for Java source files.
+ * <p>
+ * The compiler options are resolved once and shared by every editor, so a pass only costs the parse itself.
+ * Passes are meant to run off the FX thread; the resulting {@link DiagnosticIndex} can then be diffed against the
+ * one currently shown to update only the markers that changed.
+ */
+public final class JavaDiagnosticsEngine {
+    private static final Map<String, String> COMPILER_OPTIONS = createCompilerOptions();
+
+    private JavaDiagnosticsEngine() {
+    }
+
+    private static Map<String, String> createCompilerOptions() {
+        Map<String, String> options = JavaCore.getOptions();
+        JavaCore.setComplianceOptions(JavaCore.VERSION_21, options);
+        return Map.copyOf(options);
+    }
+
+    /**
+     * @return the compiler options used for analysis, shared and unmodifiable
+     */
+    public static Map<String, String> getCompilerOptions() {
+        return COMPILER_OPTIONS;
+    }
+
+    /**
+     * Parses the given source without resolving bindings, which is enough to find its syntax errors.
+     *
+     * @param source  the source to parse
+     * @param monitor a monitor to cancel the parse through, may be {@code null}
+     * @return the parsed unit
+     * @throws org.eclipse.core.runtime.OperationCanceledException if the monitor was cancelled
+     */
+    public static CompilationUnit parse(char[] source, @Nullable IProgressMonitor monitor) {
+        ASTParser parser = ASTParser.newParser(AST.JLS21);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setCompilerOptions(COMPILER_OPTIONS);
+        parser.setSource(source);
+        return (CompilationUnit) parser.createAST(monitor);
+    }
+
+    /**
+     * Collects the errors and warnings of an already parsed compilation unit, using the unit's own line table to
+     * compute columns.
+     *
+     * @param unit the parsed unit
+     * @return an index of the problems found
+     */
+    public static DiagnosticIndex collect(CompilationUnit unit) {
+        IProblem[] problems = unit.getProblems();
+        List<ProblemDiagnostic> diagnostics = new ArrayList<>(problems.length);
+        for (IProblem problem : problems) {
+            Diagnostic.Kind kind = problem.isError() ? Diagnostic.Kind.ERROR :
+                (problem.isWarning() ? Diagnostic.Kind.WARNING : Diagnostic.Kind.OTHER);
+            if (kind == Diagnostic.Kind.OTHER) continue;
+
+            int start = problem.getSourceStart();
+            int end = problem.getSourceEnd() + 1;
+            long line = problem.getSourceLineNumber();
+            long column = unit.getColumnNumber(start) + 1;
+            diagnostics.add(new ProblemDiagnostic(kind, start, end, line, column, problem.getMessage()));
+        }
+
+        return new DiagnosticIndex(diagnostics);
+    }
+}
@@ -0,0 +1,78 @@
+package dev.railroadide.railroad.ide.diagnostics;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.util.Locale;
+
+/**
+ * A problem reported by the compiler for a document, with its end offset exclusive.
+ */
+public record ProblemDiagnostic(Kind kind, int start, int end, long line, long column,
+                                String message) implements Diagnostic<JavaFileObject> {
+    /**
+     * Moves this diagnostic along with an edit of the document, see {@link DiagnosticIndex#shift}.
+     *
+     * @return the moved diagnostic, or this one if the edit is at or after its end
+     */
+    public ProblemDiagnostic shift(int position, int removedEnd, int netLength, int lineDelta) {
+        if (this.end <= position)
+            return this;
+
+        int newStart = shiftOffset(this.start, position, removedEnd, netLength);
+        int newEnd = shiftOffset(this.end, position, removedEnd, netLength);
+        long newLine = this.start >= removedEnd ? this.line + lineDelta : this.line;
+        return new ProblemDiagnostic(this.kind, newStart, newEnd, newLine, this.column, this.message);
+    }
+
+    private static int shiftOffset(int offset, int position, int removedEnd, int netLength) {
+        if (offset >= removedEnd)
+            return offset + netLength;
+
+        return Math.min(offset, position);
+    }
+
+    @Override
+    public Kind getKind() {
+        return kind;
+    }
+
+    @Override
+    public JavaFileObject getSource() {
+        return null;
+    }
+
+    @Override
+    public long getPosition() {
+        return start;
+    }
+
+    @Override
+    public long getStartPosition() {
+        return start;
+    }
+
+    @Override
+    public long getEndPosition() {
+        return end;
+    }
+
+    @Override
+    public long getLineNumber() {
+        return line;
+    }
+
+    @Override
+    public long getColumnNumber() {
+        return column;
+    }
+
+    @Override
+    public String getCode() {
+        return null;
+    }
+
+    @Override
+    public String getMessage(Locale locale) {
+        return message;
+    }
+}
@@ -3,25 +3,64 @@ package dev.railroadide.railroad.ide.indexing;
 import dev.railroadide.railroad.ide.classparser.stub.ClassStub;
 import dev.railroadide.railroad.ide.classparser.stub.Stub;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Autocomplete {
-    private final Trie classTrie = new Trie();
+    public static final int DEFAULT_LIMIT = 100;
+
+    private final List<ClassStub> stubs;
+    private final PackedTrie classTrie;
     private final Map<String, ClassStub> classStubs = new HashMap<>();
+    private final Map<String, String[]> memberNames = new ConcurrentHashMap<>();
 
     public Autocomplete(List<ClassStub> stubs) {
-        for (ClassStub stub : stubs) {
-            String fullName = stub.getFullName();
-            this.classStubs.put(fullName, stub);
-            String simpleName = stub.name();
-            this.classTrie.insert(simpleName);
+        this.stubs = List.copyOf(stubs);
+
+        // The payload of each simple name is the index of its stub, so several classes can share a name
+        List<String> simpleNames = new ArrayList<>(this.stubs.size());
+        for (ClassStub stub : this.stubs) {
+            this.classStubs.put(stub.getFullName(), stub);
+            simpleNames.add(stub.name());
         }
+
+        this.classTrie = PackedTrie.build(simpleNames);
     }
 
     public List<String> getCompletions(String prefix) {
-        return this.classTrie.findCompletions(prefix);
+        return getCompletions(prefix, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Finds class names starting with the given prefix, or matching it as a camel hump pattern
+     * (e.g. {@code BlPo} for {@code BlockPos}). Shorter names come first.
+     *
+     * @param query the typed prefix or pattern
+     * @param limit the maximum number of names to return
+     * @return the matching simple class names
+     */
+    public List<String> getCompletions(String query, int limit) {
+        return findMatches(query, limit).stream()
+            .map(PackedTrie.Match::key)
+            .toList();
+    }
+
+    /**
+     * Finds the classes whose simple name matches the given prefix or camel hump pattern.
+     *
+     * @param query the typed prefix or pattern
+     * @param limit the maximum number of distinct names to look up
+     * @return the matching classes, ordered like {@link #getCompletions(String, int)}
+     */
+    public List<ClassStub> findClasses(String query, int limit) {
+        List<ClassStub> result = new ArrayList<>();
+        for (PackedTrie.Match match : findMatches(query, limit)) {
+            for (int id : match.payloads()) {
+                result.add(this.stubs.get(id));
+            }
+        }
+
+        return result;
     }
 
     public List<String> suggestMembers(String className, String prefix) {
@@ -29,9 +68,34 @@ public class Autocomplete {
         if (stub == null)
             return List.of();
 
-        return stub.getMembers().stream()
+        // Member names are sorted once per class, so a prefix is a binary search and a contiguous range
+        String[] names = this.memberNames.computeIfAbsent(className, name -> stub.getMembers().stream()
             .map(Stub::name)
-            .filter(member -> member.startsWith(prefix))
-            .toList();
+            .filter(member -> !member.equals("<init>"))
+            .distinct()
+            .sorted()
+            .toArray(String[]::new));
+
+        int start = Arrays.binarySearch(names, prefix);
+        if (start < 0) {
+            start = -start - 1;
+        }
+
+        int end = start;
+        while (end < names.length && names[end].startsWith(prefix)) {
+            end++;
+        }
+
+        return List.of(Arrays.copyOfRange(names, start, end));
+    }
+
+    private List<PackedTrie.Match> findMatches(String query, int limit) {
+        List<PackedTrie.Match> matches = this.classTrie.findByPrefix(query, limit);
+        if (matches.size() >= limit || query.chars().noneMatch(Character::isUpperCase))
+            return matches;
+
+        // Top up with camel hump matches, which include every prefix match already found
+        List<PackedTrie.Match> humps = this.classTrie.findByCamelHumps(query, limit);
+        return humps.size() > matches.size() ? humps : matches;
     }
 }
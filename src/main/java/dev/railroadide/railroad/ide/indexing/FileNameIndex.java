@@ -0,0 +1,271 @@
+package dev.railroadide.railroad.ide.indexing;
+
+import dev.railroadide.railroad.Railroad;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-memory index of the file names in a project, for searching the project explorer as the user types.
+ * <p>
+ * The index is seeded with one walk of the project and then kept current from file watcher events. Build output and
+ * tool directories ({@link #IGNORED_DIRECTORIES}) are left out. Every name carries a bit mask of the characters it
+ * contains, so a query only scores the names that contain all of its characters.
+ * <p>
+ * Searches scan a flat, array based copy of the entries, which is rebuilt by the first search after a change.
+ */
+public final class FileNameIndex {
+    /**
+     * Directory names that are never indexed, wherever they appear in the project.
+     */
+    public static final Set<String> IGNORED_DIRECTORIES = Set.of(".git", ".gradle", ".idea", "build", "out", "run");
+
+    private final Path root;
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger modifications = new AtomicInteger();
+    private volatile Columns columns;
+
+    public FileNameIndex(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Walks the project and indexes every file in it. Blocks until the walk is done.
+     */
+    public void seed() {
+        long startTime = System.currentTimeMillis();
+        addTree(this.root);
+        Railroad.LOGGER.debug("Indexed {} file names in {}ms", this.entries.size(),
+            System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Updates the index for a file watcher event.
+     *
+     * @param path the path that changed
+     * @param kind the kind of change
+     */
+    public void onFileChange(Path path, WatchEvent.Kind<?> kind) {
+        if (isIgnored(path))
+            return;
+
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+            // A directory that was moved in arrives as a single event, so its contents have to be walked
+            addTree(path);
+        } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            // The path is gone, so anything that was not a file may have been a directory
+            if (this.entries.remove(path) != null || this.entries.keySet().removeIf(indexed -> indexed.startsWith(path))) {
+                this.modifications.incrementAndGet();
+            }
+        } else if (kind == StandardWatchEventKinds.OVERFLOW) {
+            // Events below the directory were lost, so index it again from scratch
+            if (this.entries.keySet().removeIf(indexed -> indexed.startsWith(path))) {
+                this.modifications.incrementAndGet();
+            }
+
+            addTree(path);
+        }
+    }
+
+    /**
+     * Whether a directory is one of the {@link #IGNORED_DIRECTORIES}.
+     *
+     * @param directory the directory
+     * @return {@code true} if its contents are never indexed
+     */
+    public static boolean isIgnoredDirectory(Path directory) {
+        Path name = directory.getFileName();
+        return name != null && IGNORED_DIRECTORIES.contains(name.toString());
+    }
+
+    /**
+     * @return the number of indexed files
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Finds the files whose name contains the characters of a query in order, ranked by how well they match.
+     * Matches at the start of the name, at word boundaries and in runs rank higher, as do shorter names.
+     * Must be called off the FX thread; interrupting the calling thread cancels the search.
+     *
+     * @param query the query, where {@code *} is ignored
+     * @param limit the maximum number of files to return
+     * @return the best matching files, best first
+     * @throws CancellationException if the calling thread was interrupted
+     */
+    public List<Path> search(String query, int limit) {
+        String needle = query.replace("*", "").toLowerCase(Locale.ROOT);
+        if (needle.isEmpty() || limit <= 0)
+            return List.of();
+
+        Columns columns = this.columns;
+        int modifications = this.modifications.get();
+        if (columns == null || columns.modifications() != modifications) {
+            // Read before copying, so a change made during the copy makes the next search copy again
+            this.columns = columns = Columns.of(this.entries.values(), modifications);
+        }
+
+        long mask = mask(needle);
+        // A min-heap of the best matches so far, so the worst one is the one to drop
+        PriorityQueue<Match> best = new PriorityQueue<>(Comparator.comparingInt(Match::score));
+        long[] masks = columns.masks();
+        for (int index = 0; index < masks.length; index++) {
+            if ((index & 4095) == 0 && Thread.currentThread().isInterrupted())
+                throw new CancellationException("Search for " + query + " was cancelled");
+
+            if ((masks[index] & mask) != mask)
+                continue;
+
+            int score = score(columns.names()[index], columns.lowerNames()[index], needle);
+            if (score < 0 || best.size() >= limit && score <= best.peek().score())
+                continue;
+
+            if (best.size() >= limit) {
+                best.poll();
+            }
+
+            best.add(new Match(columns.paths()[index], score));
+        }
+
+        List<Match> ranked = new ArrayList<>(best);
+        ranked.sort(Comparator.comparingInt(Match::score).reversed().thenComparing(Match::path));
+        return ranked.stream().map(Match::path).toList();
+    }
+
+    private void addTree(Path start) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                    return !dir.equals(root) && isIgnoredDirectory(dir) ?
+                        FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (!attributes.isDirectory()) {
+                        add(file);
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException exception) {
+            Railroad.LOGGER.warn("Failed to index file names under {}", start, exception);
+        }
+    }
+
+    private void add(Path file) {
+        String name = file.getFileName().toString();
+        String lowerName = name.toLowerCase(Locale.ROOT);
+        this.entries.put(file, new Entry(file, name, lowerName, mask(lowerName)));
+        this.modifications.incrementAndGet();
+    }
+
+    private boolean isIgnored(Path path) {
+        if (!path.startsWith(this.root))
+            return true;
+
+        for (Path element : this.root.relativize(path)) {
+            if (IGNORED_DIRECTORIES.contains(element.toString()))
+                return true;
+        }
+
+        return false;
+    }
+
+    // Letters and digits get a bit each, everything else shares the remaining bits
+    private static long mask(String lowerText) {
+        long mask = 0;
+        for (int index = 0; index < lowerText.length(); index++) {
+            char character = lowerText.charAt(index);
+            int bit;
+            if (character >= 'a' && character <= 'z') {
+                bit = character - 'a';
+            } else if (character >= '0' && character <= '9') {
+                bit = 26 + character - '0';
+            } else {
+                bit = 36 + character % 28;
+            }
+
+            mask |= 1L << bit;
+        }
+
+        return mask;
+    }
+
+    private static int score(String name, String lowerName, String needle) {
+        int score = 0;
+        int matched = 0;
+        int previous = -2;
+        for (int index = 0; index < lowerName.length() && matched < needle.length(); index++) {
+            if (lowerName.charAt(index) != needle.charAt(matched))
+                continue;
+
+            score += 1;
+            if (index == 0) {
+                score += 8;
+            } else if (isWordStart(name, index)) {
+                score += 5;
+            }
+
+            if (previous == index - 1) {
+                score += 4;
+            }
+
+            previous = index;
+            matched++;
+        }
+
+        if (matched < needle.length())
+            return -1;
+
+        if (lowerName.startsWith(needle)) {
+            score += 20;
+        }
+
+        return score * 16 - Math.min(lowerName.length(), 255) / 16;
+    }
+
+    private static boolean isWordStart(String name, int index) {
+        char previous = name.charAt(index - 1);
+        char current = name.charAt(index);
+        return !Character.isLetterOrDigit(previous) ||
+            Character.isUpperCase(current) && Character.isLowerCase(previous);
+    }
+
+    private record Entry(Path path, String name, String lowerName, long mask) {
+    }
+
+    private record Match(Path path, int score) {
+    }
+
+    private record Columns(Path[] paths, String[] names, String[] lowerNames, long[] masks, int modifications) {
+        private static Columns of(Collection<Entry> entries, int modifications) {
+            List<Entry> copy = new ArrayList<>(entries);
+            var columns = new Columns(new Path[copy.size()], new String[copy.size()], new String[copy.size()],
+                new long[copy.size()], modifications);
+            for (int index = 0; index < copy.size(); index++) {
+                Entry entry = copy.get(index);
+                columns.paths[index] = entry.path();
+                columns.names[index] = entry.name();
+                columns.lowerNames[index] = entry.lowerName();
+                columns.masks[index] = entry.mask();
+            }
+
+            return columns;
+        }
+    }
+}
@@ -6,72 +6,144 @@ import dev.railroadide.railroad.ide.classparser.stub.ClassStub;
 import org.objectweb.asm.ClassReader;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.List;
-import java.util.jar.JarEntry;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.jar.JarFile;
+import java.util.stream.Stream;
 
+/**
+ * Scans class files out of the JDK and jars into {@link ClassStub}s.
+ * <p>
+ * Entries are parsed in parallel on the common fork-join pool. The stubs are returned sorted by name, so that the
+ * result is the same between runs.
+ */
 public class Indexes {
+    /**
+     * The JDK modules whose public API packages are indexed.
+     */
+    public static final List<String> STANDARD_MODULES = List.of("java.base", "java.desktop", "java.sql");
+
+    /**
+     * Scans the API classes of the {@link #STANDARD_MODULES} of the running JDK.
+     *
+     * @return the stubs, sorted by name
+     */
     public static List<ClassStub> scanStandardLibrary() {
-        List<ClassStub> stubs = new ArrayList<>();
+        var stubs = new ConcurrentLinkedQueue<ClassStub>();
+        scanStandardLibrary(stubs::add);
+        return sortedByName(stubs);
+    }
 
+    private static void scanStandardLibrary(Consumer<ClassStub> consumer) {
         Path javaHome = Path.of(System.getProperty("java.home"));
         // check if its using java 9 modules
         if (Files.notExists(javaHome.resolve("lib").resolve("modules"))) {
-            scanRTJar(javaHome, stubs);
-        } else {
-            scanJMods(javaHome, stubs);
+            // We are using java 8 or below so we need to scan the rt.jar
+            scanArchive(javaHome.resolve("lib").resolve("rt.jar"), "", Indexes::isApiClass, consumer);
+            return;
         }
 
-        return stubs;
+        Path jmods = javaHome.resolve("jmods");
+        for (String module : STANDARD_MODULES) {
+            // A jmod is effectively a jar file, but runtimes linked without jmods only have the module image
+            Path jmod = jmods.resolve(module + ".jmod");
+            if (Files.isRegularFile(jmod)) {
+                scanArchive(jmod, "classes/", Indexes::isApiClass, consumer);
+            } else {
+                scanModuleImage(module, consumer);
+            }
+        }
     }
 
-    private static void scanRTJar(Path javaHome, List<ClassStub> stubs) {
-        // We are using java 8 or below so we need to scan the rt.jar
-        Path rtJar = javaHome.resolve("lib").resolve("rt.jar");
-        try (var jar = new JarFile(rtJar.toFile())) {
-            Enumeration<JarEntry> entries = jar.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                String className = entry.getName();
-                if (className.startsWith("java/") && className.endsWith(".class")) {
-                    className = className.substring("java/".length(), className.length() - ".class".length());
-                    if (className.endsWith("module-info") || className.endsWith("package-info"))
-                        continue;
+    /**
+     * Scans every class of a classpath jar.
+     *
+     * @param jar the jar file
+     * @return the stubs, sorted by name
+     */
+    public static List<ClassStub> scanJar(Path jar) {
+        var stubs = new ConcurrentLinkedQueue<ClassStub>();
+        scanArchive(jar, "", name -> !isInfoClass(name), stubs::add);
+        return sortedByName(stubs);
+    }
 
-                    ClassStub metadata = ClassStubParser.parse(new ClassReader(jar.getInputStream(entry)));
-                    stubs.add(metadata);
-                }
-            }
-        } catch (IOException exception) {
-            Railroad.LOGGER.error("Failed to scan standard library", exception);
+    // The consumer is called from several threads at once
+    private static void scanArchive(Path archive, String prefix, Predicate<String> filter, Consumer<ClassStub> consumer) {
+        try (var jar = new JarFile(archive.toFile())) {
+            // Reading the entries is cheap next to parsing them, and the zip file can be read from several threads
+            jar.stream()
+                .filter(entry -> {
+                    String name = entry.getName();
+                    return name.startsWith(prefix) && name.endsWith(".class")
+                        && filter.test(name.substring(prefix.length()));
+                })
+                .toList()
+                .parallelStream()
+                .forEach(entry -> {
+                    try (InputStream input = jar.getInputStream(entry)) {
+                        parse(input.readAllBytes(), entry.getName(), consumer);
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                });
+        } catch (IOException | UncheckedIOException exception) {
+            Railroad.LOGGER.error("Failed to scan {}", archive, exception);
         }
     }
 
-    private static void scanJMods(Path javaHome, List<ClassStub> stubs) {
-        Path jmods = javaHome.resolve("jmods");
-        // Scan the `java.base` module
-        Path javaBase = jmods.resolve("java.base.jmod"); // this should be effectively a jar file
+    private static void scanModuleImage(String module, Consumer<ClassStub> consumer) {
+        FileSystem jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+        Path root = jrt.getPath("modules", module);
+        if (Files.notExists(root))
+            return;
 
-        try (var jmod = new JarFile(javaBase.toFile())) {
-            Enumeration<JarEntry> entries = jmod.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                String className = entry.getName();
-                if (className.startsWith("classes/java/") && className.endsWith(".class")) {
-                    className = className.substring("classes/java/".length(), className.length() - ".class".length());
-                    if (className.endsWith("module-info") || className.endsWith("package-info"))
-                        continue;
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(path -> path.toString().endsWith(".class")
+                    && isApiClass(root.relativize(path).toString()))
+                .toList()
+                .parallelStream()
+                .forEach(path -> {
+                    try {
+                        parse(Files.readAllBytes(path), path.toString(), consumer);
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                });
+        } catch (IOException | UncheckedIOException exception) {
+            Railroad.LOGGER.error("Failed to scan module {}", module, exception);
+        }
+    }
 
-                    ClassStub metadata = ClassStubParser.parse(new ClassReader(jmod.getInputStream(entry)));
-                    stubs.add(metadata);
-                }
-            }
-        } catch (IOException exception) {
-            Railroad.LOGGER.error("Failed to scan standard library", exception);
+    private static void parse(byte[] bytes, String name, Consumer<ClassStub> consumer) {
+        try {
+            consumer.accept(ClassStubParser.parse(new ClassReader(bytes)));
+        } catch (RuntimeException exception) {
+            Railroad.LOGGER.debug("Skipping unreadable class {}", name, exception);
         }
     }
+
+    // Only the exported API namespaces, not the jdk.internal or sun packages living in the same modules
+    private static boolean isApiClass(String path) {
+        return (path.startsWith("java/") || path.startsWith("javax/")) && !isInfoClass(path);
+    }
+
+    private static boolean isInfoClass(String path) {
+        return path.endsWith("module-info.class") || path.endsWith("package-info.class");
+    }
+
+    private static List<ClassStub> sortedByName(Collection<ClassStub> stubs) {
+        List<ClassStub> sorted = new ArrayList<>(stubs);
+        // Parallel scanning finishes in any order, so sort to keep the result stable between runs
+        sorted.sort(Comparator.comparing(ClassStub::getFullName));
+        return sorted;
+    }
 }
@@ -0,0 +1,248 @@
+package dev.railroadide.railroad.ide.indexing;
+
+import java.util.*;
+
+/**
+ * An immutable trie packed into flat arrays.
+ * <p>
+ * Nodes are numbered breadth first, so the children of a node sit next to each other, sorted by their label, and
+ * are found by binary search. Every key carries one or more {@code int} payloads, typically indexes into the list
+ * the trie was built from. Lookups walk the trie breadth first, which yields shorter keys before longer ones and
+ * lets them stop as soon as enough matches have been found.
+ */
+public final class PackedTrie {
+    // Cursor state of a prefix lookup, whose prefix is walked before the breadth first search starts
+    private static final int PREFIX_MATCHED = -1;
+
+    private final char[] labels;
+    private final int[] childStart;
+    private final int[] childEnd;
+    // Payloads of node i are payloads[payloadStart[i]] until payloads[payloadStart[i + 1]]
+    private final int[] payloadStart;
+    private final int[] payloads;
+
+    private PackedTrie(char[] labels, int[] childStart, int[] childEnd, int[] payloadStart, int[] payloads) {
+        this.labels = labels;
+        this.childStart = childStart;
+        this.childEnd = childEnd;
+        this.payloadStart = payloadStart;
+        this.payloads = payloads;
+    }
+
+    /**
+     * Builds a trie from the given keys, where the payload of each key is its index in the list.
+     * Keys may repeat, in which case the key has all of their indexes as payloads.
+     *
+     * @param keys the keys
+     * @return the trie
+     */
+    public static PackedTrie build(List<String> keys) {
+        Integer[] order = new Integer[keys.size()];
+        for (int index = 0; index < order.length; index++) {
+            order[index] = index;
+        }
+
+        Arrays.sort(order, Comparator.comparing(keys::get));
+        String[] sorted = new String[order.length];
+        for (int index = 0; index < order.length; index++) {
+            sorted[index] = keys.get(order[index]);
+        }
+
+        var builder = new Builder(sorted.length);
+        // Each queued node is the range of sorted keys sharing its prefix, plus the prefix length
+        var queue = new ArrayDeque<int[]>();
+        builder.addNode('\0');
+        queue.add(new int[]{0, sorted.length, 0});
+        int node = 0;
+        while (!queue.isEmpty()) {
+            int[] range = queue.poll();
+            int low = range[0];
+            int high = range[1];
+            int depth = range[2];
+
+            builder.payloadStart[node] = builder.payloadCount;
+            while (low < high && sorted[low].length() == depth) {
+                builder.addPayload(order[low++]);
+            }
+
+            builder.childStart[node] = builder.nodeCount;
+            while (low < high) {
+                char label = sorted[low].charAt(depth);
+                int end = low + 1;
+                while (end < high && sorted[end].charAt(depth) == label) {
+                    end++;
+                }
+
+                builder.addNode(label);
+                queue.add(new int[]{low, end, depth + 1});
+                low = end;
+            }
+
+            builder.childEnd[node] = builder.nodeCount;
+            node++;
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * @return the number of nodes in the trie
+     */
+    public int nodeCount() {
+        return this.labels.length;
+    }
+
+    /**
+     * Finds the keys starting with the given prefix, shortest first.
+     *
+     * @param prefix the prefix
+     * @param limit  the maximum number of keys to return
+     * @return the matches, ordered by key length and then alphabetically
+     */
+    public List<Match> findByPrefix(String prefix, int limit) {
+        int node = 0;
+        for (int index = 0; index < prefix.length(); index++) {
+            node = findChild(node, prefix.charAt(index));
+            if (node < 0)
+                return List.of();
+        }
+
+        var results = new ArrayList<Match>(Math.min(limit, 64));
+        var queue = new ArrayDeque<Cursor>();
+        queue.add(new Cursor(node, prefix, PREFIX_MATCHED));
+        collect(queue, "", limit, results);
+        return results;
+    }
+
+    /**
+     * Finds the keys matching the given camel hump pattern, shortest first.
+     * <p>
+     * Each upper case letter of the pattern starts a new hump and matches the next upper case letter of the key,
+     * while lower case letters and digits have to follow their hump directly. {@code BlPo} therefore matches
+     * {@code BlockPos} and {@code BlockPosition}, but not {@code BlockState}. The first hump always anchors at the
+     * start of the key.
+     *
+     * @param pattern the camel hump pattern
+     * @param limit   the maximum number of keys to return
+     * @return the matches, ordered by key length and then alphabetically
+     */
+    public List<Match> findByCamelHumps(String pattern, int limit) {
+        if (pattern.isEmpty())
+            return findByPrefix(pattern, limit);
+
+        var results = new ArrayList<Match>(Math.min(limit, 64));
+        var queue = new ArrayDeque<Cursor>();
+        queue.add(new Cursor(0, "", 0));
+        collect(queue, pattern, limit, results);
+        return results;
+    }
+
+    // Breadth first walk where a cursor tracks how much of the pattern has been consumed
+    private void collect(Deque<Cursor> queue, String pattern, int limit, List<Match> results) {
+        while (!queue.isEmpty() && results.size() < limit) {
+            Cursor cursor = queue.poll();
+            if (cursor.matched == pattern.length() || cursor.matched == PREFIX_MATCHED) {
+                int start = this.payloadStart[cursor.node];
+                int end = this.payloadStart[cursor.node + 1];
+                if (start < end) {
+                    results.add(new Match(cursor.key, Arrays.copyOfRange(this.payloads, start, end)));
+                }
+            }
+
+            for (int child = this.childStart[cursor.node]; child < this.childEnd[cursor.node]; child++) {
+                int matched = advance(pattern, cursor.matched, cursor.key.isEmpty(), this.labels[child]);
+                if (matched != Integer.MIN_VALUE) {
+                    queue.add(new Cursor(child, cursor.key + this.labels[child], matched));
+                }
+            }
+        }
+    }
+
+    // Returns how much of the pattern is consumed after reading the given key character, or MIN_VALUE to prune
+    private static int advance(String pattern, int matched, boolean atStart, char label) {
+        // Once the whole pattern is matched, whatever follows is accepted
+        if (matched == PREFIX_MATCHED || matched == pattern.length())
+            return matched;
+
+        char expected = pattern.charAt(matched);
+        if (label == expected)
+            return matched + 1;
+
+        if (atStart || !Character.isUpperCase(expected))
+            return Integer.MIN_VALUE;
+
+        // Inside a hump the rest of the word is skipped until the next upper case letter
+        return Character.isUpperCase(label) ? Integer.MIN_VALUE : matched;
+    }
+
+    private int findChild(int node, char label) {
+        int low = this.childStart[node];
+        int high = this.childEnd[node] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char current = this.labels[middle];
+            if (current < label) {
+                low = middle + 1;
+            } else if (current > label) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * A key found in the trie.
+     *
+     * @param key      the key
+     * @param payloads the payloads of every occurrence of the key
+     */
+    public record Match(String key, int[] payloads) {
+    }
+
+    private record Cursor(int node, String key, int matched) {
+    }
+
+    private static final class Builder {
+        private char[] labels = new char[16];
+        private int[] childStart = new int[16];
+        private int[] childEnd = new int[16];
+        private int[] payloadStart = new int[17];
+        private final int[] payloads;
+        private int nodeCount;
+        private int payloadCount;
+
+        private Builder(int keyCount) {
+            this.payloads = new int[keyCount];
+        }
+
+        private void addNode(char label) {
+            if (this.nodeCount == this.labels.length) {
+                int capacity = this.labels.length * 2;
+                this.labels = Arrays.copyOf(this.labels, capacity);
+                this.childStart = Arrays.copyOf(this.childStart, capacity);
+                this.childEnd = Arrays.copyOf(this.childEnd, capacity);
+                this.payloadStart = Arrays.copyOf(this.payloadStart, capacity + 1);
+            }
+
+            this.labels[this.nodeCount++] = label;
+        }
+
+        private void addPayload(int payload) {
+            this.payloads[this.payloadCount++] = payload;
+        }
+
+        private PackedTrie build() {
+            this.payloadStart[this.nodeCount] = this.payloadCount;
+            return new PackedTrie(
+                Arrays.copyOf(this.labels, this.nodeCount),
+                Arrays.copyOf(this.childStart, this.nodeCount),
+                Arrays.copyOf(this.childEnd, this.nodeCount),
+                Arrays.copyOf(this.payloadStart, this.nodeCount + 1),
+                this.payloads
+            );
+        }
+    }
+}
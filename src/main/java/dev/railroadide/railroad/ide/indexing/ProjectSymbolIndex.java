@@ -0,0 +1,430 @@
+package dev.railroadide.railroad.ide.indexing;
+
+import dev.railroadide.railroad.Railroad;
+import dev.railroadide.railroad.ide.classparser.ClassStubParser;
+import dev.railroadide.railroad.ide.classparser.SourceStubParser;
+import dev.railroadide.railroad.ide.classparser.stub.ClassStub;
+import dev.railroadide.railroad.ide.classpath.ProjectClasspath;
+import dev.railroadide.railroad.ide.classpath.ProjectClasspathManager;
+import dev.railroadide.railroad.project.Project;
+import dev.railroadide.railroad.utility.Debouncer;
+import dev.railroadide.railroad.utility.ShutdownHooks;
+import dev.railroadide.railroad.utility.TaskScheduler;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Index of the classes visible in a project: its source files, its compiled classes and every dependency jar on
+ * its classpath, on top of the {@link StandardLibraryIndex}.
+ * <p>
+ * The index is made of units, one per source file, class file or jar, each stamped with the size and modification
+ * time of its file. It is written to the config directory and reloaded on the next session, so only units whose
+ * stamp changed are scanned again. While the project is open, {@link #onFileChange(Path, WatchEvent.Kind)} feeds it
+ * the events of the project explorer's watcher, and the affected units are rescanned in the background. When a
+ * build file changes the classpath, units are added and dropped to match it.
+ */
+public final class ProjectSymbolIndex {
+    private static final int FORMAT_VERSION = 1;
+    private static final Duration UPDATE_DELAY = Duration.ofMillis(300);
+    // Rebuilding the autocomplete covers every class, so bursts of changes such as a build are folded into one
+    private static final Duration AUTOCOMPLETE_DELAY = Duration.ofSeconds(2);
+    private static final Duration SAVE_DELAY = Duration.ofSeconds(5);
+    private static final Map<Path, ProjectSymbolIndex> INDEXES = new ConcurrentHashMap<>();
+
+    static {
+        ShutdownHooks.addHook(() -> INDEXES.values().forEach(index -> {
+            index.tasks.close();
+            index.save();
+        }));
+    }
+
+    private final Project project;
+    private final Path projectDir;
+    private final Path indexFile;
+    private final TaskScheduler.TaskOwner tasks;
+    // Updates, loading and saving run one at a time, in order
+    private final Executor updater;
+    private final Debouncer pendingChangesUpdate;
+    private final Debouncer autocompleteRebuild;
+    private final Debouncer delayedSave;
+    private final Map<String, StubIndexCodec.Unit> units = new HashMap<>();
+    private final Set<Path> pendingPaths = new HashSet<>();
+    private final CompletableFuture<Void> loaded;
+    private volatile Autocomplete autocomplete;
+    // The classpath the units were last listed from, only used on the updater
+    private ProjectClasspath classpath;
+    private boolean dirty;
+
+    private ProjectSymbolIndex(Project project, Path projectDir) {
+        this.project = project;
+        this.projectDir = projectDir;
+        this.indexFile = StandardLibraryIndex.getIndexDirectory()
+            .resolve("project-" + Integer.toHexString(projectDir.toString().hashCode()) + ".idx");
+        this.tasks = TaskScheduler.newOwner("symbol index of " + projectDir.getFileName());
+        this.updater = this.tasks.serialExecutor(TaskScheduler.Lane.BACKGROUND_INDEXING);
+        this.pendingChangesUpdate = new Debouncer(this.updater, UPDATE_DELAY, this::applyPendingChanges);
+        this.autocompleteRebuild = new Debouncer(this.updater, AUTOCOMPLETE_DELAY, this::rebuildAutocomplete);
+        this.delayedSave = new Debouncer(this.updater, SAVE_DELAY, this::save);
+        this.loaded = ProjectClasspathManager.getClasspath(project)
+            .thenAcceptAsync(this::loadAndRefresh, this.updater)
+            .exceptionally(throwable -> {
+                Railroad.LOGGER.error("Failed to index project {}", projectDir, throwable);
+                return null;
+            });
+    }
+
+    /**
+     * Gets the index of the given project, starting to load it in the background if this is the first request.
+     *
+     * @param project the project
+     * @return the project's index
+     */
+    public static ProjectSymbolIndex forProject(Project project) {
+        return INDEXES.computeIfAbsent(project.getPath().toAbsolutePath().normalize(),
+            path -> new ProjectSymbolIndex(project, path));
+    }
+
+    /**
+     * Stops maintaining the index of the given project and drops it from memory, for when the project is closed.
+     * The index is written out on the IO lane, and the next request for it loads it again.
+     *
+     * @param project the project
+     */
+    public static void release(Project project) {
+        ProjectSymbolIndex index = INDEXES.remove(project.getPath().toAbsolutePath().normalize());
+        if (index == null)
+            return;
+
+        index.tasks.close();
+        TaskScheduler.serial(TaskScheduler.Lane.IO).execute(index::save);
+    }
+
+    /**
+     * @return a future completing once the index has been loaded and brought up to date
+     */
+    public CompletableFuture<Void> getLoaded() {
+        return this.loaded;
+    }
+
+    /**
+     * Gets the autocomplete over the project and standard library classes as of the last update.
+     * <p>
+     * Until the project index has loaded, this covers the standard library only.
+     *
+     * @return the current autocomplete
+     */
+    public Autocomplete getAutocomplete() {
+        Autocomplete current = this.autocomplete;
+        return current != null ? current : StandardLibraryIndex.getAutocomplete().join();
+    }
+
+    /**
+     * Queues the given path to be rescanned. Paths outside the project's sources, outputs and classpath are ignored.
+     * Directories, including ones reported with {@link StandardWatchEventKinds#OVERFLOW}, are rescanned as a whole.
+     *
+     * @param path the path that changed
+     * @param kind the kind of change
+     */
+    public void onFileChange(Path path, WatchEvent.Kind<?> kind) {
+        synchronized (this) {
+            this.pendingPaths.add(path.toAbsolutePath().normalize());
+        }
+
+        this.pendingChangesUpdate.request();
+    }
+
+    private void loadAndRefresh(ProjectClasspath classpath) {
+        Map<String, StubIndexCodec.Unit> persisted = load();
+        synchronized (this) {
+            this.units.putAll(persisted);
+        }
+
+        syncClasspath(classpath);
+        rebuildAutocomplete();
+        scheduleSave();
+    }
+
+    /**
+     * Brings the units in line with a classpath: units of files no longer on it are dropped, and units that are new
+     * or whose stamp changed are scanned.
+     *
+     * @return whether any unit changed
+     */
+    private boolean syncClasspath(ProjectClasspath classpath) {
+        if (classpath.equals(this.classpath))
+            return false;
+
+        long startTime = System.currentTimeMillis();
+        this.classpath = classpath;
+        Map<String, StubIndexCodec.Unit> known;
+        synchronized (this) {
+            known = new HashMap<>(this.units);
+        }
+
+        Map<String, Path> current = listUnits(classpath);
+        Map<String, StubIndexCodec.Unit> refreshed = new ConcurrentHashMap<>(current.size() * 2);
+        var rescanned = new AtomicInteger();
+        current.entrySet().parallelStream().forEach(entry -> {
+            StubIndexCodec.Unit unit = known.get(entry.getKey());
+            long stamp = stamp(entry.getValue());
+            if (unit == null || unit.stamp() != stamp) {
+                unit = scan(entry.getValue(), stamp);
+                rescanned.incrementAndGet();
+            }
+
+            if (unit != null) {
+                refreshed.put(entry.getKey(), unit);
+            }
+        });
+
+        boolean changed = rescanned.get() > 0 || !known.keySet().equals(refreshed.keySet());
+        synchronized (this) {
+            this.units.clear();
+            this.units.putAll(refreshed);
+            this.dirty |= changed;
+        }
+
+        Railroad.LOGGER.debug("Indexed project {} ({} units, {} rescanned) in {}ms",
+            this.projectDir, current.size(), rescanned.get(), System.currentTimeMillis() - startTime);
+        return changed;
+    }
+
+    private void applyPendingChanges() {
+        // The updater runs one task at a time, so wait for the initial load without blocking it
+        if (!this.loaded.isDone()) {
+            this.loaded.thenRunAsync(this::applyPendingChanges, this.updater);
+            return;
+        }
+
+        Set<Path> paths;
+        synchronized (this) {
+            paths = new HashSet<>(this.pendingPaths);
+            this.pendingPaths.clear();
+        }
+
+        boolean changed = false;
+        for (Path path : paths) {
+            changed |= update(path, this.classpath);
+        }
+
+        if (changed) {
+            this.autocompleteRebuild.request();
+            scheduleSave();
+        }
+
+        // A changed build file makes the classpath resolve again, after which the unit list follows it
+        ProjectClasspathManager.getClasspath(this.project).thenAcceptAsync(classpath -> {
+            if (syncClasspath(classpath)) {
+                this.autocompleteRebuild.request();
+                scheduleSave();
+            }
+        }, this.updater);
+    }
+
+    private boolean update(Path path, ProjectClasspath classpath) {
+        boolean changed = false;
+        if (Files.isDirectory(path)) {
+            // A created or moved directory brings its whole subtree with it
+            try (Stream<Path> files = Files.walk(path)) {
+                for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                    changed |= update(file, classpath);
+                }
+            } catch (IOException exception) {
+                Railroad.LOGGER.warn("Failed to walk {} for indexing", path, exception);
+            }
+
+            // Deletions inside the directory may not have been reported, for example after an overflow
+            String prefix = path + path.getFileSystem().getSeparator();
+            synchronized (this) {
+                boolean removed = this.units.keySet().removeIf(unitId ->
+                    unitId.startsWith(prefix) && Files.notExists(Path.of(unitId)));
+                this.dirty |= removed;
+                changed |= removed;
+            }
+
+            return changed;
+        }
+
+        String id = path.toString();
+        if (Files.notExists(path)) {
+            synchronized (this) {
+                // The path may also have been a directory, so drop every unit below it
+                changed = this.units.remove(id) != null;
+                String prefix = id + path.getFileSystem().getSeparator();
+                changed |= this.units.keySet().removeIf(unitId -> unitId.startsWith(prefix));
+                this.dirty |= changed;
+            }
+
+            return changed;
+        }
+
+        if (!isIndexable(path, classpath))
+            return false;
+
+        long stamp = stamp(path);
+        StubIndexCodec.Unit existing;
+        synchronized (this) {
+            existing = this.units.get(id);
+        }
+
+        if (existing != null && existing.stamp() == stamp)
+            return false;
+
+        StubIndexCodec.Unit unit = scan(path, stamp);
+        if (unit == null)
+            return false;
+
+        synchronized (this) {
+            this.units.put(id, unit);
+            this.dirty = true;
+        }
+
+        return true;
+    }
+
+    private boolean isIndexable(Path path, ProjectClasspath classpath) {
+        String fileName = path.getFileName().toString();
+        if (fileName.endsWith(".java"))
+            return classpath.sourcepath().stream().anyMatch(path::startsWith);
+
+        if (fileName.endsWith(".class"))
+            return classpath.classpath().stream().anyMatch(entry -> !entry.equals(path) && path.startsWith(entry));
+
+        return fileName.endsWith(".jar") && classpath.classpath().contains(path);
+    }
+
+    private Map<String, Path> listUnits(ProjectClasspath classpath) {
+        Map<String, Path> result = new HashMap<>();
+        for (Path entry : classpath.classpath()) {
+            if (Files.isRegularFile(entry)) {
+                result.put(entry.toString(), entry);
+            } else {
+                collectFiles(entry, ".class", result);
+            }
+        }
+
+        for (Path sourceFolder : classpath.sourcepath()) {
+            collectFiles(sourceFolder, ".java", result);
+        }
+
+        return result;
+    }
+
+    private static void collectFiles(Path root, String extension, Map<String, Path> result) {
+        if (!Files.isDirectory(root))
+            return;
+
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (file.getFileName().toString().endsWith(extension)) {
+                        result.put(file.toString(), file);
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException exception) {
+            Railroad.LOGGER.warn("Failed to list {} files in {}", extension, root, exception);
+        }
+    }
+
+    private static StubIndexCodec.Unit scan(Path path, long stamp) {
+        String fileName = path.getFileName().toString();
+        try {
+            if (fileName.endsWith(".java"))
+                return new StubIndexCodec.Unit(stamp, SourceStubParser.parse(path));
+
+            if (fileName.endsWith(".class"))
+                return new StubIndexCodec.Unit(stamp, List.of(ClassStubParser.parse(path)));
+
+            return new StubIndexCodec.Unit(stamp, Indexes.scanJar(path));
+        } catch (RuntimeException exception) {
+            Railroad.LOGGER.warn("Failed to index {}", path, exception);
+            return null;
+        }
+    }
+
+    private static long stamp(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return attributes.lastModifiedTime().toMillis() * 31 + attributes.size();
+        } catch (IOException exception) {
+            return -1;
+        }
+    }
+
+    private void rebuildAutocomplete() {
+        List<ClassStub> stubs = new ArrayList<>(StandardLibraryIndex.getStubs().join());
+        synchronized (this) {
+            for (StubIndexCodec.Unit unit : this.units.values()) {
+                stubs.addAll(unit.stubs());
+            }
+        }
+
+        this.autocomplete = new Autocomplete(stubs);
+    }
+
+    private String indexKey() {
+        return FORMAT_VERSION + "|" + this.projectDir;
+    }
+
+    private Map<String, StubIndexCodec.Unit> load() {
+        if (!Files.isRegularFile(this.indexFile))
+            return Map.of();
+
+        try (FileChannel channel = FileChannel.open(this.indexFile, StandardOpenOption.READ)) {
+            Map<String, StubIndexCodec.Unit> persisted = StubIndexCodec.readUnits(
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), indexKey());
+            return persisted == null ? Map.of() : persisted;
+        } catch (IOException | RuntimeException exception) {
+            Railroad.LOGGER.warn("Failed to read project index {}, rebuilding", this.indexFile, exception);
+            return Map.of();
+        }
+    }
+
+    private void scheduleSave() {
+        synchronized (this) {
+            if (!this.dirty)
+                return;
+        }
+
+        this.delayedSave.request();
+    }
+
+    private void save() {
+        Map<String, StubIndexCodec.Unit> snapshot;
+        synchronized (this) {
+            if (!this.dirty)
+                return;
+
+            snapshot = new HashMap<>(this.units);
+            this.dirty = false;
+        }
+
+        try {
+            Files.createDirectories(this.indexFile.getParent());
+            Path tempFile = Files.createTempFile(this.indexFile.getParent(), "project-", ".tmp");
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                StubIndexCodec.writeUnits(output, indexKey(), snapshot);
+            }
+
+            Files.move(tempFile, this.indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            Railroad.LOGGER.error("Failed to write project index {}", this.indexFile, exception);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package dev.railroadide.railroad.ide.indexing;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Works out which literal text every match of a regular expression has to contain, so that the {@link TrigramIndex}
+ * only has to search the files containing it.
+ * <p>
+ * The analysis is deliberately conservative: anything it does not fully understand, such as groups, character
+ * classes and most escapes, simply ends the current literal. It may therefore find fewer literals than there are,
+ * but never one that a match could lack.
+ */
+final class RegexLiterals {
+    private RegexLiterals() {
+    }
+
+    /**
+     * Gets the literals a regular expression requires, as alternatives of which a match satisfies at least one, each
+     * being literals that all have to appear in the match.
+     *
+     * @param regex the regular expression, which must compile
+     * @return the alternatives, or {@code null} if nothing is known about the text a match contains
+     */
+    static @Nullable List<List<String>> requiredLiterals(String regex) {
+        // Comments mode makes whitespace insignificant and # start a comment, neither of which is worth modelling
+        if (regex.matches("(?s).*\\(\\?[a-zA-Z-]*x.*"))
+            return null;
+
+        List<List<String>> alternatives = new ArrayList<>();
+        for (String branch : splitAlternatives(regex)) {
+            List<String> literals = literals(branch);
+            if (literals.isEmpty())
+                return null;
+
+            alternatives.add(literals);
+        }
+
+        return alternatives;
+    }
+
+    private static List<String> splitAlternatives(String regex) {
+        List<String> branches = new ArrayList<>();
+        int start = 0;
+        int index = 0;
+        while (index < regex.length()) {
+            char character = regex.charAt(index);
+            if (character == '\\') {
+                index = skipEscape(regex, index);
+            } else if (character == '[') {
+                index = skipClass(regex, index);
+            } else if (character == '(') {
+                index = skipGroup(regex, index);
+            } else if (character == '|') {
+                branches.add(regex.substring(start, index));
+                start = ++index;
+            } else {
+                index++;
+            }
+        }
+
+        branches.add(regex.substring(start));
+        return branches;
+    }
+
+    private static List<String> literals(String branch) {
+        List<String> literals = new ArrayList<>();
+        var current = new StringBuilder();
+        // Whether the last atom was a single character at the end of the current literal
+        boolean lastWasCharacter = false;
+        int index = 0;
+        while (index < branch.length()) {
+            char character = branch.charAt(index);
+            switch (character) {
+                case '\\' -> {
+                    char next = index + 1 < branch.length() ? branch.charAt(index + 1) : 0;
+                    if (next == 'Q') {
+                        int end = branch.indexOf("\\E", index + 2);
+                        end = end < 0 ? branch.length() : end;
+                        current.append(branch, index + 2, end);
+                        lastWasCharacter = end > index + 2;
+                        index = Math.min(branch.length(), end + 2);
+                    } else {
+                        int escaped = escapedCharacter(next);
+                        if (escaped >= 0) {
+                            current.append((char) escaped);
+                            lastWasCharacter = true;
+                        } else {
+                            flush(current, literals);
+                            lastWasCharacter = false;
+                        }
+
+                        index = skipEscape(branch, index);
+                    }
+                }
+                case '[' -> {
+                    flush(current, literals);
+                    lastWasCharacter = false;
+                    index = skipClass(branch, index);
+                }
+                case '(' -> {
+                    flush(current, literals);
+                    lastWasCharacter = false;
+                    index = skipGroup(branch, index);
+                }
+                case '*', '?' -> {
+                    if (lastWasCharacter) {
+                        current.setLength(current.length() - 1);
+                    }
+
+                    flush(current, literals);
+                    lastWasCharacter = false;
+                    index = skipQuantifierMode(branch, index + 1);
+                }
+                case '+' -> {
+                    flush(current, literals);
+                    lastWasCharacter = false;
+                    index = skipQuantifierMode(branch, index + 1);
+                }
+                case '{' -> {
+                    int end = branch.indexOf('}', index);
+                    end = end < 0 ? branch.length() - 1 : end;
+                    String bounds = branch.substring(index + 1, end);
+                    if (lastWasCharacter && (bounds.startsWith("0") || bounds.startsWith(","))) {
+                        current.setLength(current.length() - 1);
+                    }
+
+                    flush(current, literals);
+                    lastWasCharacter = false;
+                    index = skipQuantifierMode(branch, end + 1);
+                }
+                case '.', '^', '$' -> {
+                    flush(current, literals);
+                    lastWasCharacter = false;
+                    index++;
+                }
+                default -> {
+                    current.append(character);
+                    lastWasCharacter = true;
+                    index++;
+                }
+            }
+        }
+
+        flush(current, literals);
+        return literals;
+    }
+
+    private static void flush(StringBuilder current, List<String> literals) {
+        if (current.length() >= 3) {
+            literals.add(current.toString());
+        }
+
+        current.setLength(0);
+    }
+
+    // Gets the character an escape stands for, or -1 if it does not stand for exactly one known character
+    private static int escapedCharacter(char escape) {
+        return switch (escape) {
+            case 't' -> '\t';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 'f' -> '\f';
+            case 'a' -> '\u0007';
+            case 'e' -> '\u001B';
+            default -> Character.isLetterOrDigit(escape) || escape == 0 ? -1 : escape;
+        };
+    }
+
+    private static int skipEscape(String regex, int index) {
+        int next = index + 2;
+        if (index + 1 >= regex.length())
+            return regex.length();
+
+        char escape = regex.charAt(index + 1);
+        switch (escape) {
+            case 'x' -> {
+                if (next < regex.length() && regex.charAt(next) == '{')
+                    return closing(regex, next, '}');
+
+                return Math.min(regex.length(), next + 2);
+            }
+            case 'u' -> {
+                return Math.min(regex.length(), next + 4);
+            }
+            case 'c' -> {
+                return Math.min(regex.length(), next + 1);
+            }
+            case '0' -> {
+                int end = next;
+                while (end < regex.length() && end < next + 3 && regex.charAt(end) >= '0' && regex.charAt(end) <= '7') {
+                    end++;
+                }
+
+                return end;
+            }
+            case 'p', 'P', 'N' -> {
+                if (next < regex.length() && regex.charAt(next) == '{')
+                    return closing(regex, next, '}');
+
+                return Math.min(regex.length(), next + 1);
+            }
+            case 'k' -> {
+                return closing(regex, next, '>');
+            }
+            case 'Q' -> {
+                int end = regex.indexOf("\\E", next);
+                return end < 0 ? regex.length() : end + 2;
+            }
+            default -> {
+                if (escape >= '1' && escape <= '9') {
+                    while (next < regex.length() && Character.isDigit(regex.charAt(next))) {
+                        next++;
+                    }
+                }
+
+                return next;
+            }
+        }
+    }
+
+    private static int skipClass(String regex, int index) {
+        int depth = 0;
+        int position = index;
+        while (position < regex.length()) {
+            char character = regex.charAt(position);
+            if (character == '\\') {
+                position = skipEscape(regex, position);
+                continue;
+            }
+
+            if (character == '[') {
+                depth++;
+                position++;
+                // A closing bracket straight after the opening one, or after its negation, is literal
+                if (position < regex.length() && regex.charAt(position) == '^') {
+                    position++;
+                }
+
+                if (position < regex.length() && regex.charAt(position) == ']') {
+                    position++;
+                }
+
+                continue;
+            }
+
+            position++;
+            if (character == ']' && --depth == 0)
+                return position;
+        }
+
+        return regex.length();
+    }
+
+    private static int skipGroup(String regex, int index) {
+        int depth = 0;
+        int position = index;
+        while (position < regex.length()) {
+            char character = regex.charAt(position);
+            if (character == '\\') {
+                position = skipEscape(regex, position);
+            } else if (character == '[') {
+                position = skipClass(regex, position);
+            } else {
+                position++;
+                if (character == '(') {
+                    depth++;
+                } else if (character == ')' && --depth == 0) {
+                    return position;
+                }
+            }
+        }
+
+        return regex.length();
+    }
+
+    private static int skipQuantifierMode(String regex, int index) {
+        if (index < regex.length() && (regex.charAt(index) == '?' || regex.charAt(index) == '+'))
+            return index + 1;
+
+        return index;
+    }
+
+    private static int closing(String regex, int index, char closing) {
+        int end = regex.indexOf(closing, index);
+        return end < 0 ? regex.length() : end + 1;
+    }
+}
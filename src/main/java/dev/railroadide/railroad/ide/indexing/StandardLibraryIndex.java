@@ -0,0 +1,134 @@
+package dev.railroadide.railroad.ide.indexing;
+
+import dev.railroadide.railroad.Railroad;
+import dev.railroadide.railroad.config.ConfigHandler;
+import dev.railroadide.railroad.ide.classparser.stub.ClassStub;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Process-wide index of the class stubs in the running JDK.
+ * <p>
+ * The index is built lazily on first use, off the calling thread, and shared by every editor. Once built it is
+ * written to the config directory keyed by JDK path and release, and later startups memory-map that file
+ * instead of rescanning the JDK.
+ */
+public final class StandardLibraryIndex {
+    private static final Object LOCK = new Object();
+    private static CompletableFuture<List<ClassStub>> stubs;
+    private static CompletableFuture<Autocomplete> autocomplete;
+
+    private StandardLibraryIndex() {
+    }
+
+    /**
+     * Gets the stubs of the standard library, building or loading the index if this is the first request.
+     *
+     * @return a future completing with an unmodifiable list of the stubs
+     */
+    public static CompletableFuture<List<ClassStub>> getStubs() {
+        synchronized (LOCK) {
+            if (stubs == null) {
+                stubs = CompletableFuture.supplyAsync(StandardLibraryIndex::loadOrBuild)
+                    .exceptionally(throwable -> {
+                        Railroad.LOGGER.error("Failed to load standard library index", throwable);
+                        return List.of();
+                    });
+            }
+
+            return stubs;
+        }
+    }
+
+    /**
+     * Gets an {@link Autocomplete} backed by the standard library stubs, shared by all editors.
+     *
+     * @return a future completing with the shared autocomplete
+     */
+    public static CompletableFuture<Autocomplete> getAutocomplete() {
+        synchronized (LOCK) {
+            if (autocomplete == null) {
+                autocomplete = getStubs().thenApply(Autocomplete::new);
+            }
+
+            return autocomplete;
+        }
+    }
+
+    private static List<ClassStub> loadOrBuild() {
+        long startTime = System.currentTimeMillis();
+
+        Path javaHome = Path.of(System.getProperty("java.home")).toAbsolutePath().normalize();
+        String key = javaHome + "|" + readRelease(javaHome) + "|" + String.join(",", Indexes.STANDARD_MODULES);
+        Path indexFile = getIndexDirectory().resolve("jdk-" + Integer.toHexString(key.hashCode()) + ".idx");
+
+        if (Files.isRegularFile(indexFile)) {
+            try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                List<ClassStub> loaded = StubIndexCodec.read(buffer, key);
+                if (loaded != null) {
+                    Railroad.LOGGER.debug("Loaded {} standard library stubs from {} in {}ms",
+                        loaded.size(), indexFile, System.currentTimeMillis() - startTime);
+                    return loaded;
+                }
+
+                Railroad.LOGGER.info("Standard library index {} is stale, rebuilding", indexFile);
+            } catch (IOException | RuntimeException exception) {
+                Railroad.LOGGER.warn("Failed to read standard library index {}, rebuilding", indexFile, exception);
+            }
+        }
+
+        List<ClassStub> scanned = List.copyOf(Indexes.scanStandardLibrary());
+        save(indexFile, key, scanned);
+        Railroad.LOGGER.debug("Indexed {} standard library stubs in {}ms",
+            scanned.size(), System.currentTimeMillis() - startTime);
+        return scanned;
+    }
+
+    private static void save(Path indexFile, String key, List<ClassStub> stubs) {
+        try {
+            Files.createDirectories(indexFile.getParent());
+            Path tempFile = Files.createTempFile(indexFile.getParent(), "jdk-", ".tmp");
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                StubIndexCodec.write(output, key, stubs);
+            }
+
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            Railroad.LOGGER.error("Failed to write standard library index {}", indexFile, exception);
+        }
+    }
+
+    private static String readRelease(Path javaHome) {
+        Path releaseFile = javaHome.resolve("release");
+        if (Files.isRegularFile(releaseFile)) {
+            try (InputStream input = Files.newInputStream(releaseFile)) {
+                var properties = new Properties();
+                properties.load(input);
+                String version = properties.getProperty("JAVA_RUNTIME_VERSION", properties.getProperty("JAVA_VERSION"));
+                if (version != null)
+                    return version.replace("\"", "");
+            } catch (IOException exception) {
+                Railroad.LOGGER.warn("Failed to read JDK release file {}", releaseFile, exception);
+            }
+        }
+
+        return Runtime.version().toString();
+    }
+
+    static Path getIndexDirectory() {
+        return ConfigHandler.getConfigDirectory().resolve("indexes");
+    }
+}
@@ -0,0 +1,499 @@
+package dev.railroadide.railroad.ide.indexing;
+
+import dev.railroadide.railroad.ide.classparser.Type;
+import dev.railroadide.railroad.ide.classparser.stub.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compact binary encoding for lists of {@link ClassStub}s.
+ * <p>
+ * Every string is written once to a shared string table and referenced by index afterwards, which keeps
+ * index files small since package names, type names and annotation names repeat heavily. Reading works
+ * directly from a {@link ByteBuffer} so that the file can be memory-mapped.
+ */
+public final class StubIndexCodec {
+    private static final int MAGIC = 0x52525349; // "RRSI"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_CLASS = 1;
+    private static final byte TYPE_PRIMITIVE = 2;
+    private static final byte TYPE_ARRAY = 3;
+    private static final byte TYPE_VARIABLE = 4;
+    private static final byte TYPE_WILDCARD = 5;
+
+    private static final byte VALUE_STRING = 0;
+    private static final byte VALUE_INT = 1;
+    private static final byte VALUE_LONG = 2;
+    private static final byte VALUE_FLOAT = 3;
+    private static final byte VALUE_DOUBLE = 4;
+    private static final byte VALUE_BOOLEAN = 5;
+    private static final byte VALUE_CHAR = 6;
+    private static final byte VALUE_BYTE = 7;
+    private static final byte VALUE_SHORT = 8;
+
+    private StubIndexCodec() {
+    }
+
+    /**
+     * Writes the given stubs to the output stream.
+     *
+     * @param output the stream to write to
+     * @param key    a key identifying the source of the stubs, checked again when reading
+     * @param stubs  the stubs to write
+     * @throws IOException if writing fails
+     */
+    public static void write(OutputStream output, String key, List<ClassStub> stubs) throws IOException {
+        var body = new ByteArrayOutputStream(1 << 20);
+        var writer = new Writer(new DataOutputStream(body));
+        writer.writeClasses(stubs);
+        writeIndex(output, key, writer, body);
+    }
+
+    /**
+     * Writes stubs grouped into units, such as the files of a project, each with a stamp to detect when it is stale.
+     *
+     * @param output the stream to write to
+     * @param key    a key identifying the source of the stubs, checked again when reading
+     * @param units  the units to write, by unit id
+     * @throws IOException if writing fails
+     */
+    public static void writeUnits(OutputStream output, String key, Map<String, Unit> units) throws IOException {
+        var body = new ByteArrayOutputStream(1 << 20);
+        var writer = new Writer(new DataOutputStream(body));
+        writer.out.writeInt(units.size());
+        for (Map.Entry<String, Unit> entry : units.entrySet()) {
+            writer.writeStringRef(entry.getKey());
+            writer.out.writeLong(entry.getValue().stamp());
+            writer.writeClasses(entry.getValue().stubs());
+        }
+
+        writeIndex(output, key, writer, body);
+    }
+
+    private static void writeIndex(OutputStream output, String key, Writer writer, ByteArrayOutputStream body)
+        throws IOException {
+        writer.out.flush();
+
+        var out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, key);
+        out.writeInt(writer.strings.size());
+        for (String string : writer.strings) {
+            writeString(out, string);
+        }
+
+        body.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Reads stubs from the given buffer.
+     *
+     * @param buffer      the buffer to read from, usually a memory-mapped index file
+     * @param expectedKey the key the index must have been written with
+     * @return the stubs, or {@code null} if the buffer is not a valid index for the given key
+     */
+    public static List<ClassStub> read(ByteBuffer buffer, String expectedKey) {
+        Reader reader = readHeader(buffer, expectedKey);
+        return reader == null ? null : reader.readClasses();
+    }
+
+    /**
+     * Reads stubs written by {@link #writeUnits(OutputStream, String, Map)} from the given buffer.
+     *
+     * @param buffer      the buffer to read from, usually a memory-mapped index file
+     * @param expectedKey the key the index must have been written with
+     * @return the units by unit id, or {@code null} if the buffer is not a valid index for the given key
+     */
+    public static Map<String, Unit> readUnits(ByteBuffer buffer, String expectedKey) {
+        Reader reader = readHeader(buffer, expectedKey);
+        if (reader == null)
+            return null;
+
+        int unitCount = buffer.getInt();
+        Map<String, Unit> units = new HashMap<>(unitCount * 2);
+        for (int index = 0; index < unitCount; index++) {
+            String id = reader.readStringRef();
+            long stamp = buffer.getLong();
+            units.put(id, new Unit(stamp, reader.readClasses()));
+        }
+
+        return units;
+    }
+
+    private static Reader readHeader(ByteBuffer buffer, String expectedKey) {
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION)
+            return null;
+
+        if (!expectedKey.equals(readString(buffer)))
+            return null;
+
+        int stringCount = buffer.getInt();
+        var strings = new String[stringCount];
+        for (int index = 0; index < stringCount; index++) {
+            strings[index] = readString(buffer);
+        }
+
+        return new Reader(buffer, strings);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        ByteBuffer slice = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return StandardCharsets.UTF_8.decode(slice).toString();
+    }
+
+    private static final class Writer {
+        private final DataOutputStream out;
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        private Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void writeStringRef(String value) throws IOException {
+            Integer id = this.stringIds.get(value);
+            if (id == null) {
+                id = this.strings.size();
+                this.strings.add(value);
+                this.stringIds.put(value, id);
+            }
+
+            this.out.writeInt(id);
+        }
+
+        private void writeClasses(List<ClassStub> stubs) throws IOException {
+            this.out.writeInt(stubs.size());
+            for (ClassStub stub : stubs) {
+                writeClass(stub);
+            }
+        }
+
+        private void writeClass(ClassStub stub) throws IOException {
+            writeStringRef(stub.packageName());
+            writeStringRef(stub.name());
+            this.out.writeInt(stub.modifiers());
+            writeTypeParameters(stub.typeParameters());
+            writeType(stub.superClass());
+            writeTypes(stub.interfaces());
+            writeAnnotations(stub.annotations());
+
+            this.out.writeInt(stub.fields().size());
+            for (FieldStub field : stub.fields()) {
+                writeStringRef(field.name());
+                writeType(field.type());
+                this.out.writeInt(field.modifiers());
+                writeAnnotations(field.annotations());
+            }
+
+            this.out.writeInt(stub.methods().size());
+            for (MethodStub method : stub.methods()) {
+                writeStringRef(method.name());
+                writeType(method.returnType());
+                writeParameters(method.parameters());
+                this.out.writeInt(method.modifiers());
+                writeAnnotations(method.annotations());
+                writeTypeParameters(method.typeParameters());
+            }
+
+            this.out.writeInt(stub.constructors().size());
+            for (ConstructorStub constructor : stub.constructors()) {
+                writeParameters(constructor.parameters());
+                this.out.writeInt(constructor.modifiers());
+                writeAnnotations(constructor.annotations());
+                writeTypeParameters(constructor.typeParameters());
+            }
+        }
+
+        private void writeParameters(List<Parameter> parameters) throws IOException {
+            this.out.writeInt(parameters.size());
+            for (Parameter parameter : parameters) {
+                writeStringRef(parameter.name());
+                writeType(parameter.type());
+                writeAnnotations(parameter.annotations());
+            }
+        }
+
+        private void writeTypeParameters(List<TypeParameter> typeParameters) throws IOException {
+            this.out.writeInt(typeParameters.size());
+            for (TypeParameter typeParameter : typeParameters) {
+                writeStringRef(typeParameter.name());
+                writeTypes(typeParameter.bounds());
+            }
+        }
+
+        private void writeTypes(List<Type> types) throws IOException {
+            if (types == null) {
+                this.out.writeInt(0);
+                return;
+            }
+
+            this.out.writeInt(types.size());
+            for (Type type : types) {
+                writeType(type);
+            }
+        }
+
+        private void writeType(Type type) throws IOException {
+            switch (type) {
+                case null -> this.out.writeByte(TYPE_NULL);
+                case Type.ClassType classType -> {
+                    this.out.writeByte(TYPE_CLASS);
+                    writeStringRef(classType.name());
+                    writeTypes(classType.typeArguments());
+                }
+                case Type.PrimitiveType primitiveType -> {
+                    this.out.writeByte(TYPE_PRIMITIVE);
+                    writeStringRef(primitiveType.name());
+                }
+                case Type.ArrayType arrayType -> {
+                    this.out.writeByte(TYPE_ARRAY);
+                    writeType(arrayType.componentType());
+                }
+                case Type.TypeVariable typeVariable -> {
+                    this.out.writeByte(TYPE_VARIABLE);
+                    writeStringRef(typeVariable.name());
+                }
+                case Type.WildcardType wildcardType -> {
+                    this.out.writeByte(TYPE_WILDCARD);
+                    writeType(wildcardType.bound());
+                    this.out.writeBoolean(wildcardType.isUpperBound());
+                }
+            }
+        }
+
+        private void writeAnnotations(List<AnnotationStub> annotations) throws IOException {
+            this.out.writeInt(annotations.size());
+            for (AnnotationStub annotation : annotations) {
+                writeStringRef(annotation.name());
+                this.out.writeInt(annotation.values().size());
+                for (Map.Entry<String, Object> entry : annotation.values().entrySet()) {
+                    writeStringRef(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            }
+        }
+
+        private void writeValue(Object value) throws IOException {
+            switch (value) {
+                case Integer integer -> {
+                    this.out.writeByte(VALUE_INT);
+                    this.out.writeInt(integer);
+                }
+                case Long longValue -> {
+                    this.out.writeByte(VALUE_LONG);
+                    this.out.writeLong(longValue);
+                }
+                case Float floatValue -> {
+                    this.out.writeByte(VALUE_FLOAT);
+                    this.out.writeFloat(floatValue);
+                }
+                case Double doubleValue -> {
+                    this.out.writeByte(VALUE_DOUBLE);
+                    this.out.writeDouble(doubleValue);
+                }
+                case Boolean booleanValue -> {
+                    this.out.writeByte(VALUE_BOOLEAN);
+                    this.out.writeBoolean(booleanValue);
+                }
+                case Character character -> {
+                    this.out.writeByte(VALUE_CHAR);
+                    this.out.writeChar(character);
+                }
+                case Byte byteValue -> {
+                    this.out.writeByte(VALUE_BYTE);
+                    this.out.writeByte(byteValue);
+                }
+                case Short shortValue -> {
+                    this.out.writeByte(VALUE_SHORT);
+                    this.out.writeShort(shortValue);
+                }
+                // Strings, class literals and arrays are only ever displayed, so their string form is enough
+                default -> {
+                    this.out.writeByte(VALUE_STRING);
+                    writeStringRef(value instanceof Object[] array ? Arrays.toString(array) : String.valueOf(value));
+                }
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final ByteBuffer buffer;
+        private final String[] strings;
+
+        private Reader(ByteBuffer buffer, String[] strings) {
+            this.buffer = buffer;
+            this.strings = strings;
+        }
+
+        private String readStringRef() {
+            return this.strings[this.buffer.getInt()];
+        }
+
+        private List<ClassStub> readClasses() {
+            int classCount = this.buffer.getInt();
+            List<ClassStub> stubs = new ArrayList<>(classCount);
+            for (int index = 0; index < classCount; index++) {
+                stubs.add(readClass());
+            }
+
+            return Collections.unmodifiableList(stubs);
+        }
+
+        private ClassStub readClass() {
+            String packageName = readStringRef();
+            String name = readStringRef();
+            int modifiers = this.buffer.getInt();
+            List<TypeParameter> typeParameters = readTypeParameters();
+            Type superClass = readType();
+            List<Type> interfaces = readTypes();
+            List<AnnotationStub> annotations = readAnnotations();
+
+            int fieldCount = this.buffer.getInt();
+            List<FieldStub> fields = new ArrayList<>(fieldCount);
+            for (int index = 0; index < fieldCount; index++) {
+                String fieldName = readStringRef();
+                Type type = readType();
+                int fieldModifiers = this.buffer.getInt();
+                fields.add(new FieldStub(fieldName, type, fieldModifiers, readAnnotations()));
+            }
+
+            int methodCount = this.buffer.getInt();
+            List<MethodStub> methods = new ArrayList<>(methodCount);
+            for (int index = 0; index < methodCount; index++) {
+                String methodName = readStringRef();
+                Type returnType = readType();
+                List<Parameter> parameters = readParameters();
+                int methodModifiers = this.buffer.getInt();
+                List<AnnotationStub> methodAnnotations = readAnnotations();
+                methods.add(new MethodStub(methodName, returnType, parameters, methodModifiers,
+                    methodAnnotations, readTypeParameters()));
+            }
+
+            int constructorCount = this.buffer.getInt();
+            List<ConstructorStub> constructors = new ArrayList<>(constructorCount);
+            for (int index = 0; index < constructorCount; index++) {
+                List<Parameter> parameters = readParameters();
+                int constructorModifiers = this.buffer.getInt();
+                List<AnnotationStub> constructorAnnotations = readAnnotations();
+                constructors.add(new ConstructorStub(parameters, constructorModifiers,
+                    constructorAnnotations, readTypeParameters()));
+            }
+
+            return new ClassStub(packageName, name, typeParameters, superClass, interfaces,
+                fields, methods, constructors, modifiers, annotations);
+        }
+
+        private List<Parameter> readParameters() {
+            int count = this.buffer.getInt();
+            List<Parameter> parameters = new ArrayList<>(count);
+            for (int index = 0; index < count; index++) {
+                String name = readStringRef();
+                Type type = readType();
+                parameters.add(new Parameter(name, type, readAnnotations()));
+            }
+
+            return parameters;
+        }
+
+        private List<TypeParameter> readTypeParameters() {
+            int count = this.buffer.getInt();
+            List<TypeParameter> typeParameters = new ArrayList<>(count);
+            for (int index = 0; index < count; index++) {
+                String name = readStringRef();
+                typeParameters.add(new TypeParameter(name, readTypes()));
+            }
+
+            return typeParameters;
+        }
+
+        private List<Type> readTypes() {
+            int count = this.buffer.getInt();
+            List<Type> types = new ArrayList<>(count);
+            for (int index = 0; index < count; index++) {
+                types.add(readType());
+            }
+
+            return types;
+        }
+
+        private Type readType() {
+            byte tag = this.buffer.get();
+            return switch (tag) {
+                case TYPE_NULL -> null;
+                case TYPE_CLASS -> {
+                    String name = readStringRef();
+                    yield new Type.ClassType(name, readTypes());
+                }
+                case TYPE_PRIMITIVE -> new Type.PrimitiveType(readStringRef());
+                case TYPE_ARRAY -> new Type.ArrayType(readType());
+                case TYPE_VARIABLE -> new Type.TypeVariable(readStringRef());
+                case TYPE_WILDCARD -> {
+                    Type bound = readType();
+                    yield new Type.WildcardType(bound, this.buffer.get() != 0);
+                }
+                default -> throw new IllegalStateException("Unknown type tag: " + tag);
+            };
+        }
+
+        private List<AnnotationStub> readAnnotations() {
+            int count = this.buffer.getInt();
+            List<AnnotationStub> annotations = new ArrayList<>(count);
+            for (int index = 0; index < count; index++) {
+                String name = readStringRef();
+                int valueCount = this.buffer.getInt();
+                Map<String, Object> values = new HashMap<>(valueCount);
+                for (int valueIndex = 0; valueIndex < valueCount; valueIndex++) {
+                    String key = readStringRef();
+                    values.put(key, readValue());
+                }
+
+                annotations.add(new AnnotationStub(name, values));
+            }
+
+            return annotations;
+        }
+
+        private Object readValue() {
+            byte tag = this.buffer.get();
+            return switch (tag) {
+                case VALUE_STRING -> readStringRef();
+                case VALUE_INT -> this.buffer.getInt();
+                case VALUE_LONG -> this.buffer.getLong();
+                case VALUE_FLOAT -> this.buffer.getFloat();
+                case VALUE_DOUBLE -> this.buffer.getDouble();
+                case VALUE_BOOLEAN -> this.buffer.get() != 0;
+                case VALUE_CHAR -> this.buffer.getChar();
+                case VALUE_BYTE -> this.buffer.get();
+                case VALUE_SHORT -> this.buffer.getShort();
+                default -> throw new IllegalStateException("Unknown annotation value tag: " + tag);
+            };
+        }
+    }
+
+    /**
+     * The stubs of one unit of an index.
+     *
+     * @param stamp a value that changes whenever the unit's source changes, such as its modification time
+     * @param stubs the stubs of the unit
+     */
+    public record Unit(long stamp, List<ClassStub> stubs) {
+    }
+}
@@ -1,9 +0,0 @@
-package dev.railroadide.railroad.ide.indexing;
-
-import java.util.HashMap;
-import java.util.Map;
-
-public class TrieNode {
-    protected final Map<Character, TrieNode> children = new HashMap<>();
-    protected boolean isEndOfWord;
-}
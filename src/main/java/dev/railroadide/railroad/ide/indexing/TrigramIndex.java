@@ -0,0 +1,779 @@
+package dev.railroadide.railroad.ide.indexing;
+
+import dev.railroadide.railroad.Railroad;
+import dev.railroadide.railroad.project.Project;
+import dev.railroadide.railroad.utility.Debouncer;
+import dev.railroadide.railroad.utility.FileUtils;
+import dev.railroadide.railroad.utility.ShutdownHooks;
+import dev.railroadide.railroad.utility.TaskScheduler;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A full-text index of the text files in a project, for finding text or regular expressions in all of them at once.
+ * <p>
+ * Every file is broken into trigrams, its overlapping runs of three characters, case folded, and the index maps each
+ * trigram to the files containing it. A query only has to read the files containing every trigram of the literal
+ * text it requires, which {@link RegexLiterals} works out for regular expressions too. Binary files, files above
+ * {@link #MAX_FILE_SIZE} and the {@link FileNameIndex#IGNORED_DIRECTORIES} are left out.
+ * <p>
+ * Like the {@link ProjectSymbolIndex}, the index is written to the config directory and only files whose size or
+ * modification time changed are read again on the next session, and {@link #onFileChange(Path, WatchEvent.Kind)}
+ * keeps it current while the project is open. A changed file gets a new id and its old one is dropped from the
+ * posting lists only when enough of them pile up, so every posting list stays sorted by only ever being appended to.
+ */
+public final class TrigramIndex {
+    /**
+     * Files larger than this are neither indexed nor searched, since they are almost always generated.
+     */
+    public static final long MAX_FILE_SIZE = 2 * 1024 * 1024;
+    private static final int MAGIC = 0x52525449; // "RRTI"
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_MATCHES_PER_FILE = 100;
+    private static final int MAX_LINE_LENGTH = 200;
+    private static final int COMPACT_THRESHOLD = 1024;
+    // The fraction of the ids that have to belong to removed documents before the index is compacted
+    private static final double COMPACT_REMOVED_FRACTION = 0.25;
+    private static final Duration UPDATE_DELAY = Duration.ofMillis(300);
+    private static final Duration SAVE_DELAY = Duration.ofSeconds(5);
+    private static final Map<Path, TrigramIndex> INDEXES = new ConcurrentHashMap<>();
+
+    static {
+        ShutdownHooks.addHook(() -> INDEXES.values().forEach(index -> {
+            index.tasks.close();
+            index.save();
+        }));
+    }
+
+    private final Path projectDir;
+    private final Path indexFile;
+    private final TaskScheduler.TaskOwner tasks;
+    // Updates, loading and saving run one at a time, in order
+    private final Executor updater;
+    private final Debouncer pendingChangesUpdate;
+    private final Debouncer delayedSave;
+    // Indexed by id, with null for removed documents
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<Path, Integer> ids = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Set<Path> pendingPaths = new HashSet<>();
+    private final CompletableFuture<Void> loaded;
+    private int removedCount;
+    private boolean dirty;
+
+    private TrigramIndex(Path projectDir) {
+        this(projectDir, StandardLibraryIndex.getIndexDirectory()
+            .resolve("text-" + Integer.toHexString(projectDir.toString().hashCode()) + ".idx"));
+    }
+
+    TrigramIndex(Path projectDir, Path indexFile) {
+        this.projectDir = projectDir;
+        this.indexFile = indexFile;
+        this.tasks = TaskScheduler.newOwner("text index of " + projectDir.getFileName());
+        this.updater = this.tasks.serialExecutor(TaskScheduler.Lane.BACKGROUND_INDEXING);
+        this.pendingChangesUpdate = new Debouncer(this.updater, UPDATE_DELAY, this::applyPendingChanges);
+        this.delayedSave = new Debouncer(this.updater, SAVE_DELAY, this::save);
+        this.loaded = CompletableFuture.runAsync(this::loadAndRefresh, this.updater)
+            .exceptionally(throwable -> {
+                Railroad.LOGGER.error("Failed to index the text of project {}", projectDir, throwable);
+                return null;
+            });
+    }
+
+    /**
+     * Gets the text index of the given project, starting to load it in the background if this is the first request.
+     *
+     * @param project the project
+     * @return the project's text index
+     */
+    public static TrigramIndex forProject(Project project) {
+        return INDEXES.computeIfAbsent(project.getPath().toAbsolutePath().normalize(), TrigramIndex::new);
+    }
+
+    /**
+     * Stops maintaining the text index of the given project and drops it from memory, for when the project is closed.
+     * The text index is written out on the IO lane, and the next request for it loads it again.
+     *
+     * @param project the project
+     */
+    public static void release(Project project) {
+        TrigramIndex index = INDEXES.remove(project.getPath().toAbsolutePath().normalize());
+        if (index == null)
+            return;
+
+        index.tasks.close();
+        TaskScheduler.serial(TaskScheduler.Lane.IO).execute(index::save);
+    }
+
+    /**
+     * @return a future completing once the index has been loaded and brought up to date
+     */
+    public CompletableFuture<Void> getLoaded() {
+        return this.loaded;
+    }
+
+    /**
+     * Queues the given path to be indexed again. Directories, including ones reported with
+     * {@link StandardWatchEventKinds#OVERFLOW}, are indexed again as a whole.
+     *
+     * @param path the path that changed
+     * @param kind the kind of change
+     */
+    public void onFileChange(Path path, WatchEvent.Kind<?> kind) {
+        path = path.toAbsolutePath().normalize();
+        if (isIgnored(path))
+            return;
+
+        synchronized (this) {
+            this.pendingPaths.add(path);
+        }
+
+        this.pendingChangesUpdate.request();
+    }
+
+    /**
+     * Finds a query in every indexed file, handing the matches of each file to the consumer as soon as the file has
+     * been searched. Files are searched in path order. Must be called off the FX thread; interrupting the calling
+     * thread cancels the search.
+     *
+     * @param query    the query
+     * @param limit    the number of matches to stop after
+     * @param consumer receives the matches of each file that has any, on the calling thread
+     * @throws PatternSyntaxException if the query is an invalid regular expression
+     * @throws CancellationException  if the calling thread was interrupted
+     */
+    public void search(Query query, int limit, Consumer<FileMatches> consumer) {
+        long startTime = System.currentTimeMillis();
+        Pattern pattern = query.compile();
+        List<Path> candidates = candidates(query);
+
+        int found = 0;
+        for (Path file : candidates) {
+            if (Thread.currentThread().isInterrupted())
+                throw new CancellationException("Search for " + query.text() + " was cancelled");
+
+            List<Match> matches = find(file, pattern, Math.min(MAX_MATCHES_PER_FILE, limit - found));
+            if (!matches.isEmpty()) {
+                consumer.accept(new FileMatches(file, matches));
+                found += matches.size();
+                if (found >= limit)
+                    break;
+            }
+        }
+
+        Railroad.LOGGER.debug("Found {} matches of {} in {} candidate files in {}ms",
+            found, query.text(), candidates.size(), System.currentTimeMillis() - startTime);
+    }
+
+    private List<Path> candidates(Query query) {
+        List<List<String>> alternatives = query.regex() ?
+            RegexLiterals.requiredLiterals(query.text()) : List.of(List.of(query.text()));
+
+        List<Path> candidates = new ArrayList<>();
+        synchronized (this) {
+            BitSet matching = new BitSet(this.documents.size());
+            for (List<String> literals : alternatives == null ? List.<List<String>>of() : alternatives) {
+                long[] trigrams = trigrams(literals);
+                if (trigrams.length == 0) {
+                    // This alternative can match anything, so every file has to be searched
+                    alternatives = null;
+                    break;
+                }
+
+                matching.or(intersect(trigrams));
+            }
+
+            if (alternatives == null) {
+                matching.set(0, this.documents.size());
+            }
+
+            for (int id = matching.nextSetBit(0); id >= 0; id = matching.nextSetBit(id + 1)) {
+                Document document = this.documents.get(id);
+                if (document != null && document.text()) {
+                    candidates.add(document.path());
+                }
+            }
+        }
+
+        candidates.sort(Comparator.naturalOrder());
+        return candidates;
+    }
+
+    // Must hold the lock
+    private BitSet intersect(long[] trigrams) {
+        // Start from the rarest trigram, so that the result only shrinks from the smallest list
+        List<Postings> lists = new ArrayList<>(trigrams.length);
+        for (long trigram : trigrams) {
+            Postings list = this.postings.get(trigram);
+            if (list == null)
+                return new BitSet();
+
+            lists.add(list);
+        }
+
+        lists.sort(Comparator.comparingInt(Postings::size));
+        var result = new BitSet(this.documents.size());
+        Postings first = lists.getFirst();
+        for (int index = 0; index < first.size; index++) {
+            result.set(first.ids[index]);
+        }
+
+        for (int list = 1; list < lists.size() && !result.isEmpty(); list++) {
+            var next = new BitSet(this.documents.size());
+            Postings postings = lists.get(list);
+            for (int index = 0; index < postings.size; index++) {
+                if (result.get(postings.ids[index])) {
+                    next.set(postings.ids[index]);
+                }
+            }
+
+            result = next;
+        }
+
+        return result;
+    }
+
+    private static List<Match> find(Path file, Pattern pattern, int limit) {
+        String text;
+        try {
+            if (Files.size(file) > MAX_FILE_SIZE)
+                return List.of();
+
+            byte[] content = Files.readAllBytes(file);
+            if (FileUtils.isBinaryContent(content, content.length))
+                return List.of();
+
+            text = new String(content, StandardCharsets.UTF_8);
+        } catch (IOException exception) {
+            // Deleted since it was indexed, which the watcher will report
+            return List.of();
+        }
+
+        List<Match> matches = new ArrayList<>();
+        Matcher matcher = pattern.matcher(text);
+        int line = 0;
+        int lineStart = 0;
+        int scanned = 0;
+        while (matches.size() < limit && matcher.find()) {
+            int start = matcher.start();
+            for (; scanned < start; scanned++) {
+                if (text.charAt(scanned) == '\n') {
+                    line++;
+                    lineStart = scanned + 1;
+                }
+            }
+
+            int lineEnd = text.indexOf('\n', start);
+            lineEnd = lineEnd < 0 ? text.length() : lineEnd;
+            String lineText = text.substring(lineStart, Math.min(lineEnd, lineStart + MAX_LINE_LENGTH));
+            matches.add(new Match(line, start - lineStart, matcher.end() - start, lineText));
+        }
+
+        return matches;
+    }
+
+    private void loadAndRefresh() {
+        long startTime = System.currentTimeMillis();
+        Map<Path, Long> stamps = load();
+        Map<Path, Long> current = listFiles(this.projectDir);
+
+        for (Path path : stamps.keySet()) {
+            if (!current.containsKey(path)) {
+                remove(path);
+            }
+        }
+
+        List<Path> changed = current.entrySet().stream()
+            .filter(entry -> !entry.getValue().equals(stamps.get(entry.getKey())))
+            .map(Map.Entry::getKey)
+            .toList();
+        changed.parallelStream().forEach(path -> index(path, current.get(path)));
+
+        compactIfNeeded();
+        scheduleSave();
+        Railroad.LOGGER.debug("Indexed the text of project {} ({} files, {} read) in {}ms",
+            this.projectDir, current.size(), changed.size(), System.currentTimeMillis() - startTime);
+    }
+
+    private void applyPendingChanges() {
+        Set<Path> paths;
+        synchronized (this) {
+            paths = new HashSet<>(this.pendingPaths);
+            this.pendingPaths.clear();
+        }
+
+        for (Path path : paths) {
+            update(path);
+        }
+
+        compactIfNeeded();
+        scheduleSave();
+    }
+
+    private void update(Path path) {
+        if (Files.isDirectory(path)) {
+            // A created, moved or overflowed directory brings its whole subtree with it
+            Map<Path, Long> current = listFiles(path);
+            List<Path> gone = new ArrayList<>();
+            synchronized (this) {
+                for (Path indexed : this.ids.keySet()) {
+                    if (indexed.startsWith(path) && !current.containsKey(indexed)) {
+                        gone.add(indexed);
+                    }
+                }
+            }
+
+            gone.forEach(this::remove);
+            current.forEach((file, stamp) -> {
+                if (stamp != stampOf(file)) {
+                    index(file, stamp);
+                }
+            });
+            return;
+        }
+
+        if (Files.notExists(path)) {
+            // The path may also have been a directory, so drop every document below it
+            List<Path> gone = new ArrayList<>();
+            synchronized (this) {
+                for (Path indexed : this.ids.keySet()) {
+                    if (indexed.startsWith(path)) {
+                        gone.add(indexed);
+                    }
+                }
+            }
+
+            gone.forEach(this::remove);
+            return;
+        }
+
+        long stamp = stamp(path);
+        if (stamp != stampOf(path)) {
+            index(path, stamp);
+        }
+    }
+
+    private synchronized long stampOf(Path path) {
+        Integer id = this.ids.get(path);
+        return id == null ? Long.MIN_VALUE : this.documents.get(id).stamp();
+    }
+
+    private void index(Path path, long stamp) {
+        boolean text;
+        long[] trigrams;
+        try {
+            if (Files.size(path) > MAX_FILE_SIZE) {
+                remove(path);
+                return;
+            }
+
+            byte[] content = Files.readAllBytes(path);
+            // Binary files are kept without trigrams, so that they are not read again until they change
+            text = !FileUtils.isBinaryContent(content, content.length);
+            trigrams = text ? trigrams(new String(content, StandardCharsets.UTF_8)) : new long[0];
+        } catch (IOException exception) {
+            remove(path);
+            return;
+        }
+
+        synchronized (this) {
+            removeLocked(path);
+            int id = this.documents.size();
+            this.documents.add(new Document(path, stamp, text));
+            this.ids.put(path, id);
+            for (long trigram : trigrams) {
+                this.postings.computeIfAbsent(trigram, ignored -> new Postings()).add(id);
+            }
+
+            this.dirty = true;
+        }
+    }
+
+    private synchronized void remove(Path path) {
+        removeLocked(path);
+    }
+
+    private void removeLocked(Path path) {
+        Integer id = this.ids.remove(path);
+        if (id != null) {
+            this.documents.set(id, null);
+            this.removedCount++;
+            this.dirty = true;
+        }
+    }
+
+    // Renumbers the documents without the removed ones once those make up a large part of the posting lists
+    private synchronized void compactIfNeeded() {
+        if (this.removedCount < COMPACT_THRESHOLD ||
+            this.removedCount < this.documents.size() * COMPACT_REMOVED_FRACTION)
+            return;
+
+        int[] newIds = new int[this.documents.size()];
+        List<Document> compacted = new ArrayList<>(this.ids.size());
+        for (int id = 0; id < this.documents.size(); id++) {
+            Document document = this.documents.get(id);
+            newIds[id] = document == null ? -1 : compacted.size();
+            if (document != null) {
+                this.ids.put(document.path(), compacted.size());
+                compacted.add(document);
+            }
+        }
+
+        this.documents.clear();
+        this.documents.addAll(compacted);
+        this.postings.values().removeIf(postings -> postings.renumber(newIds) == 0);
+        this.removedCount = 0;
+    }
+
+    private Map<Path, Long> listFiles(Path start) {
+        Map<Path, Long> files = new HashMap<>();
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                    return !dir.equals(projectDir) && FileNameIndex.isIgnoredDirectory(dir) ?
+                        FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile() && attributes.size() <= MAX_FILE_SIZE) {
+                        files.put(file, stamp(attributes));
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException exception) {
+            Railroad.LOGGER.warn("Failed to walk {} for text indexing", start, exception);
+        }
+
+        return files;
+    }
+
+    private boolean isIgnored(Path path) {
+        if (!path.startsWith(this.projectDir))
+            return true;
+
+        for (Path element : this.projectDir.relativize(path)) {
+            if (FileNameIndex.IGNORED_DIRECTORIES.contains(element.toString()))
+                return true;
+        }
+
+        return false;
+    }
+
+    private static long stamp(Path path) {
+        try {
+            return stamp(Files.readAttributes(path, BasicFileAttributes.class));
+        } catch (IOException exception) {
+            return -1;
+        }
+    }
+
+    private static long stamp(BasicFileAttributes attributes) {
+        return attributes.lastModifiedTime().toMillis() * 31 + attributes.size();
+    }
+
+    private static long[] trigrams(List<String> literals) {
+        return literals.stream()
+            .flatMapToLong(literal -> Arrays.stream(trigrams(literal)))
+            .distinct()
+            .toArray();
+    }
+
+    /**
+     * Gets the distinct, case folded trigrams of a text.
+     *
+     * @param text the text
+     * @return the trigrams, sorted
+     */
+    static long[] trigrams(CharSequence text) {
+        if (text.length() < 3)
+            return new long[0];
+
+        long[] trigrams = new long[text.length() - 2];
+        long first = Character.toLowerCase(text.charAt(0));
+        long second = Character.toLowerCase(text.charAt(1));
+        for (int index = 0; index < trigrams.length; index++) {
+            long third = Character.toLowerCase(text.charAt(index + 2));
+            trigrams[index] = first << 32 | second << 16 | third;
+            first = second;
+            second = third;
+        }
+
+        Arrays.sort(trigrams);
+        int distinct = 0;
+        for (int index = 0; index < trigrams.length; index++) {
+            if (index == 0 || trigrams[index] != trigrams[distinct - 1]) {
+                trigrams[distinct++] = trigrams[index];
+            }
+        }
+
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    private String indexKey() {
+        return FORMAT_VERSION + "|" + this.projectDir;
+    }
+
+    private Map<Path, Long> load() {
+        if (!Files.isRegularFile(this.indexFile))
+            return Map.of();
+
+        try (FileChannel channel = FileChannel.open(this.indexFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || !indexKey().equals(readString(buffer)))
+                return Map.of();
+
+            Map<Path, Long> stamps = new HashMap<>();
+            synchronized (this) {
+                int documentCount = buffer.getInt();
+                for (int id = 0; id < documentCount; id++) {
+                    var document = new Document(Path.of(readString(buffer)), buffer.getLong(), buffer.get() != 0);
+                    this.documents.add(document);
+                    this.ids.put(document.path(), id);
+                    stamps.put(document.path(), document.stamp());
+                }
+
+                int postingCount = buffer.getInt();
+                for (int index = 0; index < postingCount; index++) {
+                    long trigram = buffer.getLong();
+                    var postings = new Postings();
+                    int size = readVarInt(buffer);
+                    int id = 0;
+                    for (int entry = 0; entry < size; entry++) {
+                        id += readVarInt(buffer);
+                        postings.add(id);
+                    }
+
+                    this.postings.put(trigram, postings);
+                }
+            }
+
+            return stamps;
+        } catch (IOException | RuntimeException exception) {
+            Railroad.LOGGER.warn("Failed to read text index {}, rebuilding", this.indexFile, exception);
+            synchronized (this) {
+                this.documents.clear();
+                this.ids.clear();
+                this.postings.clear();
+            }
+
+            return Map.of();
+        }
+    }
+
+    private void scheduleSave() {
+        synchronized (this) {
+            if (!this.dirty)
+                return;
+        }
+
+        this.delayedSave.request();
+    }
+
+    // Writes the index now if it changed, which is normally done a few seconds after the last change
+    void save() {
+        List<Document> documents;
+        Map<Long, Postings> postings;
+        synchronized (this) {
+            if (!this.dirty)
+                return;
+
+            // Posting lists are only appended to or replaced, so their current length is a stable snapshot
+            documents = new ArrayList<>(this.documents);
+            postings = new HashMap<>(this.postings.size() * 2);
+            this.postings.forEach((trigram, list) -> postings.put(trigram, list.snapshot()));
+            this.dirty = false;
+        }
+
+        try {
+            Files.createDirectories(this.indexFile.getParent());
+            Path tempFile = Files.createTempFile(this.indexFile.getParent(), "text-", ".tmp");
+            try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                write(output, documents, postings);
+            }
+
+            Files.move(tempFile, this.indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            Railroad.LOGGER.error("Failed to write text index {}", this.indexFile, exception);
+        }
+    }
+
+    // Writes the documents numbered without the removed ones, the same way compacting would
+    private void write(DataOutputStream output, List<Document> documents, Map<Long, Postings> postings)
+        throws IOException {
+        int[] newIds = new int[documents.size()];
+        int documentCount = 0;
+        for (int id = 0; id < documents.size(); id++) {
+            newIds[id] = documents.get(id) == null ? -1 : documentCount++;
+        }
+
+        output.writeInt(MAGIC);
+        writeString(output, indexKey());
+        output.writeInt(documentCount);
+        for (Document document : documents) {
+            if (document != null) {
+                writeString(output, document.path().toString());
+                output.writeLong(document.stamp());
+                output.writeBoolean(document.text());
+            }
+        }
+
+        output.writeInt(postings.size());
+        for (Map.Entry<Long, Postings> entry : postings.entrySet()) {
+            Postings list = entry.getValue();
+            int size = 0;
+            for (int index = 0; index < list.size; index++) {
+                if (list.ids[index] < newIds.length && newIds[list.ids[index]] >= 0) {
+                    size++;
+                }
+            }
+
+            output.writeLong(entry.getKey());
+            writeVarInt(output, size);
+            int previous = 0;
+            for (int index = 0; index < list.size; index++) {
+                int id = list.ids[index] < newIds.length ? newIds[list.ids[index]] : -1;
+                if (id >= 0) {
+                    writeVarInt(output, id - previous);
+                    previous = id;
+                }
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[readVarInt(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte next = buffer.get();
+            value |= (next & 0x7F) << shift;
+            if (next >= 0)
+                return value;
+        }
+    }
+
+    /**
+     * What to search for.
+     *
+     * @param text          the text or regular expression to find
+     * @param regex         whether the text is a regular expression
+     * @param caseSensitive whether case has to match
+     */
+    public record Query(String text, boolean regex, boolean caseSensitive) {
+        /**
+         * @return the pattern to match lines with
+         * @throws PatternSyntaxException if the text is an invalid regular expression
+         */
+        public Pattern compile() {
+            int flags = (this.regex ? 0 : Pattern.LITERAL) |
+                (this.caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            return Pattern.compile(this.text, flags);
+        }
+    }
+
+    /**
+     * A match of a query.
+     *
+     * @param line     the zero-based line the match starts on
+     * @param column   the zero-based column the match starts at
+     * @param length   the length of the match
+     * @param lineText the line the match starts on, cut off if it is very long
+     */
+    public record Match(int line, int column, int length, String lineText) {
+    }
+
+    /**
+     * The matches of a query in one file.
+     *
+     * @param file    the file
+     * @param matches the matches, in the order they appear in the file
+     */
+    public record FileMatches(Path file, List<Match> matches) {
+    }
+
+    private record Document(Path path, long stamp, boolean text) {
+    }
+
+    // A growable list of document ids in increasing order
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            if (this.size == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, this.size * 2);
+            }
+
+            this.ids[this.size++] = id;
+        }
+
+        private int size() {
+            return this.size;
+        }
+
+        private Postings snapshot() {
+            var snapshot = new Postings();
+            snapshot.ids = this.ids;
+            snapshot.size = this.size;
+            return snapshot;
+        }
+
+        private int renumber(int[] newIds) {
+            int[] renumbered = new int[Math.max(4, this.size)];
+            int size = 0;
+            for (int index = 0; index < this.size; index++) {
+                int id = newIds[this.ids[index]];
+                if (id >= 0) {
+                    renumbered[size++] = id;
+                }
+            }
+
+            // Replace rather than rewrite the array, which saves may still be reading
+            this.ids = renumbered;
+            this.size = size;
+            return size;
+        }
+    }
+}
@@ -3,30 +3,76 @@ package dev.railroadide.railroad.ide.projectexplorer;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import lombok.Getter;
-import lombok.Setter;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 
+/**
+ * A file or directory shown in the project explorer. Whether it is a directory is read once when the item is created,
+ * so rendering and sorting the tree never touch the disk.
+ */
 public class PathItem {
-    @Setter
     @Getter
     private Path path;
+    @Getter
+    private String name;
+    private final boolean directory;
+    private final boolean placeholder;
     private int depthCount;
 
     private BooleanProperty cutProperty = new SimpleBooleanProperty(false);
 
+    /**
+     * Creates an item, reading whether the path is a directory, following links. Prefer {@link #PathItem(Path, boolean)} when the
+     * attributes are already known.
+     *
+     * @param path the path
+     */
     public PathItem(Path path) {
+        this(path, Files.isDirectory(path));
+    }
+
+    public PathItem(Path path, boolean directory) {
+        this(path, directory, false);
+    }
+
+    private PathItem(Path path, boolean directory, boolean placeholder) {
         this.path = path;
+        this.name = nameOf(path);
+        this.directory = directory;
+        this.placeholder = placeholder;
         this.depthCount = 0;
     }
 
+    /**
+     * Creates the item shown in a directory while its contents are being listed.
+     *
+     * @param directory the directory being listed
+     * @return the placeholder
+     */
+    public static PathItem placeholder(Path directory) {
+        return new PathItem(directory, false, true);
+    }
+
+    public void setPath(Path path) {
+        this.path = path;
+        this.name = nameOf(path);
+    }
+
+    public boolean isDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * @return whether this item only stands in for the contents of a directory that is still being listed
+     */
+    public boolean isPlaceholder() {
+        return this.placeholder;
+    }
+
     @Override
     public String toString() {
-        if (this.path.getFileName() == null) {
-            return this.path.toString();
-        } else {
-            return this.path.getFileName().toString();
-        }
+        return this.name;
     }
 
     public int getNewDepthCount() {
@@ -44,4 +90,9 @@ public class PathItem {
     public void setCut(boolean cut) {
         cutProperty.set(cut);
     }
+
+    private static String nameOf(Path path) {
+        Path fileName = path.getFileName();
+        return fileName == null ? path.toString() : fileName.toString();
+    }
 }
@@ -5,6 +5,8 @@ import dev.railroadide.core.ui.RRHBox;
 import dev.railroadide.railroad.Railroad;
 import dev.railroadide.railroad.ide.projectexplorer.dialog.CreateFileDialog;
 import dev.railroadide.railroad.ide.projectexplorer.dialog.DeleteDialog;
+import dev.railroadide.railroad.ide.projectexplorer.task.WatchTask;
+import dev.railroadide.railroad.localization.L18n;
 import dev.railroadide.railroad.plugin.defaults.DefaultDocument;
 import dev.railroadide.railroad.project.Project;
 import dev.railroadide.railroad.utility.FileUtils;
@@ -26,6 +28,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 
 public class PathTreeCell extends TreeCell<PathItem> {
+    private final ProjectExplorerPane explorer;
     private final StringProperty messageProperty;
     private final RRBorderPane mainPane;
     private TextField textField;
@@ -33,17 +36,18 @@ public class PathTreeCell extends TreeCell<PathItem> {
     private boolean allowEdit = false;
     private final Project project;
 
-    public PathTreeCell(Project project, StringProperty messageProperty, RRBorderPane mainPane) {
+    public PathTreeCell(Project project, ProjectExplorerPane explorer, StringProperty messageProperty, RRBorderPane mainPane) {
         super();
 
         this.project = project;
+        this.explorer = explorer;
         this.messageProperty = messageProperty;
         this.mainPane = mainPane;
     }
 
     private static ContextMenu createContextMenu(PathTreeCell cell, RRBorderPane mainPane) {
         Path currentPath = cell.getItem().getPath();
-        Path directoryPath = Files.isDirectory(currentPath) ? currentPath : currentPath.getParent();
+        Path directoryPath = cell.getItem().isDirectory() ? currentPath : currentPath.getParent();
         Window window = cell.getScene().getWindow();
 
         var menu = new ContextMenu();
@@ -76,7 +80,7 @@ public class PathTreeCell extends TreeCell<PathItem> {
 
         cut.setOnAction(event -> ProjectExplorerPane.cut((PathTreeItem) cell.getTreeItem(), cell.getTreeView()));
         copy.setOnAction(event -> ProjectExplorerPane.copy(cell.getItem()));
-        paste.setOnAction(event -> ProjectExplorerPane.paste(cell.getItem()));
+        paste.setOnAction(event -> cell.explorer.paste(cell.getItem()));
 
         var rename = new MenuItem("Rename");
         var delete = new MenuItem("Delete");
@@ -106,7 +110,7 @@ public class PathTreeCell extends TreeCell<PathItem> {
 
         menu.getItems().addAll(newMenu, cut, copy, paste, rename, delete, openIn);
 
-        if (Files.isDirectory(currentPath)) {
+        if (cell.getItem().isDirectory()) {
             var expandAll = new MenuItem("Expand All");
             expandAll.setOnAction(event -> ProjectExplorerPane.expandAll(cell.getTreeItem()));
 
@@ -129,9 +133,14 @@ public class PathTreeCell extends TreeCell<PathItem> {
             setText(null);
             setGraphic(null);
             setOnMouseClicked(null);
+        } else if (item.isPlaceholder()) {
+            setText(L18n.localize("railroad.ide.project_explorer.loading"));
+            setGraphic(null);
+            setContextMenu(null);
+            setOnMouseClicked(null);
         } else {
             String text = getString();
-            Node image = FileUtils.getIcon(item.getPath());
+            Node image = FileUtils.getIcon(item.getPath(), item.isDirectory());
             if (isEditing()) {
                 if (textField != null) {
                     textField.setText(text);
@@ -152,8 +161,7 @@ public class PathTreeCell extends TreeCell<PathItem> {
                 // Double-click to open, not rename
                 setOnMouseClicked(event -> {
                     if (event.getClickCount() == 2 && !event.isConsumed() && getItem() != null) {
-                        Path path = getItem().getPath();
-                        if (Files.isDirectory(path)) {
+                        if (getItem().isDirectory()) {
                             TreeItem<PathItem> treeItem = getTreeItem();
                             treeItem.setExpanded(!treeItem.isExpanded());
                         } else {
@@ -182,7 +190,7 @@ public class PathTreeCell extends TreeCell<PathItem> {
             setText(null);
 
             var hbox = new RRHBox();
-            hbox.getChildren().addAll(FileUtils.getIcon(getItem().getPath()), textField);
+            hbox.getChildren().addAll(FileUtils.getIcon(getItem().getPath(), getItem().isDirectory()), textField);
             setGraphic(hbox);
             textField.selectAll();
 
@@ -203,9 +211,8 @@ public class PathTreeCell extends TreeCell<PathItem> {
     @Override
     public void commitEdit(PathItem newValue) {
         if (editingPath != null) {
-            try {
-                ProjectExplorerPane.disableFileChangeListener();
-
+            try (WatchTask.Pause ignoredOld = explorer.pauseWatching(editingPath);
+                 WatchTask.Pause ignoredNew = explorer.pauseWatching(newValue.getPath())) {
                 String oldName = editingPath.getFileName().toString();
                 String newName = newValue.getPath().getFileName().toString();
 
@@ -215,14 +222,17 @@ public class PathTreeCell extends TreeCell<PathItem> {
             } catch (IOException exception) {
                 cancelEdit();
                 messageProperty.setValue("Renaming %s failed".formatted(editingPath.getFileName()));
-            } finally {
-                Platform.runLater(ProjectExplorerPane::enableFileChangeListener);
             }
         }
 
         super.commitEdit(newValue);
         setText(getString());
-        setGraphic(FileUtils.getIcon(newValue.getPath()));
+        setGraphic(FileUtils.getIcon(newValue.getPath(), newValue.isDirectory()));
+
+        // The new name may belong somewhere else among its siblings
+        if (getTreeItem() != null && getTreeItem().getParent() instanceof PathTreeItem parent) {
+            Platform.runLater(parent::sortChildren);
+        }
     }
 
     /**
@@ -244,7 +254,7 @@ public class PathTreeCell extends TreeCell<PathItem> {
         textField.setOnKeyReleased(event -> {
             if (event.getCode() == KeyCode.ENTER) {
                 var path = Path.of(getItem().getPath().getParent().toAbsolutePath().toString(), textField.getText());
-                commitEdit(new PathItem(path));
+                commitEdit(new PathItem(path, getItem().isDirectory()));
             } else if (event.getCode() == KeyCode.ESCAPE) {
                 cancelEdit();
             }
@@ -1,30 +1,58 @@
 package dev.railroadide.railroad.ide.projectexplorer;
 
 import dev.railroadide.railroad.Railroad;
-import javafx.collections.FXCollections;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.scene.control.TreeItem;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
-import java.nio.file.LinkOption;
-import java.nio.file.Path;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.Executor;
 
+/**
+ * A tree item of a file or directory, whose children are kept in {@link PathTreeItemComparator} order.
+ * <p>
+ * Items created with a loader list their directory on it the first time their children are asked for, showing a
+ * placeholder until the listing arrives, so expanding a huge directory never blocks the FX thread. Items created
+ * without a loader only ever have the children added to them, for showing part of the tree such as search results.
+ */
 public class PathTreeItem extends TreeItem<PathItem> {
-    private boolean isLeaf = false;
-    private boolean isFirstTimeChildren = true;
-    private boolean isFirstTimeLeft = true;
+    private static final Comparator<TreeItem<PathItem>> ORDER = new PathTreeItemComparator();
 
+    private final @Nullable Executor loader;
+    private boolean listed = false;
+    private boolean loaded = false;
+    private List<Runnable> onLoaded;
+
+    /**
+     * Creates an item whose children are only the ones added to it.
+     *
+     * @param pathItem the file or directory
+     */
     public PathTreeItem(PathItem pathItem) {
+        this(pathItem, null);
+    }
+
+    /**
+     * Creates an item that lists its directory on demand.
+     *
+     * @param pathItem the file or directory
+     * @param loader   the executor to list the directory on, or {@code null} to never list it
+     */
+    public PathTreeItem(PathItem pathItem, @Nullable Executor loader) {
         super(pathItem);
+        this.loader = loader;
     }
 
     @Override
     public ObservableList<TreeItem<PathItem>> getChildren() {
-        if (isFirstTimeChildren) {
-            isFirstTimeChildren = false;
-            super.getChildren().setAll(buildChildren(this));
+        if (!this.listed && this.loader != null && !isLeaf()) {
+            this.listed = true;
+            super.getChildren().addFirst(new PathTreeItem(PathItem.placeholder(getValue().getPath())));
+            list(false);
         }
 
         return super.getChildren();
@@ -32,30 +60,156 @@ public class PathTreeItem extends TreeItem<PathItem> {
 
     @Override
     public boolean isLeaf() {
-        if (this.isFirstTimeLeft) {
-            this.isFirstTimeLeft = false;
-            Path path = getValue().getPath();
-            this.isLeaf = !Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS);
+        return !getValue().isDirectory();
+    }
+
+    /**
+     * @return whether the children of this item have been asked for, so that changes to the directory have to be
+     * applied to it
+     */
+    public boolean isLoaded() {
+        return this.listed;
+    }
+
+    /**
+     * Runs an action once the first listing of this item has arrived, listing it if nobody asked for its children
+     * yet. Runs the action straight away if there is nothing to list.
+     *
+     * @param action the action, run on the FX thread
+     */
+    public void whenLoaded(Runnable action) {
+        if (this.loaded || this.loader == null || isLeaf()) {
+            action.run();
+            return;
+        }
+
+        if (this.onLoaded == null) {
+            this.onLoaded = new ArrayList<>();
+        }
+
+        this.onLoaded.add(action);
+        getChildren();
+    }
+
+    /**
+     * Lists the directory again and brings the children of this item, and of every listed item below it, in line
+     * with the disk.
+     */
+    public void refresh() {
+        if (this.listed && this.loader != null) {
+            list(true);
         }
+    }
+
+    /**
+     * Adds a child in order, unless there already is one for its path.
+     *
+     * @param pathItem the file or directory to add
+     * @return the child for the path
+     */
+    public PathTreeItem addChild(PathItem pathItem) {
+        return insert(new PathTreeItem(pathItem, this.loader));
+    }
 
-        return this.isLeaf;
+    /**
+     * Moves children back into order after their names changed, such as after a rename.
+     */
+    public void sortChildren() {
+        super.getChildren().sort(ORDER);
     }
 
-    private ObservableList<TreeItem<PathItem>> buildChildren(TreeItem<PathItem> treeItem) {
-        Path path = treeItem.getValue().getPath();
-        if (path != null && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
-            ObservableList<TreeItem<PathItem>> children = FXCollections.observableArrayList();
-            try (DirectoryStream<Path> directories = Files.newDirectoryStream(path)) {
-                for (Path directory : directories) {
-                    children.add(new PathTreeItem(new PathItem(directory)));
+    private PathTreeItem insert(PathTreeItem child) {
+        ObservableList<TreeItem<PathItem>> children = super.getChildren();
+        int index = Collections.binarySearch(children, child, ORDER);
+        if (index >= 0)
+            return (PathTreeItem) children.get(index);
+
+        // A file that became a directory, or the other way round, is still listed under the old kind, which sorts
+        // elsewhere
+        PathItem pathItem = child.getValue();
+        var counterpart = new PathTreeItem(new PathItem(pathItem.getPath(), !pathItem.isDirectory()));
+        int counterpartIndex = Collections.binarySearch(children, counterpart, ORDER);
+        if (counterpartIndex >= 0) {
+            children.remove(counterpartIndex);
+            index = Collections.binarySearch(children, child, ORDER);
+        }
+
+        children.add(-index - 1, child);
+        return child;
+    }
+
+    private void list(boolean refresh) {
+        Path directory = getValue().getPath();
+        Executor loader = this.loader;
+        loader.execute(() -> {
+            List<PathTreeItem> listing = listDirectory(directory, loader);
+            Platform.runLater(() -> applyListing(listing, refresh));
+        });
+    }
+
+    private void applyListing(List<PathTreeItem> listing, boolean refresh) {
+        ObservableList<TreeItem<PathItem>> children = super.getChildren();
+        if (refresh) {
+            Set<Path> paths = new HashSet<>();
+            for (PathTreeItem child : listing) {
+                paths.add(child.getValue().getPath());
+            }
+
+            children.removeIf(child -> !paths.contains(child.getValue().getPath()));
+        } else {
+            children.removeIf(child -> child.getValue().isPlaceholder());
+        }
+
+        if (children.isEmpty()) {
+            // The listing is already in order, so the common case is a single change
+            children.setAll(listing);
+        } else {
+            // Keep the children that were added while the listing was running
+            for (PathTreeItem child : listing) {
+                insert(child);
+            }
+        }
+
+        if (refresh) {
+            for (TreeItem<PathItem> child : children) {
+                if (child instanceof PathTreeItem pathTreeItem) {
+                    pathTreeItem.refresh();
                 }
-            } catch (IOException exception) {
-                Railroad.LOGGER.error("Failed to build children for tree item: {}", treeItem, exception);
             }
+        }
 
-            return children;
+        this.loaded = true;
+        if (this.onLoaded != null) {
+            List<Runnable> actions = this.onLoaded;
+            this.onLoaded = null;
+            actions.forEach(Runnable::run);
         }
+    }
 
-        return FXCollections.emptyObservableList();
+    private static List<PathTreeItem> listDirectory(Path directory, Executor loader) {
+        List<PathTreeItem> children = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                try {
+                    children.add(new PathTreeItem(new PathItem(entry, readAttributes(entry).isDirectory()), loader));
+                } catch (IOException ignored) {
+                    // Deleted or made unreadable while listing, which the watcher will report
+                }
+            }
+        } catch (IOException exception) {
+            Railroad.LOGGER.error("Failed to list {}", directory, exception);
+        }
+
+        children.sort(ORDER);
+        return children;
+    }
+
+    // Links are followed, so that a linked directory can be expanded, but a broken link is still shown as a file
+    private static BasicFileAttributes readAttributes(Path entry) throws IOException {
+        try {
+            return Files.readAttributes(entry, BasicFileAttributes.class);
+        } catch (IOException exception) {
+            return Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        }
     }
 }
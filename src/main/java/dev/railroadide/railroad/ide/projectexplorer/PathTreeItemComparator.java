@@ -3,22 +3,24 @@ package dev.railroadide.railroad.ide.projectexplorer;
 import javafx.scene.control.TreeItem;
 
 import java.io.Serializable;
-import java.nio.file.Files;
 import java.util.Comparator;
 
+/**
+ * Orders directories before files, then by name ignoring case. Placeholders come first. Names that only differ in case
+ * are ordered case-sensitively, so that no two children of a directory compare as equal.
+ */
 public class PathTreeItemComparator implements Comparator<TreeItem<PathItem>>, Serializable {
     @Override
     public int compare(TreeItem<PathItem> item1, TreeItem<PathItem> item2) {
-        boolean isDir1 = Files.isDirectory(item1.getValue().getPath());
-        boolean isDir2 = Files.isDirectory(item2.getValue().getPath());
+        PathItem path1 = item1.getValue();
+        PathItem path2 = item2.getValue();
+        if (path1.isPlaceholder() != path2.isPlaceholder())
+            return path1.isPlaceholder() ? -1 : 1;
 
-        if (isDir1 && !isDir2) {
-            return -1;
-        } else if (!isDir1 && isDir2) {
-            return 1;
-        } else {
-            return item1.getValue().getPath().getFileName().toString()
-                .compareToIgnoreCase(item2.getValue().getPath().getFileName().toString());
-        }
+        if (path1.isDirectory() != path2.isDirectory())
+            return path1.isDirectory() ? -1 : 1;
+
+        int comparison = path1.getName().compareToIgnoreCase(path2.getName());
+        return comparison != 0 ? comparison : path1.getName().compareTo(path2.getName());
     }
 }
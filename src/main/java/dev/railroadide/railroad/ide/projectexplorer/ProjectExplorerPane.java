@@ -11,26 +11,25 @@ import dev.railroadide.core.ui.localized.LocalizedTooltip;
 import dev.railroadide.railroad.Railroad;
 import dev.railroadide.railroad.Services;
 import dev.railroadide.railroad.ide.IDESetup;
+import dev.railroadide.railroad.ide.indexing.FileNameIndex;
+import dev.railroadide.railroad.ide.indexing.ProjectSymbolIndex;
+import dev.railroadide.railroad.ide.indexing.TrigramIndex;
 import dev.railroadide.railroad.ide.projectexplorer.dialog.CopyModalDialog;
 import dev.railroadide.railroad.ide.projectexplorer.dialog.CreateFileDialog;
 import dev.railroadide.railroad.ide.projectexplorer.dialog.DeleteDialog;
 import dev.railroadide.railroad.ide.projectexplorer.task.FileCopyTask;
-import dev.railroadide.railroad.ide.projectexplorer.task.SearchTask;
 import dev.railroadide.railroad.ide.projectexplorer.task.WatchTask;
 import dev.railroadide.railroad.ide.ui.*;
 import dev.railroadide.railroad.plugin.defaults.DefaultDocument;
 import dev.railroadide.railroad.project.Project;
 import dev.railroadide.railroad.settings.keybinds.KeybindHandler;
 import dev.railroadide.railroad.utility.FileUtils;
-import dev.railroadide.railroad.utility.ShutdownHooks;
+import dev.railroadide.railroad.utility.TaskScheduler;
 import dev.railroadide.railroadpluginapi.events.FileEvent;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.concurrent.WorkerStateEvent;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
@@ -38,33 +37,38 @@ import javafx.scene.control.*;
 import javafx.scene.input.*;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
-import org.jetbrains.annotations.NotNull;
 import org.kordamp.ikonli.fontawesome6.FontAwesomeSolid;
 import org.kordamp.ikonli.javafx.FontIcon;
+import org.reactfx.EventSource;
 
 import java.io.File;
-import java.io.IOException;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 public class ProjectExplorerPane extends RRVBox implements WatchTask.FileChangeListener {
-    private static boolean fileChangeListenerEnabled = true;
-    private final ExecutorService executorService = Executors.newFixedThreadPool(3);
+    private static final long SEARCH_DELAY_MILLIS = 150;
+    private static final int SEARCH_RESULT_LIMIT = 200;
+    private final TaskScheduler.TaskOwner tasks = TaskScheduler.newOwner("project explorer");
+    private final Executor treeLoader = this.tasks.executor(TaskScheduler.Lane.IO);
     private final StringProperty messageProperty = new SimpleStringProperty();
     private final TreeView<PathItem> treeView = new TreeView<>();
     private final TextField searchField;
-    private final ObservableList<String> searchListItems = FXCollections.observableArrayList();
-    private final StringProperty searchProperty = new SimpleStringProperty();
-    private final List<String> searchList = new ArrayList<>();
+    private final EventSource<String> searchQueries = new EventSource<>();
+    private final ProjectSymbolIndex symbolIndex;
+    private final FileNameIndex fileNameIndex;
+    private final TrigramIndex textIndex;
+    private final WatchTask watcher;
+    private PathTreeItem projectRoot;
+    private Future<?> currentSearch;
 
     public ProjectExplorerPane(Project project, RRBorderPane mainPane) {
         Path rootPath = Path.of(project.getPathString());
+        this.symbolIndex = ProjectSymbolIndex.forProject(project);
+        this.fileNameIndex = new FileNameIndex(rootPath);
+        this.textIndex = TrigramIndex.forProject(project);
         setPadding(new Insets(0));
         setSpacing(0);
         getStyleClass().add("rr-project-explorer");
@@ -75,11 +79,12 @@ public class ProjectExplorerPane extends RRVBox implements WatchTask.FileChangeL
         var header = createModernHeader(project);
 
         this.treeView.getSelectionModel().setSelectionMode(SelectionMode.SINGLE);
-        this.treeView.setRoot(new PathTreeItem(new PathItem(rootPath)));
+        this.projectRoot = new PathTreeItem(new PathItem(rootPath), this.treeLoader);
+        this.treeView.setRoot(this.projectRoot);
         this.treeView.setEditable(true);
         this.treeView.getStyleClass().add("rr-tree-view");
         this.treeView.setCellFactory(param -> {
-            var cell = new PathTreeCell(project, messageProperty, mainPane);
+            var cell = new PathTreeCell(project, this, messageProperty, mainPane);
             handleDragDrop(cell);
             return cell;
         });
@@ -87,14 +92,14 @@ public class ProjectExplorerPane extends RRVBox implements WatchTask.FileChangeL
         this.treeView.prefHeightProperty().bind(heightProperty().subtract(60));
         this.treeView.setOnKeyReleased(event -> {
             TreeItem<PathItem> selectedItem = this.treeView.getSelectionModel().getSelectedItem();
-            if (selectedItem == null)
+            if (selectedItem == null || selectedItem.getValue().isPlaceholder())
                 return;
 
             PathItem item = selectedItem.getValue();
             if (event.getCode() == KeyCode.ENTER) {
                 event.consume();
 
-                if (Files.isDirectory(item.getPath())) {
+                if (item.isDirectory()) {
                     this.treeView.getSelectionModel().selectNext();
                 } else {
                     ProjectExplorerPane.openFile(project, item, mainPane);
@@ -152,26 +157,27 @@ public class ProjectExplorerPane extends RRVBox implements WatchTask.FileChangeL
                 return;
             }
         });
-        sortTreeItems(this.treeView.getRoot());
 
-        handleSearchEvents(rootPath);
+        handleSearchEvents();
+        this.tasks.submit(TaskScheduler.Lane.BACKGROUND_INDEXING, () -> {
+            this.fileNameIndex.seed();
+            Platform.runLater(this::refreshSearch);
+        });
 
-        var watchTask = new WatchTask(rootPath, this);
-        this.executorService.submit(watchTask);
+        this.watcher = new WatchTask(rootPath, FileNameIndex::isIgnoredDirectory, this);
+        this.tasks.submit(TaskScheduler.Lane.IO, this.watcher);
 
         getChildren().addAll(header, this.treeView);
 
         KeybindHandler.registerCapture(KeybindContexts.of("railroad:project_explorer"), this.treeView);
-
-        ShutdownHooks.addHook(this.executorService::shutdownNow);
-    }
-
-    public static void disableFileChangeListener() {
-        fileChangeListenerEnabled = false;
     }
 
-    public static void enableFileChangeListener() {
-        fileChangeListenerEnabled = true;
+    /**
+     * Stops watching the project and cancels the tree loading and searches in progress. Called when the window
+     * showing this pane closes.
+     */
+    public void dispose() {
+        this.tasks.close();
     }
 
     public static void cut(PathTreeItem pathItem, TreeView<PathItem> treeView) {
@@ -184,8 +190,7 @@ public class ProjectExplorerPane extends RRVBox implements WatchTask.FileChangeL
                 Path path = file.toPath();
 
                 // we need to find the cells that match the path and set them to not cut
-                TreeItem<PathItem> rootItem = treeView.getRoot();
-                TreeItem<PathItem> item = ((ProjectExplorerPane) treeView.getParent()).findOrCreateTreeItem(rootItem, path);
+                TreeItem<PathItem> item = ((ProjectExplorerPane) treeView.getParent()).findLoadedTreeItem(path);
                 if (item == null)
                     continue;
 
@@ -206,40 +211,67 @@ public class ProjectExplorerPane extends RRVBox implements WatchTask.FileChangeL
         clipboard.setContent(content);
     }
 
-    public static void paste(PathItem item) {
+    public void paste(PathItem item) {
         var clipboard = Clipboard.getSystemClipboard();
         if (clipboard.hasFiles()) {
             var files = clipboard.getFiles();
             boolean isCut = clipboard.hasString() && clipboard.getString().equals("cut");
+            Path directory = item.isDirectory() ? item.getPath() : item.getPath().getParent();
             for (File file : files) {
-                var targetPath = Path.of(item.getPath().toAbsolutePath().toString(), file.getName());
+                Path sourcePath = file.toPath();
+                Path targetPath = directory.resolve(file.getName());
+                if (targetPath.equals(sourcePath))
+                    continue;
+
                 if (Files.exists(targetPath, LinkOption.NOFOLLOW_LINKS)) {
                     var replaceProperty = new SimpleBooleanProperty();
                     CopyModalDialog.open(replaceProperty);
                     replaceProperty.addListener((observable, oldValue, newValue) -> {
                         if (newValue) {
-                            new FileCopyTask(file.toPath(), targetPath).run();
+                            transfer(sourcePath, targetPath, isCut);
                         }
                     });
                 } else {
-                    new FileCopyTask(file.toPath(), targetPath).run();
+                    transfer(sourcePath, targetPath, isCut);
                 }
+            }
+        }
+    }
 
-                if (!isCut)
-                    continue;
+    /**
+     * Copies or moves a file or directory tree in the background, showing its progress in the status bar. The
+     * watcher is paused for the affected paths meanwhile, so that the tree and the indexes see the result as one
+     * change rather than one change per file.
+     *
+     * @param source the file or directory to copy or move
+     * @param target the path to copy or move it to
+     * @param move   whether to move rather than copy
+     */
+    public void transfer(Path source, Path target, boolean move) {
+        var task = new FileCopyTask(source, target, move);
+        task.setOnFailed(event -> {
+            Railroad.LOGGER.error("Failed to {} {} to {}", move ? "move" : "copy", source, target, task.getException());
+            this.messageProperty.set("%s %s failed".formatted(move ? "Moving" : "Copying", source.getFileName()));
+        });
 
-                Path path = file.toPath();
-                if (Files.isDirectory(path)) {
-                    FileUtils.deleteFolder(path);
-                } else {
-                    try {
-                        Files.deleteIfExists(path);
-                    } catch (IOException exception) {
-                        Railroad.LOGGER.error("Error while deleting file", exception);
-                    }
-                }
+        StatusBarPane.track(task);
+        this.tasks.submit(TaskScheduler.Lane.IO, () -> {
+            try (WatchTask.Pause ignoredTarget = pauseWatching(target);
+                 WatchTask.Pause ignoredSource = move ? pauseWatching(source) : null) {
+                task.run();
             }
-        }
+        });
+    }
+
+    /**
+     * Stops the tree and the indexes from seeing changes below a path until the pause is closed, after which the
+     * path is reported as changed as a whole.
+     *
+     * @param path the path the IDE is about to change
+     * @return the pause
+     */
+    WatchTask.Pause pauseWatching(Path path) {
+        return this.watcher.pause(path);
     }
 
     public static void openInExplorer(Path path) {
@@ -311,6 +343,7 @@ public class ProjectExplorerPane extends RRVBox implements WatchTask.FileChangeL
                 Railroad.EVENT_BUS.publish(new FileEvent(document, FileEvent.EventType.ACTIVATED));
 
                 tab.setOnClosed(event -> {
+                    editorContent.dispose();
                     Railroad.EVENT_BUS.publish(new FileEvent(document, FileEvent.EventType.CLOSED));
                     if (tab.isSelected()) {
                         Railroad.EVENT_BUS.publish(new FileEvent(document, FileEvent.EventType.DEACTIVATED));
@@ -363,12 +396,19 @@ public class ProjectExplorerPane extends RRVBox implements WatchTask.FileChangeL
 
     public static void expandAll(TreeItem<PathItem> treeItem) {
         treeItem.setExpanded(true);
-        for (TreeItem<PathItem> child : treeItem.getChildren()) {
-            expandAll(child);
+        // Directories that are still being listed expand their children once the listing arrives
+        if (treeItem instanceof PathTreeItem pathTreeItem) {
+            pathTreeItem.whenLoaded(() -> treeItem.getChildren().forEach(ProjectExplorerPane::expandAll));
+        } else {
+            treeItem.getChildren().forEach(ProjectExplorerPane::expandAll);
         }
     }
 
     public static void collapseAll(TreeItem<PathItem> treeItem) {
+        // Directories that were never listed have nothing expanded below them
+        if (treeItem instanceof PathTreeItem pathTreeItem && !pathTreeItem.isLoaded())
+            return;
+
         treeItem.setExpanded(false);
         for (TreeItem<PathItem> child : treeItem.getChildren()) {
             collapseAll(child);
@@ -435,40 +475,110 @@ public class ProjectExplorerPane extends RRVBox implements WatchTask.FileChangeL
     }
 
     private void refreshProjectExplorer() {
-        Path rootPath = Path.of(this.treeView.getRoot().getValue().getPath().toString());
-        this.treeView.setRoot(new PathTreeItem(new PathItem(rootPath)));
-        this.treeView.getRoot().setExpanded(true);
-        sortTreeItems(this.treeView.getRoot());
+        Path rootPath = this.projectRoot.getValue().getPath();
+        this.projectRoot = new PathTreeItem(new PathItem(rootPath), this.treeLoader);
+        this.projectRoot.setExpanded(true);
+        this.treeView.setRoot(this.projectRoot);
     }
 
     @Override
-    public void onFileChange(Path path, WatchEvent.Kind<?> kind) {
-        if (!fileChangeListenerEnabled)
-            return;
+    public void onFileChanges(List<WatchTask.FileChange> changes) {
+        for (WatchTask.FileChange change : changes) {
+            this.symbolIndex.onFileChange(change.path(), change.kind());
+            this.fileNameIndex.onFileChange(change.path(), change.kind());
+            this.textIndex.onFileChange(change.path(), change.kind());
+        }
 
-        Platform.runLater(() -> {
-            // Refresh the tree view based on the kind of event
-            if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
-                addPathToTree(path);
-            } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
-                removePathFromTree(path);
-            }/* else if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
-
-            }*/
-
-            String searchValue = searchField.getText();
-            if (!searchValue.isBlank()) {
-                var searchTask = new SearchTask(treeView.getRoot().getValue().getPath(), searchValue);
-                searchTask.setOnSucceeded(event -> updateTreeViewWithSearchResults(searchTask.getMatchedPaths()));
-                executorService.submit(searchTask);
+        // Read the attributes of new files here rather than on the FX thread
+        Map<Path, List<PathItem>> created = new LinkedHashMap<>();
+        Map<Path, Set<Path>> deleted = new LinkedHashMap<>();
+        List<Path> overflowed = new ArrayList<>();
+        for (WatchTask.FileChange change : changes) {
+            Path path = change.path();
+            if (change.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflowed.add(path);
+            } else if (change.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                created.computeIfAbsent(path.getParent(), ignored -> new ArrayList<>()).add(new PathItem(path));
+            } else if (change.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                deleted.computeIfAbsent(path.getParent(), ignored -> new HashSet<>()).add(path);
             }
+        }
+
+        Platform.runLater(() -> {
+            applyFileChanges(created, deleted, overflowed);
+            refreshSearch();
         });
     }
 
+    private void applyFileChanges(Map<Path, List<PathItem>> created, Map<Path, Set<Path>> deleted, List<Path> overflowed) {
+        Set<Path> directories = new LinkedHashSet<>(created.keySet());
+        directories.addAll(deleted.keySet());
+        for (Path directory : directories) {
+            PathTreeItem item = findLoadedTreeItem(directory);
+            if (item != null) {
+                updateChildren(item, created.getOrDefault(directory, List.of()), deleted.getOrDefault(directory, Set.of()));
+            }
+        }
+
+        for (Path path : overflowed) {
+            PathTreeItem item = findLoadedTreeItem(path);
+            if (item == null) {
+                // Files, directories that were never listed and new paths, such as the target of a copy, are
+                // brought up to date by listing their parent
+                item = findLoadedTreeItem(path.getParent());
+            }
+
+            if (item != null) {
+                // Events were lost, so list the directory and everything listed below it again
+                item.refresh();
+            }
+        }
+    }
+
+    private void updateChildren(PathTreeItem item, List<PathItem> created, Set<Path> deleted) {
+        if (!deleted.isEmpty()) {
+            item.getChildren().removeIf(child -> deleted.contains(child.getValue().getPath()));
+        }
+
+        for (PathItem pathItem : created) {
+            item.addChild(pathItem);
+        }
+    }
+
+    /**
+     * Finds the item of a path in the project tree without listing any directory that has not been listed yet.
+     * Directories that have not been listed will see their changes when they are, so they need no updating.
+     */
+    private PathTreeItem findLoadedTreeItem(Path path) {
+        PathTreeItem item = this.projectRoot;
+        if (path == null || !path.startsWith(item.getValue().getPath()))
+            return null;
+
+        while (item.isLoaded()) {
+            if (item.getValue().getPath().equals(path))
+                return item;
+
+            PathTreeItem next = null;
+            for (TreeItem<PathItem> child : item.getChildren()) {
+                if (child instanceof PathTreeItem pathTreeItem && path.startsWith(child.getValue().getPath())) {
+                    next = pathTreeItem;
+                    break;
+                }
+            }
+
+            if (next == null)
+                return null;
+
+            item = next;
+        }
+
+        return null;
+    }
+
     private void handleDragDrop(PathTreeCell cell) {
         cell.setOnDragDetected(event -> {
             TreeItem<PathItem> item = cell.getTreeItem();
-            if (item != null && item.isLeaf()) {
+            if (item != null && item.isLeaf() && !item.getValue().isPlaceholder()) {
                 Dragboard dragboard = cell.startDragAndDrop(TransferMode.COPY);
                 var content = new ClipboardContent();
                 @SuppressWarnings("ArraysAsListWithZeroOrOneArgument") // Using List.of would produce an unmodifiable list
@@ -528,18 +638,12 @@ public class ProjectExplorerPane extends RRVBox implements WatchTask.FileChangeL
                         CopyModalDialog.open(replaceProperty);
                         replaceProperty.addListener((observable, oldValue, newValue) -> {
                             if (newValue) {
-                                this.executorService.submit(new FileCopyTask(sourcePath, targetPath));
+                                transfer(sourcePath, targetPath, false);
                             }
                         });
                     });
                 } else {
-                    var task = new FileCopyTask(sourcePath, targetPath);
-                    this.executorService.submit(task);
-
-                    task.setOnSucceeded(value -> Platform.runLater(() -> {
-                        var item = new PathTreeItem(new PathItem(targetPath));
-                        cell.getTreeItem().getChildren().add(item);
-                    }));
+                    transfer(sourcePath, targetPath, false);
                 }
 
                 success = true;
@@ -550,157 +654,85 @@ public class ProjectExplorerPane extends RRVBox implements WatchTask.FileChangeL
         });
     }
 
-    private void handleSearchEvents(Path rootPath) {
+    private void handleSearchEvents() {
         this.searchField.textProperty().addListener((observable, oldValue, newValue) -> {
-            this.searchListItems.clear();
-
             if (newValue.isBlank()) {
-                resetTreeView(rootPath);
+                cancelSearch();
+                // The project tree is kept as it was while searching, so it comes back expanded as it was
+                this.treeView.setRoot(this.projectRoot);
                 return;
             }
 
-            var searchTask = new SearchTask(rootPath, newValue);
-            this.searchList.clear();
-            this.searchProperty.bind(searchTask.resultProperty());
-            searchTask.setOnSucceeded((WorkerStateEvent stateEvent) -> {
-                this.searchListItems.addAll(this.searchList);
-                updateTreeViewWithSearchResults(searchTask.getMatchedPaths());
-            });
-
-            this.executorService.submit(searchTask);
+            this.searchQueries.push(newValue);
         });
 
-        this.searchProperty.addListener((observable, oldValue, newValue) -> {
-            if (newValue != null) {
-                this.searchList.add(newValue);
-            }
-        });
+        // Only search once the user pauses typing, and only for the latest query
+        this.searchQueries.successionEnds(Duration.ofMillis(SEARCH_DELAY_MILLIS)).subscribe(this::search);
     }
 
-    private void updateTreeViewWithSearchResults(List<Path> matchedPaths) {
-        TreeItem<PathItem> rootItem = treeView.getRoot();
-        rootItem.getChildren().clear();
-
-        for (Path path : matchedPaths) {
-            TreeItem<PathItem> parentItem = findOrCreateTreeItem(rootItem, path.getParent());
-            if (isMissingPath(parentItem, path)) {
-                TreeItem<PathItem> newItem = new PathTreeItem(new PathItem(path));
-                parentItem.getChildren().add(newItem);
-            }
+    private void refreshSearch() {
+        String query = this.searchField.getText();
+        if (!query.isBlank()) {
+            this.searchQueries.push(query);
         }
-
-        filterTreeItems(rootItem, matchedPaths);
-        sortTreeItems(rootItem);
-        expandAllFolders(rootItem);
     }
 
-    private TreeItem<PathItem> findOrCreateTreeItem(TreeItem<PathItem> rootItem, Path path) {
-        if (path == null || path.equals(rootItem.getValue().getPath()))
-            return rootItem;
-
-        // Recursively create parent items
-        TreeItem<PathItem> parentItem = findOrCreateTreeItem(rootItem, path.getParent());
-
-        // Check if the current item already exists
-        TreeItem<PathItem> currentItem = findTreeItemRecursive(parentItem, path);
-        if (currentItem == null) {
-            currentItem = new PathTreeItem(new PathItem(path));
-            parentItem.getChildren().add(currentItem);
-        }
-
-        return currentItem;
-    }
-
-    private void filterTreeItems(TreeItem<PathItem> parentItem, List<Path> matchedPaths) {
-        if (parentItem != null && !parentItem.getChildren().isEmpty()) {
-            parentItem.getChildren().removeIf(child -> !isPathMatched(child.getValue().getPath(), matchedPaths));
-            for (TreeItem<PathItem> child : parentItem.getChildren()) {
-                filterTreeItems(child, matchedPaths);
-            }
-        }
-    }
-
-    private boolean isPathMatched(Path path, List<Path> matchedPaths) {
-        for (Path matchedPath : matchedPaths) {
-            if (matchedPath.startsWith(path)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    private void resetTreeView(Path rootPath) {
-        TreeItem<PathItem> rootItem = treeView.getRoot();
-        rootItem.getChildren().clear();
-
-        try {
-            Files.walkFileTree(rootPath, new SimpleFileVisitor<>() {
-                @Override
-                public @NotNull FileVisitResult visitFile(@NotNull Path file, @NotNull BasicFileAttributes attrs) {
-                    addPathToTree(file);
-                    return FileVisitResult.CONTINUE;
-                }
+    private void search(String query) {
+        cancelSearch();
+        if (!query.equals(this.searchField.getText()))
+            return;
 
-                @Override
-                public @NotNull FileVisitResult preVisitDirectory(@NotNull Path dir, @NotNull BasicFileAttributes attrs) {
-                    addPathToTree(dir);
-                    return FileVisitResult.CONTINUE;
+        Path rootPath = this.projectRoot.getValue().getPath();
+        this.currentSearch = this.tasks.submit(TaskScheduler.Lane.INTERACTIVE, () -> {
+            List<Path> matches = this.fileNameIndex.search(query, SEARCH_RESULT_LIMIT);
+            TreeItem<PathItem> results = createSearchResultsTree(rootPath, matches);
+            Platform.runLater(() -> {
+                if (query.equals(this.searchField.getText())) {
+                    this.treeView.setRoot(results);
                 }
             });
-        } catch (IOException exception) {
-            Railroad.LOGGER.error("Error while walking file tree", exception);
-        }
-
-        sortTreeItems(rootItem);
+        });
     }
 
-    private void sortTreeItems(TreeItem<PathItem> parentItem) {
-        if (parentItem != null && !parentItem.getChildren().isEmpty()) {
-            parentItem.getChildren().sort(new PathTreeItemComparator());
-            for (TreeItem<PathItem> child : parentItem.getChildren()) {
-                sortTreeItems(child);
-            }
+    private void cancelSearch() {
+        if (this.currentSearch != null) {
+            this.currentSearch.cancel(true);
+            this.currentSearch = null;
         }
     }
 
-    private void addPathToTree(Path path) {
-        TreeItem<PathItem> parentItem = findTreeItem(path.getParent());
-        if (parentItem != null && isMissingPath(parentItem, path)) {
-            PathItem newItem = new PathItem(path);
-            TreeItem<PathItem> newTreeItem = new PathTreeItem(newItem);
-            parentItem.getChildren().add(newTreeItem);
-            sortTreeItems(parentItem);
+    // Search results get a tree of their own that only ever holds the matches, built off the FX thread. Children are
+    // appended rather than sorted by name, so that the ranking shows: each folder lists its matches best first, and
+    // comes before its siblings if it holds a better match than they do.
+    private static TreeItem<PathItem> createSearchResultsTree(Path rootPath, List<Path> matchedPaths) {
+        var rootItem = new PathTreeItem(new PathItem(rootPath, true));
+        Map<Path, TreeItem<PathItem>> items = new HashMap<>();
+        items.put(rootPath, rootItem);
+        for (Path path : matchedPaths) {
+            findOrCreateTreeItem(items, rootItem, path, false);
         }
-    }
 
-    private void removePathFromTree(Path path) {
-        TreeItem<PathItem> itemToRemove = findTreeItem(path);
-        if (itemToRemove != null && itemToRemove.getParent() != null) {
-            TreeItem<PathItem> parentItem = itemToRemove.getParent();
-            parentItem.getChildren().remove(itemToRemove);
-            sortTreeItems(parentItem);
-        }
+        expandAllFolders(rootItem);
+        return rootItem;
     }
 
-    private TreeItem<PathItem> findTreeItem(Path path) {
-        return findTreeItemRecursive(treeView.getRoot(), path);
-    }
+    private static TreeItem<PathItem> findOrCreateTreeItem(Map<Path, TreeItem<PathItem>> items, TreeItem<PathItem> rootItem,
+                                                           Path path, boolean directory) {
+        if (path == null)
+            return rootItem;
 
-    private TreeItem<PathItem> findTreeItemRecursive(TreeItem<PathItem> currentItem, Path path) {
-        if (currentItem.getValue().getPath().equals(path)) {
-            return currentItem;
-        }
-        for (TreeItem<PathItem> child : currentItem.getChildren()) {
-            TreeItem<PathItem> result = findTreeItemRecursive(child, path);
-            if (result != null) {
-                return result;
-            }
-        }
-        return null;
+        TreeItem<PathItem> item = items.get(path);
+        if (item != null)
+            return item;
+
+        TreeItem<PathItem> parent = findOrCreateTreeItem(items, rootItem, path.getParent(), true);
+        item = new PathTreeItem(directory ? new PathItem(path, true) : new PathItem(path));
+        parent.getChildren().add(item);
+        items.put(path, item);
+        return item;
     }
 
-    private void expandAllFolders(TreeItem<PathItem> item) {
+    private static void expandAllFolders(TreeItem<PathItem> item) {
         if (item != null && !item.isLeaf()) {
             item.setExpanded(true);
             for (TreeItem<PathItem> child : item.getChildren()) {
@@ -708,14 +740,4 @@ public class ProjectExplorerPane extends RRVBox implements WatchTask.FileChangeL
             }
         }
     }
-
-    private boolean isMissingPath(TreeItem<PathItem> parentItem, Path path) {
-        for (TreeItem<PathItem> child : parentItem.getChildren()) {
-            if (child.getValue().getPath().equals(path)) {
-                return false;
-            }
-        }
-
-        return true;
-    }
 }
@@ -1,24 +1,57 @@
 package dev.railroadide.railroad.ide.projectexplorer.task;
 
+import dev.railroadide.railroad.utility.FileTreeCopier;
+import dev.railroadide.railroad.utility.FileUtils;
 import javafx.concurrent.Task;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 
+/**
+ * Copies or moves a file or directory tree with {@link FileTreeCopier}, replacing files that already exist in the
+ * target. Progress is reported in bytes, with the message counting files. Cancelling the task stops the copy.
+ */
 public class FileCopyTask extends Task<Void> {
     private final Path source;
     private final Path target;
+    private final boolean move;
 
     public FileCopyTask(Path source, Path target) {
+        this(source, target, false);
+    }
+
+    /**
+     * @param source the file or directory to copy or move
+     * @param target the path to copy or move it to
+     * @param move   whether to move rather than copy
+     */
+    public FileCopyTask(Path source, Path target, boolean move) {
         this.source = source;
         this.target = target;
+        this.move = move;
+        updateTitle((move ? "Moving " : "Copying ") + source.getFileName());
     }
 
     @Override
     protected Void call() throws IOException {
-        Files.copy(this.source, this.target, StandardCopyOption.REPLACE_EXISTING);
+        FileTreeCopier.ProgressListener listener = progress -> {
+            updateProgress(progress.bytesCopied(), Math.max(progress.totalBytes(), 1));
+            updateMessage("%s of %s files (%s of %s)".formatted(progress.filesCopied(), progress.totalFiles(),
+                FileUtils.humanReadableByteCount(progress.bytesCopied()),
+                FileUtils.humanReadableByteCount(progress.totalBytes())));
+        };
+
+        if (this.move) {
+            FileTreeCopier.move(this.source, this.target, listener);
+        } else {
+            FileTreeCopier.copy(this.source, this.target, listener, StandardCopyOption.REPLACE_EXISTING);
+        }
+
         return null;
     }
+
+    public Path getTarget() {
+        return this.target;
+    }
 }
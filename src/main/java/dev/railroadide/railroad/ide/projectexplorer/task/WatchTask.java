@@ -1,79 +1,85 @@
 package dev.railroadide.railroad.ide.projectexplorer.task;
 
+import dev.railroadide.railroad.Railroad;
+import dev.railroadide.railroad.utility.TaskScheduler;
 import javafx.concurrent.Task;
 
 import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 import static java.nio.file.StandardWatchEventKinds.*;
 
+/**
+ * Watches a directory tree and reports its changes in batches.
+ * <p>
+ * Events are collected for {@link #COALESCE_WINDOW_MILLIS} after the first one arrives, and several events for the
+ * same path within that window are merged into one, so a build that writes thousands of files is reported in a
+ * handful of batches rather than one event at a time. Ignored directories are reported when they are created or
+ * deleted, but nothing inside them is watched. When the file system drops events for a directory, the directory is
+ * reported with the kind {@link StandardWatchEventKinds#OVERFLOW}, meaning its whole subtree has to be rescanned.
+ * <p>
+ * Reporting can be {@link #pause paused} below a path while the IDE itself rewrites it, such as the target of a large
+ * copy, which is then reported as a single change once resumed instead of one change per copied file.
+ */
 public class WatchTask extends Task<Void> {
+    private static final long COALESCE_WINDOW_MILLIS = 100;
+
     private final Path path;
-    private final StringBuilder message = new StringBuilder();
+    private final Predicate<Path> ignoredDirectory;
     private final Map<WatchKey, Path> keys = new HashMap<>();
+    // The number of pauses of each paused path
+    private final Map<Path, Integer> paused = new ConcurrentHashMap<>();
     private final FileChangeListener fileChangeListener;
-
-    public WatchTask(Path path, FileChangeListener fileChangeListener) {
+    // Resumes usually happen on the FX thread, while listeners read the disk and update indexes
+    private final Executor resumeReporter = TaskScheduler.serial(TaskScheduler.Lane.IO);
+
+    /**
+     * @param path               the root of the tree to watch
+     * @param ignoredDirectory   whether the contents of a directory below the root should not be watched
+     * @param fileChangeListener the listener to report the batches to, called on the watching thread or, for paths
+     *                           whose pause ended, on the {@link TaskScheduler.Lane#IO IO lane}
+     */
+    public WatchTask(Path path, Predicate<Path> ignoredDirectory, FileChangeListener fileChangeListener) {
         this.path = path;
+        this.ignoredDirectory = ignoredDirectory;
         this.fileChangeListener = fileChangeListener;
     }
 
-    @SuppressWarnings("unchecked")
-    private static <T> WatchEvent<T> cast(WatchEvent<?> event) {
-        return (WatchEvent<T>) event;
-    }
-
     @Override
     protected Void call() throws IOException {
         try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
-            registerAll(path, watcher);
+            registerAll(this.path, watcher);
 
-            while (true) {
-                WatchKey key;
+            while (!this.keys.isEmpty()) {
+                var batch = new Batch();
                 try {
-                    key = watcher.take();
+                    WatchKey key = watcher.take();
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(COALESCE_WINDOW_MILLIS);
+                    while (key != null) {
+                        collect(key, batch, watcher);
+
+                        long remaining = deadline - System.nanoTime();
+                        key = remaining > 0 ? watcher.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    }
                 } catch (InterruptedException exception) {
                     break;
                 }
 
-                Path dir = keys.get(key);
-                if (dir == null)
-                    continue;
-
-                for (WatchEvent<?> event : key.pollEvents()) {
-                    if (event.kind() == OVERFLOW)
-                        continue;
-
-                    WatchEvent<Path> ev = cast(event);
-                    Path name = ev.context();
-                    Path child = dir.resolve(name);
-
-                    message.append(child.toAbsolutePath());
-                    message.append(getKindToMessage(event.kind()));
-                    message.append(System.lineSeparator());
-                    updateMessage(message.toString()); // to bind to the TextArea
-
-                    fileChangeListener.onFileChange(child, event.kind());
-
-                    if (event.kind() == ENTRY_CREATE) {
-                        try {
-                            if (Files.isDirectory(child)) {
-                                registerAll(child, watcher);
-                            }
-                        } catch (IOException exception) {
-                            updateMessage("Failed to register new directory: " + child + " due to " + exception.getMessage());
-                        }
-                    }
+                List<FileChange> changes = batch.toChanges();
+                if (!this.paused.isEmpty()) {
+                    changes.removeIf(change -> isPaused(change.path()));
                 }
 
-                boolean valid = key.reset();
-                if (!valid) {
-                    keys.remove(key);
-                    if (keys.isEmpty())
-                        break;
+                if (!changes.isEmpty()) {
+                    updateMessage(changes.size() + " changes");
+                    this.fileChangeListener.onFileChanges(changes);
                 }
             }
         }
@@ -81,37 +87,158 @@ public class WatchTask extends Task<Void> {
         return null;
     }
 
+    /**
+     * Stops reporting changes to a path and everything below it until the returned pause is closed. Directories
+     * created below the path in the meantime are still watched. Once the last pause of the path is closed, the path
+     * is reported as a single {@link StandardWatchEventKinds#OVERFLOW} change, or as deleted if it no longer exists.
+     *
+     * @param path the file or directory to pause
+     * @return the pause, which resumes reporting when closed
+     */
+    public Pause pause(Path path) {
+        this.paused.merge(path, 1, Integer::sum);
+        var resumed = new AtomicBoolean();
+        return () -> {
+            if (resumed.compareAndSet(false, true)) {
+                resume(path);
+            }
+        };
+    }
+
+    private void resume(Path path) {
+        this.paused.computeIfPresent(path, (ignored, count) -> count == 1 ? null : count - 1);
+        if (isPaused(path))
+            return;
+
+        // Whatever happened below the path while it was paused is reported in one go
+        this.resumeReporter.execute(() -> {
+            WatchEvent.Kind<?> kind = Files.exists(path, LinkOption.NOFOLLOW_LINKS) ? OVERFLOW : ENTRY_DELETE;
+            this.fileChangeListener.onFileChanges(List.of(new FileChange(path, kind)));
+        });
+    }
+
+    private boolean isPaused(Path path) {
+        for (Path pausedPath : this.paused.keySet()) {
+            if (path.startsWith(pausedPath))
+                return true;
+        }
+
+        return false;
+    }
+
     @Override
     protected void cancelled() {
         updateMessage("Watch task was cancelled");
     }
 
-    private String getKindToMessage(WatchEvent.Kind<?> kind) {
-        if (kind == ENTRY_CREATE) {
-            return " is created";
-        } else if (kind == ENTRY_DELETE) {
-            return " is deleted";
+    private void collect(WatchKey key, Batch batch, WatchService watcher) {
+        Path dir = this.keys.get(key);
+        if (dir != null) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    batch.overflow(dir);
+                    // Directories created in the meantime are only found by walking the tree again
+                    registerAll(dir, watcher);
+                    continue;
+                }
+
+                Path child = dir.resolve((Path) event.context());
+                batch.add(dir, child, event.kind());
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                    registerAll(child, watcher);
+                }
+            }
+        }
+
+        if (!key.reset()) {
+            this.keys.remove(key);
+        }
+    }
+
+    private void registerAll(Path start, WatchService watcher) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (!dir.equals(path) && ignoredDirectory.test(dir))
+                        return FileVisitResult.SKIP_SUBTREE;
+
+                    keys.put(dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException exception) {
+            Railroad.LOGGER.warn("Failed to watch {}", start, exception);
         }
-        return " is updated";
     }
 
-    private void registerAll(final Path start, WatchService watcher) throws IOException {
-        Files.walkFileTree(start, new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                register(dir, watcher);
-                return FileVisitResult.CONTINUE;
-            }
-        });
+    /**
+     * A change to a path. Changes of the kind {@link StandardWatchEventKinds#OVERFLOW} are for a directory whose
+     * events were lost, so everything below it may have changed.
+     *
+     * @param path the path that changed
+     * @param kind the kind of change
+     */
+    public record FileChange(Path path, WatchEvent.Kind<?> kind) {
     }
 
-    private void register(Path dir, WatchService watcher) throws IOException {
-        WatchKey key = dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
-        keys.put(key, dir);
+    /**
+     * A pause of the reporting of changes below a path, see {@link #pause(Path)}.
+     */
+    @FunctionalInterface
+    public interface Pause extends AutoCloseable {
+        /**
+         * Resumes reporting, unless the path is paused more than once. Closing a pause again does nothing.
+         */
+        @Override
+        void close();
     }
 
     @FunctionalInterface
     public interface FileChangeListener {
-        void onFileChange(Path path, WatchEvent.Kind<?> kind);
+        /**
+         * Called with each batch of changes, which are grouped by the directory they happened in.
+         *
+         * @param changes the changes, with at most one change per path
+         */
+        void onFileChanges(List<FileChange> changes);
+    }
+
+    private static class Batch {
+        private final Map<Path, Map<Path, WatchEvent.Kind<?>>> directories = new LinkedHashMap<>();
+        private final Set<Path> overflowed = new LinkedHashSet<>();
+
+        private void add(Path dir, Path child, WatchEvent.Kind<?> kind) {
+            this.directories.computeIfAbsent(dir, ignored -> new LinkedHashMap<>())
+                .merge(child, kind, Batch::coalesce);
+        }
+
+        private void overflow(Path dir) {
+            this.overflowed.add(dir);
+        }
+
+        // Returning null drops the path, since listeners never saw it exist
+        private static WatchEvent.Kind<?> coalesce(WatchEvent.Kind<?> previous, WatchEvent.Kind<?> next) {
+            if (previous == ENTRY_CREATE)
+                return next == ENTRY_DELETE ? null : ENTRY_CREATE;
+
+            return next;
+        }
+
+        private List<FileChange> toChanges() {
+            List<FileChange> changes = new ArrayList<>();
+            this.directories.forEach((dir, children) ->
+                children.forEach((child, kind) -> changes.add(new FileChange(child, kind))));
+            for (Path dir : this.overflowed) {
+                changes.add(new FileChange(dir, OVERFLOW));
+            }
+
+            return changes;
+        }
     }
-}
\ No newline at end of file
+}
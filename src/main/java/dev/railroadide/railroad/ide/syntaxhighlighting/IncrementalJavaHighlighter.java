@@ -0,0 +1,276 @@
+package dev.railroadide.railroad.ide.syntaxhighlighting;
+
+import dev.railroadide.railroad.Railroad;
+import dev.railroadide.railroad.utility.Rope;
+import org.fxmisc.richtext.model.PlainTextChange;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.treesitter.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a single tree-sitter tree for a Java document and re-highlights only the regions affected by edits.
+ * <p>
+ * Changes are recorded as they happen (usually on the FX thread) via {@link #recordChange(PlainTextChange)} and
+ * replayed onto the tree as {@link TSInputEdit}s the next time {@link #update(int, int)} is called, so that
+ * tree-sitter can reuse every unchanged subtree when reparsing.
+ * <p>
+ * Regions that still need highlighting are tracked as stale intervals, and each update only highlights the part of
+ * them that falls inside the window it is given. Editors pass the visible paragraphs there, so very large files are
+ * highlighted lazily as they are scrolled through.
+ */
+public class IncrementalJavaHighlighter {
+    private final TSParser parser = new TSParser();
+    private final Queue<PlainTextChange> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger recordedVersion = new AtomicInteger();
+    // Disjoint, non-adjacent intervals (start -> end) that have not been highlighted since they last changed
+    private final TreeMap<Integer, Integer> staleRanges = new TreeMap<>();
+    // The tree is parsed from UTF-8, so its offsets and columns are in bytes rather than characters
+    private final Utf8Offsets offsets;
+    // Mirrors !staleRanges.isEmpty(), so that the FX thread can check it without waiting for a reparse
+    private volatile boolean stale;
+
+    private Rope text;
+    private TSTree tree;
+    private int parsedVersion;
+    private Highlighting unapplied;
+
+    public IncrementalJavaHighlighter(String initialText) {
+        this.parser.setLanguage(new TreeSitterJava());
+        this.text = Rope.of(initialText);
+        this.offsets = Utf8Offsets.of(initialText);
+        this.tree = this.parser.parseString(null, initialText);
+        markStale(0, initialText.length());
+    }
+
+    /**
+     * Records a change made to the document. This is cheap and safe to call from the FX thread.
+     *
+     * @param change the change that was made
+     */
+    public void recordChange(PlainTextChange change) {
+        this.pendingChanges.add(change);
+        this.recordedVersion.incrementAndGet();
+    }
+
+    /**
+     * @return the number of changes recorded so far, used to tell whether a {@link Highlighting} is still current
+     */
+    public int getRecordedVersion() {
+        return this.recordedVersion.get();
+    }
+
+    /**
+     * Applies all recorded changes to the tree, reparses it incrementally and highlights the stale part of the
+     * given window. Stale regions outside the window are left for a later update.
+     *
+     * @param windowStart the start of the region worth highlighting now
+     * @param windowEnd   the end of the region worth highlighting now
+     * @return the highlighting of the affected region, or {@code null} if nothing needs to be restyled
+     */
+    public synchronized Highlighting update(int windowStart, int windowEnd) {
+        long startTime = System.currentTimeMillis();
+
+        // A result that never made it onto the editor leaves its region unstyled, so it has to be redone
+        if (this.unapplied != null) {
+            markStale(this.unapplied.offset(), this.unapplied.offset() + this.unapplied.spans().length());
+            this.unapplied = null;
+        }
+
+        boolean edited = false;
+        PlainTextChange change;
+        while ((change = this.pendingChanges.poll()) != null) {
+            int position = change.getPosition();
+            int removedEnd = change.getRemovalEnd();
+            int insertedEnd = change.getInsertionEnd();
+
+            int startByte = this.offsets.toByte(position);
+            int oldEndByte = this.offsets.toByte(removedEnd);
+            int newEndByte = startByte + Utf8Offsets.byteLength(change.getInserted(), 0, change.getInserted().length());
+            TSPoint startPoint = pointAt(position);
+            TSPoint oldEndPoint = advance(startPoint, change.getRemoved());
+            TSPoint newEndPoint = advance(startPoint, change.getInserted());
+            this.tree.edit(new TSInputEdit(startByte, oldEndByte, newEndByte, startPoint, oldEndPoint, newEndPoint));
+            this.text = this.text.replace(position, removedEnd, change.getInserted());
+            this.offsets.replace(position, removedEnd, change.getInserted());
+            this.parsedVersion++;
+
+            // Keep the stale regions in current coordinates, then add the edited text itself
+            shiftStaleRanges(position, removedEnd, change.getNetLength());
+            markStale(position, Math.max(insertedEnd, position + 1));
+            edited = true;
+        }
+
+        String source = this.text.toString();
+        int length = source.length();
+        if (edited) {
+            TSTree oldTree = this.tree;
+            this.tree = this.parser.parseString(oldTree, source);
+            for (TSRange range : TSTree.getChangedRanges(oldTree, this.tree)) {
+                markStale(this.offsets.toChar(range.getStartByte()), this.offsets.toChar(range.getEndByte()));
+            }
+        }
+
+        // Find the stale part of the window
+        windowStart = Math.clamp(windowStart, 0, length);
+        windowEnd = Math.clamp(windowEnd, windowStart, length);
+        int rangeStart = Integer.MAX_VALUE;
+        int rangeEnd = -1;
+        Map.Entry<Integer, Integer> first = this.staleRanges.floorEntry(windowStart);
+        if (first == null || first.getValue() <= windowStart) {
+            first = this.staleRanges.ceilingEntry(windowStart);
+        }
+
+        for (Map.Entry<Integer, Integer> entry = first;
+             entry != null && entry.getKey() < Math.max(windowEnd, windowStart + 1);
+             entry = this.staleRanges.higherEntry(entry.getKey())) {
+            rangeStart = Math.min(rangeStart, Math.max(entry.getKey(), windowStart));
+            rangeEnd = Math.max(rangeEnd, Math.min(entry.getValue(), windowEnd));
+        }
+
+        if (rangeEnd < 0)
+            return null;
+
+        rangeStart = Math.min(rangeStart, length);
+        rangeEnd = Math.clamp(rangeEnd, rangeStart, length);
+
+        // Expand to whole lines, so that a line is never left half restyled
+        while (rangeStart > 0 && source.charAt(rangeStart - 1) != '\n') {
+            rangeStart--;
+        }
+
+        while (rangeEnd < length && source.charAt(rangeEnd) != '\n') {
+            rangeEnd++;
+        }
+
+        TSNode rootNode = this.tree.getRootNode();
+        StyleSpans<Collection<String>> spans =
+            TreeSitterJavaSyntaxHighlighting.computeHighlighting(rootNode, this.offsets, rangeStart, rangeEnd);
+        // Edits at the very end can leave a stale marker just past the text, which the last line covers
+        clearStale(rangeStart, rangeEnd == length ? Integer.MAX_VALUE : Math.max(rangeEnd, rangeStart + 1));
+
+        var highlighting = new Highlighting(this.parsedVersion, rangeStart, spans);
+        this.unapplied = highlighting;
+
+        Railroad.LOGGER.debug("Incrementally highlighted {} of {} characters in {} ms",
+            rangeEnd - rangeStart, length, System.currentTimeMillis() - startTime);
+        return highlighting;
+    }
+
+    /**
+     * Marks the given highlighting as applied to the editor. Must be called for every highlighting that is applied,
+     * otherwise the next update will highlight its region again.
+     *
+     * @param highlighting the highlighting that was applied
+     */
+    public synchronized void markApplied(Highlighting highlighting) {
+        if (highlighting == this.unapplied) {
+            this.unapplied = null;
+        }
+    }
+
+    /**
+     * @return whether part of the document has not been highlighted since it last changed
+     */
+    public boolean hasStaleRanges() {
+        return this.stale || !this.pendingChanges.isEmpty();
+    }
+
+    private void markStale(int start, int end) {
+        if (start >= end)
+            return;
+
+        // Absorb every interval that overlaps or touches the new one
+        Map.Entry<Integer, Integer> before = this.staleRanges.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+
+        Map.Entry<Integer, Integer> next;
+        while ((next = this.staleRanges.ceilingEntry(start)) != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            this.staleRanges.remove(next.getKey());
+        }
+
+        this.staleRanges.put(start, end);
+        this.stale = true;
+    }
+
+    private void clearStale(int start, int end) {
+        Map.Entry<Integer, Integer> before = this.staleRanges.lowerEntry(start);
+        if (before != null && before.getValue() > start) {
+            this.staleRanges.put(before.getKey(), start);
+            if (before.getValue() > end) {
+                this.staleRanges.put(end, before.getValue());
+            }
+        }
+
+        Map.Entry<Integer, Integer> next;
+        while ((next = this.staleRanges.ceilingEntry(start)) != null && next.getKey() < end) {
+            this.staleRanges.remove(next.getKey());
+            if (next.getValue() > end) {
+                this.staleRanges.put(end, next.getValue());
+            }
+        }
+
+        this.stale = !this.staleRanges.isEmpty();
+    }
+
+    private void shiftStaleRanges(int position, int removedEnd, int delta) {
+        if (this.staleRanges.isEmpty() || this.staleRanges.lastEntry().getValue() < position)
+            return;
+
+        List<int[]> shifted = new ArrayList<>();
+        Iterator<Map.Entry<Integer, Integer>> iterator = this.staleRanges.tailMap(
+            Objects.requireNonNullElse(this.staleRanges.floorKey(position), position), true).entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Integer> entry = iterator.next();
+            shifted.add(new int[]{shift(entry.getKey(), position, removedEnd, delta),
+                shift(entry.getValue(), position, removedEnd, delta)});
+            iterator.remove();
+        }
+
+        for (int[] range : shifted) {
+            markStale(range[0], range[1]);
+        }
+
+        // Ranges inside the removed text collapse to nothing
+        this.stale = !this.staleRanges.isEmpty();
+    }
+
+    // Offsets inside the removed text collapse onto the start of the change
+    private static int shift(int offset, int position, int removedEnd, int delta) {
+        if (offset >= removedEnd)
+            return offset + delta;
+
+        return Math.min(offset, position);
+    }
+
+    // Columns are in bytes, like the offsets of the tree
+    private TSPoint pointAt(int position) {
+        int row = this.text.lineOf(position);
+        return new TSPoint(row, this.offsets.toByte(position) - this.offsets.toByte(this.text.lineStart(row)));
+    }
+
+    private static TSPoint advance(TSPoint point, String text) {
+        int lastNewline = text.lastIndexOf('\n');
+        if (lastNewline == -1)
+            return new TSPoint(point.getRow(), point.getColumn() + Utf8Offsets.byteLength(text, 0, text.length()));
+
+        int newlines = (int) text.chars().filter(character -> character == '\n').count();
+        return new TSPoint(point.getRow() + newlines, Utf8Offsets.byteLength(text, lastNewline + 1, text.length()));
+    }
+
+    /**
+     * Style spans for part of a document.
+     *
+     * @param version the number of recorded changes the spans reflect
+     * @param offset  the offset the spans start at
+     * @param spans   the style spans
+     */
+    public record Highlighting(int version, int offset, StyleSpans<Collection<String>> spans) {
+    }
+}
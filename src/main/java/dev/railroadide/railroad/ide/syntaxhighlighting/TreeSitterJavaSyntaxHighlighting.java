@@ -1,122 +1,127 @@
 package dev.railroadide.railroad.ide.syntaxhighlighting;
 
+import dev.railroadide.railroad.AppResources;
 import dev.railroadide.railroad.Railroad;
 import org.fxmisc.richtext.model.StyleSpans;
 import org.fxmisc.richtext.model.StyleSpansBuilder;
-import org.treesitter.TSNode;
-import org.treesitter.TSParser;
-import org.treesitter.TSTreeCursor;
-import org.treesitter.TreeSitterJava;
-
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
-
+import org.treesitter.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Highlights Java with the tree-sitter query in {@code queries/java-highlights.scm}, whose capture names are the
+ * style classes to apply. The query is compiled once and run only over the range being highlighted.
+ */
 public class TreeSitterJavaSyntaxHighlighting {
+    private static final TSLanguage LANGUAGE = new TreeSitterJava();
+    private static final TSQuery HIGHLIGHTS = new TSQuery(LANGUAGE, readQuery("queries/java-highlights.scm"));
+    // Indexed by capture id, so that each capture is styled without looking up its name
+    private static final List<Collection<String>> CAPTURE_STYLES = captureStyles(HIGHLIGHTS);
+
     public static StyleSpans<Collection<String>> computeHighlighting(String text) {
         long start = System.currentTimeMillis();
 
-        var highlighter = new SyntaxHighlighter(text);
-        highlighter.traverseTree(new TSTreeCursor(highlighter.rootNode), highlighter.rootNode);
+        var parser = new TSParser();
+        parser.setLanguage(LANGUAGE);
+        TSNode rootNode = parser.parseString(null, text).getRootNode();
 
-        var styles = highlighter.spansBuilder.create();
+        var styles = computeHighlighting(rootNode, Utf8Offsets.of(text), 0, text.length());
         Railroad.LOGGER.debug("Computed highlighting in {} ms", System.currentTimeMillis() - start);
         return styles;
     }
 
+    /**
+     * Computes the highlighting of an already parsed tree between the given offsets.
+     *
+     * @param rootNode   the root node of the parsed tree
+     * @param offsets    maps the character offsets of the parsed text to the byte offsets of the tree
+     * @param rangeStart the offset to start highlighting at
+     * @param rangeEnd   the offset to stop highlighting at
+     * @return style spans covering exactly {@code rangeEnd - rangeStart} characters, starting at {@code rangeStart}
+     */
+    static StyleSpans<Collection<String>> computeHighlighting(TSNode rootNode, Utf8Offsets offsets, int rangeStart,
+                                                              int rangeEnd) {
+        List<Capture> captures = new ArrayList<>();
+        var cursor = new TSQueryCursor();
+        cursor.setByteRange(offsets.toByte(rangeStart), offsets.toByte(rangeEnd));
+        cursor.exec(HIGHLIGHTS, rootNode);
+
+        var match = new TSQueryMatch();
+        while (cursor.nextMatch(match)) {
+            for (TSQueryCapture capture : match.getCaptures()) {
+                TSNode node = capture.getNode();
+                captures.add(new Capture(offsets.toChar(node.getStartByte()), offsets.toChar(node.getEndByte()),
+                    match.getPatternIndex(), capture.getIndex()));
+            }
+        }
+
+        // Matches come out ordered by their first capture only, and the earliest pattern wins a contested node
+        captures.sort(Comparator.comparingInt(Capture::start).thenComparingInt(Capture::pattern));
+
+        var highlighter = new SyntaxHighlighter(rangeStart, rangeEnd);
+        for (Capture capture : captures) {
+            highlighter.add(CAPTURE_STYLES.get(capture.id()), capture.start(), capture.end());
+        }
+
+        return highlighter.finish();
+    }
+
+    private static String readQuery(String path) {
+        try (InputStream input = AppResources.getResourceAsStream(path)) {
+            if (input == null)
+                throw new IllegalStateException("Query resource " + path + " is missing");
+
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Failed to read query " + path, exception);
+        }
+    }
+
+    private static List<Collection<String>> captureStyles(TSQuery query) {
+        List<Collection<String>> styles = new ArrayList<>(query.getCaptureCount());
+        for (int id = 0; id < query.getCaptureCount(); id++) {
+            styles.add(Collections.singleton(query.getCaptureNameForId(id)));
+        }
+
+        return List.copyOf(styles);
+    }
+
+    private record Capture(int start, int end, int pattern, int id) {
+    }
+
     private static class SyntaxHighlighter {
         private final StyleSpansBuilder<Collection<String>> spansBuilder = new StyleSpansBuilder<>();
-        private final String text;
-        private final TSNode rootNode;
-        private final List<TSNode> nodes = new ArrayList<>();
+        private final int rangeEnd;
         private int currentPosition;
 
-        public SyntaxHighlighter(String text) {
-            this.text = text;
+        public SyntaxHighlighter(int rangeStart, int rangeEnd) {
+            this.rangeEnd = rangeEnd;
+            this.currentPosition = rangeStart;
+        }
+
+        // Captures overlapping text that is already styled only style the part after it
+        public void add(Collection<String> style, int start, int end) {
+            start = Math.max(start, this.currentPosition);
+            end = Math.min(end, this.rangeEnd);
+            if (end <= start)
+                return;
 
-            var parser = new TSParser();
-            parser.setLanguage(new TreeSitterJava());
+            if (start > this.currentPosition) {
+                spansBuilder.add(Collections.emptyList(), start - this.currentPosition);
+            }
 
-            var tree = parser.parseString(null, text);
-            this.rootNode = tree.getRootNode();
+            spansBuilder.add(style, end - start);
+            this.currentPosition = end;
         }
 
-        public void traverseTree(TSTreeCursor cursor, TSNode node) {
-            cursor = cursor == null ? new TSTreeCursor(node) : cursor;
-
-            do {
-                TSNode currentNode = cursor.currentNode();
-                String type = currentNode.getType();
-                int start = currentNode.getStartByte();
-                int end = currentNode.getEndByte();
-
-                if (this.currentPosition < start) {
-                    spansBuilder.add(Collections.emptyList(), start - this.currentPosition);
-                }
-
-                if (!cursor.gotoFirstChild()) {
-                    nodes.add(currentNode);
-
-                    //String atNode = text.substring(start, end);
-                    //System.out.println(type + ": " + atNode);
-
-                    typeSwitch:
-                    switch (type) {
-                        case "line_comment" -> spansBuilder.add(Collections.singleton("comment"), end - start);
-                        case "decimal_integer_literal", "decimal_floating_point_literal" ->
-                            spansBuilder.add(Collections.singleton("number"), end - start);
-                        case "identifier" -> {
-                            // check to see if the identifier is a class name
-
-                            int i = nodes.size() - 1;
-                            while (i >= 0) {
-                                TSTreeCursor copy = cursor.copy();
-                                if (i == nodes.size() - 1) {
-                                    copy.gotoParent();
-                                    copy.gotoNextSibling();
-                                    copy.gotoFirstChild();
-                                    TSNode nextNode = copy.currentNode();
-                                    if (nextNode == null || nextNode.getType().equals(".")) {
-                                        break;
-                                    }
-                                }
-
-                                TSNode n = nodes.get(i);
-                                if (n.getType().equals("identifier") || n.getType().equals(".")) {
-                                    i--;
-                                } else if (n.getType().equals("import")) {
-                                    spansBuilder.add(Collections.singleton("type"), end - start);
-                                    break typeSwitch;
-                                } else {
-                                    break;
-                                }
-                            }
-
-                            spansBuilder.add(Collections.singleton("name"), end - start);
-                        }
-                        case "type_identifier" -> spansBuilder.add(Collections.singleton("type"), end - start);
-                        case "package" -> spansBuilder.add(Collections.singleton("package"), end - start);
-                        case "public", "class", "implements", "static", "final", "private", "protected", "return",
-                             "void_type", "int_type", "double_type", "float_type", "short_type", "byte_type",
-                             "long_type", "boolean_type", "char_type", "instanceof", "if", "for", "do", "while",
-                             "new" -> spansBuilder.add(Collections.singleton("modifier"), end - start);
-                        case "import" -> spansBuilder.add(Collections.singleton("import"), end - start);
-                        case "string_fragment", "\"" -> spansBuilder.add(Collections.singleton("string"), end - start);
-                        default -> spansBuilder.add(Collections.emptyList(), end - start);
-                    }
-                } else {
-                    cursor.gotoParent();
-                }
-
-                this.currentPosition = end;
-
-                // Recursively traverse children
-                if (cursor.gotoFirstChild()) {
-                    traverseTree(cursor, currentNode);
-                    cursor.gotoParent();
-                }
-            } while (cursor.gotoNextSibling());
+        public StyleSpans<Collection<String>> finish() {
+            // Always add the trailing gap (even if empty) so that the builder has at least one span
+            spansBuilder.add(Collections.emptyList(), Math.max(0, this.rangeEnd - this.currentPosition));
+            return spansBuilder.create();
         }
     }
 }
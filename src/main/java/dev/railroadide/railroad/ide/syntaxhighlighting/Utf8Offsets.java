@@ -0,0 +1,133 @@
+package dev.railroadide.railroad.ide.syntaxhighlighting;
+
+import java.util.Arrays;
+
+/**
+ * Maps the UTF-16 offsets of a Java string to the UTF-8 byte offsets tree-sitter works in, and back. Only the
+ * characters that take more than one byte are stored, so for plain ASCII source every mapping is the identity and
+ * costs nothing to keep up to date.
+ */
+final class Utf8Offsets {
+    // Offsets of the characters that take more than one byte, ascending
+    private int[] offsets;
+    // The extra bytes taken by the characters up to and including each of those
+    private int[] extraBytes;
+
+    private Utf8Offsets(int[] offsets, int[] extraBytes) {
+        this.offsets = offsets;
+        this.extraBytes = extraBytes;
+    }
+
+    public static Utf8Offsets of(CharSequence text) {
+        var offsets = new Utf8Offsets(new int[0], new int[0]);
+        offsets.replace(0, 0, text);
+        return offsets;
+    }
+
+    /**
+     * @param charOffset an offset in characters
+     * @return the same offset in UTF-8 bytes
+     */
+    public int toByte(int charOffset) {
+        int before = countBelow(charOffset);
+        return charOffset + (before == 0 ? 0 : this.extraBytes[before - 1]);
+    }
+
+    /**
+     * @param byteOffset an offset in UTF-8 bytes, normally at the boundary of a character
+     * @return the same offset in characters
+     */
+    public int toChar(int byteOffset) {
+        // Count the multi-byte characters that end at or before the offset
+        int low = 0;
+        int high = this.offsets.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.offsets[middle] + 1 + this.extraBytes[middle] <= byteOffset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return byteOffset - (low == 0 ? 0 : this.extraBytes[low - 1]);
+    }
+
+    /**
+     * Updates the mapping for an edit of the text it was built from.
+     *
+     * @param start    the start of the replaced characters
+     * @param end      the end of the replaced characters
+     * @param inserted the characters that replace them
+     */
+    public void replace(int start, int end, CharSequence inserted) {
+        int kept = countBelow(start);
+        int following = countBelow(end);
+        int delta = inserted.length() - (end - start);
+
+        int[] insertedOffsets = new int[inserted.length()];
+        int insertedCount = 0;
+        for (int index = 0; index < inserted.length(); index++) {
+            if (extraBytes(inserted.charAt(index)) > 0) {
+                insertedOffsets[insertedCount++] = start + index;
+            }
+        }
+
+        if (insertedCount == 0 && kept == following && (delta == 0 || following == this.offsets.length))
+            return;
+
+        int[] newOffsets = new int[kept + insertedCount + this.offsets.length - following];
+        System.arraycopy(this.offsets, 0, newOffsets, 0, kept);
+        System.arraycopy(insertedOffsets, 0, newOffsets, kept, insertedCount);
+        for (int index = following; index < this.offsets.length; index++) {
+            newOffsets[kept + insertedCount + index - following] = this.offsets[index] + delta;
+        }
+
+        // Only the offsets moved, so the character at each one is found from its old position or the insertion
+        int[] newExtraBytes = Arrays.copyOf(this.extraBytes, newOffsets.length);
+        int total = kept == 0 ? 0 : this.extraBytes[kept - 1];
+        for (int index = kept; index < newOffsets.length; index++) {
+            int extra;
+            if (index < kept + insertedCount) {
+                extra = extraBytes(inserted.charAt(newOffsets[index] - start));
+            } else {
+                int old = index - kept - insertedCount + following;
+                extra = this.extraBytes[old] - (old == 0 ? 0 : this.extraBytes[old - 1]);
+            }
+
+            total += extra;
+            newExtraBytes[index] = total;
+        }
+
+        this.offsets = newOffsets;
+        this.extraBytes = newExtraBytes;
+    }
+
+    /**
+     * @return the number of UTF-8 bytes taken by part of some text
+     */
+    public static int byteLength(CharSequence text, int start, int end) {
+        int length = end - start;
+        for (int index = start; index < end; index++) {
+            length += extraBytes(text.charAt(index));
+        }
+
+        return length;
+    }
+
+    // Each half of a surrogate pair counts for two of the pair's four bytes
+    private static int extraBytes(char character) {
+        if (character < 0x80)
+            return 0;
+
+        if (character < 0x800 || Character.isSurrogate(character))
+            return 1;
+
+        return 2;
+    }
+
+    private int countBelow(int charOffset) {
+        int index = Arrays.binarySearch(this.offsets, charOffset);
+        return index >= 0 ? index : -index - 1;
+    }
+}
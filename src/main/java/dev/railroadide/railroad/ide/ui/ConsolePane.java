@@ -1,9 +1,20 @@
 package dev.railroadide.railroad.ide.ui;
 
+import dev.railroadide.railroad.ide.classpath.ProjectClasspathManager;
+import dev.railroadide.railroad.project.Project;
+import dev.railroadide.railroad.utility.javafx.TextAreaOutputStream;
 import javafx.scene.control.TextArea;
+import lombok.Getter;
 
+/**
+ * Shows the output of the Gradle builds run for a project, such as the ones that resolve its classpath.
+ */
+@Getter
 public class ConsolePane extends TextArea {
-    public ConsolePane() {
+    private final TextAreaOutputStream outputStream = new TextAreaOutputStream(this);
+
+    public ConsolePane(Project project) {
         setEditable(false);
+        ProjectClasspathManager.setBuildOutput(project, this.outputStream);
     }
-}
\ No newline at end of file
+}
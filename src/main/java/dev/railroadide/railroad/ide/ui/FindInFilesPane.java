@@ -0,0 +1,293 @@
+package dev.railroadide.railroad.ide.ui;
+
+import dev.railroadide.core.ui.RRBorderPane;
+import dev.railroadide.core.ui.RRVBox;
+import dev.railroadide.core.ui.localized.LocalizedTextField;
+import dev.railroadide.core.ui.localized.LocalizedTooltip;
+import dev.railroadide.railroad.Railroad;
+import dev.railroadide.railroad.Services;
+import dev.railroadide.railroad.ide.indexing.TrigramIndex;
+import dev.railroadide.railroad.ide.projectexplorer.PathItem;
+import dev.railroadide.railroad.ide.projectexplorer.ProjectExplorerPane;
+import dev.railroadide.railroad.localization.L18n;
+import dev.railroadide.railroad.project.Project;
+import dev.railroadide.railroad.utility.FileUtils;
+import dev.railroadide.railroad.utility.TaskScheduler;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.*;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
+import org.jetbrains.annotations.Nullable;
+import org.reactfx.EventSource;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Finds text or regular expressions in every file of a project using its {@link TrigramIndex}.
+ * <p>
+ * Results are shown file by file as the search finds them. They are handed to the FX thread in batches, so that a
+ * query matching thousands of files does not flood it with one update per file.
+ */
+public class FindInFilesPane extends RRVBox {
+    private static final long SEARCH_DELAY_MILLIS = 250;
+    private static final int RESULT_LIMIT = 2_000;
+
+    private final Project project;
+    private final RRBorderPane mainPane;
+    private final TrigramIndex index;
+    private final TaskScheduler.TaskOwner tasks = TaskScheduler.newOwner("find in files");
+    private final TextField queryField = new LocalizedTextField("railroad.ide.find_in_files.query");
+    private final ToggleButton regexToggle = new ToggleButton(".*");
+    private final ToggleButton caseToggle = new ToggleButton("Aa");
+    private final Label statusLabel = new Label();
+    private final TreeView<Result> resultsView = new TreeView<>(new TreeItem<>());
+    private final EventSource<TrigramIndex.Query> queries = new EventSource<>();
+    private final ConcurrentLinkedQueue<Batch> pendingResults = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private Future<?> currentSearch;
+    private long generation;
+    private int fileCount;
+    private int matchCount;
+
+    public FindInFilesPane(Project project, RRBorderPane mainPane) {
+        this.project = project;
+        this.mainPane = mainPane;
+        this.index = TrigramIndex.forProject(project);
+        setSpacing(0);
+        getStyleClass().add("rr-find-in-files");
+
+        this.regexToggle.setTooltip(new LocalizedTooltip("railroad.ide.find_in_files.regex"));
+        this.caseToggle.setTooltip(new LocalizedTooltip("railroad.ide.find_in_files.case_sensitive"));
+
+        var header = new HBox(4, this.queryField, this.regexToggle, this.caseToggle, this.statusLabel);
+        header.setPadding(new Insets(6, 8, 6, 8));
+        header.setAlignment(Pos.CENTER_LEFT);
+        HBox.setHgrow(this.queryField, Priority.ALWAYS);
+
+        this.resultsView.setShowRoot(false);
+        this.resultsView.getStyleClass().add("rr-tree-view");
+        this.resultsView.setCellFactory(view -> new ResultCell());
+        this.resultsView.setOnMouseClicked(event -> {
+            if (event.getButton() == MouseButton.PRIMARY && event.getClickCount() == 2) {
+                openSelected();
+            }
+        });
+        this.resultsView.setOnKeyReleased(event -> {
+            if (event.getCode() == KeyCode.ENTER) {
+                event.consume();
+                openSelected();
+            }
+        });
+        VBox.setVgrow(this.resultsView, Priority.ALWAYS);
+
+        this.queryField.textProperty().addListener((observable, oldValue, newValue) -> pushQuery());
+        this.regexToggle.selectedProperty().addListener((observable, oldValue, newValue) -> pushQuery());
+        this.caseToggle.selectedProperty().addListener((observable, oldValue, newValue) -> pushQuery());
+        // Only search once the user pauses typing, and only for the latest query
+        this.queries.successionEnds(Duration.ofMillis(SEARCH_DELAY_MILLIS)).subscribe(this::search);
+
+        getChildren().addAll(header, this.resultsView);
+    }
+
+    /**
+     * Cancels the search in progress, if any. Called when the window showing this pane closes.
+     */
+    public void dispose() {
+        this.tasks.close();
+    }
+
+    private TrigramIndex.Query currentQuery() {
+        return new TrigramIndex.Query(this.queryField.getText(), this.regexToggle.isSelected(),
+            this.caseToggle.isSelected());
+    }
+
+    private void pushQuery() {
+        this.queries.push(currentQuery());
+    }
+
+    private void search(TrigramIndex.Query query) {
+        if (!query.equals(currentQuery()))
+            return;
+
+        cancelSearch();
+        if (query.text().isEmpty()) {
+            this.statusLabel.setText("");
+            return;
+        }
+
+        try {
+            query.compile();
+        } catch (PatternSyntaxException exception) {
+            this.statusLabel.setText(L18n.localize("railroad.ide.find_in_files.invalid_regex"));
+            return;
+        }
+
+        long generation = this.generation;
+        this.statusLabel.setText(L18n.localize(this.index.getLoaded().isDone() ?
+            "railroad.ide.find_in_files.searching" : "railroad.ide.find_in_files.indexing"));
+        this.currentSearch = this.tasks.submit(TaskScheduler.Lane.IO, () -> {
+            try {
+                this.index.getLoaded().get();
+            } catch (InterruptedException exception) {
+                return;
+            } catch (ExecutionException exception) {
+                Railroad.LOGGER.error("Failed to load the text index of {}", this.project.getAlias(), exception);
+            }
+
+            this.index.search(query, RESULT_LIMIT, matches -> publish(new Batch(generation, matches)));
+            // Sent through the same queue, so that it arrives after every result
+            publish(new Batch(generation, null));
+        });
+    }
+
+    // Must be called on the FX thread; results of earlier searches still in flight are dropped by their generation
+    private void cancelSearch() {
+        if (this.currentSearch != null) {
+            this.currentSearch.cancel(true);
+            this.currentSearch = null;
+        }
+
+        this.generation++;
+        this.fileCount = 0;
+        this.matchCount = 0;
+        this.resultsView.getRoot().getChildren().clear();
+    }
+
+    private void publish(Batch batch) {
+        this.pendingResults.add(batch);
+        if (this.flushScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::flushResults);
+        }
+    }
+
+    private void flushResults() {
+        this.flushScheduled.set(false);
+        List<TreeItem<Result>> fileItems = new ArrayList<>();
+        boolean finished = false;
+        Batch batch;
+        while ((batch = this.pendingResults.poll()) != null) {
+            if (batch.generation() != this.generation)
+                continue;
+
+            if (batch.matches() == null) {
+                finished = true;
+                continue;
+            }
+
+            TrigramIndex.FileMatches matches = batch.matches();
+            var fileItem = new TreeItem<>(new Result(matches.file(), null, matches.matches().size()));
+            for (TrigramIndex.Match match : matches.matches()) {
+                fileItem.getChildren().add(new TreeItem<>(new Result(matches.file(), match, 1)));
+            }
+
+            fileItem.setExpanded(true);
+            fileItems.add(fileItem);
+            this.fileCount++;
+            this.matchCount += matches.matches().size();
+        }
+
+        if (fileItems.isEmpty() && !finished)
+            return;
+
+        this.resultsView.getRoot().getChildren().addAll(fileItems);
+        this.statusLabel.setText(L18n.localize(finished ?
+                (this.matchCount >= RESULT_LIMIT ? "railroad.ide.find_in_files.results_limited" : "railroad.ide.find_in_files.results") :
+                "railroad.ide.find_in_files.searching_results",
+            this.matchCount, this.fileCount));
+    }
+
+    private void openSelected() {
+        TreeItem<Result> selected = this.resultsView.getSelectionModel().getSelectedItem();
+        if (selected == null)
+            return;
+
+        Result result = selected.getValue();
+        ProjectExplorerPane.openFile(this.project, new PathItem(result.file(), false), this.mainPane);
+        TextEditorPane editor = Services.DOCUMENT_EDITOR_STATE.getActiveEditorPane();
+        if (result.match() == null || editor == null || !editor.getFilePath().equals(result.file()))
+            return;
+
+        TrigramIndex.Match match = result.match();
+        if (match.line() < editor.getParagraphs().size()) {
+            editor.selectRange(match.line(), match.column(), match.line(), match.column() + match.length());
+            editor.requestFollowCaret();
+            editor.requestFocus();
+        }
+    }
+
+    private String relativize(Path file) {
+        Path projectPath = this.project.getPath();
+        return file.startsWith(projectPath) ? projectPath.relativize(file).toString() : file.toString();
+    }
+
+    /**
+     * A row of the results: a file, or one of its matches.
+     *
+     * @param file  the file
+     * @param match the match, or {@code null} for the row of the file itself
+     * @param count the number of matches in the file
+     */
+    private record Result(Path file, @Nullable TrigramIndex.Match match, int count) {
+    }
+
+    /**
+     * The results of one file, or the end of a search when the matches are {@code null}.
+     */
+    private record Batch(long generation, @Nullable TrigramIndex.FileMatches matches) {
+    }
+
+    private class ResultCell extends TreeCell<Result> {
+        @Override
+        protected void updateItem(Result item, boolean empty) {
+            super.updateItem(item, empty);
+            setText(null);
+            if (empty || item == null) {
+                setGraphic(null);
+                return;
+            }
+
+            TrigramIndex.Match match = item.match();
+            if (match == null) {
+                var name = new Text(relativize(item.file()) + "  ");
+                var count = new Text(String.valueOf(item.count()));
+                count.getStyleClass().add("rr-find-count");
+                var graphic = new HBox(4, FileUtils.getIcon(item.file(), false), new TextFlow(name, count));
+                graphic.setAlignment(Pos.CENTER_LEFT);
+                setGraphic(graphic);
+                return;
+            }
+
+            String line = match.lineText();
+            int start = Math.min(match.column(), line.length());
+            int end = Math.min(start + match.length(), line.length());
+            // Leading indentation only pushes the match out of view
+            int indent = 0;
+            while (indent < start && Character.isWhitespace(line.charAt(indent))) {
+                indent++;
+            }
+
+            var number = new Text((match.line() + 1) + ": ");
+            number.getStyleClass().add("rr-find-line-number");
+            var matched = new Text(line.substring(start, end));
+            matched.getStyleClass().add("rr-find-match");
+            matched.setStyle("-fx-font-weight: bold;");
+            setGraphic(new TextFlow(number, new Text(line.substring(indent, start)), matched,
+                new Text(line.substring(end))));
+        }
+    }
+}
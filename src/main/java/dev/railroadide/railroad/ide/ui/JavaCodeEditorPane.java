@@ -2,19 +2,21 @@ package dev.railroadide.railroad.ide.ui;
 
 import dev.railroadide.core.ui.RRListView;
 import dev.railroadide.railroad.Railroad;
-import dev.railroadide.railroad.ide.classparser.stub.ClassStub;
-import dev.railroadide.railroad.ide.indexing.Autocomplete;
-import dev.railroadide.railroad.ide.indexing.Indexes;
-import dev.railroadide.railroad.ide.syntaxhighlighting.TreeSitterJavaSyntaxHighlighting;
+import dev.railroadide.railroad.ide.analysis.JavaDocumentAnalysis;
+import dev.railroadide.railroad.ide.classpath.CompilationUnitResolver;
+import dev.railroadide.railroad.ide.classpath.ProjectClasspathManager;
+import dev.railroadide.railroad.ide.diagnostics.DiagnosticIndex;
+import dev.railroadide.railroad.ide.diagnostics.ProblemDiagnostic;
+import dev.railroadide.railroad.ide.indexing.ProjectSymbolIndex;
+import dev.railroadide.railroad.ide.indexing.StandardLibraryIndex;
+import dev.railroadide.railroad.ide.syntaxhighlighting.IncrementalJavaHighlighter;
 import dev.railroadide.railroad.project.Project;
-import dev.railroadide.railroad.utility.ShutdownHooks;
+import dev.railroadide.railroad.utility.DocumentSnapshot;
+import dev.railroadide.railroad.utility.TaskScheduler;
 import io.github.palexdev.mfxresources.fonts.MFXFontIcon;
 import io.github.palexdev.mfxresources.fonts.fontawesome.FontAwesomeSolid;
 import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
-import javafx.collections.FXCollections;
-import javafx.collections.MapChangeListener;
-import javafx.collections.ObservableMap;
 import javafx.concurrent.Task;
 import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
@@ -29,44 +31,62 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.TextAlignment;
 import javafx.stage.Popup;
 import javafx.util.Pair;
-import org.eclipse.jdt.core.JavaCore;
-import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.core.dom.*;
 import org.fxmisc.richtext.event.MouseOverTextEvent;
-import org.fxmisc.richtext.model.StyleSpans;
 import org.jetbrains.annotations.Nullable;
+import org.reactfx.EventStream;
+import org.reactfx.EventStreams;
 
 import javax.tools.Diagnostic;
-import javax.tools.DiagnosticCollector;
 import javax.tools.JavaFileObject;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 public class JavaCodeEditorPane extends TextEditorPane {
-    private final ExecutorService executor0 = Executors.newFixedThreadPool(2);
-    private final ObservableMap<Diagnostic<? extends JavaFileObject>, Popup> errors = FXCollections.observableHashMap();
+    private static final List<String> MARKER_STYLE_CLASSES = List.of("error", "warning");
+    private static final String BRACKET_STYLE_CLASS = "bracket-highlight";
+    private static final Map<Character, Character> BRACKET_PAIRS = Map.of(
+        '(', ')',
+        '{', '}',
+        '[', ']',
+        ')', '(',
+        '}', '{',
+        ']', '['
+    );
+    // Documents longer than this are only highlighted around the visible paragraphs
+    private static final int VIEWPORT_HIGHLIGHT_THRESHOLD = 200_000;
+    private static final int VIEWPORT_MARGIN_PARAGRAPHS = 100;
+
     private final Map<Integer, Diagnostic.Kind> lineToSeverity = new HashMap<>();
+    private final Popup diagnosticPopup = new Popup();
+    private DiagnosticIndex diagnostics = DiagnosticIndex.EMPTY;
+    private final int[] bracketHighlights = {-1, -1};
 
-    private final List<ClassStub> stubs = Indexes.scanStandardLibrary();
-    private final Autocomplete autocomplete = new Autocomplete(stubs);
+    private final IncrementalJavaHighlighter highlighter = new IncrementalJavaHighlighter(getText());
     private final AtomicReference<Popup> autoCompletePopup = new AtomicReference<>(null);
     private final List<String> fullSuggestions = new ArrayList<>();
     private int dotPosition = -1;
     private ChangeListener<String> textListener;
 
     private final Project project;
+    private final JavaDocumentAnalysis analysis;
 
     public JavaCodeEditorPane(Project project, Path item) {
         super(item);
 
         this.project = project;
+        this.analysis = new JavaDocumentAnalysis(project, item);
+
+        // Start loading the shared indexes and the project classpath early so they are ready by the time
+        // completion is first requested
+        StandardLibraryIndex.getAutocomplete();
+        ProjectClasspathManager.getClasspath(project);
+        ProjectSymbolIndex.forProject(project);
 
         marginErrors();
 
@@ -74,87 +94,101 @@ public class JavaCodeEditorPane extends TextEditorPane {
         errorHighlighting();
         codeCompletion();
         highlightBracketPairs();
-
-        ShutdownHooks.addHook(executor0::shutdown);
     }
 
     private void highlightBracketPairs() {
-        caretPositionProperty().addListener((observable, oldValue, newValue) -> {
-            String text = getText();
-            if (text.isBlank() || newValue < 0 || newValue > text.length())
-                return;
+        // Keep the highlighted positions in step with edits so the right characters get cleared later
+        plainTextChanges().subscribe(change -> {
+            for (int index = 0; index < this.bracketHighlights.length; index++) {
+                int position = this.bracketHighlights[index];
+                if (position >= change.getRemovalEnd()) {
+                    this.bracketHighlights[index] = position + change.getNetLength();
+                } else if (position >= change.getPosition()) {
+                    this.bracketHighlights[index] = -1;
+                }
+            }
+        });
 
-            Map<Character, Character> bracketPairs = Map.of(
-                '(', ')',
-                '{', '}',
-                '[', ']',
-                ')', '(',
-                '}', '{',
-                ']', '['
-            );
-
-            char currentChar = newValue < text.length() ? text.charAt(newValue) : '\0';
-            if (!bracketPairs.containsKey(currentChar) && newValue > 0) {
-                currentChar = text.charAt(newValue - 1);
-                newValue--;
+        caretPositionProperty().addListener((observable, oldValue, newValue) -> {
+            int caret = newValue;
+            int paragraph = getCurrentParagraph();
+            int column = getCaretColumn();
+            String line = getText(paragraph);
+
+            char currentChar = column < line.length() ? line.charAt(column) : '\0';
+            if (!BRACKET_PAIRS.containsKey(currentChar) && column > 0) {
+                column--;
+                caret--;
+                currentChar = line.charAt(column);
             }
 
-            if (!bracketPairs.containsKey(currentChar)) {
-                clearBracketHighlights();
+            if (!BRACKET_PAIRS.containsKey(currentChar)) {
+                setBracketHighlights(-1, -1);
                 return;
             }
 
             boolean forward = (currentChar == '(' || currentChar == '{' || currentChar == '[');
-
-            highlightMatchingBracket(text, newValue, currentChar, bracketPairs.get(currentChar), forward);
+            int matchPos = findMatchingBracketPosition(paragraph, column, currentChar, BRACKET_PAIRS.get(currentChar), forward);
+            if (matchPos == -1) {
+                setBracketHighlights(-1, -1);
+            } else {
+                setBracketHighlights(caret, matchPos);
+            }
         });
     }
 
-    private void highlightMatchingBracket(String text, int position, char currentChar, char matchingBracket, boolean lookForward) {
-        int matchPos = findMatchingBracketPosition(text, position, currentChar, matchingBracket, lookForward);
-        clearBracketHighlights();
+    // Walks paragraph by paragraph so the whole document never has to be copied into a string
+    private int findMatchingBracketPosition(int paragraph, int column, char open, char close, boolean forward) {
+        int balance = 0;
+        int paragraphs = getParagraphs().size();
+        String line = getText(paragraph);
+        int index = column;
+        while (true) {
+            if (forward ? index >= line.length() : index < 0) {
+                paragraph += forward ? 1 : -1;
+                if (paragraph < 0 || paragraph >= paragraphs)
+                    return -1;
+
+                line = getText(paragraph);
+                index = forward ? 0 : line.length() - 1;
+                continue;
+            }
+
+            char c = line.charAt(index);
+            if (c == open)
+                balance++;
+            else if (c == close)
+                balance--;
+
+            if (balance == 0)
+                return getAbsolutePosition(paragraph, index);
 
-        if (matchPos != -1) {
-            setStyleClass(position, position + 1, "bracket-highlight");
-            setStyleClass(matchPos, matchPos + 1, "bracket-highlight");
+            index += forward ? 1 : -1;
         }
     }
 
-    private int findMatchingBracketPosition(String text, int pos, char open, char close, boolean forward) {
-        int balance = 0;
-        int length = text.length();
-
-        if (forward) {
-            for (int index = pos; index < length; index++) {
-                char c = text.charAt(index);
-                if (c == open)
-                    balance++;
-                else if (c == close)
-                    balance--;
-
-                if (balance == 0)
-                    return index;
-            }
-        } else {
-            for (int index = pos; index >= 0; index--) {
-                char c = text.charAt(index);
-                if (c == open)
-                    balance--;
-                else if (c == close)
-                    balance++;
-
-                if (balance == 0)
-                    return index;
+    // Only the previously and newly highlighted characters are restyled
+    private void setBracketHighlights(int first, int second) {
+        if (this.bracketHighlights[0] == first && this.bracketHighlights[1] == second)
+            return;
+
+        for (int position : this.bracketHighlights) {
+            if (position >= 0) {
+                updateStyles(position, position + 1, styles -> without(styles, BRACKET_STYLE_CLASS));
             }
         }
 
-        return -1;
+        this.bracketHighlights[0] = first;
+        this.bracketHighlights[1] = second;
+        applyBracketHighlights(0, getLength());
     }
 
-    private void clearBracketHighlights() {
-        int length = getLength();
-        setStyle(0, length, Collections.emptyList());
-        applyHighlighting(computeHighlighting(getText()));
+    private void applyBracketHighlights(int start, int end) {
+        for (int position : this.bracketHighlights) {
+            if (position >= start && position < end) {
+                updateStyles(position, position + 1, styles -> with(styles, BRACKET_STYLE_CLASS));
+            }
+        }
     }
 
     private void marginErrors() {
@@ -187,7 +221,7 @@ public class JavaCodeEditorPane extends TextEditorPane {
                 grid.add(icon, 1, 0);
 
                 // Find the diagnostic message for this line
-                String message = errors.keySet().stream()
+                String message = diagnostics.all().stream()
                     .filter(d -> d.getLineNumber() == line + 1 &&
                         (d.getKind() == kind || (kind == Diagnostic.Kind.WARNING &&
                             d.getKind() == Diagnostic.Kind.MANDATORY_WARNING)))
@@ -209,14 +243,10 @@ public class JavaCodeEditorPane extends TextEditorPane {
     private void codeCompletion() {
         plainTextChanges()
             .successionEnds(Duration.ofMillis(500))
-            .retainLatestUntilLater(executor0)
-            .filter(change -> !change.getInserted().equals(change.getRemoved()))
-            .subscribe(change -> {
-                String inserted = change.getInserted();
-                if (inserted.endsWith(".")) {
-                    showAutoComplete(change.getPosition());
-                }
-            });
+            .filter(change -> !change.getInserted().equals(change.getRemoved()) && change.getInserted().endsWith("."))
+            .map(change -> new Pair<>(change.getPosition(), getSnapshot()))
+            .retainLatestUntilLater(this.tasks.executor(TaskScheduler.Lane.INTERACTIVE))
+            .subscribe(request -> showAutoComplete(request.getKey(), request.getValue()));
 
         // if the user clicks outside the popup, hide it
         setOnMouseClicked(event -> {
@@ -226,8 +256,7 @@ public class JavaCodeEditorPane extends TextEditorPane {
         });
     }
 
-    private @Nullable Pair<Integer, Integer> getIdentifierRangeBeforeDot(int dotPosition) {
-        String text = getText();
+    private static @Nullable Pair<Integer, Integer> getIdentifierRangeBeforeDot(CharSequence text, int dotPosition) {
         if (dotPosition < 0 || text.charAt(dotPosition) != '.') {
             return null;
         }
@@ -240,36 +269,22 @@ public class JavaCodeEditorPane extends TextEditorPane {
         return new Pair<>(start, dotPosition - start + 1);
     }
 
-    private void showAutoComplete(int position) {
-        ASTParser parser = ASTParser.newParser(AST.JLS21);
-        parser.setSource(getText().toCharArray());
-        parser.setKind(ASTParser.K_COMPILATION_UNIT);
-        parser.setResolveBindings(true);
-        parser.setBindingsRecovery(true);
-        parser.setStatementsRecovery(true);
-        parser.setUnitName(filePath.getFileName().toString());
-        String[] classpathEntries = new String[0];
-        try {
-            var javaHome = Path.of(System.getProperty("java.home"));
-            var jmodsDir = javaHome.resolve("jmods");
-            if (Files.isDirectory(jmodsDir)) {
-                try (var stream = Files.list(jmodsDir)) {
-                    classpathEntries = stream
-                        .map(Path::toString)
-                        .toArray(String[]::new);
-                }
-            }
-        } catch (Exception exception) {
-            Railroad.LOGGER.error("Failed to resolve JDK modules", exception);
+    private void showAutoComplete(int position, DocumentSnapshot snapshot) {
+        Pair<Integer, Integer> range = getIdentifierRangeBeforeDot(snapshot.text(), position);
+        if (range == null) {
+            hideAutoComplete();
+            return;
         }
 
-        parser.setEnvironment(classpathEntries, null, null, false);
-
-        CompilationUnit compilationUnit = (CompilationUnit) parser.createAST(null);
+        CompilationUnit compilationUnit;
+        try {
+            compilationUnit = this.analysis.awaitUnit(snapshot, position);
+        } catch (RuntimeException exception) {
+            // The document changed again in the meantime, and completion will be requested again if still needed
+            if (!JavaDocumentAnalysis.isCancellation(exception)) {
+                Railroad.LOGGER.error("Failed to analyse {} for completion", this.filePath, exception);
+            }
 
-        Pair<Integer, Integer> range = getIdentifierRangeBeforeDot(position);
-        if (range == null) {
-            hideAutoComplete();
             return;
         }
 
@@ -295,8 +310,13 @@ public class JavaCodeEditorPane extends TextEditorPane {
         if (node instanceof Expression expr) {
             ITypeBinding binding = expr.resolveTypeBinding();
             if (binding != null) {
-                String typeName = binding.getQualifiedName();
-                suggestions.addAll(this.autocomplete.suggestMembers(typeName, ""));
+                suggestions.addAll(CompilationUnitResolver.collectMemberNames(binding));
+                if (suggestions.isEmpty()) {
+                    ITypeBinding erasure = binding.getErasure();
+                    String typeName = erasure.getBinaryName() != null ? erasure.getBinaryName() : erasure.getQualifiedName();
+                    suggestions.addAll(ProjectSymbolIndex.forProject(this.project).getAutocomplete()
+                        .suggestMembers(typeName, ""));
+                }
             }
         }
 
@@ -334,10 +354,10 @@ public class JavaCodeEditorPane extends TextEditorPane {
                 Popup currentPopup = autoCompletePopup.get();
                 if (currentPopup != null && currentPopup.isShowing()) {
                     int currentCaret = getCaretPosition();
-                    if (currentCaret > dotPosition && getText().charAt(dotPosition) == '.') {
+                    if (currentCaret > dotPosition && newText.charAt(dotPosition) == '.') {
                         String prefix = "";
                         if (currentCaret > dotPosition + 1) {
-                            prefix = getText().substring(dotPosition + 1, currentCaret);
+                            prefix = newText.substring(dotPosition + 1, currentCaret);
                         }
 
                         final String finalPrefix = prefix;
@@ -372,160 +392,202 @@ public class JavaCodeEditorPane extends TextEditorPane {
     }
 
     private void errorHighlighting() {
-        Task<DiagnosticCollector<JavaFileObject>> task = requestErrorDiagnostics();
-        task.setOnSucceeded(event -> applyErrorHighlighting(task.getValue()));
-        task.setOnFailed(event -> Railroad.LOGGER.error("Failed to compile", task.getException()));
+        refreshErrorHighlighting();
+        // Until then only syntax errors are reported, so look again as soon as references can be resolved
+        ProjectClasspathManager.getClasspath(this.project)
+            .thenRun(() -> Platform.runLater(this::refreshErrorHighlighting));
+
+        // Keep the diagnostics on the text they mark until the next analysis replaces them, so that the markers that
+        // go away are stripped where they actually are
+        plainTextChanges().subscribe(change -> {
+            int lineDelta = countLineBreaks(change.getInserted()) - countLineBreaks(change.getRemoved());
+            this.diagnostics = this.diagnostics.shift(change.getPosition(), change.getRemovalEnd(),
+                change.getNetLength(), lineDelta);
+            if (lineDelta != 0) {
+                updateLineSeverities();
+            }
+        });
 
         plainTextChanges()
             .successionEnds(Duration.ofMillis(500))
-            .retainLatestUntilLater(executor0)
+            .retainLatestUntilLater()
             .supplyTask(this::requestErrorDiagnostics)
             .awaitLatest(plainTextChanges())
             .filterMap(throwable -> {
                 if (throwable.isSuccess()) {
                     return throwable.toOptional();
                 } else {
-                    Railroad.LOGGER.error("Failed to compile", throwable.getFailure());
+                    if (!JavaDocumentAnalysis.isCancellation(throwable.getFailure())) {
+                        Railroad.LOGGER.error("Failed to compile", throwable.getFailure());
+                    }
+
                     return Optional.empty();
                 }
             })
             .subscribe(this::applyErrorHighlighting);
 
-        this.errors.addListener((MapChangeListener<Diagnostic<? extends JavaFileObject>, Popup>) change -> {
-            if (change.wasRemoved()) {
-                change.getValueRemoved().hide();
+        // One pair of handlers serves every diagnostic, looking up whatever is under the mouse in the index
+        addEventHandler(MouseOverTextEvent.MOUSE_OVER_TEXT_BEGIN, event -> {
+            List<ProblemDiagnostic> hovered = diagnostics.at(event.getCharacterIndex());
+            if (hovered.isEmpty())
+                return;
+
+            diagnosticPopup.getContent().setAll(hovered.size() == 1 ?
+                new DiagnosticPane(hovered.getFirst()) :
+                new DiagnosticPane(List.<Diagnostic<? extends JavaFileObject>>copyOf(hovered)));
+            Point2D screenPosition = event.getScreenPosition();
+            diagnosticPopup.show(JavaCodeEditorPane.this, screenPosition.getX(), screenPosition.getY());
+        });
+
+        addEventHandler(MouseEvent.MOUSE_MOVED, event -> {
+            if (!diagnosticPopup.isShowing()) return;
+            int charIndex = JavaCodeEditorPane.this.hit(event.getX(), event.getY())
+                .getCharacterIndex().orElse(-1);
+            if (charIndex < 0 || diagnostics.at(charIndex).isEmpty()) {
+                diagnosticPopup.hide();
             }
         });
     }
 
-    private Task<DiagnosticCollector<JavaFileObject>> requestErrorDiagnostics() {
-        Task<DiagnosticCollector<JavaFileObject>> task = new Task<>() {
-            @Override
-            protected DiagnosticCollector<JavaFileObject> call() {
-                long startTime = System.currentTimeMillis();
-
-                char[] source = getText().toCharArray();
-
-                ASTParser parser = ASTParser.newParser(AST.JLS21);
-                parser.setKind(ASTParser.K_COMPILATION_UNIT);
-                Map<String, String> options = JavaCore.getOptions();
-                JavaCore.setComplianceOptions(JavaCore.VERSION_21, options);
-                parser.setCompilerOptions(options);
-                parser.setSource(source);
-                CompilationUnit unit = (CompilationUnit) parser.createAST(null);
-
-                IProblem[] problems = unit.getProblems();
-
-                DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-                for (IProblem problem : problems) {
-                    Diagnostic.Kind kind = problem.isError() ? Diagnostic.Kind.ERROR :
-                        (problem.isWarning() ? Diagnostic.Kind.WARNING : Diagnostic.Kind.OTHER);
-                    if (kind == Diagnostic.Kind.OTHER) continue;
-
-                    int start = problem.getSourceStart();
-                    int end = problem.getSourceEnd() + 1;
-                    long line = problem.getSourceLineNumber();
-                    long column = computeColumn(source, start);
-                    String message = problem.getMessage();
-
-                    diagnostics.report(new ProblemDiagnostic(kind, start, end, line, column, message));
-                }
+    private void refreshErrorHighlighting() {
+        Task<JavaDocumentAnalysis.Analysis> task = requestErrorDiagnostics();
+        task.setOnSucceeded(event -> applyErrorHighlighting(task.getValue()));
+        task.setOnFailed(event -> {
+            if (!JavaDocumentAnalysis.isCancellation(task.getException())) {
+                Railroad.LOGGER.error("Failed to compile", task.getException());
+            }
+        });
+    }
 
-                Railroad.LOGGER.debug("Error diagnostics took {}ms", System.currentTimeMillis() - startTime);
-                return diagnostics;
+    private Task<JavaDocumentAnalysis.Analysis> requestErrorDiagnostics() {
+        DocumentSnapshot snapshot = getSnapshot();
+        Task<JavaDocumentAnalysis.Analysis> task = new Task<>() {
+            @Override
+            protected JavaDocumentAnalysis.Analysis call() {
+                return analysis.await(snapshot);
             }
         };
 
-        executor0.submit(task);
+        this.tasks.submit(TaskScheduler.Lane.EDITOR_ANALYSIS, task);
         return task;
     }
 
-    private void applyErrorHighlighting(DiagnosticCollector<JavaFileObject> diagnostics) {
+    private void applyErrorHighlighting(JavaDocumentAnalysis.Analysis result) {
+        // Diagnostics of an older version would mark the wrong ranges
+        if (result.snapshot().version() != getSnapshot().version())
+            return;
+
         long startTime = System.currentTimeMillis();
+        DiagnosticIndex newDiagnostics = result.diagnostics();
 
-        // Process diagnostics for both errors and warnings
-        Map<Diagnostic<? extends JavaFileObject>, Popup> diagnosticsMap = diagnostics.getDiagnostics().stream()
-            .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR ||
-                diagnostic.getKind() == Diagnostic.Kind.WARNING ||
-                diagnostic.getKind() == Diagnostic.Kind.MANDATORY_WARNING)
-            .sorted(Comparator.comparingLong(Diagnostic::getStartPosition))
-            .collect(HashMap::new, (map, diagnostic) -> {
-                int start = (int) diagnostic.getStartPosition();
-                int end = (int) diagnostic.getEndPosition();
-                String message = diagnostic.getMessage(null);
-                String styleClass = diagnostic.getKind() == Diagnostic.Kind.ERROR ? "error" : "warning";
-                setStyleClass(start, end, styleClass);
-
-                var popup = new Popup();
-                popup.getContent().add(new DiagnosticPane(diagnostic));
-
-                // Show popup on hover
-                addEventHandler(MouseOverTextEvent.MOUSE_OVER_TEXT_BEGIN, event -> {
-                    int position = event.getCharacterIndex();
-                    if (position >= start && position <= end) {
-                        Point2D screenPosition = event.getScreenPosition();
-                        popup.show(JavaCodeEditorPane.this, screenPosition.getX(), screenPosition.getY());
-                    }
-                });
-
-                // Hide popup when mouse leaves
-                addEventHandler(MouseEvent.MOUSE_MOVED, event -> {
-                    if (!popup.isShowing()) return;
-                    int charIndex = JavaCodeEditorPane.this.hit(event.getX(), event.getY())
-                        .getCharacterIndex().orElse(-1);
-                    if (charIndex < start || charIndex > end) {
-                        popup.hide();
-                    }
-                });
+        DiagnosticIndex.Delta delta = this.diagnostics.diff(newDiagnostics);
+        this.diagnostics = newDiagnostics;
+        if (delta.isEmpty())
+            return;
+
+        // Strip the markers that went away, then re-apply every current marker that shares a range with a change,
+        // since removing a marker may also have stripped an overlapping one that is still valid
+        for (ProblemDiagnostic diagnostic : delta.removed()) {
+            updateStyles(diagnostic.start(), diagnostic.end(), styles -> {
+                List<String> remaining = new ArrayList<>(styles);
+                remaining.removeAll(MARKER_STYLE_CLASSES);
+                return remaining;
+            });
+        }
+
+        Set<ProblemDiagnostic> toMark = new LinkedHashSet<>(delta.added());
+        for (ProblemDiagnostic diagnostic : delta.removed()) {
+            toMark.addAll(newDiagnostics.overlapping(diagnostic.start(), diagnostic.end()));
+        }
+
+        applyMarkers(toMark);
+
+        for (ProblemDiagnostic diagnostic : delta.added()) {
+            Railroad.LOGGER.debug("Issue at L{}:{} - {}", diagnostic.getLineNumber(),
+                diagnostic.getColumnNumber(), diagnostic.message());
+        }
 
-                map.put(diagnostic, popup);
-                Railroad.LOGGER.error("Issue at L{}:{} - {}", diagnostic.getLineNumber(),
-                    diagnostic.getColumnNumber(), message);
-            }, HashMap::putAll);
+        updateLineSeverities();
+        if (!delta.removed().isEmpty()) {
+            diagnosticPopup.hide();
+        }
 
-        // Update the errors map
-        this.errors.clear();
-        this.errors.putAll(diagnosticsMap);
+        Railroad.LOGGER.debug("Error highlighting took {}ms ({} added, {} removed)",
+            System.currentTimeMillis() - startTime, delta.added().size(), delta.removed().size());
+    }
 
-        // Update lineToSeverity map
+    private void updateLineSeverities() {
         lineToSeverity.clear();
-        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
-            Diagnostic.Kind kind = diagnostic.getKind();
-            if (kind == Diagnostic.Kind.ERROR || kind == Diagnostic.Kind.WARNING ||
-                kind == Diagnostic.Kind.MANDATORY_WARNING) {
-                int line = (int) diagnostic.getLineNumber();
-                if (kind == Diagnostic.Kind.ERROR) {
-                    lineToSeverity.put(line, Diagnostic.Kind.ERROR); // Errors take precedence
-                } else if (!lineToSeverity.containsKey(line) ||
-                    lineToSeverity.get(line) != Diagnostic.Kind.ERROR) {
-                    lineToSeverity.put(line, Diagnostic.Kind.WARNING); // Warnings if no error
-                }
+        for (ProblemDiagnostic diagnostic : this.diagnostics.all()) {
+            int line = (int) diagnostic.getLineNumber();
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                lineToSeverity.put(line, Diagnostic.Kind.ERROR); // Errors take precedence
+            } else if (lineToSeverity.get(line) != Diagnostic.Kind.ERROR) {
+                lineToSeverity.put(line, Diagnostic.Kind.WARNING); // Warnings if no error
             }
         }
 
         // Force redraw of margin graphics
         requestLayout();
+    }
 
-        Railroad.LOGGER.debug("Error highlighting took {}ms", System.currentTimeMillis() - startTime);
+    private static int countLineBreaks(String text) {
+        int count = 0;
+        for (int index = text.indexOf('\n'); index != -1; index = text.indexOf('\n', index + 1)) {
+            count++;
+        }
+
+        return count;
     }
 
-    private static long computeColumn(char[] source, int position) {
-        int column = 1;
-        for (int i = position - 1; i >= 0; i--) {
-            char c = source[i];
-            if (c == '\n' || c == '\r') {
-                break;
-            }
-            column++;
+    private void applyMarkers(Collection<ProblemDiagnostic> markers) {
+        for (ProblemDiagnostic diagnostic : markers) {
+            String styleClass = diagnostic.getKind() == Diagnostic.Kind.ERROR ? "error" : "warning";
+            updateStyles(diagnostic.start(), diagnostic.end(), styles -> with(styles, styleClass));
         }
-        return column;
+    }
+
+    private void updateStyles(int start, int end, UnaryOperator<Collection<String>> mapper) {
+        int length = getLength();
+        start = Math.clamp(start, 0, length);
+        end = Math.clamp(end, start, length);
+        if (start == end)
+            return;
+
+        setStyleSpans(start, getStyleSpans(start, end).mapStyles(mapper));
+    }
+
+    private static Collection<String> with(Collection<String> styles, String styleClass) {
+        if (styles.contains(styleClass))
+            return styles;
+
+        List<String> result = new ArrayList<>(styles);
+        result.add(styleClass);
+        return result;
+    }
+
+    private static Collection<String> without(Collection<String> styles, String styleClass) {
+        if (!styles.contains(styleClass))
+            return styles;
+
+        List<String> result = new ArrayList<>(styles);
+        result.remove(styleClass);
+        return result;
     }
 
     private void syntaxHighlight() {
-        applyHighlighting(computeHighlighting(getText()));
-        multiPlainChanges()
-            .successionEnds(Duration.ofMillis(500))
-            .retainLatestUntilLater(executor0)
+        plainTextChanges().subscribe(highlighter::recordChange);
+        applyHighlighting(highlighter.update(0, getHighlightWindowEnd(0)));
+
+        // Edits restyle what they touched, scrolling and resizing highlight what just came into view
+        EventStream<?> viewportChanges = EventStreams.merge(
+            EventStreams.invalidationsOf(estimatedScrollYProperty()),
+            EventStreams.invalidationsOf(heightProperty())
+        ).filter(ignored -> highlighter.hasStaleRanges());
+
+        EventStreams.merge(multiPlainChanges().successionEnds(Duration.ofMillis(500)),
+                viewportChanges.successionEnds(Duration.ofMillis(50)))
+            .retainLatestUntilLater()
             .supplyTask(this::computeHighlightingAsync)
             .awaitLatest(multiPlainChanges())
             .filterMap(throwable -> {
@@ -536,76 +598,59 @@ public class JavaCodeEditorPane extends TextEditorPane {
                     return Optional.empty();
                 }
             })
-            .subscribe(this::applyHighlighting);
+            .subscribe(highlighting -> highlighting.ifPresent(this::applyHighlighting));
     }
 
-    private Task<StyleSpans<Collection<String>>> computeHighlightingAsync() {
-        String text = getText();
-        Task<StyleSpans<Collection<String>>> task = new Task<>() {
+    private Task<Optional<IncrementalJavaHighlighter.Highlighting>> computeHighlightingAsync() {
+        // The window has to be read on the FX thread, before handing off to the executor
+        int windowStart = getHighlightWindowStart();
+        int windowEnd = getHighlightWindowEnd(windowStart);
+        Task<Optional<IncrementalJavaHighlighter.Highlighting>> task = new Task<>() {
             @Override
-            protected StyleSpans<Collection<String>> call() {
-                return computeHighlighting(text);
+            protected Optional<IncrementalJavaHighlighter.Highlighting> call() {
+                return Optional.ofNullable(highlighter.update(windowStart, windowEnd));
             }
         };
 
-        executor0.submit(task);
+        this.tasks.submit(TaskScheduler.Lane.EDITOR_ANALYSIS, task);
         return task;
     }
 
-    private void applyHighlighting(StyleSpans<Collection<String>> highlighting) {
-        setStyleSpans(0, highlighting);
-    }
+    private int getHighlightWindowStart() {
+        if (getLength() <= VIEWPORT_HIGHLIGHT_THRESHOLD || getVisibleParagraphs().isEmpty())
+            return 0;
 
-    private StyleSpans<Collection<String>> computeHighlighting(String text) {
-        return TreeSitterJavaSyntaxHighlighting.computeHighlighting(text);
+        int paragraph = Math.max(0, firstVisibleParToAllParIndex() - VIEWPORT_MARGIN_PARAGRAPHS);
+        return getAbsolutePosition(paragraph, 0);
     }
 
-    private record ProblemDiagnostic(Kind kind, int start, int end, long line, long column,
-                                     String message) implements Diagnostic<JavaFileObject> {
-        @Override
-        public Kind getKind() {
-            return kind;
-        }
-
-        @Override
-        public JavaFileObject getSource() {
-            return null;
-        }
-
-        @Override
-        public long getPosition() {
-            return start;
-        }
-
-        @Override
-        public long getStartPosition() {
-            return start;
-        }
-
-        @Override
-        public long getEndPosition() {
-            return end;
-        }
-
-        @Override
-        public long getLineNumber() {
-            return line;
-        }
+    private int getHighlightWindowEnd(int windowStart) {
+        int length = getLength();
+        if (length <= VIEWPORT_HIGHLIGHT_THRESHOLD)
+            return length;
+
+        // Before the first layout there is nothing visible yet, so start with the top of the file
+        int lastParagraph = getVisibleParagraphs().isEmpty() ?
+            getParagraphs().size() - 1 :
+            lastVisibleParToAllParIndex();
+        int paragraph = Math.min(getParagraphs().size() - 1, lastParagraph + VIEWPORT_MARGIN_PARAGRAPHS);
+        int end = getAbsolutePosition(paragraph, getParagraphLength(paragraph));
+        return getVisibleParagraphs().isEmpty() ? Math.min(end, windowStart + VIEWPORT_HIGHLIGHT_THRESHOLD) : end;
+    }
 
-        @Override
-        public long getColumnNumber() {
-            return column;
-        }
+    private void applyHighlighting(@Nullable IncrementalJavaHighlighter.Highlighting highlighting) {
+        // Spans computed for an older version of the document would land at the wrong offsets
+        if (highlighting == null || highlighting.version() != highlighter.getRecordedVersion())
+            return;
 
-        @Override
-        public String getCode() {
-            return null;
-        }
+        int offset = highlighting.offset();
+        int end = offset + highlighting.spans().length();
+        setStyleSpans(offset, highlighting.spans());
+        highlighter.markApplied(highlighting);
 
-        @Override
-        public String getMessage(Locale locale) {
-            return message;
-        }
+        // Restyling wipes the diagnostic markers and bracket highlights in the range, so put them back
+        applyMarkers(diagnostics.overlapping(offset, end));
+        applyBracketHighlights(offset, end);
     }
 
     public String getLanguageId() {
@@ -4,7 +4,7 @@ import dev.railroadide.railroad.Railroad;
 import dev.railroadide.railroad.ide.syntaxhighlighting.JsonSyntaxHighlighting;
 import dev.railroadide.railroad.settings.Settings;
 import dev.railroadide.railroad.settings.handler.SettingsHandler;
-import dev.railroadide.railroad.utility.ShutdownHooks;
+import dev.railroadide.railroad.utility.TaskScheduler;
 import javafx.collections.FXCollections;
 import javafx.collections.MapChangeListener;
 import javafx.collections.ObservableMap;
@@ -29,8 +29,6 @@ import org.json.JSONTokener;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class JsonCodeEditorPane extends TextEditorPane {
     private static final String DEFAULT_SCHEMA = """
@@ -44,7 +42,6 @@ public class JsonCodeEditorPane extends TextEditorPane {
           "required": ["name", "version"]
         }
         """;
-    private final ExecutorService executor0 = Executors.newSingleThreadExecutor();
     private final ObservableMap<ValidationException, ValidationEntry> errors = FXCollections.observableHashMap();
     private Schema schema;
 
@@ -61,15 +58,13 @@ public class JsonCodeEditorPane extends TextEditorPane {
                 change.getValueRemoved().popup().hide();
             }
         });
-
-        ShutdownHooks.addHook(executor0::shutdown);
     }
 
     private void syntaxHighlight() {
         applyHighlighting(computeHighlighting(getText()));
         multiPlainChanges()
             .successionEnds(Duration.ofMillis(5))
-            .retainLatestUntilLater(executor0)
+            .retainLatestUntilLater()
             .supplyTask(this::computeHighlightingAsync)
             .awaitLatest(multiPlainChanges())
             .filterMap(throwable -> {
@@ -188,7 +183,7 @@ public class JsonCodeEditorPane extends TextEditorPane {
             }
         };
 
-        executor0.submit(task);
+        this.tasks.submit(TaskScheduler.Lane.EDITOR_ANALYSIS, task);
         return task;
     }
 
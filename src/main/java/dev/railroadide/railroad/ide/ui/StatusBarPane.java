@@ -1,10 +1,92 @@
 package dev.railroadide.railroad.ide.ui;
 
 
+import dev.railroadide.core.ui.RRButton;
 import dev.railroadide.core.ui.RRHBox;
+import dev.railroadide.core.ui.localized.LocalizedTooltip;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import org.kordamp.ikonli.fontawesome6.FontAwesomeSolid;
 
+/**
+ * The bar along the bottom of the IDE, showing the progress of the most recent long-running {@link #track tracked}
+ * task, such as a large copy, with a button to cancel it.
+ */
 public class StatusBarPane extends RRHBox {
+    private static final ObservableList<Task<?>> TASKS = FXCollections.observableArrayList();
+
+    private final Label titleLabel = new Label();
+    private final Label messageLabel = new Label();
+    private final ProgressBar progressBar = new ProgressBar();
+    private final RRButton cancelButton = new RRButton("", FontAwesomeSolid.TIMES);
+    // Held here and registered weakly, so that the shared task list does not keep closed windows' bars alive
+    private final ListChangeListener<Task<?>> tasksListener = change -> showTask();
+
     public StatusBarPane() {
-        super();
+        super(8);
+        setPadding(new Insets(2, 8, 2, 8));
+        setAlignment(Pos.CENTER_RIGHT);
+
+        this.progressBar.setPrefWidth(160);
+        this.cancelButton.setVariant(RRButton.ButtonVariant.GHOST);
+        this.cancelButton.setButtonSize(RRButton.ButtonSize.SMALL);
+        this.cancelButton.setTooltip(new LocalizedTooltip("railroad.generic.cancel"));
+        getChildren().addAll(this.titleLabel, this.messageLabel, this.progressBar, this.cancelButton);
+
+        TASKS.addListener(new WeakListChangeListener<>(this.tasksListener));
+        showTask();
+    }
+
+    /**
+     * Shows the progress of a task in the status bar until it is done. Can be called from any thread.
+     *
+     * @param task the task
+     */
+    public static void track(Task<?> task) {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(() -> track(task));
+            return;
+        }
+
+        if (task.isDone())
+            return;
+
+        TASKS.add(task);
+        task.stateProperty().addListener((observable, oldState, state) -> {
+            if (task.isDone()) {
+                TASKS.remove(task);
+            }
+        });
+    }
+
+    private void showTask() {
+        this.titleLabel.textProperty().unbind();
+        this.messageLabel.textProperty().unbind();
+        this.progressBar.progressProperty().unbind();
+
+        Task<?> task = TASKS.isEmpty() ? null : TASKS.getLast();
+        boolean visible = task != null;
+        for (var child : getChildren()) {
+            child.setVisible(visible);
+            child.setManaged(visible);
+        }
+
+        if (task == null) {
+            this.cancelButton.setOnAction(null);
+            return;
+        }
+
+        this.titleLabel.textProperty().bind(task.titleProperty());
+        this.messageLabel.textProperty().bind(task.messageProperty());
+        this.progressBar.progressProperty().bind(task.progressProperty());
+        this.cancelButton.setOnAction(event -> task.cancel(true));
     }
-}
\ No newline at end of file
+}
@@ -2,9 +2,12 @@ package dev.railroadide.railroad.ide.ui;
 
 import dev.railroadide.railroad.Railroad;
 import dev.railroadide.railroad.plugin.defaults.DefaultDocument;
-import dev.railroadide.railroad.utility.ShutdownHooks;
+import dev.railroadide.railroad.utility.DocumentSnapshot;
+import dev.railroadide.railroad.utility.Rope;
+import dev.railroadide.railroad.utility.TaskScheduler;
 import dev.railroadide.railroadpluginapi.events.FileEvent;
 import dev.railroadide.railroadpluginapi.events.FileModifiedEvent;
+import javafx.application.Platform;
 import javafx.scene.input.KeyCode;
 import javafx.util.Pair;
 import org.fxmisc.richtext.CodeArea;
@@ -16,17 +19,28 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardWatchEventKinds;
 import java.time.Duration;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class TextEditorPane extends CodeArea {
     private static final int[] FONT_SIZES = {6, 8, 10, 12, 14, 16, 18, 20, 24, 26, 28, 30, 36, 40, 48, 56, 60};
     protected final Path filePath;
-    private final ExecutorService changeExecutor = Executors.newSingleThreadExecutor();
+    protected final TaskScheduler.TaskOwner tasks;
+    // Saves are neither cancelled with the other tasks, since that could cut a write short, nor run out of order
+    private final Executor saveExecutor = TaskScheduler.serial(TaskScheduler.Lane.IO);
+    private volatile DocumentSnapshot snapshot = new DocumentSnapshot(0, Rope.EMPTY);
+    private final List<FileModifiedEvent.Change> pendingChanges = new ArrayList<>();
+    private boolean publishChanges;
+    private boolean disposed;
+    // The content this editor last read from or wrote to disk, so that the watcher can ignore its own saves
+    private volatile String diskContent;
     private int fontSizeIndex = 5;
 
     public TextEditorPane(Path item) {
         this.filePath = item;
+        this.tasks = TaskScheduler.newOwner("editor of " + item.getFileName());
 
         setParagraphGraphicFactory(LineNumberFactory.get(this));
         setMouseOverTextDelay(Duration.ofMillis(500));
@@ -37,22 +51,19 @@ public class TextEditorPane extends CodeArea {
         moveTo(0);
     }
 
-    private static FileModifiedEvent.Change getChange(String text, PlainTextChange change) {
-        String inserted = change.getInserted();
-        String removed = change.getRemoved();
+    // Must run before the change is applied to the snapshot, since the range is in pre-change coordinates
+    private FileModifiedEvent.Change getChange(PlainTextChange change) {
         int position = change.getPosition();
-        int netLength = change.getNetLength();
-
-        Pair<Integer, Integer> startPos = getLineAndColumn(text, position);
-        Pair<Integer, Integer> endPos = getLineAndColumn(text, position + netLength);
+        int removalEnd = change.getRemovalEnd();
+        Rope text = this.snapshot.text();
 
         return new FileModifiedEvent.Change(
             getChangeType(change),
-            removed,
-            inserted,
+            change.getRemoved(),
+            change.getInserted(),
             new FileModifiedEvent.Range(
-                startPos.getKey(), startPos.getValue(),
-                endPos.getKey(), endPos.getValue()));
+                text.lineOf(position), text.columnOf(position),
+                text.lineOf(removalEnd), text.columnOf(removalEnd)));
     }
 
     private static FileModifiedEvent.Change.Type getChangeType(PlainTextChange change) {
@@ -68,20 +79,39 @@ public class TextEditorPane extends CodeArea {
         }
     }
 
-    private static Pair<Integer, Integer> getLineAndColumn(String text, int position) {
-        int line = 0;
-        int column = 0;
-
-        for (int i = 0; i < position && i < text.length(); i++) {
-            if (text.charAt(i) == '\n') {
-                line++;
-                column = 0;
-            } else {
-                column++;
-            }
+    /**
+     * Stops all background work of this editor. Called when its tab is closed.
+     * <p>
+     * Edits that are still waiting out the save delay are saved first, blocking until they are written.
+     */
+    public void dispose() {
+        if (this.disposed)
+            return;
+
+        this.disposed = true;
+        if (this.publishChanges) {
+            Pair<List<FileModifiedEvent.Change>, DocumentSnapshot> batch = takeChanges();
+            CompletableFuture.runAsync(() -> save(batch.getKey(), batch.getValue()), this.saveExecutor).join();
         }
 
-        return new Pair<>(line, column);
+        this.tasks.close();
+    }
+
+    /**
+     * @return the file this editor shows
+     */
+    public Path getFilePath() {
+        return this.filePath;
+    }
+
+    /**
+     * Gets an immutable snapshot of this editor's text, updated on the FX thread as the text changes. Snapshots
+     * share their unchanged parts with each other, so this is cheap to call from any thread.
+     *
+     * @return the snapshot of the current version
+     */
+    public DocumentSnapshot getSnapshot() {
+        return this.snapshot;
     }
 
     private void resizableFont() {
@@ -110,64 +140,98 @@ public class TextEditorPane extends CodeArea {
     }
 
     private void listenForChanges() {
+        // Changes are converted to events as they happen, while the snapshot still matches the text they apply to
+        plainTextChanges().subscribe(change -> {
+            if (this.publishChanges) {
+                this.pendingChanges.add(getChange(change));
+            }
+
+            DocumentSnapshot current = this.snapshot;
+            this.snapshot = new DocumentSnapshot(current.version() + 1,
+                current.text().replace(change.getPosition(), change.getRemovalEnd(), change.getInserted()));
+        });
+
         try {
-            replaceText(0, 0, Files.readString(this.filePath));
-
-            try (var watcher = this.filePath.getFileSystem().newWatchService()) {
-                this.filePath.getParent().register(watcher, StandardWatchEventKinds.ENTRY_MODIFY);
-
-                ExecutorService executor1 = Executors.newSingleThreadExecutor();
-                executor1.submit(() -> {
-                    while (!Thread.interrupted()) {
-                        try {
-                            var key = watcher.take();
-                            for (var event : key.pollEvents()) {
-                                if (event.context().equals(this.filePath.getFileName())) {
-                                    String content = Files.readString(this.filePath);
-                                    String text = getText();
-                                    if (!text.equals(content)) {
-                                        replaceText(0, 0, content);
-                                    }
-                                }
-                            }
-                            key.reset();
-                        } catch (InterruptedException exception) {
-                            Railroad.LOGGER.error("File watcher interrupted", exception);
-                        } catch (IOException exception) {
-                            Railroad.LOGGER.error("Failed to watch file", exception);
-                        }
-                    }
-                });
+            this.diskContent = Files.readString(this.filePath);
+            replaceText(0, 0, this.diskContent);
+            this.publishChanges = true;
 
-                ShutdownHooks.addHook(executor1::shutdown);
-            } catch (IOException exception) {
-                Railroad.LOGGER.error("Failed to watch file", exception);
-            }
+            this.tasks.submit(TaskScheduler.Lane.IO, this::watchFile);
 
             multiPlainChanges()
                 .successionEnds(Duration.ofMillis(500))
-                .retainLatestUntilLater(changeExecutor)
-                .map(changes -> changes.stream()
-                    .map(change -> TextEditorPane.getChange(getText(), change))
-                    .toList())
-                .subscribe(changes -> {
-                    var document = new DefaultDocument(this.filePath.getFileName().toString(), this.filePath);
-                    Railroad.EVENT_BUS.publish(new FileModifiedEvent(document, changes));
-
-                    String text = getText();
-                    try {
-                        if (!Files.readString(this.filePath).equals(text)) {
-                            Files.writeString(this.filePath, text);
-                            Railroad.EVENT_BUS.publish(new FileEvent(
-                                document,
-                                FileEvent.EventType.SAVED));
-                        }
-                    } catch (IOException exception) {
-                        Railroad.LOGGER.error("Failed to write file", exception);
-                    }
-                });
+                .filter(ignored -> !this.disposed)
+                .map(ignored -> takeChanges())
+                .retainLatestUntilLater(this.saveExecutor)
+                .subscribe(batch -> save(batch.getKey(), batch.getValue()));
         } catch (IOException exception) {
             Railroad.LOGGER.error("Failed to read file", exception);
         }
     }
+
+    // Must run on the FX thread, which records the changes
+    private Pair<List<FileModifiedEvent.Change>, DocumentSnapshot> takeChanges() {
+        List<FileModifiedEvent.Change> changes = List.copyOf(this.pendingChanges);
+        this.pendingChanges.clear();
+        return new Pair<>(changes, this.snapshot);
+    }
+
+    private void save(List<FileModifiedEvent.Change> changes, DocumentSnapshot snapshot) {
+        var document = new DefaultDocument(this.filePath.getFileName().toString(), this.filePath);
+        if (!changes.isEmpty()) {
+            Railroad.EVENT_BUS.publish(new FileModifiedEvent(document, changes));
+        }
+
+        // Flattened here rather than on the FX thread, and shared with anything else reading this version
+        String text = snapshot.text().toString();
+        try {
+            if (!Files.readString(this.filePath).equals(text)) {
+                this.diskContent = text;
+                Files.writeString(this.filePath, text);
+                Railroad.EVENT_BUS.publish(new FileEvent(
+                    document,
+                    FileEvent.EventType.SAVED));
+            }
+        } catch (IOException exception) {
+            Railroad.LOGGER.error("Failed to write file", exception);
+        }
+    }
+
+    // Runs until the editor is disposed, which interrupts it
+    private void watchFile() {
+        try (var watcher = this.filePath.getFileSystem().newWatchService()) {
+            this.filePath.getParent().register(watcher, StandardWatchEventKinds.ENTRY_MODIFY);
+            while (!Thread.currentThread().isInterrupted()) {
+                var key = watcher.take();
+                for (var event : key.pollEvents()) {
+                    if (event.context().equals(this.filePath.getFileName())) {
+                        reloadIfChanged();
+                    }
+                }
+
+                key.reset();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (IOException exception) {
+            Railroad.LOGGER.error("Failed to watch file", exception);
+        }
+    }
+
+    private void reloadIfChanged() {
+        try {
+            String content = Files.readString(this.filePath);
+            if (content.equals(this.diskContent))
+                return;
+
+            this.diskContent = content;
+            Platform.runLater(() -> {
+                if (!getText().equals(content)) {
+                    replaceText(content);
+                }
+            });
+        } catch (IOException exception) {
+            Railroad.LOGGER.error("Failed to reload file", exception);
+        }
+    }
 }
@@ -104,7 +104,7 @@ public class OnboardingProcess<N extends Parent & OnboardingUI> {
 
             currentStep = stepAt(stepId);
 
-            CompletableFuture.runAsync(() -> currentStep.onEnter(context)).thenRun(
+            CompletableFuture.runAsync(() -> currentStep.onEnter(context), context.executor()).thenRun(
                 () -> Platform.runLater(() -> {
                     this.ui.setContent(
                         cachedUIs.computeIfAbsent(
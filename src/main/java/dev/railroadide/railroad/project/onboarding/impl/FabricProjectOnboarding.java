@@ -31,6 +31,7 @@ import dev.railroadide.railroad.settings.Settings;
 import dev.railroadide.railroad.settings.handler.SettingsHandler;
 import dev.railroadide.railroad.switchboard.SwitchboardRepositories;
 import dev.railroadide.railroad.switchboard.repositories.FabricApiVersionRepository;
+import dev.railroadide.railroad.utility.TaskScheduler;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.BooleanBinding;
 import javafx.beans.property.*;
@@ -53,7 +54,7 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 
 public class FabricProjectOnboarding extends Onboarding {
-    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final TaskScheduler.TaskOwner tasks = TaskScheduler.newOwner("Fabric onboarding");
 
     public void start(Scene scene) {
         var flow = OnboardingFlow.builder()
@@ -75,7 +76,7 @@ public class FabricProjectOnboarding extends Onboarding {
 
         var process = OnboardingProcess.createBasic(
             flow,
-            new OnboardingContext(executor),
+            new OnboardingContext(this.tasks.executor(TaskScheduler.Lane.IO)),
             ctx -> onFinish(ctx, scene)
         );
 
@@ -83,7 +84,7 @@ public class FabricProjectOnboarding extends Onboarding {
     }
 
     protected void onFinish(OnboardingContext ctx, Scene scene) {
-        this.executor.shutdown();
+        this.tasks.close();
 
         var data = new ProjectData();
         data.set(ProjectData.DefaultKeys.TYPE, ProjectTypeRegistry.FABRIC);
@@ -20,6 +20,7 @@ import dev.railroadide.railroad.project.onboarding.flow.OnboardingFlow;
 import dev.railroadide.railroad.project.onboarding.step.OnboardingFormStep;
 import dev.railroadide.railroad.project.onboarding.step.OnboardingStep;
 import dev.railroadide.railroad.switchboard.SwitchboardRepositories;
+import dev.railroadide.railroad.utility.TaskScheduler;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.Scene;
@@ -31,7 +32,7 @@ import java.util.concurrent.*;
 // TODO: Make it so the display test and client side only options are in their own steps
 // TODO: Fix the comboboxes not being immediately populated and instead having the data fetched completely async
 public class ForgeProjectOnboarding extends Onboarding {
-    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final TaskScheduler.TaskOwner tasks = TaskScheduler.newOwner("Forge onboarding");
 
     public void start(Scene scene) {
         var flow = OnboardingFlow.builder()
@@ -50,7 +51,7 @@ public class ForgeProjectOnboarding extends Onboarding {
 
         var process = OnboardingProcess.createBasic(
             flow,
-            new OnboardingContext(executor),
+            new OnboardingContext(this.tasks.executor(TaskScheduler.Lane.IO)),
             ctx -> onFinish(ctx, scene)
         );
 
@@ -59,7 +60,7 @@ public class ForgeProjectOnboarding extends Onboarding {
 
     @Override
     protected void onFinish(OnboardingContext ctx, Scene scene) {
-        this.executor.shutdown();
+        this.tasks.close();
 
         var data = new ProjectData();
         data.set(ProjectData.DefaultKeys.TYPE, ProjectTypeRegistry.FORGE);
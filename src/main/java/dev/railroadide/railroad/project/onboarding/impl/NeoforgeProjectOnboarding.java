@@ -30,6 +30,7 @@ import dev.railroadide.railroad.switchboard.SwitchboardRepositories;
 import dev.railroadide.railroad.switchboard.repositories.FabricApiVersionRepository;
 import dev.railroadide.railroad.switchboard.repositories.NeoforgeVersionRepository;
 import dev.railroadide.railroad.utility.ExpiringCache;
+import dev.railroadide.railroad.utility.TaskScheduler;
 import dev.railroadide.railroad.welcome.project.ui.widget.StarableListCell;
 import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
@@ -56,7 +57,7 @@ import java.util.function.Function;
 // TODO: Make it so the display test and client side only options are in their own steps
 // TODO: Fix the comboboxes not being immediately populated and instead having the data fetched completely async
 public class NeoforgeProjectOnboarding extends Onboarding {
-    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final TaskScheduler.TaskOwner tasks = TaskScheduler.newOwner("NeoForge onboarding");
 
     public void start(Scene scene) {
         var flow = OnboardingFlow.builder()
@@ -75,7 +76,7 @@ public class NeoforgeProjectOnboarding extends Onboarding {
 
         var process = OnboardingProcess.createBasic(
             flow,
-            new OnboardingContext(executor),
+            new OnboardingContext(this.tasks.executor(TaskScheduler.Lane.IO)),
             ctx -> onFinish(ctx, scene)
         );
 
@@ -84,7 +85,7 @@ public class NeoforgeProjectOnboarding extends Onboarding {
 
     @Override
     protected void onFinish(OnboardingContext ctx, Scene scene) {
-        this.executor.shutdown();
+        this.tasks.close();
 
         var data = new ProjectData();
         data.set(ProjectData.DefaultKeys.TYPE, ProjectTypeRegistry.NEOFORGE);
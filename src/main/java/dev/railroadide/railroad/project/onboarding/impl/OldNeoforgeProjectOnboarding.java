@@ -26,6 +26,7 @@ import dev.railroadide.railroad.settings.Settings;
 import dev.railroadide.railroad.settings.handler.SettingsHandler;
 import dev.railroadide.railroad.switchboard.SwitchboardRepositories;
 import dev.railroadide.railroad.utility.ExpiringCache;
+import dev.railroadide.railroad.utility.TaskScheduler;
 import dev.railroadide.railroad.welcome.project.ui.widget.StarableListCell;
 import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
@@ -54,7 +55,7 @@ import java.util.function.Function;
 public class OldNeoforgeProjectOnboarding {
     private static final ExpiringCache<List<MinecraftVersion>> NEOFORGE_MINECRAFT_VERSIONS_CACHE = new ExpiringCache<>(Duration.ofHours(3));
 
-    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final TaskScheduler.TaskOwner tasks = TaskScheduler.newOwner("old NeoForge onboarding");
 
     public void start(Scene scene) {
         var flow = OnboardingFlow.builder()
@@ -73,7 +74,7 @@ public class OldNeoforgeProjectOnboarding {
 
         var process = OnboardingProcess.createBasic(
             flow,
-            new OnboardingContext(executor),
+            new OnboardingContext(this.tasks.executor(TaskScheduler.Lane.IO)),
             ctx -> onFinish(ctx, scene)
         );
 
@@ -81,7 +82,7 @@ public class OldNeoforgeProjectOnboarding {
     }
 
     private void onFinish(OnboardingContext ctx, Scene scene) {
-        executor.shutdown();
+        this.tasks.close();
 
         var data = new ProjectData();
         data.set(ProjectData.DefaultKeys.TYPE, ProjectTypeRegistry.NEOFORGE);
@@ -10,6 +10,7 @@ import dev.railroadide.railroad.localization.L18n;
 import dev.railroadide.railroad.localization.Languages;
 import dev.railroadide.railroad.plugin.PluginManager;
 import dev.railroadide.railroad.settings.keybinds.KeybindHandler;
+import dev.railroadide.railroad.switchboard.SwitchboardCacheBackend;
 import dev.railroadide.railroad.theme.ThemeManager;
 import dev.railroadide.railroadpluginapi.PluginDescriptor;
 
@@ -46,6 +47,22 @@ public final class Settings {
         .canBeNull(false)
         .build());
 
+    public static final Setting<Integer> SWITCHBOARD_CACHE_DISK_BUDGET = registerSetting(Setting.builder(Integer.class, "railroad:switchboard_cache_disk_budget")
+        .treePath("general")
+        .category(SettingCategory.simple("railroad:general.switchboard_cache"))
+        .codec(DefaultSettingCodecs.INTEGER)
+        .defaultValue(64)
+        .canBeNull(false)
+        .build());
+
+    public static final Setting<SwitchboardCacheBackend> SWITCHBOARD_CACHE_BACKEND = registerSetting(Setting.builder(SwitchboardCacheBackend.class, "railroad:switchboard_cache_backend")
+        .treePath("general")
+        .category(SettingCategory.simple("railroad:general.switchboard_cache"))
+        .codec(DefaultSettingCodecs.ofEnum("railroad:switchboard_cache_backend", SwitchboardCacheBackend.class))
+        .defaultValue(SwitchboardCacheBackend.SQLITE)
+        .canBeNull(false)
+        .build());
+
     public static final Setting<Boolean> AUTO_PAIR_INSIDE_STRINGS = registerSetting(Setting.builder(Boolean.class, "railroad:auto_pair_inside_strings")
         .treePath("ide")
         .category(SettingCategory.simple("railroad:ide.code_style"))
@@ -0,0 +1,16 @@
+package dev.railroadide.railroad.switchboard;
+
+/**
+ * Where the switchboard cache of Minecraft and mod loader versions is stored, as chosen by
+ * {@link dev.railroadide.railroad.settings.Settings#SWITCHBOARD_CACHE_BACKEND}.
+ */
+public enum SwitchboardCacheBackend {
+    /**
+     * A single SQLite database in the config directory.
+     */
+    SQLITE,
+    /**
+     * One JSON file per entry in the config directory.
+     */
+    JSON
+}
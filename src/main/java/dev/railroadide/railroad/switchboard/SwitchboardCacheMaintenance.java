@@ -0,0 +1,69 @@
+package dev.railroadide.railroad.switchboard;
+
+import dev.railroadide.core.switchboard.cache.impl.MaintainableCacheManager;
+import dev.railroadide.core.switchboard.cache.impl.MaintenanceReport;
+import dev.railroadide.railroad.Railroad;
+import dev.railroadide.railroad.settings.Settings;
+import dev.railroadide.railroad.settings.handler.SettingsHandler;
+import dev.railroadide.railroad.utility.FileUtils;
+import dev.railroadide.railroad.utility.ShutdownHooks;
+import dev.railroadide.railroad.utility.TaskScheduler;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically cleans up the on-disk switchboard cache on the {@link TaskScheduler.Lane#BACKGROUND_INDEXING} lane:
+ * entries expired for longer than a week are removed, the cache is kept within
+ * {@link Settings#SWITCHBOARD_CACHE_DISK_BUDGET} and compacted. Entries expired for less than that are kept, since
+ * they are still served while they are revalidated.
+ */
+public final class SwitchboardCacheMaintenance {
+    private static final Duration INITIAL_DELAY = Duration.ofMinutes(2);
+    private static final Duration INTERVAL = Duration.ofHours(6);
+    private static final TaskScheduler.TaskOwner TASKS = TaskScheduler.newOwner("switchboard cache maintenance");
+    private static final Executor EXECUTOR = TASKS.executor(TaskScheduler.Lane.BACKGROUND_INDEXING);
+
+    static {
+        ShutdownHooks.addHook(TASKS::close);
+    }
+
+    private SwitchboardCacheMaintenance() {
+    }
+
+    /**
+     * Starts maintaining a cache, first shortly after startup and then every few hours.
+     *
+     * @param cache the cache
+     */
+    public static void schedule(MaintainableCacheManager cache) {
+        TaskScheduler.executeLater(EXECUTOR, () -> runAndReschedule(cache), INITIAL_DELAY);
+    }
+
+    private static void runAndReschedule(MaintainableCacheManager cache) {
+        try {
+            run(cache);
+        } finally {
+            // Only scheduled once this run is done, so that runs never overlap; once closed, the next run is cancelled
+            TaskScheduler.executeLater(EXECUTOR, () -> runAndReschedule(cache), INTERVAL);
+        }
+    }
+
+    /**
+     * Maintains a cache now, blocking until done.
+     *
+     * @param cache the cache
+     * @return what was reclaimed
+     */
+    public static MaintenanceReport run(MaintainableCacheManager cache) {
+        Integer budgetMegabytes = SettingsHandler.getValue(Settings.SWITCHBOARD_CACHE_DISK_BUDGET);
+        long budget = Math.max(1, budgetMegabytes == null ? 64 : budgetMegabytes) * 1024L * 1024L;
+        long start = System.nanoTime();
+        MaintenanceReport report = cache.maintain(MaintainableCacheManager.DEFAULT_STALE_RETENTION, budget);
+        Railroad.LOGGER.info("Switchboard cache maintenance removed {} expired and {} over-budget entries, reclaiming {} ({} remaining) in {} ms",
+            report.expiredRemoved(), report.evicted(), FileUtils.humanReadableByteCount(report.bytesReclaimed()),
+            FileUtils.humanReadableByteCount(report.bytesAfter()), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return report;
+    }
+}
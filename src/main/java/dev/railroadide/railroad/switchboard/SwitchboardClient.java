@@ -2,6 +2,7 @@ package dev.railroadide.railroad.switchboard;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import dev.railroadide.core.switchboard.cache.FetchResult;
 import dev.railroadide.core.switchboard.pojo.FabricLoaderVersion;
 import dev.railroadide.core.switchboard.pojo.MinecraftVersion;
 import dev.railroadide.core.switchboard.pojo.ParchmentVersion;
@@ -9,6 +10,7 @@ import dev.railroadide.core.utility.ServiceLocator;
 import dev.railroadide.railroad.Railroad;
 import okhttp3.*;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.*;
@@ -28,242 +30,219 @@ public record SwitchboardClient(String baseUrl) {
         this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
     }
 
-    public CompletableFuture<List<MinecraftVersion>> fetchMinecraftVersions() {
+    public CompletableFuture<FetchResult<List<MinecraftVersion>>> fetchMinecraftVersions(@Nullable String etag) {
         return getJson("minecraft/versions", new TypeToken<>() {
-        });
+        }, etag);
     }
 
-    private <T> CompletableFuture<T> getJson(String endpoint, TypeToken<T> clazz) {
-        Call call = Railroad.HTTP_CLIENT.newCall(new Request.Builder().get().url(this.baseUrl + endpoint).build());
-        CompletableFuture<T> future = new CompletableFuture<>();
+    /**
+     * Fetches and parses a JSON endpoint. If an ETag is given, the request is made conditional on it, and a
+     * {@code 304 Not Modified} response completes the future with {@link FetchResult#notModified}.
+     */
+    private <T> CompletableFuture<FetchResult<T>> getJson(String endpoint, TypeToken<T> clazz, @Nullable String etag) {
+        Request.Builder request = new Request.Builder().get().url(this.baseUrl + endpoint);
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+
+        Call call = Railroad.HTTP_CLIENT.newCall(request.build());
+        CompletableFuture<FetchResult<T>> future = new CompletableFuture<>();
         call.enqueue(new JsonCallback<>(future, clazz));
         return future;
     }
 
-    private <T> CompletableFuture<T> getJson(String endpoint, Class<T> clazz) {
-        return getJson(endpoint, TypeToken.get(clazz));
+    private <T> CompletableFuture<FetchResult<T>> getJson(String endpoint, Class<T> clazz, @Nullable String etag) {
+        return getJson(endpoint, TypeToken.get(clazz), etag);
     }
 
-    public CompletableFuture<Optional<MinecraftVersion>> fetchMinecraftVersionById(String id) {
-        return getJson("minecraft/versions/" + id.toLowerCase(Locale.ROOT), MinecraftVersion.class).thenApply(Optional::of);
+    public CompletableFuture<FetchResult<MinecraftVersion>> fetchMinecraftVersionById(String id, @Nullable String etag) {
+        return getJson("minecraft/versions/" + id.toLowerCase(Locale.ROOT), MinecraftVersion.class, etag);
     }
 
-    public CompletableFuture<MinecraftVersion> fetchLatestMinecraftVersion() {
-        return getJson("minecraft/latest", MinecraftVersion.class);
+    public CompletableFuture<FetchResult<MinecraftVersion>> fetchLatestMinecraftVersion(@Nullable String etag) {
+        return getJson("minecraft/latest", MinecraftVersion.class, etag);
     }
 
-    public CompletableFuture<MinecraftVersion> fetchLatestMinecraftVersionOfType(MinecraftVersion.Type type) {
-        return getJson("minecraft/latest/" + type.name().toLowerCase(Locale.ROOT), MinecraftVersion.class);
+    public CompletableFuture<FetchResult<MinecraftVersion>> fetchLatestMinecraftVersionOfType(MinecraftVersion.Type type, @Nullable String etag) {
+        return getJson("minecraft/latest/" + type.name().toLowerCase(Locale.ROOT), MinecraftVersion.class, etag);
     }
 
-    public CompletableFuture<List<String>> fetchForgeVersions() {
-        return getJson("forge/versions", LIST_OF_STRINGS);
+    public CompletableFuture<FetchResult<List<String>>> fetchForgeVersions(@Nullable String etag) {
+        return getJson("forge/versions", LIST_OF_STRINGS, etag);
     }
 
-    public CompletableFuture<List<String>> fetchForgeVersions(String minecraftVersionId) {
+    public CompletableFuture<FetchResult<List<String>>> fetchForgeVersions(String minecraftVersionId, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
-        return getJson("forge/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_STRINGS);
-    }
-
-    public CompletableFuture<String> fetchLatestForgeVersion() {
-        return fetchLatestForgeVersion(false);
+        return getJson("forge/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_STRINGS, etag);
     }
 
-    public CompletableFuture<String> fetchLatestForgeVersion(boolean includePrereleases) {
+    public CompletableFuture<FetchResult<String>> fetchLatestForgeVersion(boolean includePrereleases, @Nullable String etag) {
         String endpoint = "forge/latest";
         if (includePrereleases)
             endpoint += "?includePrereleases=true";
 
-        return getJson(endpoint, VersionResponse.class).thenApply(VersionResponse::version);
-    }
-
-    public CompletableFuture<String> fetchLatestForgeVersion(String minecraftVersionId) {
-        return fetchLatestForgeVersion(minecraftVersionId, false);
+        return getJson(endpoint, VersionResponse.class, etag).thenApply(result -> result.map(VersionResponse::version));
     }
 
-    public CompletableFuture<String> fetchLatestForgeVersion(String minecraftVersionId, boolean includePrereleases) {
+    public CompletableFuture<FetchResult<String>> fetchLatestForgeVersion(String minecraftVersionId, boolean includePrereleases, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
         String endpoint = "forge/latest/" + minecraftVersionId.toLowerCase(Locale.ROOT);
         if (includePrereleases)
             endpoint += "?includePrereleases=true";
 
-        return getJson(endpoint, VersionResponse.class).thenApply(VersionResponse::version);
+        return getJson(endpoint, VersionResponse.class, etag).thenApply(result -> result.map(VersionResponse::version));
     }
 
-    public CompletableFuture<List<String>> fetchNeoforgeVersions() {
-        return getJson("neoforge/versions", LIST_OF_STRINGS);
+    public CompletableFuture<FetchResult<List<String>>> fetchNeoforgeVersions(@Nullable String etag) {
+        return getJson("neoforge/versions", LIST_OF_STRINGS, etag);
     }
 
-    public CompletableFuture<List<String>> fetchNeoforgeVersions(String minecraftVersionId) {
+    public CompletableFuture<FetchResult<List<String>>> fetchNeoforgeVersions(String minecraftVersionId, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
-        return getJson("neoforge/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_STRINGS);
+        return getJson("neoforge/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_STRINGS, etag);
     }
 
-    public CompletableFuture<String> fetchLatestNeoforgeVersion() {
-        return fetchLatestNeoforgeVersion(false);
-    }
-
-    public CompletableFuture<String> fetchLatestNeoforgeVersion(boolean includePrereleases) {
+    public CompletableFuture<FetchResult<String>> fetchLatestNeoforgeVersion(boolean includePrereleases, @Nullable String etag) {
         String endpoint = "neoforge/latest";
         if (includePrereleases)
             endpoint += "?includePrereleases=true";
 
-        return getJson(endpoint, VersionResponse.class).thenApply(VersionResponse::version);
+        return getJson(endpoint, VersionResponse.class, etag).thenApply(result -> result.map(VersionResponse::version));
     }
 
-    public CompletableFuture<String> fetchLatestNeoforgeVersion(String minecraftVersionId) {
-        return fetchLatestNeoforgeVersion(minecraftVersionId, false);
-    }
-
-    public CompletableFuture<String> fetchLatestNeoforgeVersion(String minecraftVersionId, boolean includePrereleases) {
+    public CompletableFuture<FetchResult<String>> fetchLatestNeoforgeVersion(String minecraftVersionId, boolean includePrereleases, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
         String endpoint = "neoforge/latest/" + minecraftVersionId.toLowerCase(Locale.ROOT);
         if (includePrereleases)
             endpoint += "?includePrereleases=true";
 
-        return getJson(endpoint, VersionResponse.class).thenApply(VersionResponse::version);
+        return getJson(endpoint, VersionResponse.class, etag).thenApply(result -> result.map(VersionResponse::version));
     }
 
-    public CompletableFuture<List<String>> fetchFabricApiVersions() {
-        return getJson("fabric/api/versions", LIST_OF_STRINGS);
+    public CompletableFuture<FetchResult<List<String>>> fetchFabricApiVersions(@Nullable String etag) {
+        return getJson("fabric/api/versions", LIST_OF_STRINGS, etag);
     }
 
-    public CompletableFuture<List<String>> fetchFabricApiVersions(String minecraftVersionId) {
+    public CompletableFuture<FetchResult<List<String>>> fetchFabricApiVersions(String minecraftVersionId, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
-        return getJson("fabric/api/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_STRINGS);
+        return getJson("fabric/api/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_STRINGS, etag);
     }
 
-    public CompletableFuture<String> fetchLatestFabricApiVersion() {
-        return fetchLatestFabricApiVersion(false);
-    }
-
-    public CompletableFuture<String> fetchLatestFabricApiVersion(boolean includePrereleases) {
+    public CompletableFuture<FetchResult<String>> fetchLatestFabricApiVersion(boolean includePrereleases, @Nullable String etag) {
         String endpoint = "fabric/api/latest";
         if (includePrereleases)
             endpoint += "?includePrereleases=true";
 
-        return getJson(endpoint, VersionResponse.class).thenApply(VersionResponse::version);
-    }
-
-    public CompletableFuture<String> fetchLatestFabricApiVersion(String minecraftVersionId) {
-        return fetchLatestFabricApiVersion(minecraftVersionId, false);
+        return getJson(endpoint, VersionResponse.class, etag).thenApply(result -> result.map(VersionResponse::version));
     }
 
-    public CompletableFuture<String> fetchLatestFabricApiVersion(String minecraftVersionId, boolean includePrereleases) {
+    public CompletableFuture<FetchResult<String>> fetchLatestFabricApiVersion(String minecraftVersionId, boolean includePrereleases, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
         String endpoint = "fabric/api/latest/" + minecraftVersionId.toLowerCase(Locale.ROOT);
         if (includePrereleases)
             endpoint += "?includePrereleases=true";
 
-        return getJson(endpoint, VersionResponse.class).thenApply(VersionResponse::version);
+        return getJson(endpoint, VersionResponse.class, etag).thenApply(result -> result.map(VersionResponse::version));
     }
 
-    public CompletableFuture<List<FabricLoaderVersion>> fetchFabricLoaderVersions() {
-        return getJson("fabric/loader/versions", LIST_OF_FABRIC_LOADER_VERSIONS);
+    public CompletableFuture<FetchResult<List<FabricLoaderVersion>>> fetchFabricLoaderVersions(@Nullable String etag) {
+        return getJson("fabric/loader/versions", LIST_OF_FABRIC_LOADER_VERSIONS, etag);
     }
 
-    public CompletableFuture<List<FabricLoaderVersion>> fetchFabricLoaderVersions(String minecraftVersionId) {
+    public CompletableFuture<FetchResult<List<FabricLoaderVersion>>> fetchFabricLoaderVersions(String minecraftVersionId, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
-        return getJson("fabric/loader/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_FABRIC_LOADER_VERSIONS);
-    }
-
-    public CompletableFuture<FabricLoaderVersion> fetchLatestFabricLoaderVersion() {
-        return fetchLatestFabricLoaderVersion(false);
+        return getJson("fabric/loader/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_FABRIC_LOADER_VERSIONS, etag);
     }
 
-    public CompletableFuture<FabricLoaderVersion> fetchLatestFabricLoaderVersion(boolean includePrereleases) {
+    public CompletableFuture<FetchResult<FabricLoaderVersion>> fetchLatestFabricLoaderVersion(boolean includePrereleases, @Nullable String etag) {
         String endpoint = "fabric/loader/latest";
         if (includePrereleases)
             endpoint += "?includePrereleases=true";
 
-        return getJson(endpoint, FabricLoaderVersion.class);
+        return getJson(endpoint, FabricLoaderVersion.class, etag);
     }
 
-    public CompletableFuture<FabricLoaderVersion> fetchLatestFabricLoaderVersion(String minecraftVersionId) {
-        return fetchLatestFabricLoaderVersion(minecraftVersionId, false);
-    }
-
-    public CompletableFuture<FabricLoaderVersion> fetchLatestFabricLoaderVersion(String minecraftVersionId, boolean includePrereleases) {
+    public CompletableFuture<FetchResult<FabricLoaderVersion>> fetchLatestFabricLoaderVersion(String minecraftVersionId, boolean includePrereleases, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
         String endpoint = "fabric/loader/latest/" + minecraftVersionId.toLowerCase(Locale.ROOT);
         if (includePrereleases)
             endpoint += "?includePrereleases=true";
 
-        return getJson(endpoint, FabricLoaderVersion.class);
+        return getJson(endpoint, FabricLoaderVersion.class, etag);
     }
 
-    public CompletableFuture<List<String>> fetchYarnVersions() {
-        return getJson("yarn/versions", LIST_OF_STRINGS);
+    public CompletableFuture<FetchResult<List<String>>> fetchYarnVersions(@Nullable String etag) {
+        return getJson("yarn/versions", LIST_OF_STRINGS, etag);
     }
 
-    public CompletableFuture<List<String>> fetchYarnVersions(String minecraftVersionId) {
+    public CompletableFuture<FetchResult<List<String>>> fetchYarnVersions(String minecraftVersionId, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
-        return getJson("yarn/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_STRINGS);
+        return getJson("yarn/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_STRINGS, etag);
     }
 
-    public CompletableFuture<String> fetchLatestYarnVersion() {
-        return getJson("yarn/latest", VersionResponse.class).thenApply(VersionResponse::version);
+    public CompletableFuture<FetchResult<String>> fetchLatestYarnVersion(@Nullable String etag) {
+        return getJson("yarn/latest", VersionResponse.class, etag).thenApply(result -> result.map(VersionResponse::version));
     }
 
-    public CompletableFuture<String> fetchLatestYarnVersion(String minecraftVersionId) {
+    public CompletableFuture<FetchResult<String>> fetchLatestYarnVersion(String minecraftVersionId, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
-        return getJson("yarn/latest/" + minecraftVersionId.toLowerCase(Locale.ROOT), VersionResponse.class).thenApply(VersionResponse::version);
+        return getJson("yarn/latest/" + minecraftVersionId.toLowerCase(Locale.ROOT), VersionResponse.class, etag).thenApply(result -> result.map(VersionResponse::version));
     }
 
-    public CompletableFuture<List<String>> fetchMcpVersions() {
-        return getJson("mcp/versions", LIST_OF_STRINGS);
+    public CompletableFuture<FetchResult<List<String>>> fetchMcpVersions(@Nullable String etag) {
+        return getJson("mcp/versions", LIST_OF_STRINGS, etag);
     }
 
-    public CompletableFuture<List<String>> fetchMcpVersions(String minecraftVersionId) {
+    public CompletableFuture<FetchResult<List<String>>> fetchMcpVersions(String minecraftVersionId, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
-        return getJson("mcp/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_STRINGS);
+        return getJson("mcp/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_STRINGS, etag);
     }
 
-    public CompletableFuture<String> fetchLatestMcpVersion() {
-        return getJson("mcp/latest", VersionResponse.class).thenApply(VersionResponse::version);
+    public CompletableFuture<FetchResult<String>> fetchLatestMcpVersion(@Nullable String etag) {
+        return getJson("mcp/latest", VersionResponse.class, etag).thenApply(result -> result.map(VersionResponse::version));
     }
 
-    public CompletableFuture<String> fetchLatestMcpVersion(String minecraftVersionId) {
+    public CompletableFuture<FetchResult<String>> fetchLatestMcpVersion(String minecraftVersionId, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
-        return getJson("mcp/latest/" + minecraftVersionId.toLowerCase(Locale.ROOT), VersionResponse.class).thenApply(VersionResponse::version);
+        return getJson("mcp/latest/" + minecraftVersionId.toLowerCase(Locale.ROOT), VersionResponse.class, etag).thenApply(result -> result.map(VersionResponse::version));
     }
 
-    public CompletableFuture<List<String>> fetchMojmapVersions() {
-        return getJson("mojmap/versions", LIST_OF_STRINGS);
+    public CompletableFuture<FetchResult<List<String>>> fetchMojmapVersions(@Nullable String etag) {
+        return getJson("mojmap/versions", LIST_OF_STRINGS, etag);
     }
 
-    public CompletableFuture<List<String>> fetchMojmapVersions(String minecraftVersionId) {
+    public CompletableFuture<FetchResult<List<String>>> fetchMojmapVersions(String minecraftVersionId, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
-        return getJson("mojmap/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_STRINGS);
+        return getJson("mojmap/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_STRINGS, etag);
     }
 
-    public CompletableFuture<String> fetchLatestMojmapVersion() {
-        return getJson("mojmap/latest", VersionResponse.class).thenApply(VersionResponse::version);
+    public CompletableFuture<FetchResult<String>> fetchLatestMojmapVersion(@Nullable String etag) {
+        return getJson("mojmap/latest", VersionResponse.class, etag).thenApply(result -> result.map(VersionResponse::version));
     }
 
-    public CompletableFuture<List<ParchmentVersion>> fetchParchmentVersions() {
-        return getJson("parchment/versions", LIST_OF_PARCHMENT_VERSIONS);
+    public CompletableFuture<FetchResult<List<ParchmentVersion>>> fetchParchmentVersions(@Nullable String etag) {
+        return getJson("parchment/versions", LIST_OF_PARCHMENT_VERSIONS, etag);
     }
 
-    public CompletableFuture<List<ParchmentVersion>> fetchParchmentVersions(String minecraftVersionId) {
+    public CompletableFuture<FetchResult<List<ParchmentVersion>>> fetchParchmentVersions(String minecraftVersionId, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
-        return getJson("parchment/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_PARCHMENT_VERSIONS);
+        return getJson("parchment/versions/" + minecraftVersionId.toLowerCase(Locale.ROOT), LIST_OF_PARCHMENT_VERSIONS, etag);
     }
 
-    public CompletableFuture<ParchmentVersion> fetchLatestParchmentVersion() {
-        return getJson("parchment/latest", ParchmentVersion.class);
+    public CompletableFuture<FetchResult<ParchmentVersion>> fetchLatestParchmentVersion(@Nullable String etag) {
+        return getJson("parchment/latest", ParchmentVersion.class, etag);
     }
 
-    public CompletableFuture<ParchmentVersion> fetchLatestParchmentVersion(String minecraftVersionId) {
+    public CompletableFuture<FetchResult<ParchmentVersion>> fetchLatestParchmentVersion(String minecraftVersionId, @Nullable String etag) {
         Objects.requireNonNull(minecraftVersionId, "minecraftVersionId");
-        return getJson("parchment/latest/" + minecraftVersionId.toLowerCase(Locale.ROOT), ParchmentVersion.class);
+        return getJson("parchment/latest/" + minecraftVersionId.toLowerCase(Locale.ROOT), ParchmentVersion.class, etag);
     }
 
-    public CompletableFuture<Map<String, List<ParchmentVersion>>> fetchGroupedParchmentVersions() {
-        return getJson("parchment/grouped", MAP_OF_PARCHMENT_VERSIONS);
+    public CompletableFuture<FetchResult<Map<String, List<ParchmentVersion>>>> fetchGroupedParchmentVersions(@Nullable String etag) {
+        return getJson("parchment/grouped", MAP_OF_PARCHMENT_VERSIONS, etag);
     }
 
-    public record JsonCallback<T>(CompletableFuture<T> future, TypeToken<T> clazz) implements Callback {
+    public record JsonCallback<T>(CompletableFuture<FetchResult<T>> future, TypeToken<T> clazz) implements Callback {
         @Override
         public void onFailure(@NotNull Call call, @NotNull IOException exception) {
             future.completeExceptionally(exception);
@@ -272,6 +251,11 @@ public record SwitchboardClient(String baseUrl) {
         @Override
         public void onResponse(@NotNull Call call, @NotNull Response response) {
             try (response) {
+                if (response.code() == 304) {
+                    future.complete(FetchResult.notModified(response.header("ETag")));
+                    return;
+                }
+
                 if (!response.isSuccessful()) {
                     future.completeExceptionally(new RuntimeException("Request failed with code: " + response.code()));
                     return;
@@ -279,7 +263,7 @@ public record SwitchboardClient(String baseUrl) {
 
                 ResponseBody body = Objects.requireNonNull(response.body());
                 T result = ServiceLocator.getService(Gson.class).fromJson(body.charStream(), clazz.getType());
-                future.complete(result);
+                future.complete(FetchResult.modified(result, response.header("ETag")));
             } catch (Exception exception) {
                 future.completeExceptionally(exception);
             }
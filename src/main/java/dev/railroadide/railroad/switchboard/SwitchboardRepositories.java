@@ -7,28 +7,45 @@ import dev.railroadide.core.switchboard.cache.impl.JsonCacheManager;
 import dev.railroadide.core.switchboard.cache.impl.SqlCacheManager;
 import dev.railroadide.railroad.Railroad;
 import dev.railroadide.railroad.config.ConfigHandler;
+import dev.railroadide.railroad.settings.Settings;
+import dev.railroadide.railroad.settings.handler.SettingsHandler;
 import dev.railroadide.railroad.switchboard.repositories.*;
+import dev.railroadide.railroad.utility.ShutdownHooks;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
 
 public final class SwitchboardRepositories {
     private static final SwitchboardClient CLIENT = new SwitchboardClient("https://switchboard.railroadide.dev/");
-    private static final CacheManager CACHE_MANAGER;
+    // Each backend is opened once, so switching back and forth does not open a database twice
+    private static final Map<SwitchboardCacheBackend, CacheManager> BACKENDS = new EnumMap<>(SwitchboardCacheBackend.class);
+    private static final DelegatingCacheManager CACHE_MANAGER;
+    private static SwitchboardCacheBackend cacheBackend;
 
     static {
-        CacheManager cacheManager;
+        SwitchboardCacheBackend backend = SettingsHandler.getValue(Settings.SWITCHBOARD_CACHE_BACKEND);
+        if (backend == null) {
+            backend = SwitchboardCacheBackend.SQLITE;
+        }
+
+        CacheManager initial;
         try {
-            cacheManager = createCacheManager();
+            initial = getBackend(backend);
+            cacheBackend = backend;
         } catch (SQLException exception) {
             Railroad.LOGGER.error("Failed to initialize SQL cache manager, falling back to JSON cache", exception);
-            Path cacheDirectory = ConfigHandler.getConfigDirectory().resolve("switchboard-cache");
-            cacheManager = new DelegatingCacheManager(new JsonCacheManager(cacheDirectory, Railroad.GSON));
+            initial = createJsonBackend();
+            BACKENDS.put(SwitchboardCacheBackend.JSON, initial);
+            cacheBackend = SwitchboardCacheBackend.JSON;
         }
 
-        CACHE_MANAGER = cacheManager;
+        CACHE_MANAGER = new DelegatingCacheManager(initial);
+        SwitchboardCacheMaintenance.schedule(CACHE_MANAGER);
+        Settings.SWITCHBOARD_CACHE_BACKEND.addListener((oldValue, newValue) -> switchCacheBackend(newValue));
     }
 
     public static final MinecraftVersionRepository MINECRAFT = register("railroad:switchboard/minecraft", new MinecraftVersionRepository(CLIENT, CACHE_MANAGER));
@@ -48,7 +65,56 @@ public final class SwitchboardRepositories {
         // NO-OP: accessing this class ensures the repositories are registered.
     }
 
-    private static CacheManager createCacheManager() throws SQLException {
+    /**
+     * Switches the cache to another backend, moving the cached entries to it in the background.
+     */
+    private static synchronized void switchCacheBackend(SwitchboardCacheBackend backend) {
+        if (backend == null || backend == cacheBackend)
+            return;
+
+        CacheManager newBackend;
+        try {
+            newBackend = getBackend(backend);
+        } catch (SQLException exception) {
+            Railroad.LOGGER.error("Failed to open the {} switchboard cache, keeping the current one", backend, exception);
+            return;
+        }
+
+        SwitchboardCacheBackend oldBackend = cacheBackend;
+        Railroad.LOGGER.info("Switching the switchboard cache from {} to {}", oldBackend, backend);
+        cacheBackend = backend;
+        CACHE_MANAGER.switchBackend(newBackend, true).whenComplete((report, throwable) -> {
+            if (throwable != null) {
+                Railroad.LOGGER.error("Failed to migrate the switchboard cache to {}", backend, throwable);
+            } else if (report.failed() > 0) {
+                Railroad.LOGGER.warn("Failed to migrate {} switchboard cache entries to {}, which keep being read from {}: {}",
+                    report.failed(), backend, oldBackend, report);
+            } else {
+                Railroad.LOGGER.info("Migrated the switchboard cache to {}: {}", backend, report);
+            }
+        });
+    }
+
+    private static CacheManager getBackend(SwitchboardCacheBackend backend) throws SQLException {
+        synchronized (BACKENDS) {
+            CacheManager existing = BACKENDS.get(backend);
+            if (existing != null)
+                return existing;
+
+            CacheManager created = switch (backend) {
+                case SQLITE -> createSqlBackend();
+                case JSON -> createJsonBackend();
+            };
+            BACKENDS.put(backend, created);
+            return created;
+        }
+    }
+
+    private static CacheManager createJsonBackend() {
+        return new JsonCacheManager(ConfigHandler.getConfigDirectory().resolve("switchboard-cache"), Railroad.GSON);
+    }
+
+    private static CacheManager createSqlBackend() throws SQLException {
         Path dbPath = ConfigHandler.getConfigDirectory().resolve("switchboard.db");
         if (Files.notExists(dbPath)) {
             try {
@@ -58,7 +124,9 @@ public final class SwitchboardRepositories {
             }
         }
 
-        return new DelegatingCacheManager(new SqlCacheManager(dbPath));
+        var sqlCacheManager = new SqlCacheManager(dbPath);
+        ShutdownHooks.addHook(sqlCacheManager::close);
+        return sqlCacheManager;
     }
 
     @SuppressWarnings("unchecked")
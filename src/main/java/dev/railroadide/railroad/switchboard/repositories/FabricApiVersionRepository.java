@@ -18,7 +18,7 @@ public record FabricApiVersionRepository(SwitchboardClient client, CacheManager
     private static final Duration LATEST_TTL = Duration.ofHours(1);
 
     public CompletableFuture<List<String>> getAllVersions() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "fabric:api:versions",
             SwitchboardClient.LIST_OF_STRINGS,
             VERSIONS_TTL,
@@ -35,11 +35,11 @@ public record FabricApiVersionRepository(SwitchboardClient client, CacheManager
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "fabric:api:versions:" + normalized;
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             SwitchboardClient.LIST_OF_STRINGS,
             VERSIONS_TTL,
-            () -> client.fetchFabricApiVersions(normalized)
+            etag -> client.fetchFabricApiVersions(normalized, etag)
         );
     }
 
@@ -53,11 +53,11 @@ public record FabricApiVersionRepository(SwitchboardClient client, CacheManager
 
     public CompletableFuture<String> getLatestVersion(boolean includePrereleases) {
         String key = includePrereleases ? "fabric:api:latest:prereleases" : "fabric:api:latest";
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             String.class,
             LATEST_TTL,
-            () -> client.fetchLatestFabricApiVersion(includePrereleases)
+            etag -> client.fetchLatestFabricApiVersion(includePrereleases, etag)
         );
     }
 
@@ -78,11 +78,11 @@ public record FabricApiVersionRepository(SwitchboardClient client, CacheManager
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "fabric:api:latest:" + normalized + (includePrereleases ? ":prereleases" : "");
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             String.class,
             LATEST_TTL,
-            () -> client.fetchLatestFabricApiVersion(normalized, includePrereleases)
+            etag -> client.fetchLatestFabricApiVersion(normalized, includePrereleases, etag)
         );
     }
 
@@ -18,7 +18,7 @@ public record FabricLoaderVersionRepository(SwitchboardClient client, CacheManag
     private static final Duration LATEST_TTL = Duration.ofHours(1);
 
     public CompletableFuture<List<FabricLoaderVersion>> getAllVersions() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "fabric:loader:versions",
             SwitchboardClient.LIST_OF_FABRIC_LOADER_VERSIONS,
             VERSIONS_TTL,
@@ -35,11 +35,11 @@ public record FabricLoaderVersionRepository(SwitchboardClient client, CacheManag
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "fabric:loader:versions:" + normalized;
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             SwitchboardClient.LIST_OF_FABRIC_LOADER_VERSIONS,
             VERSIONS_TTL,
-            () -> client.fetchFabricLoaderVersions(normalized)
+            etag -> client.fetchFabricLoaderVersions(normalized, etag)
         );
     }
 
@@ -53,11 +53,11 @@ public record FabricLoaderVersionRepository(SwitchboardClient client, CacheManag
 
     public CompletableFuture<FabricLoaderVersion> getLatestVersion(boolean includePrereleases) {
         String key = includePrereleases ? "fabric:loader:latest:prereleases" : "fabric:loader:latest";
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             FabricLoaderVersion.class,
             LATEST_TTL,
-            () -> client.fetchLatestFabricLoaderVersion(includePrereleases)
+            etag -> client.fetchLatestFabricLoaderVersion(includePrereleases, etag)
         );
     }
 
@@ -78,11 +78,11 @@ public record FabricLoaderVersionRepository(SwitchboardClient client, CacheManag
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "fabric:loader:latest:" + normalized + (includePrereleases ? ":prereleases" : "");
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             FabricLoaderVersion.class,
             LATEST_TTL,
-            () -> client.fetchLatestFabricLoaderVersion(normalized, includePrereleases)
+            etag -> client.fetchLatestFabricLoaderVersion(normalized, includePrereleases, etag)
         ).thenApply(fabricLoaderVersion -> fabricLoaderVersion.version() == null ? null : fabricLoaderVersion);
     }
 
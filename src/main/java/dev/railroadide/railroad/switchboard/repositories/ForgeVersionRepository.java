@@ -17,7 +17,7 @@ public record ForgeVersionRepository(SwitchboardClient client, CacheManager cach
     private static final Duration LATEST_TTL = Duration.ofHours(1);
 
     public CompletableFuture<List<String>> getAllVersions() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "forge:versions",
             SwitchboardClient.LIST_OF_STRINGS,
             VERSIONS_TTL,
@@ -34,11 +34,11 @@ public record ForgeVersionRepository(SwitchboardClient client, CacheManager cach
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "forge:versions:" + normalized;
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             SwitchboardClient.LIST_OF_STRINGS,
             VERSIONS_TTL,
-            () -> client.fetchForgeVersions(normalized)
+            etag -> client.fetchForgeVersions(normalized, etag)
         );
     }
 
@@ -52,11 +52,11 @@ public record ForgeVersionRepository(SwitchboardClient client, CacheManager cach
 
     public CompletableFuture<String> getLatestVersion(boolean includePrereleases) {
         String key = includePrereleases ? "forge:latest:prereleases" : "forge:latest";
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             String.class,
             LATEST_TTL,
-            () -> client.fetchLatestForgeVersion(includePrereleases)
+            etag -> client.fetchLatestForgeVersion(includePrereleases, etag)
         );
     }
 
@@ -77,11 +77,11 @@ public record ForgeVersionRepository(SwitchboardClient client, CacheManager cach
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "forge:latest:" + normalized + (includePrereleases ? ":prereleases" : "");
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             String.class,
             LATEST_TTL,
-            () -> client.fetchLatestForgeVersion(normalized, includePrereleases)
+            etag -> client.fetchLatestForgeVersion(normalized, includePrereleases, etag)
         );
     }
 
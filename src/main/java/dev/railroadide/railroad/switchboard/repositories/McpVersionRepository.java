@@ -17,7 +17,7 @@ public record McpVersionRepository(SwitchboardClient client, CacheManager cache)
     private static final Duration LATEST_TTL = Duration.ofHours(1);
 
     public CompletableFuture<List<String>> getAllVersions() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "mcp:versions",
             SwitchboardClient.LIST_OF_STRINGS,
             VERSIONS_TTL,
@@ -34,11 +34,11 @@ public record McpVersionRepository(SwitchboardClient client, CacheManager cache)
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "mcp:versions:" + normalized;
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             SwitchboardClient.LIST_OF_STRINGS,
             VERSIONS_TTL,
-            () -> client.fetchMcpVersions(normalized)
+            etag -> client.fetchMcpVersions(normalized, etag)
         );
     }
 
@@ -47,7 +47,7 @@ public record McpVersionRepository(SwitchboardClient client, CacheManager cache)
     }
 
     public CompletableFuture<String> getLatestVersion() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "mcp:latest",
             String.class,
             LATEST_TTL,
@@ -64,11 +64,11 @@ public record McpVersionRepository(SwitchboardClient client, CacheManager cache)
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "mcp:latest:" + normalized;
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             String.class,
             LATEST_TTL,
-            () -> client.fetchLatestMcpVersion(normalized)
+            etag -> client.fetchLatestMcpVersion(normalized, etag)
         );
     }
 
@@ -16,7 +16,7 @@ import java.util.concurrent.ExecutionException;
 public record MinecraftVersionRepository(SwitchboardClient client, CacheManager cache)
     implements SwitchboardRepository {
     public CompletableFuture<List<MinecraftVersion>> getAllVersions() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "mc:versions",
             new TypeToken<List<MinecraftVersion>>() {
             },
@@ -31,12 +31,12 @@ public record MinecraftVersionRepository(SwitchboardClient client, CacheManager
 
     public CompletableFuture<Optional<MinecraftVersion>> getVersion(String id) {
         String key = "mc:version:" + id.toLowerCase(Locale.ROOT);
-        return cache.getOrFetchOptional(
+        return cache.getOrRevalidate(
             key,
             MinecraftVersion.class,
             Duration.ofDays(7),
-            () -> client.fetchMinecraftVersionById(id)
-        );
+            etag -> client.fetchMinecraftVersionById(id, etag)
+        ).thenApply(Optional::of);
     }
 
     public Optional<MinecraftVersion> getVersionSync(String id) throws ExecutionException, InterruptedException {
@@ -44,7 +44,7 @@ public record MinecraftVersionRepository(SwitchboardClient client, CacheManager
     }
 
     public CompletableFuture<MinecraftVersion> getLatestVersion() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "mc:latest",
             MinecraftVersion.class,
             Duration.ofHours(1),
@@ -58,11 +58,11 @@ public record MinecraftVersionRepository(SwitchboardClient client, CacheManager
 
     public CompletableFuture<MinecraftVersion> getLatest(MinecraftVersion.Type type) {
         String key = "mc:latest:" + type.name().toLowerCase(Locale.ROOT);
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             MinecraftVersion.class,
             Duration.ofHours(1),
-            () -> client.fetchLatestMinecraftVersionOfType(type)
+            etag -> client.fetchLatestMinecraftVersionOfType(type, etag)
         );
     }
 
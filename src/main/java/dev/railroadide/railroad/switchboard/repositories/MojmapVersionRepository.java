@@ -17,7 +17,7 @@ public record MojmapVersionRepository(SwitchboardClient client, CacheManager cac
     private static final Duration LATEST_TTL = Duration.ofHours(1);
 
     public CompletableFuture<List<String>> getAllVersions() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "mojmap:versions",
             SwitchboardClient.LIST_OF_STRINGS,
             VERSIONS_TTL,
@@ -34,11 +34,11 @@ public record MojmapVersionRepository(SwitchboardClient client, CacheManager cac
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "mojmap:versions:" + normalized;
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             SwitchboardClient.LIST_OF_STRINGS,
             VERSIONS_TTL,
-            () -> client.fetchMojmapVersions(normalized)
+            etag -> client.fetchMojmapVersions(normalized, etag)
         );
     }
 
@@ -47,7 +47,7 @@ public record MojmapVersionRepository(SwitchboardClient client, CacheManager cac
     }
 
     public CompletableFuture<String> getLatestVersion() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "mojmap:latest",
             String.class,
             LATEST_TTL,
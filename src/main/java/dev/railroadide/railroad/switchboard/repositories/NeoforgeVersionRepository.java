@@ -17,7 +17,7 @@ public record NeoforgeVersionRepository(SwitchboardClient client, CacheManager c
     private static final Duration LATEST_TTL = Duration.ofHours(1);
 
     public CompletableFuture<List<String>> getAllVersions() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "neoforge:versions",
             SwitchboardClient.LIST_OF_STRINGS,
             VERSIONS_TTL,
@@ -34,11 +34,11 @@ public record NeoforgeVersionRepository(SwitchboardClient client, CacheManager c
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "neoforge:versions:" + normalized;
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             SwitchboardClient.LIST_OF_STRINGS,
             VERSIONS_TTL,
-            () -> client.fetchNeoforgeVersions(normalized)
+            etag -> client.fetchNeoforgeVersions(normalized, etag)
         );
     }
 
@@ -52,11 +52,11 @@ public record NeoforgeVersionRepository(SwitchboardClient client, CacheManager c
 
     public CompletableFuture<String> getLatestVersion(boolean includePrereleases) {
         String key = includePrereleases ? "neoforge:latest:prereleases" : "neoforge:latest";
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             String.class,
             LATEST_TTL,
-            () -> client.fetchLatestNeoforgeVersion(includePrereleases)
+            etag -> client.fetchLatestNeoforgeVersion(includePrereleases, etag)
         );
     }
 
@@ -77,11 +77,11 @@ public record NeoforgeVersionRepository(SwitchboardClient client, CacheManager c
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "neoforge:latest:" + normalized + (includePrereleases ? ":prereleases" : "");
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             String.class,
             LATEST_TTL,
-            () -> client.fetchLatestNeoforgeVersion(normalized, includePrereleases)
+            etag -> client.fetchLatestNeoforgeVersion(normalized, includePrereleases, etag)
         );
     }
 
@@ -19,7 +19,7 @@ public record ParchmentVersionRepository(SwitchboardClient client, CacheManager
     private static final Duration LATEST_TTL = Duration.ofHours(1);
 
     public CompletableFuture<List<ParchmentVersion>> getAllVersions() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "parchment:versions",
             SwitchboardClient.LIST_OF_PARCHMENT_VERSIONS,
             VERSIONS_TTL,
@@ -36,11 +36,11 @@ public record ParchmentVersionRepository(SwitchboardClient client, CacheManager
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "parchment:versions:" + normalized;
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             SwitchboardClient.LIST_OF_PARCHMENT_VERSIONS,
             VERSIONS_TTL,
-            () -> client.fetchParchmentVersions(normalized)
+            etag -> client.fetchParchmentVersions(normalized, etag)
         );
     }
 
@@ -49,7 +49,7 @@ public record ParchmentVersionRepository(SwitchboardClient client, CacheManager
     }
 
     public CompletableFuture<ParchmentVersion> getLatestVersion() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "parchment:latest",
             ParchmentVersion.class,
             LATEST_TTL,
@@ -66,11 +66,11 @@ public record ParchmentVersionRepository(SwitchboardClient client, CacheManager
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "parchment:latest:" + normalized;
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             ParchmentVersion.class,
             LATEST_TTL,
-            () -> client.fetchLatestParchmentVersion(normalized)
+            etag -> client.fetchLatestParchmentVersion(normalized, etag)
         );
     }
 
@@ -79,7 +79,7 @@ public record ParchmentVersionRepository(SwitchboardClient client, CacheManager
     }
 
     public CompletableFuture<Map<String, List<ParchmentVersion>>> getGroupedVersions() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "parchment:grouped",
             SwitchboardClient.MAP_OF_PARCHMENT_VERSIONS,
             VERSIONS_TTL,
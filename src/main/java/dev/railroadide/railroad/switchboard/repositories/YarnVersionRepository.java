@@ -17,7 +17,7 @@ public record YarnVersionRepository(SwitchboardClient client, CacheManager cache
     private static final Duration LATEST_TTL = Duration.ofHours(1);
 
     public CompletableFuture<List<String>> getAllVersions() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "yarn:versions",
             SwitchboardClient.LIST_OF_STRINGS,
             VERSIONS_TTL,
@@ -34,11 +34,11 @@ public record YarnVersionRepository(SwitchboardClient client, CacheManager cache
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "yarn:versions:" + normalized;
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             SwitchboardClient.LIST_OF_STRINGS,
             VERSIONS_TTL,
-            () -> client.fetchYarnVersions(normalized)
+            etag -> client.fetchYarnVersions(normalized, etag)
         );
     }
 
@@ -47,7 +47,7 @@ public record YarnVersionRepository(SwitchboardClient client, CacheManager cache
     }
 
     public CompletableFuture<String> getLatestVersion() {
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             "yarn:latest",
             String.class,
             LATEST_TTL,
@@ -64,11 +64,11 @@ public record YarnVersionRepository(SwitchboardClient client, CacheManager cache
         String normalized = minecraftVersionId.toLowerCase(Locale.ROOT);
         String key = "yarn:latest:" + normalized;
 
-        return cache.getOrFetch(
+        return cache.getOrRevalidate(
             key,
             String.class,
             LATEST_TTL,
-            () -> client.fetchLatestYarnVersion(normalized)
+            etag -> client.fetchLatestYarnVersion(normalized, etag)
         );
     }
 
@@ -0,0 +1,48 @@
+package dev.railroadide.railroad.utility;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs a task a fixed delay after it was first requested, folding every further request made before it starts into
+ * that one run. Requests made while it runs schedule the next run.
+ * <p>
+ * Indexes use this to apply the changes reported by the file watcher in batches and to save themselves at most every
+ * few seconds.
+ */
+public final class Debouncer {
+    private final Executor executor;
+    private final Duration delay;
+    private final Runnable task;
+    private boolean scheduled;
+
+    /**
+     * @param executor the executor to run the task on
+     * @param delay    how long after the first request to run the task
+     * @param task     the task
+     */
+    public Debouncer(Executor executor, Duration delay, Runnable task) {
+        this.executor = executor;
+        this.delay = delay;
+        this.task = task;
+    }
+
+    /**
+     * Requests a run of the task, unless one is already waiting to start.
+     */
+    public synchronized void request() {
+        if (this.scheduled)
+            return;
+
+        this.scheduled = true;
+        TaskScheduler.executeLater(this.executor, this::run, this.delay);
+    }
+
+    private void run() {
+        synchronized (this) {
+            this.scheduled = false;
+        }
+
+        this.task.run();
+    }
+}
@@ -0,0 +1,10 @@
+package dev.railroadide.railroad.utility;
+
+/**
+ * The text of a document at one version, safe to read from any thread without copying.
+ *
+ * @param version the version, which increases with every change
+ * @param text    the text
+ */
+public record DocumentSnapshot(int version, Rope text) {
+}
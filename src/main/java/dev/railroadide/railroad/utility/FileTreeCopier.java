@@ -0,0 +1,263 @@
+package dev.railroadide.railroad.utility;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Copies and moves files and whole directory trees.
+ * <p>
+ * The directories of a tree are created up front, after which its files are copied by several workers on the
+ * {@link TaskScheduler.Lane#IO} lane at once. Large files are copied with {@link FileChannel#transferTo}, which
+ * lets the kernel copy them without passing them through the JVM, in chunks so that progress is reported and
+ * cancellation noticed while they are being copied. A move within one file system is a single rename; only moves
+ * that cannot be renamed, such as across file systems or into an existing directory, are copied and deleted.
+ * <p>
+ * Copies are cancelled by interrupting the calling thread. A cancelled or failed copy leaves the files copied so far
+ * in place, and a cancelled or failed move leaves the source untouched.
+ */
+public final class FileTreeCopier {
+    private static final int PARALLELISM = 8;
+    private static final long CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private FileTreeCopier() {
+    }
+
+    /**
+     * Copies a file or directory tree. Directories that already exist in the target are merged into.
+     *
+     * @param source   the file or directory to copy
+     * @param target   the path to copy it to
+     * @param listener receives the progress, possibly from several threads at once, or {@code null}
+     * @param options  {@link StandardCopyOption#REPLACE_EXISTING} to overwrite existing files, and
+     *                 {@link StandardCopyOption#COPY_ATTRIBUTES} to keep modification times
+     * @throws IOException            if a file could not be copied
+     * @throws InterruptedIOException if the copy was cancelled
+     */
+    public static void copy(Path source, Path target, @Nullable ProgressListener listener, CopyOption... options)
+        throws IOException {
+        Path normalizedSource = source.toAbsolutePath().normalize();
+        Path normalizedTarget = target.toAbsolutePath().normalize();
+        // Copying a file onto itself would truncate it before reading it
+        if (normalizedTarget.equals(normalizedSource))
+            return;
+
+        if (normalizedTarget.startsWith(normalizedSource))
+            throw new IOException("Cannot copy " + source + " into itself");
+
+        Set<CopyOption> optionSet = Set.of(options);
+        List<Path> directories = new ArrayList<>();
+        List<Entry> files = new ArrayList<>();
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                directories.add(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                files.add(new Entry(file, attributes.isSymbolicLink() ? 0 : attributes.size(),
+                    attributes.isSymbolicLink()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        // Parents are visited before their children, so creating them in order never races the workers
+        for (Path directory : directories) {
+            Files.createDirectories(target.resolve(source.relativize(directory).toString()));
+        }
+
+        var progress = new ProgressCounter(files, listener);
+        progress.report();
+        if (files.size() == 1 && directories.isEmpty()) {
+            copyFile(files.getFirst(), target, optionSet, progress);
+            return;
+        }
+
+        var queue = new ConcurrentLinkedQueue<>(files);
+        var failure = new AtomicReference<IOException>();
+        TaskScheduler.TaskOwner workers = TaskScheduler.newOwner("copy of " + source.getFileName());
+        List<Future<?>> futures = new ArrayList<>();
+        for (int worker = 0; worker < Math.min(PARALLELISM, files.size()); worker++) {
+            futures.add(workers.submit(TaskScheduler.Lane.IO, () -> {
+                Entry entry;
+                while (failure.get() == null && (entry = queue.poll()) != null) {
+                    try {
+                        copyFile(entry, target.resolve(source.relativize(entry.path()).toString()), optionSet, progress);
+                    } catch (IOException exception) {
+                        failure.compareAndSet(null, exception);
+                    }
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException exception) {
+            workers.close();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Copy of " + source + " was cancelled");
+        } catch (ExecutionException exception) {
+            throw new IOException("Failed to copy " + source, exception.getCause());
+        }
+
+        if (failure.get() != null)
+            throw failure.get();
+    }
+
+    /**
+     * Moves a file or directory tree, renaming it if possible and copying and deleting it otherwise.
+     *
+     * @param source   the file or directory to move
+     * @param target   the path to move it to, which is replaced if it is a file or an empty directory and merged into
+     *                 if it is a directory
+     * @param listener receives the progress of a move that has to copy, or {@code null}
+     * @throws IOException            if the tree could not be moved
+     * @throws InterruptedIOException if the move was cancelled
+     */
+    public static void move(Path source, Path target, @Nullable ProgressListener listener) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            return;
+        } catch (DirectoryNotEmptyException | AtomicMoveNotSupportedException exception) {
+            // Either the target is a non-empty directory or the source is on another file system, so copy instead
+        }
+
+        copy(source, target, listener, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        deleteTree(source);
+    }
+
+    private static void deleteTree(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exception) throws IOException {
+                if (exception != null)
+                    throw exception;
+
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void copyFile(Entry entry, Path target, Set<CopyOption> options, ProgressCounter progress)
+        throws IOException {
+        if (Thread.currentThread().isInterrupted())
+            throw new InterruptedIOException("Copy of " + entry.path() + " was cancelled");
+
+        boolean replace = options.contains(StandardCopyOption.REPLACE_EXISTING);
+        if (entry.symbolicLink() || entry.size() <= CHUNK_SIZE) {
+            // Files.copy already copies in the kernel where it can; chunking only pays off for reporting progress
+            List<CopyOption> copyOptions = new ArrayList<>(options);
+            copyOptions.add(LinkOption.NOFOLLOW_LINKS);
+            Files.copy(entry.path(), target, copyOptions.toArray(CopyOption[]::new));
+            progress.fileCopied(entry.size());
+            return;
+        }
+
+        try (FileChannel in = FileChannel.open(entry.path(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+                 replace ? StandardOpenOption.CREATE : StandardOpenOption.CREATE_NEW)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                if (Thread.currentThread().isInterrupted())
+                    throw new InterruptedIOException("Copy of " + entry.path() + " was cancelled");
+
+                long transferred = in.transferTo(position, Math.min(CHUNK_SIZE, size - position), out);
+                if (transferred <= 0)
+                    break; // The file shrank while being copied
+
+                position += transferred;
+                progress.bytesCopied(transferred);
+            }
+        }
+
+        if (options.contains(StandardCopyOption.COPY_ATTRIBUTES)) {
+            Files.setLastModifiedTime(target, Files.getLastModifiedTime(entry.path()));
+        }
+
+        progress.fileCopied(0);
+    }
+
+    /**
+     * Receives the progress of a copy.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * Called before the first file is copied and whenever part of a file or a whole file has been copied.
+         *
+         * @param progress the progress so far
+         */
+        void onProgress(Progress progress);
+    }
+
+    /**
+     * The progress of a copy.
+     *
+     * @param bytesCopied the number of bytes copied so far
+     * @param totalBytes  the number of bytes to copy
+     * @param filesCopied the number of files copied so far
+     * @param totalFiles  the number of files to copy
+     */
+    public record Progress(long bytesCopied, long totalBytes, int filesCopied, int totalFiles) {
+    }
+
+    private record Entry(Path path, long size, boolean symbolicLink) {
+    }
+
+    private static final class ProgressCounter {
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicInteger files = new AtomicInteger();
+        private final long totalBytes;
+        private final int totalFiles;
+        private final @Nullable ProgressListener listener;
+
+        private ProgressCounter(List<Entry> entries, @Nullable ProgressListener listener) {
+            this.totalBytes = entries.stream().mapToLong(Entry::size).sum();
+            this.totalFiles = entries.size();
+            this.listener = listener;
+        }
+
+        private void bytesCopied(long count) {
+            this.bytes.addAndGet(count);
+            report();
+        }
+
+        // Large files report their bytes as they go, so only the bytes of small files are added here
+        private void fileCopied(long size) {
+            this.bytes.addAndGet(size);
+            this.files.incrementAndGet();
+            report();
+        }
+
+        private void report() {
+            if (this.listener != null) {
+                this.listener.onProgress(new Progress(this.bytes.get(), this.totalBytes, this.files.get(), this.totalFiles));
+            }
+        }
+    }
+}
@@ -133,29 +133,14 @@ public final class FileUtils {
     }
 
     /**
-     * Copies a folder from source to destination.
+     * Copies a folder from source to destination, copying its files in parallel with {@link FileTreeCopier}.
      *
      * @param src the source folder path
      * @param dst the destination folder path
      * @throws RuntimeException if an error occurs during copying
      */
     public static void copyFolder(Path src, Path dst) throws RuntimeException {
-        try (Stream<Path> files = Files.walk(src)) {
-            files.forEach(source -> {
-                try {
-                    Path destination = dst.resolve(src.relativize(source));
-                    if (Files.isDirectory(source)) {
-                        Files.createDirectories(destination);
-                    } else {
-                        Files.copy(source, destination, StandardCopyOption.REPLACE_EXISTING);
-                    }
-                } catch (IOException exception) {
-                    throw new RuntimeException("Failed to copy folder", exception);
-                }
-            });
-        } catch (IOException exception) {
-            throw new RuntimeException("Failed to copy folder", exception);
-        }
+        copyDirectoryContents(src, dst, StandardCopyOption.REPLACE_EXISTING);
     }
 
     /**
@@ -267,7 +252,18 @@ public final class FileUtils {
      * @return a Node representing the icon for the file type
      */
     public static Node getIcon(Path path) {
-        if (Files.isDirectory(path))
+        return getIcon(path, Files.isDirectory(path));
+    }
+
+    /**
+     * Gets the icon of a path whose type is already known, without touching the disk.
+     *
+     * @param path      the path
+     * @param directory whether the path is a directory
+     * @return the icon
+     */
+    public static Node getIcon(Path path, boolean directory) {
+        if (directory)
             return new FontIcon(FontAwesomeRegular.FOLDER);
 
         String extension = getExtension(path.toString());
@@ -302,18 +298,30 @@ public final class FileUtils {
         try (var stream = Files.newInputStream(path)) {
             byte[] buffer = new byte[1024];
             int read = stream.read(buffer);
-            for (int i = 0; i < read; i++) {
-                if (buffer[i] == 0) {
-                    return true;
-                }
-            }
-
-            return false;
+            return isBinaryContent(buffer, read);
         } catch (IOException exception) {
             throw new RuntimeException("Failed to check if file is binary", exception);
         }
     }
 
+    /**
+     * Checks whether content that was already read looks binary, the same way {@link #isBinaryFile(Path)} does.
+     * Only the first 1024 bytes are looked at.
+     *
+     * @param content the content of the file
+     * @param length  the number of bytes of the content that are valid
+     * @return true if the content is binary, false otherwise
+     */
+    public static boolean isBinaryContent(byte[] content, int length) {
+        for (int i = 0; i < Math.min(length, 1024); i++) {
+            if (content[i] == 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Checks if a file is an image file based on its extension.
      *
@@ -385,7 +393,7 @@ public final class FileUtils {
      * @param size the size in bytes
      * @return a string representing the size in a human-readable format
      */
-    private static String humanReadableByteCount(long size) {
+    public static String humanReadableByteCount(long size) {
         if (size <= 0)
             return "0 B";
 
@@ -397,19 +405,8 @@ public final class FileUtils {
     }
 
     public static void copyDirectoryContents(Path src, Path dst, CopyOption... options) {
-        try (Stream<Path> files = Files.walk(src)) {
-            files.forEach(source -> {
-                try {
-                    Path destination = dst.resolve(src.relativize(source));
-                    if (Files.isDirectory(source)) {
-                        Files.createDirectories(destination);
-                    } else {
-                        Files.copy(source, destination, options);
-                    }
-                } catch (IOException exception) {
-                    throw new RuntimeException("Failed to copy directory contents", exception);
-                }
-            });
+        try {
+            FileTreeCopier.copy(src, dst, null, options);
         } catch (IOException exception) {
             throw new RuntimeException("Failed to copy directory contents", exception);
         }
@@ -0,0 +1,330 @@
+package dev.railroadide.railroad.utility;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable piece of text stored as a balanced tree of small chunks.
+ * <p>
+ * {@link #replace(int, int, CharSequence)} returns a new rope in O(log n) that shares every chunk the edit did not
+ * touch with the old one, so keeping a rope per document version costs next to nothing and a version can be handed to
+ * other threads without copying or locking. Each node also counts its line breaks, so line lookups are O(log n) too.
+ * <p>
+ * Flattening with {@link #toString()} is linear, but the result is cached, so every reader of a version shares one
+ * copy.
+ */
+public final class Rope implements CharSequence {
+    public static final Rope EMPTY = new Rope(null);
+    private static final int MAX_CHUNK = 1024;
+
+    private final @Nullable Node root;
+    private String string;
+
+    private Rope(@Nullable Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Creates a rope of the given text.
+     *
+     * @param text the text
+     * @return the rope
+     */
+    public static Rope of(CharSequence text) {
+        return EMPTY.replace(0, 0, text);
+    }
+
+    /**
+     * Creates a new rope with part of this one replaced. This rope is left unchanged.
+     *
+     * @param start    the start of the replaced range
+     * @param end      the end of the replaced range, exclusive
+     * @param inserted the text to put in its place
+     * @return the new rope
+     */
+    public Rope replace(int start, int end, CharSequence inserted) {
+        if (start < 0 || end < start || end > length())
+            throw new IndexOutOfBoundsException("Range " + start + ".." + end + " out of bounds for length " + length());
+
+        if (start == end && inserted.isEmpty())
+            return this;
+
+        Node[] head = split(this.root, start);
+        Node[] tail = split(head[1], end - start);
+        return new Rope(join(join(head[0], build(inserted, 0, inserted.length())), tail[1]));
+    }
+
+    @Override
+    public int length() {
+        return this.root == null ? 0 : this.root.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length())
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length());
+
+        Node node = this.root;
+        while (node instanceof Branch branch) {
+            if (index < branch.left.length) {
+                node = branch.left;
+            } else {
+                index -= branch.left.length;
+                node = branch.right;
+            }
+        }
+
+        return ((Leaf) node).text.charAt(index);
+    }
+
+    @Override
+    public @NotNull CharSequence subSequence(int start, int end) {
+        if (start < 0 || end < start || end > length())
+            throw new IndexOutOfBoundsException("Range " + start + ".." + end + " out of bounds for length " + length());
+
+        var builder = new StringBuilder(end - start);
+        append(this.root, start, end, builder);
+        return builder.toString();
+    }
+
+    /**
+     * @return the number of lines, which is one more than the number of line breaks
+     */
+    public int lineCount() {
+        return (this.root == null ? 0 : this.root.newlines) + 1;
+    }
+
+    /**
+     * Finds the line containing an offset.
+     *
+     * @param offset the offset, clamped to the text
+     * @return the zero-based line of the offset
+     */
+    public int lineOf(int offset) {
+        int remaining = Math.clamp(offset, 0, length());
+        int line = 0;
+        Node node = this.root;
+        while (node instanceof Branch branch) {
+            if (remaining < branch.left.length) {
+                node = branch.left;
+            } else {
+                remaining -= branch.left.length;
+                line += branch.left.newlines;
+                node = branch.right;
+            }
+        }
+
+        if (node != null) {
+            String text = ((Leaf) node).text;
+            for (int index = 0; index < remaining; index++) {
+                if (text.charAt(index) == '\n') {
+                    line++;
+                }
+            }
+        }
+
+        return line;
+    }
+
+    /**
+     * Finds the offset a line starts at.
+     *
+     * @param line the zero-based line, clamped to the existing lines
+     * @return the offset of the first character of the line
+     */
+    public int lineStart(int line) {
+        // Find the line break that ends the previous line
+        int breaks = Math.clamp(line, 0, lineCount() - 1);
+        int offset = 0;
+        Node node = this.root;
+        if (breaks == 0 || node == null)
+            return 0;
+
+        while (node instanceof Branch branch) {
+            if (breaks <= branch.left.newlines) {
+                node = branch.left;
+            } else {
+                breaks -= branch.left.newlines;
+                offset += branch.left.length;
+                node = branch.right;
+            }
+        }
+
+        String text = ((Leaf) node).text;
+        for (int index = 0; index < text.length(); index++) {
+            if (text.charAt(index) == '\n' && --breaks == 0)
+                return offset + index + 1;
+        }
+
+        throw new IllegalStateException("Line break counts are inconsistent");
+    }
+
+    /**
+     * Finds the column of an offset within its line.
+     *
+     * @param offset the offset, clamped to the text
+     * @return the zero-based column of the offset
+     */
+    public int columnOf(int offset) {
+        offset = Math.clamp(offset, 0, length());
+        return offset - lineStart(lineOf(offset));
+    }
+
+    @Override
+    public @NotNull String toString() {
+        String string = this.string;
+        if (string == null) {
+            var builder = new StringBuilder(length());
+            append(this.root, 0, length(), builder);
+            // Racing threads may both build it, but they build the same string
+            this.string = string = builder.toString();
+        }
+
+        return string;
+    }
+
+    private static void append(@Nullable Node node, int start, int end, StringBuilder builder) {
+        if (node == null || start >= end)
+            return;
+
+        if (node instanceof Leaf leaf) {
+            builder.append(leaf.text, start, end);
+            return;
+        }
+
+        var branch = (Branch) node;
+        int leftLength = branch.left.length;
+        if (start < leftLength) {
+            append(branch.left, start, Math.min(end, leftLength), builder);
+        }
+
+        if (end > leftLength) {
+            append(branch.right, Math.max(0, start - leftLength), end - leftLength, builder);
+        }
+    }
+
+    private static @Nullable Node build(CharSequence text, int start, int end) {
+        if (start >= end)
+            return null;
+
+        if (end - start <= MAX_CHUNK)
+            return new Leaf(text.subSequence(start, end).toString());
+
+        int middle = (start + end) >>> 1;
+        return new Branch(build(text, start, middle), build(text, middle, end));
+    }
+
+    // Returns the parts before and after the offset, either of which may be null
+    private static Node[] split(@Nullable Node node, int offset) {
+        if (node == null)
+            return new Node[2];
+
+        if (offset <= 0)
+            return new Node[]{null, node};
+
+        if (offset >= node.length)
+            return new Node[]{node, null};
+
+        if (node instanceof Leaf leaf)
+            return new Node[]{new Leaf(leaf.text.substring(0, offset)), new Leaf(leaf.text.substring(offset))};
+
+        var branch = (Branch) node;
+        if (offset < branch.left.length) {
+            Node[] parts = split(branch.left, offset);
+            return new Node[]{parts[0], join(parts[1], branch.right)};
+        }
+
+        Node[] parts = split(branch.right, offset - branch.left.length);
+        return new Node[]{join(branch.left, parts[0]), parts[1]};
+    }
+
+    // Concatenates two trees, keeping the result balanced like an AVL tree
+    private static @Nullable Node join(@Nullable Node left, @Nullable Node right) {
+        if (left == null)
+            return right;
+
+        if (right == null)
+            return left;
+
+        if (left instanceof Leaf leftLeaf && right instanceof Leaf rightLeaf
+            && leftLeaf.text.length() + rightLeaf.text.length() <= MAX_CHUNK)
+            return new Leaf(leftLeaf.text + rightLeaf.text);
+
+        if (left.height > right.height + 1) {
+            var branch = (Branch) left;
+            return balance(branch.left, join(branch.right, right));
+        }
+
+        if (right.height > left.height + 1) {
+            var branch = (Branch) right;
+            return balance(join(left, branch.left), branch.right);
+        }
+
+        return new Branch(left, right);
+    }
+
+    // Joins two subtrees whose heights differ by at most two, rotating if they differ by two
+    private static Node balance(Node left, Node right) {
+        if (left.height > right.height + 1) {
+            var branch = (Branch) left;
+            if (branch.left.height >= branch.right.height)
+                return new Branch(branch.left, new Branch(branch.right, right));
+
+            var inner = (Branch) branch.right;
+            return new Branch(new Branch(branch.left, inner.left), new Branch(inner.right, right));
+        }
+
+        if (right.height > left.height + 1) {
+            var branch = (Branch) right;
+            if (branch.right.height >= branch.left.height)
+                return new Branch(new Branch(left, branch.left), branch.right);
+
+            var inner = (Branch) branch.left;
+            return new Branch(new Branch(left, inner.left), new Branch(inner.right, branch.right));
+        }
+
+        return new Branch(left, right);
+    }
+
+    private abstract static sealed class Node permits Leaf, Branch {
+        final int length;
+        final int newlines;
+        final int height;
+
+        Node(int length, int newlines, int height) {
+            this.length = length;
+            this.newlines = newlines;
+            this.height = height;
+        }
+    }
+
+    private static final class Leaf extends Node {
+        final String text;
+
+        Leaf(String text) {
+            super(text.length(), countNewlines(text), 0);
+            this.text = text;
+        }
+
+        private static int countNewlines(String text) {
+            int count = 0;
+            for (int index = text.indexOf('\n'); index >= 0; index = text.indexOf('\n', index + 1)) {
+                count++;
+            }
+
+            return count;
+        }
+    }
+
+    private static final class Branch extends Node {
+        final Node left;
+        final Node right;
+
+        Branch(Node left, Node right) {
+            super(left.length + right.length, left.newlines + right.newlines,
+                Math.max(left.height, right.height) + 1);
+            this.left = left;
+            this.right = right;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package dev.railroadide.railroad.utility;
+
+import dev.railroadide.railroad.Railroad;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The shared thread pools of the IDE, split into {@link Lane}s so that background work can never starve the work a
+ * user is waiting on.
+ * <p>
+ * Components do not submit to the lanes directly but through a {@link TaskOwner}, which remembers what it submitted
+ * so that everything belonging to, for example, an editor tab can be cancelled in one go when the tab is closed.
+ * The CPU bound lanes are bounded pools whose threads time out when idle; the I/O lane runs every task on its own
+ * virtual thread, since its tasks mostly block.
+ */
+public final class TaskScheduler {
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    private static final Map<Lane, LaneExecutor> LANES = new EnumMap<>(Lane.class);
+    // Only hands delayed tasks over to the executor they were scheduled on, so one thread serves everything
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "Railroad-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        for (Lane lane : Lane.values()) {
+            LANES.put(lane, new LaneExecutor(lane));
+        }
+
+        ShutdownHooks.addHook(() -> {
+            TIMER.shutdownNow();
+            LANES.values().forEach(executor -> executor.delegate.shutdownNow());
+        });
+    }
+
+    private TaskScheduler() {
+    }
+
+    /**
+     * Creates an owner to submit tasks through.
+     *
+     * @param name the name of the owner, used when logging failed tasks
+     * @return the owner
+     */
+    public static TaskOwner newOwner(String name) {
+        return new TaskOwner(name);
+    }
+
+    /**
+     * Creates an executor that runs its tasks in a lane one at a time, in the order they were submitted. Its tasks
+     * belong to no owner, so they are never cancelled or interrupted, which suits work such as saving a file that
+     * must neither be cut short nor overtaken by an older save.
+     *
+     * @param lane the lane to run tasks in
+     * @return the executor
+     */
+    public static Executor serial(Lane lane) {
+        return new SerialExecutor(task -> execute(lane, task));
+    }
+
+    /**
+     * Hands a task to an executor after a delay.
+     *
+     * @param executor the executor to run the task on, such as one of a {@link TaskOwner}
+     * @param task     the task
+     * @param delay    the delay
+     */
+    public static void executeLater(Executor executor, Runnable task, Duration delay) {
+        try {
+            TIMER.schedule(() -> executor.execute(task), delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // Only happens while shutting down
+        }
+    }
+
+    /**
+     * Gets the current load of every lane.
+     *
+     * @return the metrics of each lane
+     */
+    public static Map<Lane, LaneMetrics> getMetrics() {
+        Map<Lane, LaneMetrics> metrics = new EnumMap<>(Lane.class);
+        LANES.forEach((lane, executor) -> metrics.put(lane, executor.metrics()));
+        return metrics;
+    }
+
+    /**
+     * Gets the number of tasks waiting for a thread in a lane.
+     *
+     * @param lane the lane
+     * @return the queue depth of the lane
+     */
+    public static int getQueueDepth(Lane lane) {
+        return LANES.get(lane).queued.get();
+    }
+
+    static void execute(Lane lane, Runnable task) {
+        LANES.get(lane).execute(task);
+    }
+
+    /**
+     * The kinds of work the IDE runs in the background, from most to least urgent.
+     */
+    public enum Lane {
+        /**
+         * Short tasks a user is actively waiting on, such as completion.
+         */
+        INTERACTIVE(2, Thread.NORM_PRIORITY + 2),
+        /**
+         * Parsing and analysing open documents.
+         */
+        EDITOR_ANALYSIS(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), Thread.NORM_PRIORITY),
+        /**
+         * Long running indexing and searching.
+         */
+        BACKGROUND_INDEXING(Math.max(1, Runtime.getRuntime().availableProcessors() / 4), Thread.MIN_PRIORITY + 1),
+        /**
+         * Blocking file system and network work. Not bounded, since its tasks spend their time waiting.
+         */
+        IO(0, Thread.NORM_PRIORITY);
+
+        private final int threads;
+        private final int priority;
+
+        Lane(int threads, int priority) {
+            this.threads = threads;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * A point in time view of a lane.
+     *
+     * @param queued    the number of tasks waiting for a thread
+     * @param running   the number of tasks currently running
+     * @param completed the number of tasks that have finished since startup
+     */
+    public record LaneMetrics(int queued, int running, long completed) {
+    }
+
+    private static final class LaneExecutor implements Executor {
+        private final ExecutorService delegate;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicLong completed = new AtomicLong();
+
+        private LaneExecutor(Lane lane) {
+            String prefix = "Railroad-" + lane.name().toLowerCase().replace('_', '-') + "-";
+            if (lane.threads == 0) {
+                this.delegate = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory());
+            } else {
+                var count = new AtomicInteger();
+                var pool = new ThreadPoolExecutor(lane.threads, lane.threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        var thread = new Thread(runnable, prefix + count.getAndIncrement());
+                        thread.setDaemon(true);
+                        thread.setPriority(lane.priority);
+                        return thread;
+                    });
+                pool.allowCoreThreadTimeOut(true);
+                this.delegate = pool;
+            }
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            this.queued.incrementAndGet();
+            try {
+                this.delegate.execute(() -> {
+                    this.queued.decrementAndGet();
+                    this.running.incrementAndGet();
+                    try {
+                        task.run();
+                    } finally {
+                        this.running.decrementAndGet();
+                        this.completed.incrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException exception) {
+                // Only happens while shutting down
+                this.queued.decrementAndGet();
+            }
+        }
+
+        private LaneMetrics metrics() {
+            return new LaneMetrics(this.queued.get(), this.running.get(), this.completed.get());
+        }
+    }
+
+    private static final class SerialExecutor implements Executor {
+        private final Executor target;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean draining;
+
+        private SerialExecutor(Executor target) {
+            this.target = target;
+        }
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            this.tasks.add(task);
+            if (this.draining)
+                return;
+
+            this.draining = true;
+            this.target.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                Runnable task;
+                synchronized (this) {
+                    task = this.tasks.poll();
+                    if (task == null) {
+                        this.draining = false;
+                        return;
+                    }
+                }
+
+                try {
+                    task.run();
+                } catch (RuntimeException exception) {
+                    Railroad.LOGGER.error("Serial task failed", exception);
+                }
+            }
+        }
+    }
+
+    /**
+     * Submits tasks to the scheduler on behalf of one component, and cancels them all when it is closed.
+     */
+    public static final class TaskOwner implements AutoCloseable {
+        private final String name;
+        private final Set<Future<?>> tasks = ConcurrentHashMap.newKeySet();
+        private volatile boolean closed;
+
+        private TaskOwner(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Submits a task to a lane. Tasks submitted after the owner was closed are cancelled straight away.
+         *
+         * @param lane the lane to run the task in
+         * @param task the task
+         * @return a future that can be used to cancel the task
+         */
+        public Future<?> submit(Lane lane, Runnable task) {
+            var future = new FutureTask<Void>(task, null) {
+                @Override
+                protected void done() {
+                    tasks.remove(this);
+                    if (isCancelled())
+                        return;
+
+                    try {
+                        get();
+                    } catch (ExecutionException exception) {
+                        Railroad.LOGGER.error("Task of {} failed", name, exception.getCause());
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+
+            this.tasks.add(future);
+            // Checked after adding, so that a concurrent close either sees the task or the task sees the close
+            if (this.closed) {
+                future.cancel(false);
+                return future;
+            }
+
+            TaskScheduler.execute(lane, future);
+            return future;
+        }
+
+        /**
+         * Gets an executor that submits to a lane through this owner, for APIs that take an {@link Executor}.
+         *
+         * @param lane the lane to run tasks in
+         * @return the executor
+         */
+        public Executor executor(Lane lane) {
+            return task -> submit(lane, task);
+        }
+
+        /**
+         * Gets an executor that runs tasks through this owner one at a time, in the order they were submitted, for
+         * state that would otherwise need a thread of its own. Unlike {@link TaskScheduler#serial(Lane)}, its tasks
+         * are cancelled when the owner is closed.
+         *
+         * @param lane the lane to run tasks in
+         * @return the executor
+         */
+        public Executor serialExecutor(Lane lane) {
+            return new SerialExecutor(executor(lane));
+        }
+
+        /**
+         * @return the number of tasks of this owner that are queued or running
+         */
+        public int getPendingCount() {
+            return this.tasks.size();
+        }
+
+        /**
+         * Cancels every queued and running task of this owner, interrupting the running ones, and cancels every task
+         * submitted from now on.
+         */
+        @Override
+        public void close() {
+            this.closed = true;
+            for (Future<?> task : this.tasks) {
+                task.cancel(true);
+            }
+
+            this.tasks.clear();
+        }
+    }
+}
@@ -4,16 +4,209 @@ import javafx.application.Platform;
 import javafx.scene.control.TextArea;
 
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * An {@link OutputStream} that appends UTF-8 text to a {@link TextArea}.
+ * <p>
+ * Writes are decoded and buffered, then handed to the FX thread in one batch per frame instead of one
+ * {@link Platform#runLater(Runnable)} per write. The text area only ever retains the last {@code maxLines} lines,
+ * so long running builds do not grow the scrollback without bound.
+ */
 public class TextAreaOutputStream extends OutputStream {
+    public static final int DEFAULT_MAX_LINES = 10_000;
+    private static final long FRAME_MILLIS = 16;
+    private static final ScheduledExecutorService FLUSH_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "TextAreaOutputStream-Flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final TextArea textArea;
+    private final int maxLines;
+    private final Object lock = new Object();
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer undecoded = ByteBuffer.allocate(8192);
+    private final CharBuffer decoded = CharBuffer.allocate(8192);
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingLines;
+    // Set when the pending text alone fills the scrollback, so it replaces the text area rather than being appended
+    private boolean pendingReplaces;
+    private boolean flushScheduled;
+    private boolean closed;
+
+    // Ring buffer of the lengths (including the line break) of the lines currently in the text area
+    private final int[] lineLengths;
+    private int firstLine;
+    private int lineCount;
+    private int currentLineLength;
 
     public TextAreaOutputStream(TextArea textArea) {
+        this(textArea, DEFAULT_MAX_LINES);
+    }
+
+    public TextAreaOutputStream(TextArea textArea, int maxLines) {
+        if (maxLines <= 0)
+            throw new IllegalArgumentException("maxLines must be positive");
+
         this.textArea = textArea;
+        this.maxLines = maxLines;
+        this.lineLengths = new int[maxLines];
     }
 
     @Override
     public void write(int b) {
-        Platform.runLater(() -> textArea.appendText(String.valueOf((char) b)));
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        synchronized (lock) {
+            if (closed)
+                return;
+
+            while (length > 0) {
+                int chunk = Math.min(length, undecoded.remaining());
+                undecoded.put(bytes, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+                decode(false);
+            }
+
+            scheduleFlush();
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed)
+                return;
+
+            decode(true);
+            closed = true;
+            scheduleFlush();
+        }
+    }
+
+    private void decode(boolean endOfInput) {
+        undecoded.flip();
+
+        // Incomplete multi-byte sequences are left in the buffer until the rest of their bytes arrive
+        CoderResult result;
+        do {
+            result = decoder.decode(undecoded, decoded, endOfInput);
+            drainDecoded();
+        } while (result.isOverflow());
+
+        if (endOfInput) {
+            while (decoder.flush(decoded).isOverflow()) {
+                drainDecoded();
+            }
+
+            drainDecoded();
+            decoder.reset();
+        }
+
+        undecoded.compact();
+    }
+
+    private void drainDecoded() {
+        decoded.flip();
+        appendPending(decoded);
+        decoded.clear();
+    }
+
+    private void appendPending(CharSequence text) {
+        for (int index = 0; index < text.length(); index++) {
+            if (text.charAt(index) == '\n') {
+                pendingLines++;
+            }
+        }
+
+        pending.append(text);
+
+        // Anything beyond the retained line count would be trimmed right after being shown, so drop it here already.
+        // That includes all of the text area, whose last line may be unfinished, so the cut is always at a line break
+        // and the text area is replaced rather than appended to.
+        if (pendingLines > maxLines) {
+            int cut = 0;
+            while (pendingLines > maxLines) {
+                cut = pending.indexOf("\n", cut) + 1;
+                pendingLines--;
+            }
+
+            pending.delete(0, cut);
+            pendingReplaces = true;
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled || (pending.isEmpty() && !pendingReplaces))
+            return;
+
+        flushScheduled = true;
+        FLUSH_SCHEDULER.schedule(() -> Platform.runLater(this::flushToTextArea), FRAME_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushToTextArea() {
+        String batch;
+        boolean replace;
+        synchronized (lock) {
+            batch = pending.toString();
+            replace = pendingReplaces;
+            pending.setLength(0);
+            pendingLines = 0;
+            pendingReplaces = false;
+            flushScheduled = false;
+        }
+
+        if (batch.isEmpty() && !replace)
+            return;
+
+        if (replace) {
+            textArea.setText(batch);
+            firstLine = 0;
+            lineCount = 0;
+            currentLineLength = 0;
+        } else {
+            textArea.appendText(batch);
+        }
+
+        int removeLength = trackLines(batch);
+        if (removeLength > 0) {
+            textArea.deleteText(0, Math.min(removeLength, textArea.getLength()));
+        }
+    }
+
+    private int trackLines(String batch) {
+        int removeLength = 0;
+        for (int index = 0; index < batch.length(); index++) {
+            currentLineLength++;
+            if (batch.charAt(index) == '\n') {
+                if (lineCount == maxLines) {
+                    // The ring is full, so the oldest line makes room for this one
+                    removeLength += lineLengths[firstLine];
+                    firstLine = (firstLine + 1) % maxLines;
+                    lineCount--;
+                }
+
+                lineLengths[(firstLine + lineCount) % maxLines] = currentLineLength;
+                lineCount++;
+                currentLineLength = 0;
+            }
+        }
+
+        return removeLength;
     }
 }
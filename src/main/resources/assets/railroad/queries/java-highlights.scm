@@ -0,0 +1,116 @@
+; Java highlights. Every capture name is a style class from code-area.css.
+; When several patterns capture the same node, the one listed first wins.
+
+; Comments and literals
+
+[
+  (line_comment)
+  (block_comment)
+] @comment
+
+[
+  (string_literal)
+  (character_literal)
+] @string
+
+[
+  (decimal_integer_literal)
+  (hex_integer_literal)
+  (octal_integer_literal)
+  (binary_integer_literal)
+  (decimal_floating_point_literal)
+  (hex_floating_point_literal)
+] @number
+
+; Annotations
+
+(marker_annotation) @annotation
+
+(annotation
+  "@" @annotation
+  name: (_) @annotation)
+
+; Package and import declarations
+
+"package" @package
+
+"import" @import
+
+(import_declaration
+  (scoped_identifier
+    name: (identifier) @type))
+
+; Keywords, including the contextual ones
+
+[
+  "abstract"
+  "assert"
+  "break"
+  "case"
+  "catch"
+  "class"
+  "continue"
+  "default"
+  "do"
+  "else"
+  "enum"
+  "exports"
+  "extends"
+  "final"
+  "finally"
+  "for"
+  "if"
+  "implements"
+  "instanceof"
+  "interface"
+  "@interface"
+  "module"
+  "native"
+  "new"
+  "non-sealed"
+  "open"
+  "opens"
+  "permits"
+  "private"
+  "protected"
+  "provides"
+  "public"
+  "record"
+  "requires"
+  "return"
+  "sealed"
+  "static"
+  "strictfp"
+  "switch"
+  "synchronized"
+  "throw"
+  "throws"
+  "to"
+  "transient"
+  "transitive"
+  "try"
+  "uses"
+  "volatile"
+  "when"
+  "while"
+  "with"
+  "yield"
+  (this)
+  (super)
+  (true)
+  (false)
+  (null_literal)
+] @modifier
+
+[
+  (void_type)
+  (boolean_type)
+  (integral_type)
+  (floating_point_type)
+] @modifier
+
+; Names
+
+(type_identifier) @type
+
+(identifier) @name
@@ -0,0 +1,67 @@
+package dev.railroadide.railroad.ide.indexing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RegexLiteralsTest {
+    @Test
+    void plainTextIsOneLiteral() {
+        assertEquals(List.of(List.of("hello")), RegexLiterals.requiredLiterals("hello"));
+    }
+
+    @Test
+    void alternationGivesOneAlternativePerBranch() {
+        assertEquals(List.of(List.of("foo"), List.of("barbaz")), RegexLiterals.requiredLiterals("foo|barbaz"));
+    }
+
+    @Test
+    void alternationInsideGroupIsNotSplit() {
+        assertEquals(List.of(List.of("abc", "xyz")), RegexLiterals.requiredLiterals("abc(d|e)xyz"));
+    }
+
+    @Test
+    void branchWithoutLiteralMakesWholeRegexUnknown() {
+        assertNull(RegexLiterals.requiredLiterals("foobar|ab"));
+        assertNull(RegexLiterals.requiredLiterals("a.*b"));
+    }
+
+    @Test
+    void optionalCharacterIsDropped() {
+        assertEquals(List.of(List.of("colo")), RegexLiterals.requiredLiterals("colou?r"));
+        assertEquals(List.of(List.of("abc")), RegexLiterals.requiredLiterals("abcd*"));
+        assertEquals(List.of(List.of("hell", "world")), RegexLiterals.requiredLiterals("hello{0,3}world"));
+    }
+
+    @Test
+    void requiredRepetitionKeepsCharacter() {
+        assertEquals(List.of(List.of("abcd", "efg")), RegexLiterals.requiredLiterals("abcd+efg"));
+        assertEquals(List.of(List.of("abcd", "efg")), RegexLiterals.requiredLiterals("abcd{2}efg"));
+    }
+
+    @Test
+    void characterClassEndsLiteral() {
+        assertEquals(List.of(List.of("abc", "def")), RegexLiterals.requiredLiterals("abc[0-9]+def"));
+        assertEquals(List.of(List.of("abc", "def")), RegexLiterals.requiredLiterals("abc[]|(]def"));
+    }
+
+    @Test
+    void escapedCharactersArePartOfLiteral() {
+        assertEquals(List.of(List.of("foo.bar")), RegexLiterals.requiredLiterals("foo\\.bar"));
+        assertEquals(List.of(List.of("a\tbc")), RegexLiterals.requiredLiterals("a\\tbc"));
+        assertEquals(List.of(List.of("a.b*c")), RegexLiterals.requiredLiterals("\\Qa.b*c\\E"));
+    }
+
+    @Test
+    void characterClassEscapeEndsLiteral() {
+        assertEquals(List.of(List.of("foo", "bar")), RegexLiterals.requiredLiterals("foo\\d+bar"));
+    }
+
+    @Test
+    void commentsModeIsUnknown() {
+        assertNull(RegexLiterals.requiredLiterals("(?x) abc # comment"));
+    }
+}
@@ -0,0 +1,79 @@
+package dev.railroadide.railroad.ide.indexing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrigramIndexTest {
+    @TempDir
+    Path projectDir;
+    @TempDir
+    Path indexDir;
+
+    @Test
+    void searchesFindMatchesOnlyInFilesContainingThem() throws IOException {
+        Path hello = write("Hello.java", "class Hello {\n    void greet() {}\n}\n");
+        write("World.java", "class World {\n}\n");
+        TrigramIndex index = open();
+
+        List<TrigramIndex.FileMatches> matches = search(index, new TrigramIndex.Query("greet", false, true));
+        assertEquals(1, matches.size());
+        assertEquals(hello, matches.getFirst().file());
+        assertEquals(new TrigramIndex.Match(1, 9, 5, "    void greet() {}"), matches.getFirst().matches().getFirst());
+
+        assertEquals(List.of(), search(index, new TrigramIndex.Query("GREET", false, true)));
+        assertEquals(1, search(index, new TrigramIndex.Query("GREET", false, false)).size());
+        assertEquals(2, search(index, new TrigramIndex.Query("class (Hello|World)", true, true)).size());
+    }
+
+    @Test
+    void savedIndexIsReloadedAndBroughtUpToDate() throws IOException {
+        Path first = write("First.txt", "alpha beta\n");
+        Path second = write("Second.txt", "gamma delta\n");
+        TrigramIndex index = open();
+        index.save();
+        assertTrue(Files.isRegularFile(indexFile()));
+
+        TrigramIndex reloaded = open();
+        assertEquals(List.of(first), files(search(reloaded, new TrigramIndex.Query("beta", false, true))));
+        assertEquals(List.of(second), files(search(reloaded, new TrigramIndex.Query("gam+a", true, true))));
+
+        // A file changed while no index was open is read again when the saved index is next loaded
+        Files.writeString(second, "epsilon\n");
+        TrigramIndex updated = open();
+        assertEquals(List.of(), search(updated, new TrigramIndex.Query("gamma", false, true)));
+        assertEquals(List.of(second), files(search(updated, new TrigramIndex.Query("epsilon", false, true))));
+    }
+
+    private TrigramIndex open() {
+        var index = new TrigramIndex(this.projectDir.toAbsolutePath().normalize(), indexFile());
+        index.getLoaded().join();
+        return index;
+    }
+
+    private Path indexFile() {
+        return this.indexDir.resolve("text.idx");
+    }
+
+    private Path write(String name, String text) throws IOException {
+        return Files.writeString(this.projectDir.resolve(name), text).toAbsolutePath().normalize();
+    }
+
+    private static List<TrigramIndex.FileMatches> search(TrigramIndex index, TrigramIndex.Query query) {
+        List<TrigramIndex.FileMatches> matches = new ArrayList<>();
+        index.search(query, 100, matches::add);
+        return matches;
+    }
+
+    private static List<Path> files(List<TrigramIndex.FileMatches> matches) {
+        return matches.stream().map(TrigramIndex.FileMatches::file).toList();
+    }
+}
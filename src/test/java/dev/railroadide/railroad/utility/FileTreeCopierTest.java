@@ -0,0 +1,121 @@
+package dev.railroadide.railroad.utility;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileTreeCopierTest {
+    // Larger than the chunks large files are transferred in, so that the file takes more than one transfer
+    private static final int LARGE_FILE_SIZE = 8 * 1024 * 1024 + 12_345;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void copiesTreeAndReportsProgress() throws IOException {
+        Path source = this.directory.resolve("source");
+        write(source.resolve("a.txt"), "alpha");
+        write(source.resolve("nested/b.txt"), "beta");
+        Files.createDirectories(source.resolve("empty"));
+        Path target = this.directory.resolve("target");
+        List<FileTreeCopier.Progress> progress = new CopyOnWriteArrayList<>();
+
+        FileTreeCopier.copy(source, target, progress::add);
+
+        assertEquals("alpha", Files.readString(target.resolve("a.txt")));
+        assertEquals("beta", Files.readString(target.resolve("nested/b.txt")));
+        assertTrue(Files.isDirectory(target.resolve("empty")));
+        assertEquals(new FileTreeCopier.Progress(0, 9, 0, 2), progress.getFirst());
+        assertTrue(progress.contains(new FileTreeCopier.Progress(9, 9, 2, 2)));
+    }
+
+    @Test
+    void copiesLargeFileInChunks() throws IOException {
+        Path source = this.directory.resolve("large.bin");
+        byte[] bytes = new byte[LARGE_FILE_SIZE];
+        new Random(42).nextBytes(bytes);
+        Files.write(source, bytes);
+        Path target = this.directory.resolve("copy.bin");
+        List<FileTreeCopier.Progress> progress = new CopyOnWriteArrayList<>();
+
+        FileTreeCopier.copy(source, target, progress::add, StandardCopyOption.COPY_ATTRIBUTES);
+
+        assertEquals(-1, Files.mismatch(source, target));
+        assertEquals(Files.getLastModifiedTime(source), Files.getLastModifiedTime(target));
+        assertTrue(progress.stream().anyMatch(update -> update.bytesCopied() > 0 && update.bytesCopied() < LARGE_FILE_SIZE),
+            "No progress was reported partway through the file");
+        assertEquals(new FileTreeCopier.Progress(LARGE_FILE_SIZE, LARGE_FILE_SIZE, 1, 1), progress.getLast());
+    }
+
+    @Test
+    void interruptedCopyIsCancelled() throws IOException {
+        Path source = this.directory.resolve("source");
+        write(source.resolve("a.txt"), "alpha");
+        write(source.resolve("b.txt"), "beta");
+        Path largeFile = this.directory.resolve("large.bin");
+        Files.write(largeFile, new byte[LARGE_FILE_SIZE]);
+
+        try {
+            Thread.currentThread().interrupt();
+            assertThrows(InterruptedIOException.class,
+                () -> FileTreeCopier.copy(source, this.directory.resolve("target"), null));
+            assertTrue(Thread.currentThread().isInterrupted());
+
+            assertThrows(InterruptedIOException.class,
+                () -> FileTreeCopier.copy(largeFile, this.directory.resolve("copy.bin"), null));
+        } finally {
+            Thread.interrupted();
+        }
+
+        assertFalse(Files.exists(this.directory.resolve("copy.bin")));
+    }
+
+    @Test
+    void moveRenamesWhenPossible() throws IOException {
+        Path source = this.directory.resolve("source");
+        write(source.resolve("nested/a.txt"), "alpha");
+        Path target = this.directory.resolve("target");
+
+        FileTreeCopier.move(source, target, null);
+
+        assertFalse(Files.exists(source));
+        assertEquals("alpha", Files.readString(target.resolve("nested/a.txt")));
+    }
+
+    @Test
+    void moveIntoNonEmptyDirectoryFallsBackToCopyAndDelete() throws IOException {
+        Path source = this.directory.resolve("source");
+        write(source.resolve("a.txt"), "new alpha");
+        write(source.resolve("nested/b.txt"), "beta");
+        Path target = this.directory.resolve("target");
+        write(target.resolve("a.txt"), "old alpha");
+        write(target.resolve("c.txt"), "gamma");
+        List<FileTreeCopier.Progress> progress = new CopyOnWriteArrayList<>();
+
+        FileTreeCopier.move(source, target, progress::add);
+
+        assertFalse(Files.exists(source));
+        assertEquals("new alpha", Files.readString(target.resolve("a.txt")));
+        assertEquals("beta", Files.readString(target.resolve("nested/b.txt")));
+        assertEquals("gamma", Files.readString(target.resolve("c.txt")));
+        assertFalse(progress.isEmpty());
+    }
+
+    private static void write(Path file, String text) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, text);
+    }
+}